@@ -23,6 +23,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.nimbusds.oauth2.sdk.GeneralException;
 import io.netty.util.HashedWheelTimer;
@@ -93,8 +94,12 @@ import org.traccar.sms.SmsManager;
 import org.traccar.sms.SnsSmsClient;
 import org.traccar.speedlimit.OverpassSpeedLimitProvider;
 import org.traccar.speedlimit.SpeedLimitProvider;
+import org.traccar.storage.ArchiveStorage;
+import org.traccar.storage.DatabaseModule;
 import org.traccar.storage.DatabaseStorage;
 import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.PositionArchive;
+import org.traccar.storage.RoutingStorage;
 import org.traccar.storage.Storage;
 import org.traccar.web.WebServer;
 import org.traccar.api.security.LoginService;
@@ -103,8 +108,11 @@ import jakarta.annotation.Nullable;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -132,7 +140,8 @@ public class MainModule extends AbstractModule {
 
     @Singleton
     @Provides
-    public static Storage provideStorage(Injector injector, Config config) {
+    @Named("database")
+    public static Storage provideDatabaseStorage(Injector injector, Config config) {
         if (config.getBoolean(Keys.DATABASE_MEMORY)) {
             return injector.getInstance(MemoryStorage.class);
         } else {
@@ -140,6 +149,29 @@ public class MainModule extends AbstractModule {
         }
     }
 
+    @Singleton
+    @Provides
+    public static Storage provideStorage(@Named("database") Storage storage, PositionArchive archive) {
+        return archive.isEnabled() ? new ArchiveStorage(storage, archive) : storage;
+    }
+
+    @Singleton
+    @Provides
+    @Named("replica")
+    public static Storage provideReplicaStorage(
+            Config config, @Named("database") Storage databaseStorage, Storage storage, ObjectMapper objectMapper,
+            PositionArchive archive) {
+        if (!config.getBoolean(Keys.DATABASE_MEMORY)) {
+            DataSource dataSource = DatabaseModule.createReplicaDataSource(config);
+            if (dataSource != null) {
+                Storage result = new RoutingStorage(
+                        databaseStorage, new DatabaseStorage(config, dataSource, objectMapper, true));
+                return archive.isEnabled() ? new ArchiveStorage(result, archive) : result;
+            }
+        }
+        return storage;
+    }
+
     @Singleton
     @Provides
     public static ObjectMapper provideObjectMapper() {
@@ -155,6 +187,15 @@ public class MainModule extends AbstractModule {
         return ClientBuilder.newClient().register(objectMapperContextResolver);
     }
 
+    @Singleton
+    @Provides
+    public static HttpClient provideHttpClient(Config config) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(config.getInteger(Keys.EXPENSE_CONNECT_TIMEOUT)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
     @Singleton
     @Provides
     public static SmsManager provideSmsManager(Config config, Client client) {
@@ -21,8 +21,11 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.database.BufferingManager;
+import org.traccar.database.IngestJournal;
 import org.traccar.database.NotificationManager;
 import org.traccar.handler.BasePositionHandler;
 import org.traccar.handler.ComputedAttributesHandler;
@@ -40,6 +43,8 @@ import org.traccar.handler.MotionHandler;
 import org.traccar.handler.OutdatedHandler;
 import org.traccar.handler.PositionForwardingHandler;
 import org.traccar.handler.PostProcessHandler;
+import org.traccar.handler.RollupHandler;
+import org.traccar.handler.SegmentHandler;
 import org.traccar.handler.SpeedLimitHandler;
 import org.traccar.handler.TimeHandler;
 import org.traccar.handler.events.AlarmEventHandler;
@@ -59,39 +64,55 @@ import org.traccar.helper.PositionLogger;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 @Singleton
 @ChannelHandler.Sharable
 public class ProcessingHandler extends ChannelInboundHandlerAdapter implements BufferingManager.Callback {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingHandler.class);
+
+    private static final long REPLAY_TIMEOUT = 300;
+
     private final CacheManager cacheManager;
     private final NotificationManager notificationManager;
     private final PositionLogger positionLogger;
     private final BufferingManager bufferingManager;
+    private final IngestJournal journal;
     private final List<BasePositionHandler> positionHandlers;
     private final List<BaseEventHandler> eventHandlers;
     private final PostProcessHandler postProcessHandler;
 
-    private final Map<Long, Queue<Position>> queues = new HashMap<>();
+    private record QueuedPosition(ChannelHandlerContext ctx, Position position) {
+    }
+
+    private final Map<Long, Queue<QueuedPosition>> queues = new HashMap<>();
+
+    private volatile CountDownLatch replayLatch;
 
-    private synchronized Queue<Position> getQueue(long deviceId) {
+    private synchronized Queue<QueuedPosition> getQueue(long deviceId) {
         return queues.computeIfAbsent(deviceId, k -> new LinkedList<>());
     }
 
     @Inject
     public ProcessingHandler(
             Injector injector, Config config,
-            CacheManager cacheManager, NotificationManager notificationManager, PositionLogger positionLogger) {
+            CacheManager cacheManager, NotificationManager notificationManager, PositionLogger positionLogger,
+            IngestJournal journal) {
         this.cacheManager = cacheManager;
         this.notificationManager = notificationManager;
         this.positionLogger = positionLogger;
+        this.journal = journal;
         bufferingManager = new BufferingManager(config, this);
 
         positionHandlers = Stream.of(
@@ -111,7 +132,9 @@ public class ProcessingHandler extends ChannelInboundHandlerAdapter implements B
                 CopyAttributesHandler.class,
                 EngineHoursHandler.class,
                 PositionForwardingHandler.class,
-                DatabaseHandler.class)
+                DatabaseHandler.class,
+                RollupHandler.class,
+                SegmentHandler.class)
                 .map((clazz) -> (BasePositionHandler) injector.getInstance(clazz))
                 .filter(Objects::nonNull)
                 .toList();
@@ -139,19 +162,52 @@ public class ProcessingHandler extends ChannelInboundHandlerAdapter implements B
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof Position position) {
             cacheManager.addDevice(position.getDeviceId(), position);
+            if (journal.isEnabled()) {
+                try {
+                    journal.append(position, () -> ctx.writeAndFlush(
+                            new AcknowledgementHandler.EventHandled(position)));
+                } catch (IOException e) {
+                    LOGGER.warn("Journal write error", e);
+                }
+            }
             bufferingManager.accept(ctx, position);
         } else {
             super.channelRead(ctx, msg);
         }
     }
 
+    /**
+     * Processes journaled positions left from the previous run and waits for them to finish, so they are handled
+     * before any live positions of the same devices.
+     */
+    public void replayJournal() throws IOException, InterruptedException {
+        List<Position> positions = new ArrayList<>();
+        journal.replay(positions::add);
+        if (positions.isEmpty()) {
+            return;
+        }
+        replayLatch = new CountDownLatch(positions.size());
+        for (Position position : positions) {
+            try {
+                cacheManager.addDevice(position.getDeviceId(), position);
+                onReleased(null, position);
+            } catch (Exception e) {
+                LOGGER.warn("Journal replay error", e);
+                replayLatch.countDown();
+            }
+        }
+        if (!replayLatch.await(REPLAY_TIMEOUT, TimeUnit.SECONDS)) {
+            LOGGER.warn("Journal replay did not finish, {} positions still processing", replayLatch.getCount());
+        }
+    }
+
     @Override
     public void onReleased(ChannelHandlerContext context, Position position) {
-        Queue<Position> queue = getQueue(position.getDeviceId());
+        Queue<QueuedPosition> queue = getQueue(position.getDeviceId());
         boolean queued;
         synchronized (queue) {
             queued = !queue.isEmpty();
-            queue.offer(position);
+            queue.offer(new QueuedPosition(context, position));
         }
         if (!queued) {
             processPositionHandlers(context, position);
@@ -174,7 +230,7 @@ public class ProcessingHandler extends ChannelInboundHandlerAdapter implements B
                         finishedProcessing(ctx, position, true);
                     }
                 };
-                if (ctx.executor().inEventLoop()) {
+                if (ctx == null || ctx.executor().inEventLoop()) {
                     continuation.run();
                 } else {
                     ctx.executor().execute(continuation);
@@ -192,26 +248,37 @@ public class ProcessingHandler extends ChannelInboundHandlerAdapter implements B
     private void finishedProcessing(ChannelHandlerContext ctx, Position position, boolean filtered) {
         if (!filtered) {
             postProcessHandler.handlePosition(position, ignore -> {
-                positionLogger.log(ctx, position);
-                ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
-                processNextPosition(ctx, position.getDeviceId());
+                if (ctx != null) {
+                    positionLogger.log(ctx, position);
+                }
+                acknowledge(ctx, position);
+                processNextPosition(position.getDeviceId());
             });
         } else {
-            ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
-            processNextPosition(ctx, position.getDeviceId());
+            acknowledge(ctx, position);
+            processNextPosition(position.getDeviceId());
         }
         cacheManager.removeDevice(position.getDeviceId(), position);
+        if (ctx == null && replayLatch != null) {
+            replayLatch.countDown();
+        }
+    }
+
+    private void acknowledge(ChannelHandlerContext ctx, Position position) {
+        if (!journal.commit(position) && ctx != null) {
+            ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
+        }
     }
 
-    private void processNextPosition(ChannelHandlerContext ctx, long deviceId) {
-        Queue<Position> queue = getQueue(deviceId);
-        Position nextPosition;
+    private void processNextPosition(long deviceId) {
+        Queue<QueuedPosition> queue = getQueue(deviceId);
+        QueuedPosition next;
         synchronized (queue) {
             queue.poll(); // remove current position
-            nextPosition = queue.peek();
+            next = queue.peek();
         }
-        if (nextPosition != null) {
-            processPositionHandlers(ctx, nextPosition);
+        if (next != null) {
+            processPositionHandlers(next.ctx(), next.position());
         }
     }
 
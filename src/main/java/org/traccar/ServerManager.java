@@ -41,12 +41,17 @@ public class ServerManager implements LifecycleObject {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerManager.class);
 
+    private final Injector injector;
+    private final boolean journal;
+
     private final List<TrackerConnector> connectorList = new LinkedList<>();
     private final Map<String, BaseProtocol> protocolList = new ConcurrentHashMap<>();
 
     @Inject
     public ServerManager(
             Injector injector, Config config) throws IOException, URISyntaxException, ReflectiveOperationException {
+        this.injector = injector;
+        journal = config.hasKey(Keys.SERVER_JOURNAL_PATH);
         Set<String> enabledProtocols = null;
         if (config.hasKey(Keys.PROTOCOLS_ENABLE)) {
             enabledProtocols = new HashSet<>(Arrays.asList(config.getString(Keys.PROTOCOLS_ENABLE).split("[, ]")));
@@ -69,6 +74,9 @@ public class ServerManager implements LifecycleObject {
 
     @Override
     public void start() throws Exception {
+        if (journal) {
+            injector.getInstance(ProcessingHandler.class).replayJournal();
+        }
         for (TrackerConnector connector: connectorList) {
             try {
                 connector.start();
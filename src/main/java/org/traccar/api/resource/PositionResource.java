@@ -16,6 +16,7 @@
 package org.traccar.api.resource;
 
 import org.traccar.api.BaseResource;
+import org.traccar.database.RollupManager;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
 import org.traccar.model.Geofence;
@@ -24,12 +25,15 @@ import org.traccar.model.UserRestrictions;
 import org.traccar.reports.CsvExportProvider;
 import org.traccar.reports.GpxExportProvider;
 import org.traccar.reports.KmlExportProvider;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.DELETE;
@@ -53,6 +57,10 @@ import java.util.stream.Stream;
 @Consumes(MediaType.APPLICATION_JSON)
 public class PositionResource extends BaseResource {
 
+    @Inject
+    @Named("replica")
+    private Storage replicaStorage;
+
     @Inject
     private KmlExportProvider kmlExportProvider;
 
@@ -62,6 +70,12 @@ public class PositionResource extends BaseResource {
     @Inject
     private GpxExportProvider gpxExportProvider;
 
+    @Inject
+    private ReportCache reportCache;
+
+    @Inject
+    private RollupManager rollupManager;
+
     @GET
     public Stream<Position> getJson(
             @QueryParam("deviceId") long deviceId, @QueryParam("id") List<Long> positionIds,
@@ -84,7 +98,7 @@ public class PositionResource extends BaseResource {
                 Geofence geofence = geofenceId == 0 ? null : storage.getObject(Geofence.class, new Request(
                         new Columns.All(), new Condition.Equals("id", geofenceId)));
 
-                return PositionUtil.getPositionsStream(storage, deviceId, from, to)
+                return PositionUtil.getPositionsStream(replicaStorage, deviceId, from, to)
                         .filter(position -> geofence == null || geofence.containsPosition(position));
             } else {
                 return storage.getObjectsStream(Position.class, new Request(
@@ -109,6 +123,8 @@ public class PositionResource extends BaseResource {
         permissionsService.checkPermission(Device.class, getUserId(), position.getDeviceId());
 
         storage.removeObject(Position.class, request);
+        reportCache.invalidate(position.getDeviceId(), position.getFixTime());
+        rollupManager.invalidate(position.getDeviceId(), position.getFixTime(), position.getFixTime());
         return Response.status(Response.Status.NO_CONTENT).build();
     }
 
@@ -123,6 +139,8 @@ public class PositionResource extends BaseResource {
         conditions.add(new Condition.Equals("deviceId", deviceId));
         conditions.add(new Condition.Between("fixTime", from, to));
         storage.removeObject(Position.class, new Request(Condition.merge(conditions)));
+        reportCache.invalidate(deviceId, from, to);
+        rollupManager.invalidate(deviceId, from, to);
 
         return Response.status(Response.Status.NO_CONTENT).build();
     }
@@ -18,6 +18,7 @@ package org.traccar.api.resource;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.core.Context;
+import org.eclipse.jetty.ee10.servlet.ServletContextRequest;
 import org.traccar.api.SimpleObjectResource;
 import org.traccar.helper.LogAction;
 import org.traccar.model.Event;
@@ -31,6 +32,8 @@ import org.traccar.reports.RouteReportProvider;
 import org.traccar.reports.StopsReportProvider;
 import org.traccar.reports.SummaryReportProvider;
 import org.traccar.reports.TripsReportProvider;
+import org.traccar.reports.common.DeviceReportExecutor;
+import org.traccar.reports.common.ReportCache;
 import org.traccar.reports.common.ReportExecutor;
 import org.traccar.reports.common.ReportMailer;
 import org.traccar.reports.model.CombinedReportItem;
@@ -87,6 +90,12 @@ public class ReportResource extends SimpleObjectResource<Report> {
     @Inject
     private ReportMailer reportMailer;
 
+    @Inject
+    private DeviceReportExecutor deviceReportExecutor;
+
+    @Inject
+    private ReportCache reportCache;
+
     @Inject
     private LogAction actionLogger;
 
@@ -97,13 +106,19 @@ public class ReportResource extends SimpleObjectResource<Report> {
         super(Report.class, "description");
     }
 
+    private boolean isDisconnected() {
+        ServletContextRequest contextRequest = ServletContextRequest.getServletContextRequest(request);
+        return contextRequest != null
+                && !contextRequest.getConnectionMetaData().getConnection().getEndPoint().isOpen();
+    }
+
     private Response executeReport(long userId, boolean mail, ReportExecutor executor) {
         if (mail) {
             reportMailer.sendAsync(userId, executor);
             return Response.noContent().build();
         } else {
             StreamingOutput stream = output -> {
-                try {
+                try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
                     executor.execute(output);
                 } catch (StorageException e) {
                     throw new WebApplicationException(e);
@@ -123,7 +138,9 @@ public class ReportResource extends SimpleObjectResource<Report> {
             @QueryParam("to") Date to) throws StorageException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
         actionLogger.report(request, getUserId(), false, "combined", from, to, deviceIds, groupIds);
-        return combinedReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
+            return combinedReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        }
     }
 
     @Path("route")
@@ -135,7 +152,9 @@ public class ReportResource extends SimpleObjectResource<Report> {
             @QueryParam("to") Date to) throws StorageException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
         actionLogger.report(request, getUserId(), false, "route", from, to, deviceIds, groupIds);
-        return routeReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
+            return routeReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        }
     }
 
     @Path("route")
@@ -222,7 +241,9 @@ public class ReportResource extends SimpleObjectResource<Report> {
             @QueryParam("daily") boolean daily) throws StorageException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
         actionLogger.report(request, getUserId(), false, "summary", from, to, deviceIds, groupIds);
-        return summaryReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to, daily);
+        try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
+            return summaryReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to, daily);
+        }
     }
 
     @Path("summary")
@@ -264,7 +285,9 @@ public class ReportResource extends SimpleObjectResource<Report> {
             @QueryParam("to") Date to) throws StorageException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
         actionLogger.report(request, getUserId(), false, "trips", from, to, deviceIds, groupIds);
-        return tripsReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
+            return tripsReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        }
     }
 
     @Path("trips")
@@ -304,7 +327,9 @@ public class ReportResource extends SimpleObjectResource<Report> {
             @QueryParam("to") Date to) throws StorageException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getDisableReports);
         actionLogger.report(request, getUserId(), false, "stops", from, to, deviceIds, groupIds);
-        return stopsReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        try (var scope = deviceReportExecutor.watch(this::isDisconnected)) {
+            return stopsReportProvider.getObjects(getUserId(), deviceIds, groupIds, from, to);
+        }
     }
 
     @Path("stops")
@@ -346,4 +371,11 @@ public class ReportResource extends SimpleObjectResource<Report> {
         });
     }
 
+    @Path("cache")
+    @GET
+    public ReportCache.Statistics getCacheStatistics() throws StorageException {
+        permissionsService.checkAdmin(getUserId());
+        return reportCache.getStatistics();
+    }
+
 }
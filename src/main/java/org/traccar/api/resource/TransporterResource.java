@@ -20,8 +20,6 @@ import org.traccar.storage.query.Request;
 
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Path("/transporters")
 @Produces(MediaType.APPLICATION_JSON)
@@ -49,11 +47,9 @@ public class TransporterResource extends BaseResource {
             condition = new Condition.And(condition, new Condition.Compare("name", "ILIKE", "%" + search + "%"));
         }
 
-        Stream<Transporter> stream = storage.getObjectsStream(Transporter.class,
-                new Request(new Columns.All(), condition, new Order("name")));
-        List<Transporter> all = stream.collect(Collectors.toList());
-        int total = all.size();
-        List<Transporter> page = all.stream().skip(offset).limit(limit).collect(Collectors.toList());
+        List<Transporter> page = storage.getObjects(Transporter.class,
+                new Request(new Columns.All(), condition, new Order("name", false, limit, offset)));
+        long total = storage.countObjects(Transporter.class, new Request(condition));
 
         JSONArray items = new JSONArray();
         for (Transporter t : page) {
@@ -1,5 +1,6 @@
 package org.traccar.api.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
@@ -7,12 +8,15 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.expense.FuelPriceIndex;
+import org.traccar.expense.RouteCache;
+import org.traccar.expense.TollIndex;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -23,9 +27,16 @@ import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import java.util.stream.Collectors;
 
@@ -34,9 +45,32 @@ import java.util.stream.Collectors;
 @Consumes({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED })
 public class TripExpenseResource {
 
+    private static final double TOLL_DISTANCE = 2000;
+
+    private static final String ROUTE_PROVIDER = "ola";
+    private static final String ROUTE_PROFILE = "driving";
+
     @Inject
     private Config config;
 
+    @Inject
+    private HttpClient httpClient;
+
+    @Inject
+    private TollIndex tollIndex;
+
+    @Inject
+    private FuelPriceIndex fuelPriceIndex;
+
+    @Inject
+    private RouteCache routeCache;
+
+    @Inject
+    private ExecutorService executor;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     private String getOlaApiKey() {
         try {
             String k = config.getString(Keys.OLA_MAPS_API_KEY);
@@ -51,8 +85,13 @@ public class TripExpenseResource {
         }
     }
 
+    private String getOlaUrl() {
+        String url = config.getString(Keys.OLA_MAPS_URL);
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
     private static final Logger LOGGER = LoggerFactory.getLogger(TripExpenseResource.class);
-    private String lastRouteError = null;
+    private final ThreadLocal<String> lastRouteError = new ThreadLocal<>();
 
     public TripExpenseResource() {
     }
@@ -114,6 +153,113 @@ public class TripExpenseResource {
                 }
             }
 
+            return calculateTrip(payload);
+
+        } catch (Exception e) {
+            LOGGER.warn("Error in calculate: {}", e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(Map.of("error", e.getMessage()))
+                    .build();
+        }
+    }
+
+    @Path("batch")
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces("application/x-ndjson")
+    public Response calculateBatch(String body) {
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        try {
+            var root = new org.json.JSONTokener(body == null ? "" : body).nextValue();
+            var trips = root instanceof org.json.JSONObject object ? object.optJSONArray("trips") : root;
+            if (!(trips instanceof org.json.JSONArray array)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.APPLICATION_JSON_TYPE)
+                        .entity(Map.of("error", "Expected an array of trips or an object with a trips array"))
+                        .build();
+            }
+            for (int i = 0; i < array.length(); i++) {
+                Map<String, Object> payload = new HashMap<>();
+                var obj = array.optJSONObject(i);
+                if (obj != null) {
+                    for (String key : obj.keySet()) {
+                        payload.put(key, obj.get(key));
+                    }
+                }
+                payloads.add(payload);
+            }
+        } catch (org.json.JSONException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(Map.of("error", "Invalid JSON: " + e.getMessage()))
+                    .build();
+        }
+
+        int limit = config.getInteger(Keys.EXPENSE_BATCH_LIMIT);
+        if (payloads.size() > limit) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(Map.of("error", "Too many trips in batch, limit is " + limit))
+                    .build();
+        }
+
+        int concurrency = Math.max(1, config.getInteger(Keys.EXPENSE_BATCH_CONCURRENCY));
+        StreamingOutput stream = output -> {
+            CompletionService<Map<String, Object>> completionService = new ExecutorCompletionService<>(executor);
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            try {
+                int submitted = 0;
+                for (int completed = 0; completed < payloads.size(); completed++) {
+                    while (submitted < payloads.size() && submitted - completed < concurrency) {
+                        int index = submitted++;
+                        futures.add(completionService.submit(() -> calculateBatchItem(index, payloads.get(index))));
+                    }
+                    Map<String, Object> result;
+                    try {
+                        result = completionService.take().get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    } catch (ExecutionException e) {
+                        throw new IOException(e.getCause());
+                    }
+                    output.write(objectMapper.writeValueAsBytes(result));
+                    output.write('\n');
+                    output.flush();
+                }
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        };
+        return Response.ok(stream).build();
+    }
+
+    private Map<String, Object> calculateBatchItem(int index, Map<String, Object> payload) {
+        Response response;
+        try {
+            response = calculateTrip(payload);
+        } catch (Exception e) {
+            LOGGER.warn("Error in batch calculate: {}", e.getMessage());
+            response = Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", String.valueOf(e.getMessage()))).build();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        if (payload.containsKey("id")) {
+            result.put("id", payload.get("id").toString());
+        }
+        result.put("status", response.getStatus());
+        if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+            result.put("result", response.getEntity());
+        } else if (response.getEntity() instanceof Map<?, ?> entity) {
+            result.put("error", entity.get("error"));
+        }
+        return result;
+    }
+
+    private Response calculateTrip(Map<String, Object> payload) {
+        try {
+            lastRouteError.remove();
+
             if (payload == null || !payload.containsKey("vehicle_type") || payload.get("vehicle_type") == null
                     || !payload.containsKey("mileage") || payload.get("mileage") == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -162,7 +308,7 @@ public class TripExpenseResource {
                 destCoordParsed = parseCoord(payload.get("dest_coord"));
             }
             if (startCoordParsed != null && destCoordParsed != null) {
-                route = getRouteUsingCoords(startCoordParsed, destCoordParsed);
+                route = getCachedRoute(startCoordParsed, destCoordParsed);
                 if (start == null) {
                     start = startCoordParsed.get(1) + "," + startCoordParsed.get(0);
                 }
@@ -170,11 +316,11 @@ public class TripExpenseResource {
                     destination = destCoordParsed.get(1) + "," + destCoordParsed.get(0);
                 }
             } else {
-                route = getRoute(start, destination);
+                route = getCachedRoute(start, destination);
             }
             if (route == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(Map.of("error", "Failed to compute route: " + lastRouteError))
+                        .entity(Map.of("error", "Failed to compute route: " + lastRouteError.get()))
                         .build();
             }
 
@@ -190,7 +336,6 @@ public class TripExpenseResource {
 
             // cumulative distances intentionally not used currently
 
-            List<Map<String, Object>> tolls = loadTollsResource("data/nhai_toll_data.json");
 
             // simplified fuel handling (same as original)
             List<Map<String, Object>> refuels = new ArrayList<>();
@@ -231,24 +376,17 @@ public class TripExpenseResource {
                 totalFuelCost = totalFuelNeeded * usedPrice;
                 LOGGER.info("Using user-provided per-litre fuel price: {} per litre", round(usedPrice, 2));
             } else {
-                List<Map<String, Object>> fuelPrices = loadFuelPricesResource("data/fuel_prices.json", fuelType);
-                Map<String, Object> delhiEntry = null;
-                for (var e : fuelPrices) {
-                    if ("Delhi".equalsIgnoreCase((String) e.getOrDefault("state", ""))) {
-                        delhiEntry = e;
-                        break;
-                    }
+                FuelPriceIndex.FuelPrice fuelPrice = fuelPriceIndex.findNearest(
+                        fuelType, points.get(0).get(1), points.get(0).get(0));
+                if (fuelPrice == null) {
+                    fuelPrice = fuelPriceIndex.getDefaultPrice(fuelType);
                 }
-                if (delhiEntry != null) {
-                    usedPrice = toDouble(delhiEntry.getOrDefault("price", 0.0));
-                    totalFuelCost = totalFuelNeeded * usedPrice;
-                } else if (!fuelPrices.isEmpty()) {
-                    usedPrice = toDouble(fuelPrices.get(0).getOrDefault("price", 0.0));
-                    totalFuelCost = totalFuelNeeded * usedPrice;
+                if (fuelPrice != null) {
+                    usedPrice = fuelPrice.price();
                 } else {
                     usedPrice = 110.0; // hardcoded fallback
-                    totalFuelCost = totalFuelNeeded * usedPrice;
                 }
+                totalFuelCost = totalFuelNeeded * usedPrice;
             }
 
             refuels.add(Map.of("price_per_litre", round(usedPrice, 2), "cost", round(totalFuelCost, 2),
@@ -259,67 +397,18 @@ public class TripExpenseResource {
             List<Map<String, Object>> tollDetails = new ArrayList<>();
 
             try {
-                java.util.Set<Object> seen = new java.util.HashSet<>();
-                for (var toll : tolls) {
-                    if (toll == null)
-                        continue;
-
-                    Object locObj = toll.get("location");
-                    double tollLat = Double.NaN, tollLon = Double.NaN;
-
-                    if (locObj instanceof Map<?, ?> locMap) {
-                        Map<?, ?> lm = (Map<?, ?>) locMap;
-                        if (lm.containsKey("lat") || lm.containsKey("latitude") || lm.containsKey("lng")
-                                || lm.containsKey("lon") || lm.containsKey("longitude")) {
-                            Object latObj = lm.containsKey("lat") ? lm.get("lat")
-                                    : (lm.containsKey("latitude") ? lm.get("latitude") : null);
-                            Object lonObj = lm.containsKey("lon") ? lm.get("lon")
-                                    : (lm.containsKey("longitude") ? lm.get("longitude")
-                                            : (lm.containsKey("lng") ? lm.get("lng") : null));
-                            tollLat = toDouble(latObj);
-                            tollLon = toDouble(lonObj);
-                        }
-                    } else if (locObj instanceof List<?> locList && locList.size() >= 2) {
-                        double a = toDouble(locList.get(0));
-                        double b = toDouble(locList.get(1));
-                        if (Math.abs(a) <= 90 && Math.abs(b) <= 180) {
-                            tollLat = a;
-                            tollLon = b;
-                        } else {
-                            tollLat = b;
-                            tollLon = a;
-                        }
-                    } else {
-                        Object latObj = toll.get("lat") != null ? toll.get("lat") : toll.get("latitude");
-                        Object lonObj = toll.get("lon") != null ? toll.get("lon") : toll.get("longitude");
-                        if (latObj != null && lonObj != null) {
-                            tollLat = toDouble(latObj);
-                            tollLon = toDouble(lonObj);
-                        }
-                    }
-
-                    if (Double.isNaN(tollLat) || Double.isNaN(tollLon) || (tollLat == 0.0 && tollLon == 0.0))
-                        continue;
-
-                    double minDist = minDistanceToRoute(tollLat, tollLon, points);
-                    if (minDist <= 2.0) {
-                        Object id = toll.getOrDefault("id", toll.get("name"));
-                        if (id != null && seen.contains(id))
-                            continue;
-                        if (id != null)
-                            seen.add(id);
-
-                        double fee = extractTollFee(toll, tollKey);
-                        if (fee > 0.0) {
-                            tollTotal += fee;
-                            Map<String, Object> td = new HashMap<>();
-                            td.put("name", toll.getOrDefault("name", "<unknown>"));
-                            td.put("lat", tollLat);
-                            td.put("lon", tollLon);
-                            td.put("fee", fee);
-                            td.put("distance_from_route_km", round(minDist, 2));
-                            tollDetails.add(td);
-                        }
+                for (TollIndex.Match match : tollIndex.findTolls(points, TOLL_DISTANCE)) {
+                    TollIndex.TollPlaza toll = match.plaza();
+                    double fee = toll.getFee(tollKey);
+                    if (fee > 0.0) {
+                        tollTotal += fee;
+                        Map<String, Object> td = new HashMap<>();
+                        td.put("name", toll.name());
+                        td.put("lat", toll.latitude());
+                        td.put("lon", toll.longitude());
+                        td.put("fee", fee);
+                        td.put("distance_from_route_km", round(match.distance() / 1000, 2));
+                        tollDetails.add(td);
                     }
                 }
             } catch (Exception e) {
@@ -409,21 +498,64 @@ public class TripExpenseResource {
 
     // --- Ola Maps specific helpers: geocode, reverse geocode, and routing ---
 
+    /**
+     * Route together with the failure reason of the load, so requests sharing an in-flight load report the same
+     * error as the request that ran it.
+     */
+    private record RouteResult(Map<String, Object> route, String error) {
+        boolean isCacheable() {
+            return route != null && route.get("points") instanceof List<?> points && !points.isEmpty();
+        }
+    }
+
+    private Map<String, Object> getCachedRoute(
+            String key, RouteCache.Loader<Map<String, Object>> loader) throws Exception {
+        RouteResult result = routeCache.get(key, () -> {
+            lastRouteError.remove();
+            Map<String, Object> route = loader.load();
+            return new RouteResult(
+                    route != null ? Collections.unmodifiableMap(route) : null, lastRouteError.get());
+        }, RouteResult::isCacheable);
+        if (result.error() != null) {
+            lastRouteError.set(result.error());
+        }
+        return result.route();
+    }
+
+    private Map<String, Object> getCachedRoute(String start, String destination) throws Exception {
+        return getCachedRoute(RouteCache.routeKey(ROUTE_PROVIDER, ROUTE_PROFILE, start, destination),
+                () -> getRoute(start, destination));
+    }
+
+    private Map<String, Object> getCachedRoute(List<Double> startCoord, List<Double> destCoord) throws Exception {
+        if (startCoord.size() < 2 || destCoord.size() < 2) {
+            return getRouteUsingCoords(startCoord, destCoord);
+        }
+        return getCachedRoute(RouteCache.routeKey(ROUTE_PROVIDER, ROUTE_PROFILE, startCoord, destCoord),
+                () -> getRouteUsingCoords(startCoord, destCoord));
+    }
+
+    private List<Double> getCachedCoordinates(String text) throws Exception {
+        return routeCache.get(RouteCache.geocodeKey(ROUTE_PROVIDER, text), () -> {
+            List<Double> coordinates = geocode(text);
+            return coordinates != null ? List.copyOf(coordinates) : null;
+        });
+    }
+
     private Map<String, Object> getRoute(String start, String destination) throws Exception {
         // Use Ola Maps geocoding for start/destination then request directions
-        List<Double> startCoord = geocode(start);
-        List<Double> destCoord = geocode(destination);
+        List<Double> startCoord = getCachedCoordinates(start);
+        List<Double> destCoord = getCachedCoordinates(destination);
         if (startCoord == null || destCoord == null) {
-            lastRouteError = "geocode_failed_for_start_or_destination";
+            lastRouteError.set("geocode_failed_for_start_or_destination");
             return null;
         }
 
-        var client = HttpClient.newHttpClient();
         // Use origin/destination query params (lat,lng) per Ola Maps spec. Our coords
         // are [lon,lat].
         String origin = String.format(java.util.Locale.ROOT, "%f,%f", startCoord.get(1), startCoord.get(0));
         String destinationQ = String.format(java.util.Locale.ROOT, "%f,%f", destCoord.get(1), destCoord.get(0));
-        String url = "https://api.olamaps.io/routing/v1/directions?origin="
+        String url = getOlaUrl() + "/routing/v1/directions?origin="
                 + java.net.URLEncoder.encode(origin, StandardCharsets.UTF_8)
                 + "&destination=" + java.net.URLEncoder.encode(destinationQ, StandardCharsets.UTF_8)
                 + "&overview=full&steps=false&api_key=" + getOlaApiKey();
@@ -438,11 +570,11 @@ public class TripExpenseResource {
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
 
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         System.out.println(resp.body());
         String text = resp.body();
         if (resp.statusCode() != 200) {
-            lastRouteError = "directions_http_" + resp.statusCode();
+            lastRouteError.set("directions_http_" + resp.statusCode());
             LOGGER.warn("Ola directions request failed: status={} body={}...", resp.statusCode(),
                     resp.body() == null ? "<empty>"
                             : (resp.body().length() > 500 ? resp.body().substring(0, 500) : resp.body()));
@@ -603,7 +735,7 @@ public class TripExpenseResource {
                 }
             }
         } catch (Exception e) {
-            lastRouteError = "directions_parse_error: " + e.getMessage();
+            lastRouteError.set("directions_parse_error: " + e.getMessage());
             LOGGER.warn("Failed to parse Ola directions response: {}", e.getMessage());
         }
 
@@ -634,15 +766,14 @@ public class TripExpenseResource {
     }
 
     private List<Double> geocode(String text) throws Exception {
-        var client = HttpClient.newHttpClient();
         String q = java.net.URLEncoder.encode(text, StandardCharsets.UTF_8);
-        String url = "https://api.olamaps.io/places/v1/geocode?input=" + q + "&size=1&api_key=" + getOlaApiKey();
+        String url = getOlaUrl() + "/places/v1/geocode?input=" + q + "&size=1&api_key=" + getOlaApiKey();
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .timeout(Duration.ofSeconds(20))
                 .GET()
                 .build();
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         if (resp.statusCode() != 200)
             return null;
         var obj = new org.json.JSONObject(resp.body());
@@ -662,16 +793,15 @@ public class TripExpenseResource {
 
     private List<Double> reverseGeocodePoint(Double lat, Double lon) {
         try {
-            var client = HttpClient.newHttpClient();
             String q = String.format(java.util.Locale.ROOT, "%f,%f", lat, lon);
-            String url = "https://api.olamaps.io/places/v1/reverse-geocode?location=" + q + "&size=1&api_key="
+            String url = getOlaUrl() + "/places/v1/reverse-geocode?location=" + q + "&size=1&api_key="
                     + getOlaApiKey();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
                     .timeout(Duration.ofSeconds(10))
                     .GET()
                     .build();
-            HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (resp.statusCode() != 200) {
                 return null;
             }
@@ -708,15 +838,14 @@ public class TripExpenseResource {
             String p1 = String.format(java.util.Locale.ROOT, "%f,%f", startCoord.get(1), startCoord.get(0));
             String p2 = String.format(java.util.Locale.ROOT, "%f,%f", destCoord.get(1), destCoord.get(0));
             String pointsParam = java.net.URLEncoder.encode(p1 + "|" + p2, StandardCharsets.UTF_8);
-            String url = "https://api.olamaps.io/routing/v1/snapToRoad?points=" + pointsParam + "&api_key="
+            String url = getOlaUrl() + "/routing/v1/snapToRoad?points=" + pointsParam + "&api_key="
                     + getOlaApiKey();
-            var client = HttpClient.newHttpClient();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
                     .timeout(Duration.ofSeconds(20))
                     .GET()
                     .build();
-            HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (resp.statusCode() != 200)
                 return null;
             var obj = new org.json.JSONObject(resp.body());
@@ -752,85 +881,6 @@ public class TripExpenseResource {
         }
     }
 
-    private List<Map<String, Object>> loadTollsResource(String path) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(path)) {
-            if (is == null)
-                return List.of();
-            String text = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)).lines()
-                    .collect(Collectors.joining("\n"));
-            var obj = new org.json.JSONObject(text);
-            var list = new ArrayList<Map<String, Object>>();
-            if (obj.has("toll_plazas")) {
-                var arr = obj.getJSONArray("toll_plazas");
-                for (int i = 0; i < arr.length(); i++) {
-                    var o = arr.getJSONObject(i);
-                    list.add(o.toMap());
-                }
-            } else if (obj.has("plazas")) {
-                var arr = obj.getJSONArray("plazas");
-                for (int i = 0; i < arr.length(); i++) {
-                    var o = arr.getJSONObject(i);
-                    list.add(o.toMap());
-                }
-            } else {
-                try {
-                    var arr = new org.json.JSONArray(text);
-                    for (int i = 0; i < arr.length(); i++) {
-                        var o = arr.getJSONObject(i);
-                        list.add(o.toMap());
-                    }
-                } catch (Exception e) {
-                }
-            }
-            return list;
-        } catch (IOException e) {
-            return List.of();
-        }
-    }
-
-    private List<Map<String, Object>> loadFuelPricesResource(String path, String fuelType) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(path)) {
-            if (is == null)
-                return List.of();
-            String text = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)).lines()
-                    .collect(Collectors.joining("\n"));
-            var obj = new org.json.JSONObject(text);
-            var list = new ArrayList<Map<String, Object>>();
-            var states = obj.keySet();
-            for (String state : states) {
-                var citiesObj = obj.getJSONObject(state);
-                for (var city : citiesObj.keySet()) {
-                    var cityObj = citiesObj.getJSONObject(city);
-                    if (!cityObj.has(fuelType))
-                        continue;
-                    Object priceObj = cityObj.isNull(fuelType) ? null : cityObj.get(fuelType);
-                    if (priceObj == null)
-                        continue;
-                    double price = toDouble(priceObj);
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("state", state);
-                    m.put("city", city);
-                    m.put("price", price);
-                    if (cityObj.has("location") && cityObj.get("location") instanceof org.json.JSONObject) {
-                        var loc = cityObj.getJSONObject("location");
-                        if (loc.has("lat") && loc.has("lng")) {
-                            m.put("lat", loc.getDouble("lat"));
-                            m.put("lon", loc.getDouble("lng"));
-                        } else if (loc.has("lat") && loc.has("lon")) {
-                            m.put("lat", loc.getDouble("lat"));
-                            m.put("lon", loc.getDouble("lon"));
-                        }
-                    }
-                    m.put("location", city);
-                    list.add(m);
-                }
-            }
-            return list;
-        } catch (IOException e) {
-            return List.of();
-        }
-    }
-
     // NOTE: cumulative distance and closest-point helpers removed because they
     // were not referenced by the current trip expense flow. Re-add if needed
     // in future enhancements.
@@ -851,87 +901,11 @@ public class TripExpenseResource {
         };
     }
 
-    private double minDistanceToRoute(double lat, double lon, List<List<Double>> routePoints) {
-        double min = Double.MAX_VALUE;
-        for (var p : routePoints) {
-            double d = haversine(lat, lon, p.get(1), p.get(0));
-            if (d < min)
-                min = d;
-        }
-        return min;
-    }
-
-    private double haversine(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371; // km
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
-                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
     private double round(double v, int places) {
         double scale = Math.pow(10, places);
         return Math.round(v * scale) / scale;
     }
 
-    private double extractTollFee(Map<String, Object> toll, String tollKey) {
-        if (toll == null)
-            return 0.0;
-        try {
-            Object feesObj = toll.get("fees");
-            if (feesObj instanceof Map) {
-                Map<?, ?> fees = (Map<?, ?>) feesObj;
-                Object vehicleObj = fees.get(tollKey);
-                if (vehicleObj instanceof Map) {
-                    Map<?, ?> veh = (Map<?, ?>) vehicleObj;
-                    Object single = veh.get("single");
-                    if (single instanceof Number)
-                        return ((Number) single).doubleValue();
-                    if (single instanceof String) {
-                        try {
-                            return Double.parseDouble((String) single);
-                        } catch (Exception ignored) {
-                        }
-                    }
-                    for (String k : new String[] { "single", "singleFare", "fare", "amount" }) {
-                        Object o = veh.get(k);
-                        if (o instanceof Number)
-                            return ((Number) o).doubleValue();
-                        if (o instanceof String) {
-                            try {
-                                return Double.parseDouble((String) o);
-                            } catch (Exception ignored) {
-                            }
-                        }
-                    }
-                }
-                Object direct = fees.get(tollKey);
-                if (direct instanceof Number)
-                    return ((Number) direct).doubleValue();
-                if (direct instanceof String) {
-                    try {
-                        return Double.parseDouble((String) direct);
-                    } catch (Exception ignored) {
-                    }
-                }
-            }
-
-            Object top = toll.get(tollKey);
-            if (top instanceof Number)
-                return ((Number) top).doubleValue();
-            if (top instanceof String) {
-                try {
-                    return Double.parseDouble((String) top);
-                } catch (Exception ignored) {
-                }
-            }
-        } catch (Exception e) {
-        }
-        return 0.0;
-    }
-
     private List<List<Double>> decodePolyline(String encoded, int precision) {
         List<List<Double>> path = new ArrayList<>();
         if (encoded == null || encoded.isEmpty())
@@ -1019,14 +993,13 @@ public class TripExpenseResource {
 
     private Map<String, Object> getRouteUsingCoords(List<Double> startCoord, List<Double> destCoord) throws Exception {
         if (startCoord == null || destCoord == null || startCoord.size() < 2 || destCoord.size() < 2) {
-            lastRouteError = "invalid_coords";
+            lastRouteError.set("invalid_coords");
             return null;
         }
 
-        var client = HttpClient.newHttpClient();
         String origin = String.format(java.util.Locale.ROOT, "%f,%f", startCoord.get(1), startCoord.get(0));
         String destinationQ = String.format(java.util.Locale.ROOT, "%f,%f", destCoord.get(1), destCoord.get(0));
-        String url = "https://api.olamaps.io/routing/v1/directions?origin="
+        String url = getOlaUrl() + "/routing/v1/directions?origin="
                 + java.net.URLEncoder.encode(origin, StandardCharsets.UTF_8)
                 + "&destination=" + java.net.URLEncoder.encode(destinationQ, StandardCharsets.UTF_8)
                 + "&overview=full&steps=false&api_key=" + getOlaApiKey();
@@ -1041,7 +1014,7 @@ public class TripExpenseResource {
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
 
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         String text = resp.body();
         if (resp.statusCode() != 200) {
             String bodyText = resp.body() == null ? "" : resp.body();
@@ -1060,7 +1033,7 @@ public class TripExpenseResource {
                                 snappedStart.get(1));
                         String destination2 = String.format(java.util.Locale.ROOT, "%f,%f", snappedDest.get(0),
                                 snappedDest.get(1));
-                        String url2 = "https://api.olamaps.io/routing/v1/directions?origin="
+                        String url2 = getOlaUrl() + "/routing/v1/directions?origin="
                                 + java.net.URLEncoder.encode(origin2, StandardCharsets.UTF_8)
                                 + "&destination=" + java.net.URLEncoder.encode(destination2, StandardCharsets.UTF_8)
                                 + "&overview=full&steps=false&api_key=" + getOlaApiKey();
@@ -1071,10 +1044,10 @@ public class TripExpenseResource {
                                 .header("Accept", "application/json")
                                 .POST(HttpRequest.BodyPublishers.noBody())
                                 .build();
-                        HttpResponse<String> resp2 = client.send(request2, HttpResponse.BodyHandlers.ofString());
+                        HttpResponse<String> resp2 = httpClient.send(request2, HttpResponse.BodyHandlers.ofString());
                         text = resp2.body();
                         if (resp2.statusCode() != 200) {
-                            lastRouteError = "directions_http_" + resp2.statusCode();
+                            lastRouteError.set("directions_http_" + resp2.statusCode());
                             return null;
                         }
                     } else {
@@ -1088,7 +1061,7 @@ public class TripExpenseResource {
                                     snappedStart.get(1));
                             String destination2 = String.format(java.util.Locale.ROOT, "%f,%f", snappedDest.get(0),
                                     snappedDest.get(1));
-                            String url2 = "https://api.olamaps.io/routing/v1/directions?origin="
+                            String url2 = getOlaUrl() + "/routing/v1/directions?origin="
                                     + java.net.URLEncoder.encode(origin2, StandardCharsets.UTF_8)
                                     + "&destination=" + java.net.URLEncoder.encode(destination2, StandardCharsets.UTF_8)
                                     + "&overview=full&steps=false&api_key=" + getOlaApiKey();
@@ -1099,23 +1072,24 @@ public class TripExpenseResource {
                                     .header("Accept", "application/json")
                                     .POST(HttpRequest.BodyPublishers.noBody())
                                     .build();
-                            HttpResponse<String> resp2 = client.send(request2, HttpResponse.BodyHandlers.ofString());
+                            HttpResponse<String> resp2 = httpClient.send(
+                                    request2, HttpResponse.BodyHandlers.ofString());
                             text = resp2.body();
                             if (resp2.statusCode() != 200) {
-                                lastRouteError = "directions_http_" + resp2.statusCode();
+                                lastRouteError.set("directions_http_" + resp2.statusCode());
                                 return null;
                             }
                         } else {
-                            lastRouteError = "could_not_snap_points";
+                            lastRouteError.set("could_not_snap_points");
                             return null;
                         }
                     }
                 } catch (Exception ex) {
-                    lastRouteError = "directions_http_" + resp.statusCode();
+                    lastRouteError.set("directions_http_" + resp.statusCode());
                     return null;
                 }
             } else {
-                lastRouteError = "directions_http_" + resp.statusCode();
+                lastRouteError.set("directions_http_" + resp.statusCode());
                 return null;
             }
         }
@@ -1293,7 +1267,7 @@ public class TripExpenseResource {
                 }
             }
         } catch (Exception e) {
-            lastRouteError = "directions_parse_error: " + e.getMessage();
+            lastRouteError.set("directions_parse_error: " + e.getMessage());
             LOGGER.warn("Failed to parse Ola directions response: {}", e.getMessage());
         }
 
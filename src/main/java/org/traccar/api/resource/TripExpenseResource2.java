@@ -10,11 +10,11 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.expense.FuelPriceIndex;
+import org.traccar.expense.RouteCache;
+import org.traccar.expense.TollIndex;
 
 import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -24,20 +24,37 @@ import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import java.util.stream.Collectors;
 
 @Path("tripExpense2")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED })
 public class TripExpenseResource2 {
 
+    private static final double TOLL_DISTANCE = 2000;
+
+    private static final String ROUTE_PROVIDER = "ors";
+    private static final String ROUTE_PROFILE = "driving-car";
+
     @Inject
     private Config config;
 
+    @Inject
+    private HttpClient httpClient;
+
+    @Inject
+    private TollIndex tollIndex;
+
+    @Inject
+    private FuelPriceIndex fuelPriceIndex;
+
+    @Inject
+    private RouteCache routeCache;
+
     private String getOrsApiKey() {
         try {
             String k = config.getString(Keys.ORS_API_KEY);
@@ -170,7 +187,7 @@ public class TripExpenseResource2 {
             }
             if (startCoordParsed != null && destCoordParsed != null) {
                 // use provided coordinates (expects [lon, lat] ordering internally)
-                route = getRouteUsingCoords(startCoordParsed, destCoordParsed);
+                route = getCachedRoute(startCoordParsed, destCoordParsed);
                 // If textual start/destination weren't provided, synthesize them as
                 // lat,lon strings for the response.
                 if (start == null) {
@@ -181,7 +198,7 @@ public class TripExpenseResource2 {
                 }
             } else {
                 // fallback to geocoding by text
-                route = getRoute(start, destination);
+                route = getCachedRoute(start, destination);
             }
             if (route == null) {
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -204,8 +221,6 @@ public class TripExpenseResource2 {
             // compute cumulative distances along route (km at each point)
             // List<Double> cumulative = computeCumulativeDistances(points);
 
-            // load tolls and compute tolls along route
-            List<Map<String, Object>> tolls = loadTollsResource("data/nhai_toll_data.json");
             /*
              * //TODO: fuel simulation
              * Fuel simulation per user's rules
@@ -360,11 +375,9 @@ public class TripExpenseResource2 {
             double tollTotal = 0.0;
             List<Map<String, Object>> tollDetails = new ArrayList<>();
 
-            // load fuel prices dataset (expects data/fuel_prices.json)
-            List<Map<String, Object>> fuelPrices = loadFuelPricesResource("data/fuel_prices.json", fuelType);
             // Simplified fuel cost calculation (temporary): use user-provided price if
             // available,
-            // otherwise try to use Delhi default price from the dataset. This keeps the
+            // otherwise use the price in the city nearest to the route start. This keeps the
             // rest of the
             // trip/toll calculations functional while the detailed simulator is preserved
             // above.
@@ -376,8 +389,8 @@ public class TripExpenseResource2 {
             // the trip.
             // Otherwise, if user supplies a per-litre price (fuel_price, fuel_rate,
             // price_per_litre)
-            // use that; if none provided, fallback to Delhi price from dataset, then first
-            // entry,
+            // use that; if none provided, use the price in the city nearest to the route
+            // start, then the Delhi price from the dataset,
             // then a hardcoded fallback. The `refuels` entry will include price_per_litre,
             // cost and litres_needed; `source` is returned as an empty string as requested.
 
@@ -420,26 +433,17 @@ public class TripExpenseResource2 {
                 totalFuelCost = totalFuelNeeded * usedPrice;
                 LOGGER.info("Using user-provided per-litre fuel price: {} per litre", round(usedPrice, 2));
             } else {
-                // try to find Delhi entry in fuelPrices
-                Map<String, Object> delhiEntry = null;
-                for (var e : fuelPrices) {
-                    String city = e.getOrDefault("city", "").toString().toLowerCase();
-                    String state = e.getOrDefault("state", "").toString().toLowerCase();
-                    if (city.contains("delhi") || state.contains("delhi")) {
-                        delhiEntry = e;
-                        break;
-                    }
+                // price in the city nearest to the route start, then the Delhi reference price
+                FuelPriceIndex.FuelPrice fuelPrice = fuelPriceIndex.findNearest(
+                        fuelType, points.get(0).get(1), points.get(0).get(0));
+                if (fuelPrice == null) {
+                    fuelPrice = fuelPriceIndex.getDefaultPrice(fuelType);
                 }
-                if (delhiEntry != null) {
-                    usedPrice = toDouble(delhiEntry.getOrDefault("price", 0.0));
-                    totalFuelCost = totalFuelNeeded * usedPrice;
-                    LOGGER.info("Delhi default fuel price applied: {} per litre", round(usedPrice, 2));
-                } else if (!fuelPrices.isEmpty()) {
-                    // fallback to first entry
-                    usedPrice = toDouble(fuelPrices.get(0).getOrDefault("price", 0.0));
+                if (fuelPrice != null) {
+                    usedPrice = fuelPrice.price();
                     totalFuelCost = totalFuelNeeded * usedPrice;
-                    LOGGER.info("Delhi price not found; using first dataset entry price: {} per litre",
-                            round(usedPrice, 2));
+                    LOGGER.info("Fuel price for {} ({}) applied: {} per litre",
+                            fuelPrice.city(), fuelPrice.state(), round(usedPrice, 2));
                 } else {
                     // final fallback hard-coded
                     usedPrice = 100.0;
@@ -455,67 +459,19 @@ public class TripExpenseResource2 {
 
             // --- Toll matching: find toll plazas close to the route and sum fees ---
             try {
-                java.util.Set<Object> seen = new java.util.HashSet<>();
-                for (var toll : tolls) {
-                    if (toll == null)
-                        continue;
-
-                    Object locObj = toll.get("location");
-                    double tollLat = Double.NaN, tollLon = Double.NaN;
-
-                    // location may be a nested object with lat/lng, or a list, or top-level keys
-                    if (locObj instanceof Map<?, ?> locMap) {
-                        Map<?, ?> lm = (Map<?, ?>) locMap;
-                        if (lm.containsKey("lat") || lm.containsKey("latitude") || lm.containsKey("lng")
-                                || lm.containsKey("lon") || lm.containsKey("longitude")) {
-                            Object latObj = lm.containsKey("lat") ? lm.get("lat")
-                                    : (lm.containsKey("latitude") ? lm.get("latitude") : 0.0);
-                            Object lonObj = lm.containsKey("lng") ? lm.get("lng")
-                                    : (lm.containsKey("lon") ? lm.get("lon")
-                                            : (lm.containsKey("longitude") ? lm.get("longitude") : 0.0));
-                            tollLat = toDouble(latObj);
-                            tollLon = toDouble(lonObj);
-                        }
-                    } else if (locObj instanceof List<?> locList && locList.size() >= 2) {
-                        tollLat = toDouble(locList.get(0));
-                        tollLon = toDouble(locList.get(1));
-                    } else {
-                        // fallback to top-level lat/lon keys
-                        if (toll.containsKey("lat") && (toll.containsKey("lng") || toll.containsKey("lon"))) {
-                            tollLat = toDouble(toll.get("lat"));
-                            tollLon = toll.containsKey("lng") ? toDouble(toll.get("lng")) : toDouble(toll.get("lon"));
-                        } else if (toll.containsKey("latitude") && toll.containsKey("longitude")) {
-                            tollLat = toDouble(toll.get("latitude"));
-                            tollLon = toDouble(toll.get("longitude"));
-                        }
-                    }
-
-                    // skip invalid locations
-                    if (Double.isNaN(tollLat) || Double.isNaN(tollLon) || (tollLat == 0.0 && tollLon == 0.0))
-                        continue;
-
-                    double minDist = minDistanceToRoute(tollLat, tollLon, points); // km
-                    // threshold: consider toll on-route if within 2 km (adjustable)
-                    if (minDist <= 2.0) {
-                        Object id = toll.getOrDefault("id", toll.get("name"));
-                        if (id != null && seen.contains(id))
-                            continue;
-                        if (id != null)
-                            seen.add(id);
-
-                        double fee = extractTollFee(toll, tollKey);
-                        if (fee > 0.0) {
-                            tollTotal += fee;
-                            Map<String, Object> detail = new HashMap<>();
-                            detail.put("id", toll.getOrDefault("id", ""));
-                            detail.put("name", toll.getOrDefault("name", "<unknown>"));
-                            detail.put("state", toll.getOrDefault("state", ""));
-                            detail.put("fee", round(fee, 2));
-                            tollDetails.add(detail);
-                            LOGGER.info("Matched toll plaza '{}' (state={}) dist={}km fee={}",
-                                    toll.getOrDefault("name", "<unknown>"), toll.getOrDefault("state", ""),
-                                    round(minDist, 2), round(fee, 2));
-                        }
+                for (TollIndex.Match match : tollIndex.findTolls(points, TOLL_DISTANCE)) {
+                    TollIndex.TollPlaza toll = match.plaza();
+                    double fee = toll.getFee(tollKey);
+                    if (fee > 0.0) {
+                        tollTotal += fee;
+                        Map<String, Object> detail = new HashMap<>();
+                        detail.put("id", toll.id());
+                        detail.put("name", toll.name());
+                        detail.put("state", toll.state());
+                        detail.put("fee", round(fee, 2));
+                        tollDetails.add(detail);
+                        LOGGER.info("Matched toll plaza '{}' (state={}) dist={}km fee={}",
+                                toll.name(), toll.state(), round(match.distance() / 1000, 2), round(fee, 2));
                     }
                 }
             } catch (Exception e) {
@@ -611,16 +567,39 @@ public class TripExpenseResource2 {
         }
     }
 
+    private static Map<String, Object> toCacheable(Map<String, Object> route) {
+        return route != null ? Collections.unmodifiableMap(route) : null;
+    }
+
+    private Map<String, Object> getCachedRoute(String start, String destination) throws Exception {
+        return routeCache.get(RouteCache.routeKey(ROUTE_PROVIDER, ROUTE_PROFILE, start, destination),
+                () -> toCacheable(getRoute(start, destination)));
+    }
+
+    private Map<String, Object> getCachedRoute(List<Double> startCoord, List<Double> destCoord) throws Exception {
+        if (startCoord.size() < 2 || destCoord.size() < 2) {
+            return getRouteUsingCoords(startCoord, destCoord);
+        }
+        return routeCache.get(RouteCache.routeKey(ROUTE_PROVIDER, ROUTE_PROFILE, startCoord, destCoord),
+                () -> toCacheable(getRouteUsingCoords(startCoord, destCoord)));
+    }
+
+    private List<Double> getCachedCoordinates(String text) throws Exception {
+        return routeCache.get(RouteCache.geocodeKey(ROUTE_PROVIDER, text), () -> {
+            List<Double> coordinates = geocode(text);
+            return coordinates != null ? List.copyOf(coordinates) : null;
+        });
+    }
+
     private Map<String, Object> getRoute(String start, String destination) throws Exception {
-        // Use simple geocoding via ORS geocode endpoint (caching disabled)
-        List<Double> startCoord = geocode(start);
-        List<Double> destCoord = geocode(destination);
+        // Use simple geocoding via ORS geocode endpoint
+        List<Double> startCoord = getCachedCoordinates(start);
+        List<Double> destCoord = getCachedCoordinates(destination);
         if (startCoord == null || destCoord == null) {
             lastRouteError = "geocode_failed_for_start_or_destination";
             return null;
         }
 
-        var client = HttpClient.newHttpClient();
         // NOTE: older/newer ORS instances may not accept 'geometry_format' parameter.
         // Send a minimal directions request and handle geometry in the response (may be
         // encoded polyline or geojson) — we have decoding fallbacks.
@@ -638,7 +617,7 @@ public class TripExpenseResource2 {
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
 
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         String text = resp.body();
         if (resp.statusCode() != 200) {
             lastRouteError = "directions_http_" + resp.statusCode();
@@ -753,7 +732,6 @@ public class TripExpenseResource2 {
     }
 
     private List<Double> geocode(String text) throws Exception {
-        var client = HttpClient.newHttpClient();
         String q = java.net.URLEncoder.encode(text, StandardCharsets.UTF_8);
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create("https://api.openrouteservice.org/geocode/search?text=" + q + "&size=1"))
@@ -761,7 +739,7 @@ public class TripExpenseResource2 {
                 .header("Authorization", getOrsApiKey())
                 .GET()
                 .build();
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         if (resp.statusCode() != 200)
             return null;
         var obj = new org.json.JSONObject(resp.body());
@@ -786,7 +764,6 @@ public class TripExpenseResource2 {
      */
     private List<Double> reverseGeocodePoint(Double lat, Double lon) {
         try {
-            var client = HttpClient.newHttpClient();
             String q = String.format(java.util.Locale.ROOT, "%f,%f", lat, lon);
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create("https://api.openrouteservice.org/geocode/reverse?point=" + q + "&size=1"))
@@ -794,7 +771,7 @@ public class TripExpenseResource2 {
                     .header("Authorization", getOrsApiKey())
                     .GET()
                     .build();
-            HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (resp.statusCode() != 200) {
                 return null;
             }
@@ -853,90 +830,6 @@ public class TripExpenseResource2 {
         }
     }
 
-    private List<Map<String, Object>> loadTollsResource(String path) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(path)) {
-            if (is == null)
-                return List.of();
-            String text = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)).lines()
-                    .collect(Collectors.joining("\n"));
-            var obj = new org.json.JSONObject(text);
-            var list = new ArrayList<Map<String, Object>>();
-            if (obj.has("toll_plazas")) {
-                var arr = obj.getJSONArray("toll_plazas");
-                for (int i = 0; i < arr.length(); i++) {
-                    var o = arr.getJSONObject(i);
-                    list.add(o.toMap());
-                }
-            } else if (obj.has("plazas")) {
-                var arr = obj.getJSONArray("plazas");
-                for (int i = 0; i < arr.length(); i++) {
-                    var o = arr.getJSONObject(i);
-                    list.add(o.toMap());
-                }
-            } else {
-                // maybe file is an array
-                try {
-                    var arr = new org.json.JSONArray(text);
-                    for (int i = 0; i < arr.length(); i++) {
-                        var o = arr.getJSONObject(i);
-                        list.add(o.toMap());
-                    }
-                } catch (Exception e) {
-                    // unknown format
-                }
-            }
-            return list;
-        } catch (IOException e) {
-            return List.of();
-        }
-    }
-
-    private List<Map<String, Object>> loadFuelPricesResource(String path, String fuelType) {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(path)) {
-            if (is == null)
-                return List.of();
-            String text = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)).lines()
-                    .collect(Collectors.joining("\n"));
-            var obj = new org.json.JSONObject(text);
-            var list = new ArrayList<Map<String, Object>>();
-            var states = obj.keySet();
-            for (String state : states) {
-                var citiesObj = obj.getJSONObject(state);
-                for (var city : citiesObj.keySet()) {
-                    var cityObj = citiesObj.getJSONObject(city);
-                    if (!cityObj.has(fuelType))
-                        continue;
-                    Object priceObj = cityObj.isNull(fuelType) ? null : cityObj.get(fuelType);
-                    if (priceObj == null)
-                        continue;
-                    double price = toDouble(priceObj);
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("state", state);
-                    m.put("city", city);
-                    m.put("price", price);
-                    // If the data now contains explicit lat/lng for cities, include them
-                    if (cityObj.has("location") && cityObj.get("location") instanceof org.json.JSONObject) {
-                        var loc = cityObj.getJSONObject("location");
-                        if (loc.has("lat") && loc.has("lng")) {
-                            m.put("lat", loc.getDouble("lat"));
-                            m.put("lon", loc.getDouble("lng"));
-                        } else if (loc.has("lat") && loc.has("lon")) {
-                            m.put("lat", loc.getDouble("lat"));
-                            m.put("lon", loc.getDouble("lon"));
-                        }
-                    }
-                    // fallback: keep human-readable city name
-                    m.put("location", city);
-                    list.add(m);
-                }
-            }
-            return list;
-        } catch (IOException e) {
-            return List.of();
-        }
-    }
-
-    // geocoding cache removed — geocode() called directly to force fresh data
 
     // private List<Double> computeCumulativeDistances(List<List<Double>> points) {
     // List<Double> out = new ArrayList<>();
@@ -987,26 +880,6 @@ public class TripExpenseResource2 {
         };
     }
 
-    private double minDistanceToRoute(double lat, double lon, List<List<Double>> routePoints) {
-        double min = Double.MAX_VALUE;
-        for (var p : routePoints) {
-            double d = haversine(lat, lon, p.get(1), p.get(0));
-            if (d < min)
-                min = d;
-        }
-        return min;
-    }
-
-    private double haversine(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371; // km
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
-                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
     private double round(double v, int places) {
         double scale = Math.pow(10, places);
         return Math.round(v * scale) / scale;
@@ -1016,66 +889,6 @@ public class TripExpenseResource2 {
      * Extract toll fee for a given toll record and vehicle key.
      * Handles nested shapes like: { fees: { car: { single: 100 } } }
      */
-    private double extractTollFee(Map<String, Object> toll, String tollKey) {
-        if (toll == null)
-            return 0.0;
-        try {
-            Object feesObj = toll.get("fees");
-            if (feesObj instanceof Map) {
-                Map<?, ?> fees = (Map<?, ?>) feesObj;
-                Object vehicleObj = fees.get(tollKey);
-                if (vehicleObj instanceof Map) {
-                    Map<?, ?> veh = (Map<?, ?>) vehicleObj;
-                    Object single = veh.get("single");
-                    if (single instanceof Number)
-                        return ((Number) single).doubleValue();
-                    if (single instanceof String) {
-                        try {
-                            return Double.parseDouble((String) single);
-                        } catch (Exception ignored) {
-                        }
-                    }
-                    // fallback: check common keys
-                    for (String k : new String[] { "single", "singleFare", "fare", "amount" }) {
-                        Object o = veh.get(k);
-                        if (o instanceof Number)
-                            return ((Number) o).doubleValue();
-                        if (o instanceof String) {
-                            try {
-                                return Double.parseDouble((String) o);
-                            } catch (Exception ignored) {
-                            }
-                        }
-                    }
-                }
-                // if fees contains tollKey as a number directly
-                Object direct = fees.get(tollKey);
-                if (direct instanceof Number)
-                    return ((Number) direct).doubleValue();
-                if (direct instanceof String) {
-                    try {
-                        return Double.parseDouble((String) direct);
-                    } catch (Exception ignored) {
-                    }
-                }
-            }
-
-            // older datasets may have fee at top level under vehicle key
-            Object top = toll.get(tollKey);
-            if (top instanceof Number)
-                return ((Number) top).doubleValue();
-            if (top instanceof String) {
-                try {
-                    return Double.parseDouble((String) top);
-                } catch (Exception ignored) {
-                }
-            }
-        } catch (Exception e) {
-            // ignore and return 0.0
-        }
-        return 0.0;
-    }
-
     /**
      * Decode an encoded polyline string (Google polyline / ORS encoded) into a list
      * of [lon, lat] points. Precision is typically 5 (Google) or 6.
@@ -1185,7 +998,6 @@ public class TripExpenseResource2 {
             return null;
         }
 
-        var client = HttpClient.newHttpClient();
         String body = "{\"coordinates\":[[" + startCoord.get(0) + "," + startCoord.get(1) + "],[" + destCoord.get(0)
                 + "," + destCoord.get(1) + "]] }";
 
@@ -1200,7 +1012,7 @@ public class TripExpenseResource2 {
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
 
-        HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         String text = resp.body();
         if (resp.statusCode() != 200) {
             // If ORS returned a routable-point error (common when point is off-road),
@@ -1226,7 +1038,7 @@ public class TripExpenseResource2 {
                             .header("Authorization", getOrsApiKey())
                             .POST(HttpRequest.BodyPublishers.ofString(body2))
                             .build();
-                    HttpResponse<String> resp2 = client.send(req2, HttpResponse.BodyHandlers.ofString());
+                    HttpResponse<String> resp2 = httpClient.send(req2, HttpResponse.BodyHandlers.ofString());
                     if (resp2.statusCode() == 200) {
                         // parse resp2 as usual
                         text = resp2.body();
@@ -21,7 +21,6 @@ import org.traccar.storage.query.Request;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Path("/validationLogs")
 @Produces(MediaType.APPLICATION_JSON)
@@ -53,7 +52,9 @@ public class ValidationLogResource extends BaseResource {
             @QueryParam("transporterName") String transporterName,
             @QueryParam("number") String number,
             @QueryParam("limit") @DefaultValue("100") int limit,
-            @QueryParam("offset") @DefaultValue("0") int offset) throws Exception {
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("afterTime") long afterTime,
+            @QueryParam("afterId") long afterId) throws Exception {
 
         checkPermission();
         long userId = getUserId();
@@ -81,37 +82,35 @@ public class ValidationLogResource extends BaseResource {
             conditions.add(new Condition.Equals("number", number.toUpperCase()));
         }
 
-        Condition finalCondition = Condition.merge(conditions);
-
-        // Fetch all matching logs
-        Stream<ValidationLog> stream = storage.getObjectsStream(ValidationLog.class,
-                new Request(new Columns.All(), finalCondition, new Order("validationDate", true, 0)));
-        List<ValidationLog> allLogs = stream.collect(Collectors.toList());
-
-        // Filter by transporter name if provided (requires join with mapping table)
-        List<ValidationLog> filteredLogs = allLogs;
+        // Filter by transporter name if provided, only vehicle validations mapped to the transporter match
         if (transporterName != null && !transporterName.isBlank()) {
-            String upperTransporterName = transporterName.toUpperCase();
-            filteredLogs = new ArrayList<>();
-            for (ValidationLog log : allLogs) {
-                if ("vehicle".equalsIgnoreCase(log.getValidationType())) {
-                    // Check if this vehicle is mapped to the specified transporter
-                    TransporterVehicleMap mapping = storage.getObject(TransporterVehicleMap.class,
-                            new Request(new Columns.All(), new Condition.And(
-                                    new Condition.Equals("userId", userId),
-                                    new Condition.Equals("vehicleNumber", log.getNumber()))));
-                    if (mapping != null && upperTransporterName.equals(mapping.getTransporterName())) {
-                        filteredLogs.add(log);
-                    }
-                } else {
-                    // For license validations, no transporter filter applies
-                    // Skip them when transporter filter is active
-                }
+            List<TransporterVehicleMap> mappings = storage.getObjects(TransporterVehicleMap.class,
+                    new Request(new Columns.Include("vehicleNumber"), new Condition.And(
+                            new Condition.Equals("userId", userId),
+                            new Condition.Equals("transporterName", transporterName.toUpperCase()))));
+            if (mappings.isEmpty()) {
+                JSONObject response = new JSONObject();
+                response.put("items", new JSONArray());
+                response.put("total", 0);
+                response.put("limit", limit);
+                response.put("offset", offset);
+                return Response.ok(response.toString()).build();
             }
+            // validation types are stored in lower case, see ValidationLogService
+            conditions.add(new Condition.Equals("validationType", "vehicle"));
+            conditions.add(new Condition.In("number", mappings.stream()
+                    .map(TransporterVehicleMap::getVehicleNumber).collect(Collectors.toSet())));
         }
 
-        int total = filteredLogs.size();
-        List<ValidationLog> page = filteredLogs.stream().skip(offset).limit(limit).collect(Collectors.toList());
+        Condition finalCondition = Condition.merge(conditions);
+
+        // Fetch only the requested page, total comes from a separate count query. Pages continue after the
+        // afterTime and afterId cursor of the previous page if given, otherwise the offset is used.
+        Order order = new Order("validationDate", true, limit, afterId > 0 ? 0 : offset)
+                .after(new Date(afterTime), afterId);
+        List<ValidationLog> page = storage.getObjects(ValidationLog.class, new Request(
+                new Columns.All(), finalCondition, order));
+        long total = storage.countObjects(ValidationLog.class, new Request(finalCondition));
 
         // Build response with transporter info
         JSONArray items = new JSONArray();
@@ -146,6 +145,13 @@ public class ValidationLogResource extends BaseResource {
         response.put("total", total);
         response.put("limit", limit);
         response.put("offset", offset);
+        if (!page.isEmpty() && page.size() == limit) {
+            ValidationLog last = page.get(page.size() - 1);
+            if (last.getValidationDate() != null) {
+                response.put("nextAfterTime", last.getValidationDate().getTime());
+                response.put("nextAfterId", last.getId());
+            }
+        }
 
         return Response.ok(response.toString()).build();
     }
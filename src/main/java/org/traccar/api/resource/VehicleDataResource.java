@@ -1,10 +1,19 @@
 package org.traccar.api.resource;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
+import org.traccar.database.DeviceIndex;
+import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
 import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
@@ -16,21 +25,39 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 // import jakarta.annotation.security.PermitAll;
 import jakarta.inject.Inject;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Path("/vehicleData")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class VehicleDataResource {
 
+        private static final int BATCH_SIZE = 500;
+
         @Inject
         private Storage storage;
 
+        @Inject
+        private CacheManager cacheManager;
+
+        @Inject
+        private DeviceIndex deviceIndex;
+
+        @Inject
+        private ObjectMapper objectMapper;
+
         public static class VehicleDataRequest {
                 @JsonProperty("company_names")
                 private String companyNames;
@@ -553,11 +580,36 @@ public class VehicleDataResource {
                 }
         }
 
-        
+        private List<Device> getDevices(String column, Collection<?> values) throws StorageException {
+                List<Device> devices = new ArrayList<>();
+                List<?> list = new ArrayList<>(values);
+                for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+                        List<?> batch = list.subList(i, Math.min(i + BATCH_SIZE, list.size()));
+                        devices.addAll(storage.getObjects(Device.class, new Request(
+                                        new Columns.All(), new Condition.In(column, batch))));
+                }
+                return devices;
+        }
+
+        private Map<Long, Position> getLatestPositions(Collection<Device> devices) throws StorageException {
+                Map<Long, Position> positions = new HashMap<>();
+                List<Long> positionIds = new ArrayList<>();
+                for (Device device : devices) {
+                        Position position = cacheManager.getPosition(device.getId());
+                        if (position != null) {
+                                positions.put(device.getId(), position);
+                        } else if (device.getPositionId() != 0) {
+                                positionIds.add(device.getPositionId());
+                        }
+                }
+                for (Position position : PositionUtil.getPositions(storage, positionIds).values()) {
+                        positions.put(position.getDeviceId(), position);
+                }
+                return positions;
+        }
+
         @POST
         public Response getVehicleData(@Context HttpHeaders headers, VehicleDataRequest request) throws Exception {
-                
-                VehicleDataResponse response = new VehicleDataResponse();
 
                 Set<String> imeiSet = new HashSet<>();
                 Set<String> vehicleNoSet = new HashSet<>();
@@ -575,246 +627,248 @@ public class VehicleDataResource {
                                 vehicleNoSet.add(vno.trim());
                         }
                 }
-                List<Device> devices = storage.getObjects(Device.class,
-                                new Request(new org.traccar.storage.query.Columns.All()));
-
-                for (Device device : devices) {
-                        boolean matches = false;
-                        String vehicleNo = device.getAttributes() != null
-                                        && device.getAttributes().get("vehicleNo") != null
-                                                        ? device.getAttributes().get("vehicleNo").toString()
-                                                        : null;
-                        // If only company name is provided
-                        if (filterByCompany && !filterByImei && !filterByVehicleNo) {
-                                String company = device.getAttributes() != null
-                                                && device.getAttributes().get("company") != null
-                                                                ? device.getAttributes().get("company").toString()
-                                                                : null;
-                                if (request.getCompanyNames().equalsIgnoreCase(company)) {
-                                        matches = true;
-                                }
-                        } else if (filterByImei || filterByVehicleNo) {
-                                // If IMEI or vehicle no is provided
-                                if (filterByImei && imeiSet.contains(device.getUniqueId())) {
-                                        matches = true;
-                                }
 
-                                if (filterByVehicleNo && vehicleNo != null && vehicleNoSet.contains(vehicleNo)) {
-                                        matches = true;
+                Collection<Device> devices;
+                if (filterByImei || filterByVehicleNo) {
+                        // IMEI or vehicle no takes precedence over company
+                        Map<Long, Device> matched = new TreeMap<>();
+                        if (filterByImei) {
+                                for (Device device : getDevices("uniqueId", imeiSet)) {
+                                        matched.put(device.getId(), device);
                                 }
-                        } else if (!filterByCompany && !filterByImei && !filterByVehicleNo) {
-                                // If no filters are provided, include all devices
-                                matches = true;
                         }
-
-                        if (!matches) {
-                                continue;
+                        if (filterByVehicleNo) {
+                                Set<Long> deviceIds = deviceIndex.findByVehicleNumbers(vehicleNoSet);
+                                deviceIds.removeAll(matched.keySet());
+                                for (Device device : getDevices("id", deviceIds)) {
+                                        matched.put(device.getId(), device);
+                                }
                         }
+                        devices = matched.values();
+                } else if (filterByCompany) {
+                        devices = getDevices("id", deviceIndex.findByCompany(request.getCompanyNames()));
+                } else {
+                        // If no filters are provided, include all devices
+                        devices = storage.getObjects(Device.class, new Request(new Columns.All()));
+                }
 
-                        Position position = null;
-                        if (device.getPositionId() != 0) {
-                                Condition posCond = new Condition.Equals("id", device.getPositionId());
-                                Request posReq = new Request(new org.traccar.storage.query.Columns.All(), posCond);
-                                position = storage.getObject(Position.class, posReq);
+                Map<Long, Position> positions = getLatestPositions(devices);
+
+                ObjectWriter writer = objectMapper.writerFor(VehicleDataResponse.VehicleData.class)
+                                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                StreamingOutput stream = output -> {
+                        DateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
+                        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                                generator.writeStartObject();
+                                generator.writeObjectFieldStart("root");
+                                generator.writeArrayFieldStart("VehicleData");
+                                for (Device device : devices) {
+                                        Position position = positions.get(device.getId());
+                                        writer.writeValue(generator, createVehicleData(device, position, dateFormat));
+                                }
+                                generator.writeEndArray();
+                                generator.writeEndObject();
+                                generator.writeEndObject();
                         }
-                        VehicleDataResponse.VehicleData vehicle = new VehicleDataResponse.VehicleData();
-                        vehicle.setVehicleName(device.getName());
-                        vehicle.setCompany(device.getAttributes() != null
-                                        && device.getAttributes().get("Company") != null
-                                                        ? device.getAttributes().get("Company").toString()
-                                                        : "--");
-
-                        vehicle.setVehicleNo(device.getAttributes() != null
-                                        && device.getAttributes().get("vehicleNo") != null
-                                                        ? device.getAttributes().get("vehicleNo").toString()
-                                                        : "");
+                };
+                return Response.ok(stream).build();
+        }
 
-                        vehicle.setImeino(device.getUniqueId());
+        private VehicleDataResponse.VehicleData createVehicleData(
+                        Device device, Position position, DateFormat dateFormat) {
+                VehicleDataResponse.VehicleData vehicle = new VehicleDataResponse.VehicleData();
+                vehicle.setVehicleName(device.getName());
+                vehicle.setCompany(device.getAttributes() != null
+                                && device.getAttributes().get("Company") != null
+                                                ? device.getAttributes().get("Company").toString()
+                                                : "--");
 
-                        vehicle.setDeviceModel(device.getModel() != null ? device.getModel() : "");
+                vehicle.setVehicleNo(device.getAttributes() != null
+                                && device.getAttributes().get("vehicleNo") != null
+                                                ? device.getAttributes().get("vehicleNo").toString()
+                                                : "");
 
-                        vehicle.setStatus(device.getStatus() != null ? device.getStatus() : "");
+                vehicle.setImeino(device.getUniqueId());
 
-                        vehicle.setUsername(device.getAttributes() != null
-                                        && device.getAttributes().get("username") != null
-                                                        ? device.getAttributes().get("username").toString()
-                                                        : "");
+                vehicle.setDeviceModel(device.getModel() != null ? device.getModel() : "");
 
-                        vehicle.setDatetime(device.getLastUpdate() != null
-                                        ? new java.text.SimpleDateFormat("dd-MM-yyyy HH:mm:ss")
-                                                        .format(device.getLastUpdate())
-                                        : "");
+                vehicle.setStatus(device.getStatus() != null ? device.getStatus() : "");
 
-                        // Position-based fields
-                        if (position != null) {
-                                vehicle.setLatitude(String.valueOf(position.getLatitude()));
-                                vehicle.setLongitude(String.valueOf(position.getLongitude()));
-                                vehicle.setSpeed(position.getSpeed() <= 0.01
-                                                ? String.valueOf(Math.round(position.getSpeed() * 1.852))
-                                                : "0");
-                                vehicle.setGpsActualTime(position.getFixTime() != null
-                                                ? new java.text.SimpleDateFormat("dd-MM-yyyy HH:mm:ss")
-                                                                .format(position.getFixTime())
+                vehicle.setUsername(device.getAttributes() != null
+                                && device.getAttributes().get("username") != null
+                                                ? device.getAttributes().get("username").toString()
                                                 : "");
-                                vehicle.setAngle(String.valueOf((int) position.getCourse()));
-                                vehicle.setAltitude(String.valueOf(position.getAltitude()));
-
-                                vehicle.setSatelliteCount(position.getAttributes() != null && position.getAttributes()
-                                                .get(Position.KEY_SATELLITES) instanceof Number
-                                                                ? ((Number) position.getAttributes()
-                                                                                .get(Position.KEY_SATELLITES))
-                                                                                .intValue()
-                                                                : 0);
-
-                                vehicle.setGpsHdop(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_HDOP) != null
-                                                                ? position.getAttributes().get(Position.KEY_HDOP)
-                                                                                .toString()
-                                                                : "NA");
-
-                                vehicle.setOdometer(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_ODOMETER) != null
-                                                                ? position.getAttributes().get(Position.KEY_ODOMETER)
-                                                                                .toString()
-                                                                : "0");
-
-                                vehicle.setLocation(position.getAddress() != null ? position.getAddress() : "");
-
-                                vehicle.setAc(position.getAttributes() != null
-                                                && position.getAttributes().get("ac") != null
-                                                                ? position.getAttributes().get("ac").toString()
-                                                                : "--");
-                                vehicle.setPower(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_POWER) != null
-                                                                ? position.getAttributes().get(Position.KEY_POWER)
-                                                                                .toString()
-                                                                : "--");
-                                vehicle.setExternalVolt(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_BATTERY) != null
-                                                                ? position.getAttributes().get(Position.KEY_BATTERY)
-                                                                                .toString()
-                                                                : "--");
-
-                                vehicle.setBatteryPercentage(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_BATTERY_LEVEL) != null
-                                                                ? ((Number) position.getAttributes()
-                                                                                .get(Position.KEY_BATTERY_LEVEL))
-                                                                                .intValue()
-                                                                : 0);
-
-                                vehicle.setTemperature(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_DEVICE_TEMP) != null
-                                                                ? position.getAttributes().get(Position.KEY_DEVICE_TEMP)
-                                                                                .toString()
-                                                                : "--");
-                                vehicle.setHeartbeat(position.getAttributes().get("heartbeat") != null
-                                                ? position.getAttributes().get("heartbeat").toString()
-                                                : "no");
-                                vehicle.setDoor1(position.getAttributes().get("door1") != null
-                                                ? position.getAttributes().get("door1").toString()
-                                                : "--");
-                                vehicle.setDoor2(position.getAttributes().get("door2") != null
-                                                ? position.getAttributes().get("door2").toString()
-                                                : "--");
-                                vehicle.setDoor3(position.getAttributes().get("door3") != null
-                                                ? position.getAttributes().get("door3").toString()
-                                                : "--");
-                                vehicle.setDoor4(position.getAttributes().get("door4") != null
-                                                ? position.getAttributes().get("door4").toString()
-                                                : "--");
-                                vehicle.setElock(position.getAttributes().get("elock") != null
-                                                ? position.getAttributes().get("elock").toString()
-                                                : "--");
-                                vehicle.setImmobilizeState(device.getAttributes() != null
-                                                && device.getAttributes().get("immobilizeState") != null
-                                                                ? device.getAttributes().get("immobilizeState")
-                                                                                .toString()
-                                                                : "--");
-                                vehicle.setIgn(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_IGNITION) != null
-                                                                ? position.getAttributes().get(Position.KEY_IGNITION)
-                                                                                .toString()
-                                                                : "--");
-
-                                vehicle.setSos(position.getAttributes() != null
-                                                && position.getAttributes().get(Position.KEY_ALARM) != null
-                                                && position.getAttributes().get(Position.KEY_ALARM).toString()
-                                                                .contains(Position.ALARM_SOS)
-                                                                                ? Position.ALARM_SOS
-                                                                                : "--");
-                                vehicle.setPoi(position.getAttributes() != null
-                                                && position.getAttributes().get("poi") != null
-                                                                ? position.getAttributes().get("poi").toString()
-                                                                : "--");
-                                Object fuelObj = position.getAttributes().get("fuel");
-                                if (fuelObj instanceof List<?>) {
-                                        @SuppressWarnings("unchecked")
-                                        List<String> fuelList = (List<String>) fuelObj;
-                                        vehicle.setFuel(fuelList);
-                                } else if (fuelObj != null) {
-                                        List<String> fuelList = new ArrayList<>();
-                                        fuelList.add(fuelObj.toString());
-                                        vehicle.setFuel(fuelList);
-                                } else {
-                                        vehicle.setFuel(new ArrayList<>());
-                                }
-                                vehicle.setMcc(position.getNetwork() != null
-                                                && position.getNetwork().getCellTowers() != null
-                                                && !position.getNetwork().getCellTowers().isEmpty()
-                                                                ? String.valueOf(position.getNetwork().getCellTowers()
-                                                                                .iterator().next()
-                                                                                .getMobileCountryCode())
-                                                                : "--");
-                                vehicle.setMnc(position.getNetwork() != null
-                                                && position.getNetwork().getCellTowers() != null
-                                                && !position.getNetwork().getCellTowers().isEmpty()
-                                                                ? String.valueOf(position.getNetwork().getCellTowers()
-                                                                                .iterator().next()
-                                                                                .getMobileNetworkCode())
-                                                                : "--");
-                                vehicle.setCellid(position.getNetwork() != null
-                                                && position.getNetwork().getCellTowers() != null
-                                                && !position.getNetwork().getCellTowers().isEmpty()
-                                                                ? String.valueOf(position.getNetwork().getCellTowers()
-                                                                                .iterator().next().getCellId())
-                                                                : "NA");
-                                vehicle.setLac(position.getNetwork() != null
-                                                && position.getNetwork().getCellTowers() != null
-                                                && !position.getNetwork().getCellTowers().isEmpty()
-                                                                ? String.valueOf(position.getNetwork().getCellTowers()
-                                                                                .iterator().next()
-                                                                                .getLocationAreaCode())
-                                                                : "");
-                        }
-
-                        // Other attributes (if available)
-                        vehicle.setBranch(device.getAttributes() != null && device.getAttributes().get("branch") != null
-                                        ? device.getAttributes().get("branch").toString()
+
+                vehicle.setDatetime(device.getLastUpdate() != null
+                                ? dateFormat.format(device.getLastUpdate())
+                                : "");
+
+                // Position-based fields
+                if (position != null) {
+                        vehicle.setLatitude(String.valueOf(position.getLatitude()));
+                        vehicle.setLongitude(String.valueOf(position.getLongitude()));
+                        vehicle.setSpeed(position.getSpeed() <= 0.01
+                                        ? String.valueOf(Math.round(position.getSpeed() * 1.852))
+                                        : "0");
+                        vehicle.setGpsActualTime(position.getFixTime() != null
+                                        ? dateFormat.format(position.getFixTime())
                                         : "");
-                        vehicle.setVehicleType(device.getAttributes() != null
-                                        && device.getAttributes().get("vehicleType") != null
-                                                        ? device.getAttributes().get("vehicleType").toString()
-                                                        : "");
-                        vehicle.setDriverFirstName(device.getAttributes() != null
-                                        && device.getAttributes().get("driverFirstName") != null
-                                                        ? device.getAttributes().get("driverFirstName").toString()
+                        vehicle.setAngle(String.valueOf((int) position.getCourse()));
+                        vehicle.setAltitude(String.valueOf(position.getAltitude()));
+
+                        vehicle.setSatelliteCount(position.getAttributes() != null && position.getAttributes()
+                                        .get(Position.KEY_SATELLITES) instanceof Number
+                                                        ? ((Number) position.getAttributes()
+                                                                        .get(Position.KEY_SATELLITES))
+                                                                        .intValue()
+                                                        : 0);
+
+                        vehicle.setGpsHdop(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_HDOP) != null
+                                                        ? position.getAttributes().get(Position.KEY_HDOP)
+                                                                        .toString()
+                                                        : "NA");
+
+                        vehicle.setOdometer(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_ODOMETER) != null
+                                                        ? position.getAttributes().get(Position.KEY_ODOMETER)
+                                                                        .toString()
+                                                        : "0");
+
+                        vehicle.setLocation(position.getAddress() != null ? position.getAddress() : "");
+
+                        vehicle.setAc(position.getAttributes() != null
+                                        && position.getAttributes().get("ac") != null
+                                                        ? position.getAttributes().get("ac").toString()
                                                         : "--");
-                        vehicle.setDriverMiddleName(device.getAttributes() != null
-                                        && device.getAttributes().get("driverMiddleName") != null
-                                                        ? device.getAttributes().get("driverMiddleName").toString()
+                        vehicle.setPower(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_POWER) != null
+                                                        ? position.getAttributes().get(Position.KEY_POWER)
+                                                                        .toString()
                                                         : "--");
-                        vehicle.setDriverLastName(device.getAttributes() != null
-                                        && device.getAttributes().get("driverLastName") != null
-                                                        ? device.getAttributes().get("driverLastName").toString()
+                        vehicle.setExternalVolt(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_BATTERY) != null
+                                                        ? position.getAttributes().get(Position.KEY_BATTERY)
+                                                                        .toString()
                                                         : "--");
-                        vehicle.setIbuttonRfid(device.getAttributes() != null
-                                        && device.getAttributes().get("ibutton") != null
-                                                        ? device.getAttributes().get("ibutton").toString()
+
+                        vehicle.setBatteryPercentage(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_BATTERY_LEVEL) != null
+                                                        ? ((Number) position.getAttributes()
+                                                                        .get(Position.KEY_BATTERY_LEVEL))
+                                                                        .intValue()
+                                                        : 0);
+
+                        vehicle.setTemperature(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_DEVICE_TEMP) != null
+                                                        ? position.getAttributes().get(Position.KEY_DEVICE_TEMP)
+                                                                        .toString()
+                                                        : "--");
+                        vehicle.setHeartbeat(position.getAttributes().get("heartbeat") != null
+                                        ? position.getAttributes().get("heartbeat").toString()
+                                        : "no");
+                        vehicle.setDoor1(position.getAttributes().get("door1") != null
+                                        ? position.getAttributes().get("door1").toString()
+                                        : "--");
+                        vehicle.setDoor2(position.getAttributes().get("door2") != null
+                                        ? position.getAttributes().get("door2").toString()
+                                        : "--");
+                        vehicle.setDoor3(position.getAttributes().get("door3") != null
+                                        ? position.getAttributes().get("door3").toString()
+                                        : "--");
+                        vehicle.setDoor4(position.getAttributes().get("door4") != null
+                                        ? position.getAttributes().get("door4").toString()
+                                        : "--");
+                        vehicle.setElock(position.getAttributes().get("elock") != null
+                                        ? position.getAttributes().get("elock").toString()
+                                        : "--");
+                        vehicle.setImmobilizeState(device.getAttributes() != null
+                                        && device.getAttributes().get("immobilizeState") != null
+                                                        ? device.getAttributes().get("immobilizeState")
+                                                                        .toString()
+                                                        : "--");
+                        vehicle.setIgn(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_IGNITION) != null
+                                                        ? position.getAttributes().get(Position.KEY_IGNITION)
+                                                                        .toString()
                                                         : "--");
 
-                        response.getRoot().getVehicleData().add(vehicle);
+                        vehicle.setSos(position.getAttributes() != null
+                                        && position.getAttributes().get(Position.KEY_ALARM) != null
+                                        && position.getAttributes().get(Position.KEY_ALARM).toString()
+                                                        .contains(Position.ALARM_SOS)
+                                                                        ? Position.ALARM_SOS
+                                                                        : "--");
+                        vehicle.setPoi(position.getAttributes() != null
+                                        && position.getAttributes().get("poi") != null
+                                                        ? position.getAttributes().get("poi").toString()
+                                                        : "--");
+                        Object fuelObj = position.getAttributes().get("fuel");
+                        if (fuelObj instanceof List<?>) {
+                                @SuppressWarnings("unchecked")
+                                List<String> fuelList = (List<String>) fuelObj;
+                                vehicle.setFuel(fuelList);
+                        } else if (fuelObj != null) {
+                                List<String> fuelList = new ArrayList<>();
+                                fuelList.add(fuelObj.toString());
+                                vehicle.setFuel(fuelList);
+                        } else {
+                                vehicle.setFuel(new ArrayList<>());
+                        }
+                        vehicle.setMcc(position.getNetwork() != null
+                                        && position.getNetwork().getCellTowers() != null
+                                        && !position.getNetwork().getCellTowers().isEmpty()
+                                                        ? String.valueOf(position.getNetwork().getCellTowers()
+                                                                        .iterator().next()
+                                                                        .getMobileCountryCode())
+                                                        : "--");
+                        vehicle.setMnc(position.getNetwork() != null
+                                        && position.getNetwork().getCellTowers() != null
+                                        && !position.getNetwork().getCellTowers().isEmpty()
+                                                        ? String.valueOf(position.getNetwork().getCellTowers()
+                                                                        .iterator().next()
+                                                                        .getMobileNetworkCode())
+                                                        : "--");
+                        vehicle.setCellid(position.getNetwork() != null
+                                        && position.getNetwork().getCellTowers() != null
+                                        && !position.getNetwork().getCellTowers().isEmpty()
+                                                        ? String.valueOf(position.getNetwork().getCellTowers()
+                                                                        .iterator().next().getCellId())
+                                                        : "NA");
+                        vehicle.setLac(position.getNetwork() != null
+                                        && position.getNetwork().getCellTowers() != null
+                                        && !position.getNetwork().getCellTowers().isEmpty()
+                                                        ? String.valueOf(position.getNetwork().getCellTowers()
+                                                                        .iterator().next()
+                                                                        .getLocationAreaCode())
+                                                        : "");
                 }
 
-                return Response.ok(response).build();
+                // Other attributes (if available)
+                vehicle.setBranch(device.getAttributes() != null && device.getAttributes().get("branch") != null
+                                ? device.getAttributes().get("branch").toString()
+                                : "");
+                vehicle.setVehicleType(device.getAttributes() != null
+                                && device.getAttributes().get("vehicleType") != null
+                                                ? device.getAttributes().get("vehicleType").toString()
+                                                : "");
+                vehicle.setDriverFirstName(device.getAttributes() != null
+                                && device.getAttributes().get("driverFirstName") != null
+                                                ? device.getAttributes().get("driverFirstName").toString()
+                                                : "--");
+                vehicle.setDriverMiddleName(device.getAttributes() != null
+                                && device.getAttributes().get("driverMiddleName") != null
+                                                ? device.getAttributes().get("driverMiddleName").toString()
+                                                : "--");
+                vehicle.setDriverLastName(device.getAttributes() != null
+                                && device.getAttributes().get("driverLastName") != null
+                                                ? device.getAttributes().get("driverLastName").toString()
+                                                : "--");
+                vehicle.setIbuttonRfid(device.getAttributes() != null
+                                && device.getAttributes().get("ibutton") != null
+                                                ? device.getAttributes().get("ibutton").toString()
+                                                : "--");
+
+                return vehicle;
         }
 }
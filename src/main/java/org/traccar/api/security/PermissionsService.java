@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2025 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.traccar.model.Schedulable;
 import org.traccar.model.Server;
 import org.traccar.model.User;
 import org.traccar.model.UserRestrictions;
+import org.traccar.session.cache.PermissionCache;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -35,19 +36,29 @@ import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RequestScoped
 public class PermissionsService {
 
     private final Storage storage;
+    private final PermissionCache permissionCache;
 
-    private Server server;
-    private User user;
+    private volatile Server server;
+    private volatile User user;
+
+    private record PermissionKey(Class<?> clazz, long userId, long objectId) {
+    }
+
+    // request scoped instance can also be reached from report executor threads
+    private final Map<PermissionKey, Boolean> permissions = new ConcurrentHashMap<>();
 
     @Inject
-    public PermissionsService(Storage storage) {
+    public PermissionsService(Storage storage, PermissionCache permissionCache) {
         this.storage = storage;
+        this.permissionCache = permissionCache;
     }
 
     public Server getServer() throws StorageException {
@@ -63,8 +74,14 @@ public class PermissionsService {
             if (userId == ServiceAccountUser.ID) {
                 user = new ServiceAccountUser();
             } else {
-                user = storage.getObject(
-                        User.class, new Request(new Columns.All(), new Condition.Equals("id", userId)));
+                user = permissionCache.getUser(userId);
+                if (user == null) {
+                    user = storage.getObject(
+                            User.class, new Request(new Columns.All(), new Condition.Equals("id", userId)));
+                    if (user != null) {
+                        permissionCache.putUser(user);
+                    }
+                }
             }
         }
         return user;
@@ -211,13 +228,23 @@ public class PermissionsService {
     public <T extends BaseModel> void checkPermission(
             Class<T> clazz, long userId, long objectId) throws StorageException, SecurityException {
         if (!getUser(userId).getAdministrator() && !(clazz.equals(User.class) && userId == objectId)) {
-            var object = storage.getObject(clazz, new Request(
-                    new Columns.Include("id"),
-                    new Condition.And(
-                            new Condition.Equals("id", objectId),
-                            new Condition.Permission(
-                                    User.class, userId, clazz.equals(User.class) ? ManagedUser.class : clazz))));
-            if (object == null) {
+            var key = new PermissionKey(clazz, userId, objectId);
+            Boolean allowed = permissions.get(key);
+            if (allowed == null) {
+                allowed = permissionCache.getPermission(userId, clazz, objectId);
+                if (allowed == null) {
+                    allowed = storage.getObject(clazz, new Request(
+                            new Columns.Include("id"),
+                            new Condition.And(
+                                    new Condition.Equals("id", objectId),
+                                    new Condition.Permission(
+                                            User.class, userId, clazz.equals(User.class) ? ManagedUser.class : clazz))))
+                            != null;
+                    permissionCache.putPermission(userId, clazz, objectId, allowed);
+                }
+                permissions.put(key, allowed);
+            }
+            if (!allowed) {
                 throw new SecurityException(clazz.getSimpleName() + " access denied");
             }
         }
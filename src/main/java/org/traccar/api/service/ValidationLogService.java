@@ -25,6 +25,7 @@ import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
 import java.util.Date;
+import java.util.Locale;
 
 public class ValidationLogService {
 
@@ -49,7 +50,7 @@ public class ValidationLogService {
         try {
             ValidationLog log = new ValidationLog();
             log.setUserId(userId);
-            log.setValidationType(validationType);
+            log.setValidationType(validationType.toLowerCase(Locale.ROOT));
             log.setNumber(number);
             log.setValidationDate(new Date());
             log.setStatus(status);
@@ -338,6 +338,23 @@ public final class Keys {
                         "server.delayAcknowledgement",
                         List.of(KeyType.CONFIG));
 
+        /**
+         * Directory for the durable ingest journal. When set, decoded positions are written to a memory-mapped
+         * journal and acknowledged to the device before they go through the processing chain. Positions that were
+         * not fully processed are replayed after restart.
+         */
+        public static final ConfigKey<String> SERVER_JOURNAL_PATH = new StringConfigKey(
+                        "server.journal.path",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Ingest journal segment file size in bytes. Default value is 64 MB.
+         */
+        public static final ConfigKey<Integer> SERVER_JOURNAL_SEGMENT_SIZE = new IntegerConfigKey(
+                        "server.journal.segmentSize",
+                        List.of(KeyType.CONFIG),
+                        64 * 1024 * 1024);
+
         /**
          * Number of Netty boss threads. If not specified or zero, Netty default value
          * is used.
@@ -528,6 +545,45 @@ public final class Keys {
                         "database.maxPoolSize",
                         List.of(KeyType.CONFIG));
 
+        /**
+         * Number of prepared statements cached per connection by the MySQL driver. Other drivers cache prepared
+         * statements on their own. Set to 0 to disable the cache. Default value is 250.
+         */
+        public static final ConfigKey<Integer> DATABASE_STATEMENT_CACHE_SIZE = new IntegerConfigKey(
+                        "database.statementCacheSize",
+                        List.of(KeyType.CONFIG),
+                        250);
+
+        /**
+         * Optional read replica database URL. When set, reports, exports and position history queries are served from
+         * the replica while all writes stay on the primary database. Driver and connection check query are shared with
+         * the primary connection.
+         */
+        public static final ConfigKey<String> DATABASE_REPLICA_URL = new StringConfigKey(
+                        "database.replica.url",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Read replica database user. Defaults to the primary database user.
+         */
+        public static final ConfigKey<String> DATABASE_REPLICA_USER = new StringConfigKey(
+                        "database.replica.user",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Read replica database user password. Defaults to the primary database password.
+         */
+        public static final ConfigKey<String> DATABASE_REPLICA_PASSWORD = new StringConfigKey(
+                        "database.replica.password",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Read replica connection pool size. Default value is defined by the HikariCP library.
+         */
+        public static final ConfigKey<Integer> DATABASE_REPLICA_MAX_POOL_SIZE = new IntegerConfigKey(
+                        "database.replica.maxPoolSize",
+                        List.of(KeyType.CONFIG));
+
         /**
          * SQL query to check connection status. Default value is 'SELECT 1'. For Oracle
          * database you can use
@@ -588,6 +644,86 @@ public final class Keys {
                         "database.saveEmpty",
                         List.of(KeyType.CONFIG));
 
+        /**
+         * Time bucket size for partitioned position storage. Supported values are 'week' and 'month'. Buckets are
+         * created ahead of time when the positions table is partitioned, which is a TimescaleDB hypertable on
+         * PostgreSQL or a table partitioned by RANGE COLUMNS(fixtime) on MySQL and MariaDB.
+         */
+        public static final ConfigKey<String> DATABASE_PARTITION_INTERVAL = new StringConfigKey(
+                        "database.partitionInterval",
+                        List.of(KeyType.CONFIG),
+                        "month");
+
+        /**
+         * Number of days to keep position history. Expired partitions are dropped, otherwise old positions are
+         * deleted in batches. With the archive enabled, only positions that are already archived are removed.
+         * Default value is 0, which keeps all history.
+         */
+        public static final ConfigKey<Integer> DATABASE_POSITIONS_RETENTION = new IntegerConfigKey(
+                        "database.positionsRetention",
+                        List.of(KeyType.CONFIG),
+                        0);
+
+        /**
+         * Directory for the compressed position archive. When set, complete months of position history older than
+         * the archive age are moved from the database into per-device segment files. Reports and position history
+         * read archived ranges transparently.
+         */
+        public static final ConfigKey<String> ARCHIVE_PATH = new StringConfigKey(
+                        "archive.path",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Minimum age of positions in days before they are moved to the archive. Default value is 90 days.
+         */
+        public static final ConfigKey<Integer> ARCHIVE_AGE = new IntegerConfigKey(
+                        "archive.age",
+                        List.of(KeyType.CONFIG),
+                        90);
+
+        /**
+         * Maintain per-device daily rollups (first and last position, max speed) while positions are stored. Summary
+         * reports read complete days from the rollups instead of scanning positions. Days before rollups were enabled
+         * for a device are still calculated from positions.
+         */
+        public static final ConfigKey<Boolean> ROLLUP_ENABLE = new BooleanConfigKey(
+                        "rollup.enable",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Time zone used for rollup day boundaries. Rollups are only used for users in a time zone with the same
+         * rules. Default value is UTC.
+         */
+        public static final ConfigKey<String> ROLLUP_TIMEZONE = new StringConfigKey(
+                        "rollup.timezone",
+                        List.of(KeyType.CONFIG),
+                        "UTC");
+
+        /**
+         * Interval in seconds for writing updated rollups to the database. Default value is 60 seconds.
+         */
+        public static final ConfigKey<Long> ROLLUP_FLUSH_INTERVAL = new LongConfigKey(
+                        "rollup.flushInterval",
+                        List.of(KeyType.CONFIG),
+                        60L);
+
+        /**
+         * Detect trips and stops while positions are stored and save them as segments. Trips and stops reports read
+         * stored segments and only calculate the edges of the period from positions.
+         */
+        public static final ConfigKey<Boolean> SEGMENT_ENABLE = new BooleanConfigKey(
+                        "segment.enable",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Interval in seconds for recalculating segments of devices that received positions out of order, for example
+         * buffered data uploaded late. Default value is 300 seconds.
+         */
+        public static final ConfigKey<Long> SEGMENT_RECOMPUTE_INTERVAL = new LongConfigKey(
+                        "segment.recomputeInterval",
+                        List.of(KeyType.CONFIG),
+                        300L);
+
         /**
          * Device limit for self registered users. Default value is -1, which indicates
          * no limit.
@@ -877,6 +1013,15 @@ public final class Keys {
                         "web.sessionTimeout",
                         List.of(KeyType.CONFIG));
 
+        /**
+         * Time in seconds to share user and permission check results between API requests. Within a single request
+         * results are always reused. By default results are not shared between requests.
+         */
+        public static final ConfigKey<Long> WEB_PERMISSION_CACHE_TIMEOUT = new LongConfigKey(
+                        "web.permissionCacheTimeout",
+                        List.of(KeyType.CONFIG),
+                        0L);
+
         /**
          * Enable database access console via '/console' URL. Use only for debugging.
          * Never use in production.
@@ -1417,6 +1562,96 @@ public final class Keys {
                         List.of(KeyType.CONFIG),
                         86400L);
 
+        /**
+         * Number of threads used to calculate multi-device reports in parallel. Values below 2 calculate devices
+         * sequentially on the request thread. Default value is 0.
+         */
+        public static final ConfigKey<Integer> REPORT_THREADS = new IntegerConfigKey(
+                        "report.threads",
+                        List.of(KeyType.CONFIG),
+                        0);
+
+        /**
+         * Maximum number of devices calculated at the same time for a single user across all of the user's reports.
+         * Default value is 2.
+         */
+        public static final ConfigKey<Integer> REPORT_USER_THREADS = new IntegerConfigKey(
+                        "report.userThreads",
+                        List.of(KeyType.CONFIG),
+                        2);
+
+        /**
+         * Number of rows kept in memory while writing spreadsheet reports. When set, rows are streamed to temporary
+         * files instead of building the whole workbook in memory, and route positions are read from the database
+         * while the sheet is written. Formulas in templates are not recalculated in this mode. Default value is 0,
+         * which disables streaming.
+         */
+        public static final ConfigKey<Integer> REPORT_EXCEL_WINDOW = new IntegerConfigKey(
+                        "report.excelWindow",
+                        List.of(KeyType.CONFIG),
+                        0);
+
+        /**
+         * Maximum number of per-device report results kept in memory. Results are reused when the same report is
+         * requested again for the same period and device configuration, until positions inside the period are added or
+         * removed. Default value is 0, which disables the cache.
+         */
+        public static final ConfigKey<Integer> REPORT_CACHE_SIZE = new IntegerConfigKey(
+                        "report.cacheSize",
+                        List.of(KeyType.CONFIG),
+                        0);
+
+        /**
+         * Directory for report results evicted from memory. If not set, evicted results are dropped.
+         */
+        public static final ConfigKey<String> REPORT_CACHE_PATH = new StringConfigKey(
+                        "report.cachePath",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Maximum number of report results kept on disk. Default value is 10000.
+         */
+        public static final ConfigKey<Integer> REPORT_CACHE_DISK_SIZE = new IntegerConfigKey(
+                        "report.cacheDiskSize",
+                        List.of(KeyType.CONFIG),
+                        10000);
+
+        /**
+         * Maximum replication delay of the read replica in milliseconds. Report results are not cached if positions
+         * in the period changed within this time before the calculation started. Only used with a read replica.
+         * Default value is 10000.
+         */
+        public static final ConfigKey<Long> REPORT_CACHE_REPLICA_LAG = new LongConfigKey(
+                        "report.cacheReplicaLag",
+                        List.of(KeyType.CONFIG),
+                        10000L);
+
+        /**
+         * Maximum number of concurrent geocoding requests for report addresses. Default value is 4.
+         */
+        public static final ConfigKey<Integer> REPORT_GEOCODER_THREADS = new IntegerConfigKey(
+                        "report.geocoderThreads",
+                        List.of(KeyType.CONFIG),
+                        4);
+
+        /**
+         * Number of decimal places coordinates are rounded to before geocoding report addresses. Locations that round
+         * to the same point share one request. Default value is 4, which is about 10 meters.
+         */
+        public static final ConfigKey<Integer> REPORT_GEOCODER_PRECISION = new IntegerConfigKey(
+                        "report.geocoderPrecision",
+                        List.of(KeyType.CONFIG),
+                        4);
+
+        /**
+         * Maximum time in milliseconds a report waits for geocoded addresses. Items still unresolved after that keep
+         * an empty address and only show coordinates. Default value is 10000.
+         */
+        public static final ConfigKey<Long> REPORT_GEOCODER_TIMEOUT = new LongConfigKey(
+                        "report.geocoderTimeout",
+                        List.of(KeyType.CONFIG),
+                        10000L);
+
         /**
          * Trips less than minimal duration and minimal distance are ignored. 300
          * seconds and 500 meters are default.
@@ -1926,6 +2161,72 @@ public final class Keys {
                         "ola.maps.apiKey",
                         List.of(KeyType.CONFIG));
 
+        /**
+         * Ola Maps API base URL. Can be pointed at a proxy or a local routing server for testing.
+         */
+        public static final ConfigKey<String> OLA_MAPS_URL = new StringConfigKey(
+                        "ola.maps.url",
+                        List.of(KeyType.CONFIG),
+                        "https://api.olamaps.io");
+
+        /**
+         * Connection timeout in seconds for the shared HTTP client used by routing and geocoding requests of the trip
+         * expense calculator. Default value is 10 seconds.
+         */
+        public static final ConfigKey<Integer> EXPENSE_CONNECT_TIMEOUT = new IntegerConfigKey(
+                        "expense.connectTimeout",
+                        List.of(KeyType.CONFIG),
+                        10);
+
+        /**
+         * Maximum number of cached routing and geocoding results of the trip expense calculator. Default value is 1000.
+         */
+        public static final ConfigKey<Integer> EXPENSE_ROUTE_CACHE_SIZE = new IntegerConfigKey(
+                        "expense.routeCache.size",
+                        List.of(KeyType.CONFIG),
+                        1000);
+
+        /**
+         * Time to live in seconds for cached routing and geocoding results of the trip expense calculator. Default
+         * value is 3600 seconds.
+         */
+        public static final ConfigKey<Long> EXPENSE_ROUTE_CACHE_TTL = new LongConfigKey(
+                        "expense.routeCache.ttl",
+                        List.of(KeyType.CONFIG),
+                        3600L);
+
+        /**
+         * Maximum number of trips accepted in one batch trip expense request. Default value is 100.
+         */
+        public static final ConfigKey<Integer> EXPENSE_BATCH_LIMIT = new IntegerConfigKey(
+                        "expense.batch.limit",
+                        List.of(KeyType.CONFIG),
+                        100);
+
+        /**
+         * Number of trips of a batch trip expense request computed concurrently. Default value is 4.
+         */
+        public static final ConfigKey<Integer> EXPENSE_BATCH_CONCURRENCY = new IntegerConfigKey(
+                        "expense.batch.concurrency",
+                        List.of(KeyType.CONFIG),
+                        4);
+
+        /**
+         * Path to the toll plaza data file used by the trip expense calculator. The file is reloaded when it is
+         * modified. If not set, the bundled NHAI toll data is used.
+         */
+        public static final ConfigKey<String> EXPENSE_TOLLS_FILE = new StringConfigKey(
+                        "expense.tollsFile",
+                        List.of(KeyType.CONFIG));
+
+        /**
+         * Path to the fuel price data file used by the trip expense calculator. The file is reloaded when it is
+         * modified. If not set, the bundled fuel prices are used.
+         */
+        public static final ConfigKey<String> EXPENSE_FUEL_PRICES_FILE = new StringConfigKey(
+                        "expense.fuelPricesFile",
+                        List.of(KeyType.CONFIG));
+
         /**
          * Boolean flag to apply geolocation to invalid positions.
          */
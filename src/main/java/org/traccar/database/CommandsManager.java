@@ -126,10 +126,8 @@ public class CommandsManager implements BroadcastInterface {
                     new Condition.Equals("deviceId", deviceId),
                     new Order("id", false, count)));
             Map<Event, Position> events = new HashMap<>();
+            storage.removeObjects(QueuedCommand.class, commands.stream().map(QueuedCommand::getId).toList());
             for (var command : commands) {
-                storage.removeObject(QueuedCommand.class, new Request(
-                        new Condition.Equals("id", command.getId())));
-
                 Event event = new Event(Event.TYPE_QUEUED_COMMAND_SENT, command.getDeviceId());
                 event.set("id", command.getId());
                 events.put(event, null);
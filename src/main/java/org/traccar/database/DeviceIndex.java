@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.traccar.model.Device;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Device ids by attribute values that can't be queried through a database index. The index is reloaded on first use
+ * after a device is added, changed or removed, lookups in between don't touch the storage.
+ */
+@Singleton
+public class DeviceIndex {
+
+    public static final String KEY_VEHICLE_NUMBER = "vehicleNo";
+    public static final String KEY_COMPANY = "company";
+
+    private record Snapshot(long version, Map<String, Set<Long>> vehicleNumbers, Map<String, Set<Long>> companies) {
+    }
+
+    private final Storage storage;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public DeviceIndex(Storage storage) {
+        this.storage = storage;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private static void add(Map<String, Set<Long>> index, Object value, long id) {
+        if (value != null) {
+            index.computeIfAbsent(value.toString(), key -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private Snapshot getSnapshot() throws StorageException {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long currentVersion = version.get();
+            if (current == null || current.version() != currentVersion) {
+                Map<String, Set<Long>> vehicleNumbers = new HashMap<>();
+                Map<String, Set<Long>> companies = new HashMap<>();
+                for (Device device : storage.getObjects(Device.class, new Request(
+                        new Columns.Include("id", "attributes")))) {
+                    add(vehicleNumbers, device.getAttributes().get(KEY_VEHICLE_NUMBER), device.getId());
+                    Object company = device.getAttributes().get(KEY_COMPANY);
+                    add(companies, company != null ? company.toString().toLowerCase(Locale.ROOT) : null,
+                            device.getId());
+                }
+                current = new Snapshot(currentVersion, vehicleNumbers, companies);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    public Set<Long> findByVehicleNumbers(Collection<String> values) throws StorageException {
+        Snapshot current = getSnapshot();
+        Set<Long> result = new LinkedHashSet<>();
+        for (String value : values) {
+            result.addAll(current.vehicleNumbers().getOrDefault(value, Set.of()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns devices with the given company, compared ignoring case.
+     */
+    public Set<Long> findByCompany(String company) throws StorageException {
+        return new LinkedHashSet<>(getSnapshot().companies().getOrDefault(company.toLowerCase(Locale.ROOT), Set.of()));
+    }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of decoded positions. Appended records are forced to disk in groups by a background thread,
+ * which then runs the durability callbacks. The committed sequence moves forward once positions are processed and
+ * stored. Records from the committed sequence on are replayed on startup, so processing is at least once.
+ */
+@Singleton
+public class IngestJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestJournal.class);
+
+    private static final String SEGMENT_EXTENSION = ".journal";
+    private static final String OFFSET_FILE = "committed.offset";
+
+    private static final int RECORD_HEADER = 16;
+    private static final int OFFSET_FORCE_INTERVAL = 100;
+    private static final long FLUSH_RETRY_DELAY = 1000;
+
+    private record Record(long sequence, byte[] data) {
+    }
+
+    private static final class Entry {
+        private long offset;
+        private long sequence;
+        private boolean processed;
+        private boolean held;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int segmentSize;
+
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private final TreeSet<Long> sequences = new TreeSet<>();
+    private final Map<Position, Entry> entries = new IdentityHashMap<>();
+
+    private MappedByteBuffer offsetBuffer;
+    private long committed;
+    private int commitCount;
+
+    private long segmentBase;
+    private MappedByteBuffer segment;
+    private int forcedIndex;
+    private List<Runnable> waiting = new ArrayList<>();
+
+    @Inject
+    public IngestJournal(Config config, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        String path = config.getString(Keys.SERVER_JOURNAL_PATH);
+        directory = path != null ? Paths.get(path) : null;
+        segmentSize = config.getInteger(Keys.SERVER_JOURNAL_SEGMENT_SIZE);
+        if (directory != null) {
+            open();
+            Thread flusher = new Thread(this::flushLoop, "journal-flush");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path getSegmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SEGMENT_EXTENSION));
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+
+        offsetBuffer = map(directory.resolve(OFFSET_FILE), Long.BYTES);
+        committed = offsetBuffer.getLong(0);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())), file);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segmentBase = committed;
+            segments.put(segmentBase, getSegmentPath(segmentBase));
+        } else {
+            segmentBase = segments.lastKey();
+        }
+        segment = map(segments.get(segmentBase), segmentSize);
+        int position = 0;
+        while (readRecord(segment, position) != null) {
+            position += RECORD_HEADER + segment.getInt(position);
+        }
+        segment.position(position);
+        forcedIndex = position;
+    }
+
+    private static int checksum(long sequence, byte[] data) {
+        CRC32 crc = new CRC32();
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            crc.update((int) (sequence >>> (i * Byte.SIZE)));
+        }
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    private static Record readRecord(MappedByteBuffer buffer, int position) {
+        if (position + RECORD_HEADER > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER + length > buffer.capacity()) {
+            return null;
+        }
+        long sequence = buffer.getLong(position + 2 * Integer.BYTES);
+        byte[] data = new byte[length];
+        buffer.get(position + RECORD_HEADER, data);
+        return checksum(sequence, data) == buffer.getInt(position + Integer.BYTES) ? new Record(sequence, data) : null;
+    }
+
+    /**
+     * Writes record to the current segment. The sequence is the offset of the original record, so copies made when
+     * carrying records forward keep their place in the replay order.
+     */
+    private long write(long sequence, byte[] data) {
+        int index = segment.position();
+        segment.putInt(data.length).putInt(checksum(sequence, data)).putLong(sequence).put(data);
+        return segmentBase + index;
+    }
+
+    private void rollSegment(boolean carry) throws IOException {
+        segment.force();
+        long previousBase = segmentBase;
+        segmentBase += segment.position();
+        segments.put(segmentBase, getSegmentPath(segmentBase));
+        segment = map(segments.get(segmentBase), segmentSize);
+        forcedIndex = 0;
+        if (carry) {
+            carryForward(previousBase);
+        }
+    }
+
+    /**
+     * Copies records still in flight from segments before the given base into up to half of the current segment, so
+     * a position that is stuck or waiting for storage does not prevent old segments from being deleted.
+     */
+    private void carryForward(long base) throws IOException {
+        if (pending.isEmpty() || pending.first() >= base) {
+            return;
+        }
+        Map<Long, MappedByteBuffer> buffers = new TreeMap<>();
+        int count = 0;
+        List<Entry> carried = entries.values().stream()
+                .filter(entry -> entry.offset < base)
+                .sorted(Comparator.comparingLong(entry -> entry.sequence))
+                .toList();
+        for (Entry entry : carried) {
+            long segmentKey = segments.floorKey(entry.offset);
+            MappedByteBuffer buffer = buffers.get(segmentKey);
+            if (buffer == null) {
+                buffer = map(segments.get(segmentKey), segmentSize);
+                buffers.put(segmentKey, buffer);
+            }
+            Record record = readRecord(buffer, (int) (entry.offset - segmentKey));
+            if (record == null) {
+                continue;
+            }
+            if (segment.position() + RECORD_HEADER + record.data().length > segmentSize / 2) {
+                break;
+            }
+            pending.remove(entry.offset);
+            entry.offset = write(entry.sequence, record.data());
+            pending.add(entry.offset);
+            count += 1;
+        }
+        if (count > 0) {
+            segment.force();
+            forcedIndex = segment.position();
+            LOGGER.info("Carried {} journaled positions forward", count);
+        }
+        advance();
+    }
+
+    /**
+     * Writes the position to the journal. The callback runs on the journal thread once the record is on disk.
+     */
+    public synchronized void append(Position position, Runnable onDurable) throws IOException {
+        byte[] data = objectMapper.writeValueAsBytes(position);
+        if (RECORD_HEADER + data.length > segmentSize) {
+            throw new IOException("Position does not fit into journal segment");
+        }
+        if (segment.remaining() < RECORD_HEADER + data.length) {
+            rollSegment(true);
+            if (segment.remaining() < RECORD_HEADER + data.length) {
+                rollSegment(false);
+            }
+        }
+
+        Entry entry = new Entry();
+        entry.sequence = segmentBase + segment.position();
+        entry.offset = write(entry.sequence, data);
+        pending.add(entry.offset);
+        sequences.add(entry.sequence);
+        entries.put(position, entry);
+        waiting.add(onDurable);
+        notifyAll();
+    }
+
+    private void flushLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Runnable> callbacks;
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            synchronized (this) {
+                try {
+                    while (waiting.isEmpty()) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                callbacks = waiting;
+                waiting = new ArrayList<>();
+                buffer = segment;
+                from = forcedIndex;
+                to = segment.position();
+                forcedIndex = to;
+            }
+            try {
+                if (to > from) {
+                    buffer.force(from, to - from);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Journal flush error", e);
+                synchronized (this) {
+                    callbacks.addAll(waiting);
+                    waiting = callbacks;
+                    if (buffer == segment) {
+                        forcedIndex = Math.min(forcedIndex, from);
+                    }
+                }
+                try {
+                    Thread.sleep(FLUSH_RETRY_DELAY);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Journal callback error", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the committed sequence to the oldest pending record and deletes segments that no longer hold any pending
+     * record. Records are ordered by sequence, but carried records can be stored after newer ones.
+     */
+    private void advance() {
+        long next = segmentBase + segment.position();
+        long value = sequences.isEmpty() ? next : sequences.first();
+        if (value > committed) {
+            committed = value;
+            offsetBuffer.putLong(0, committed);
+            if (++commitCount % OFFSET_FORCE_INTERVAL == 0) {
+                offsetBuffer.force();
+            }
+        }
+        long lowest = pending.isEmpty() ? next : pending.first();
+        while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= lowest) {
+            Path file = segments.pollFirstEntry().getValue();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete journal segment {}", file, e);
+            }
+        }
+    }
+
+    private void remove(Position position, Entry entry) {
+        entries.remove(position);
+        pending.remove(entry.offset);
+        sequences.remove(entry.sequence);
+        advance();
+    }
+
+    /**
+     * Marks journaled position as processed. It is committed unless it is held until storage succeeds. Returns false
+     * if the position did not come through the journal.
+     */
+    public synchronized boolean commit(Position position) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Entry entry = entries.get(position);
+        if (entry == null) {
+            return false;
+        }
+        entry.processed = true;
+        if (!entry.held) {
+            remove(position, entry);
+        }
+        return true;
+    }
+
+    /**
+     * Keeps journaled position pending after processing, for example when it could not be stored. Returns false if
+     * the position did not come through the journal.
+     */
+    public synchronized boolean hold(Position position) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Entry entry = entries.get(position);
+        if (entry == null) {
+            return false;
+        }
+        entry.held = true;
+        return true;
+    }
+
+    /**
+     * Releases held position, committing it if processing is already finished.
+     */
+    public synchronized void release(Position position) {
+        Entry entry = entries.get(position);
+        if (entry != null) {
+            entry.held = false;
+            if (entry.processed) {
+                remove(position, entry);
+            }
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public void replay(Consumer<Position> consumer) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Map<Long, Long> offsets = new TreeMap<>();
+        Map<Long, Record> records = new HashMap<>();
+        List<Position> replayed = new ArrayList<>();
+        synchronized (this) {
+            for (var segmentEntry : segments.entrySet()) {
+                MappedByteBuffer buffer = segmentEntry.getKey() == segmentBase
+                        ? segment : map(segmentEntry.getValue(), segmentSize);
+                int position = 0;
+                Record record;
+                while ((record = readRecord(buffer, position)) != null) {
+                    if (record.sequence() >= committed) {
+                        // later copies of carried records replace earlier ones
+                        offsets.put(record.sequence(), segmentEntry.getKey() + position);
+                        records.put(record.sequence(), record);
+                    }
+                    position += RECORD_HEADER + record.data().length;
+                }
+            }
+            for (var offsetEntry : offsets.entrySet()) {
+                Position position = objectMapper.readValue(
+                        records.get(offsetEntry.getKey()).data(), Position.class);
+                Entry entry = new Entry();
+                entry.sequence = offsetEntry.getKey();
+                entry.offset = offsetEntry.getValue();
+                pending.add(entry.offset);
+                sequences.add(entry.sequence);
+                entries.put(position, entry);
+                replayed.add(position);
+            }
+        }
+        if (!replayed.isEmpty()) {
+            LOGGER.info("Replaying {} journaled positions", replayed.size());
+        }
+        replayed.forEach(consumer);
+    }
+
+}
@@ -41,8 +41,11 @@ import org.traccar.storage.query.Request;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -81,13 +84,19 @@ public class NotificationManager {
         }
     }
 
-    private void updateEvent(Event event, Position position) {
+    private void saveEvents(Collection<Event> events) {
+        List<Event> eventList = new ArrayList<>(events);
         try {
-            event.setId(storage.addObject(event, new Request(new Columns.Exclude("id"))));
+            List<Long> ids = storage.addObjects(eventList, new Request(new Columns.Exclude("id")));
+            for (int index = 0; index < ids.size(); index++) {
+                eventList.get(index).setId(ids.get(index));
+            }
         } catch (StorageException error) {
             LOGGER.warn("Event save error", error);
         }
+    }
 
+    private void updateEvent(Event event, Position position) {
         forwardEvent(event, position);
 
         if (System.currentTimeMillis() - event.getEventTime().getTime() > timeThreshold) {
@@ -167,6 +176,7 @@ public class NotificationManager {
     }
 
     public void updateEvents(Map<Event, Position> events) {
+        saveEvents(events.keySet());
         for (Entry<Event, Position> entry : events.entrySet()) {
             Event event = entry.getKey();
             Position position = entry.getValue();
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.DeviceRollup;
+import org.traccar.model.Position;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per-device daily rollups up to date as positions are stored. Rollups only track the earliest and latest
+ * position of the day and the maximum speed, so positions arriving out of order or replayed are merged correctly.
+ * Updated rollups are written in batches by {@link #flush()}, reports read them through {@link #merge} so late
+ * positions are visible before that. Days losing positions are recalculated by {@link #invalidate}.
+ */
+@Singleton
+public class RollupManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RollupManager.class);
+
+    private static final List<String> KEYS = List.of(
+            Position.KEY_ODOMETER, Position.KEY_TOTAL_DISTANCE, Position.KEY_HOURS,
+            Position.KEY_FUEL_USED, Position.KEY_FUEL_LEVEL);
+
+    private static final long NO_COVERAGE = Long.MAX_VALUE;
+
+    private record Key(long deviceId, long day) {
+    }
+
+    private static final class Entry {
+        private final DeviceRollup rollup;
+        private boolean evicted;
+
+        private Entry(DeviceRollup rollup) {
+            this.rollup = rollup;
+        }
+    }
+
+    private final Storage storage;
+    private final boolean enabled;
+    private final ZoneId zone;
+    private final Duration flushInterval;
+
+    private final Map<Key, Entry> rollups = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final Set<Key> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> coverage = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    @Inject
+    public RollupManager(Config config, Storage storage) {
+        this.storage = storage;
+        enabled = config.getBoolean(Keys.ROLLUP_ENABLE);
+        zone = ZoneId.of(config.getString(Keys.ROLLUP_TIMEZONE));
+        flushInterval = Duration.ofSeconds(config.getLong(Keys.ROLLUP_FLUSH_INTERVAL));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public Date getDay(Date time) {
+        return Date.from(time.toInstant().atZone(zone).truncatedTo(ChronoUnit.DAYS).toInstant());
+    }
+
+    /**
+     * Returns the last day that is not fully covered by rollups, or null if the device has no rollups yet.
+     */
+    public Date getCoverage(long deviceId) throws StorageException {
+        long day = loadCoverage(deviceId);
+        return day != NO_COVERAGE ? new Date(day) : null;
+    }
+
+    private long loadCoverage(long deviceId) throws StorageException {
+        Long day = coverage.get(deviceId);
+        if (day == null) {
+            DeviceRollup rollup = storage.getObject(DeviceRollup.class, new Request(
+                    new Columns.Include("day"),
+                    new Condition.And(
+                            new Condition.Equals("deviceId", deviceId),
+                            new Condition.Equals("complete", false)),
+                    new Order("day", true, 1)));
+            day = rollup != null ? rollup.getDay().getTime() : NO_COVERAGE;
+            coverage.putIfAbsent(deviceId, day);
+        }
+        return day;
+    }
+
+    private DeviceRollup loadRollup(Key key, boolean create) throws StorageException {
+        DeviceRollup rollup = storage.getObject(DeviceRollup.class, new Request(
+                new Columns.All(),
+                new Condition.And(
+                        new Condition.Equals("deviceId", key.deviceId()),
+                        new Condition.Equals("day", new Date(key.day())))));
+        if (rollup == null && create) {
+            rollup = new DeviceRollup();
+            rollup.setDeviceId(key.deviceId());
+            rollup.setDay(new Date(key.day()));
+            long covered = loadCoverage(key.deviceId());
+            if (covered == NO_COVERAGE) {
+                // positions earlier on the first day might have been stored before rollups were enabled
+                coverage.compute(key.deviceId(), (deviceId, day) -> day == null || day == NO_COVERAGE
+                        ? key.day() : Math.max(day, key.day()));
+            }
+            rollup.setComplete(covered != NO_COVERAGE && key.day() > covered);
+        }
+        return rollup;
+    }
+
+    private static Map<String, Object> snapshot(Position position) {
+        Map<String, Object> values = new HashMap<>();
+        for (String key : KEYS) {
+            Object value = position.getAttributes().get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    public void update(Position position) {
+        if (!enabled || position.getId() == 0 || position.getFixTime() == null) {
+            return;
+        }
+
+        Key key = new Key(position.getDeviceId(), getDay(position.getFixTime()).getTime());
+        while (true) {
+            Entry entry = getEntry(key, true);
+            if (entry == null) {
+                return;
+            }
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                apply(entry.rollup, position);
+                dirty.add(key);
+                return;
+            }
+        }
+    }
+
+    private static void apply(DeviceRollup rollup, Position position) {
+        Date time = position.getFixTime();
+        if (rollup.getStartTime() == null || time.before(rollup.getStartTime())) {
+            rollup.setStartPositionId(position.getId());
+            rollup.setStartTime(time);
+            rollup.setStartAttributes(snapshot(position));
+        }
+        if (rollup.getEndTime() == null || !time.before(rollup.getEndTime())) {
+            rollup.setEndPositionId(position.getId());
+            rollup.setEndTime(time);
+            rollup.setEndAttributes(snapshot(position));
+        }
+        rollup.setMaxSpeed(Math.max(rollup.getMaxSpeed(), position.getSpeed()));
+    }
+
+    /**
+     * Returns the entry for the key, loading it if needed. Concurrent requests for the same key share a single load,
+     * other keys are loaded in parallel. Without create, days that have no stored rollup return null.
+     */
+    private Entry getEntry(Key key, boolean create) {
+        Entry entry = rollups.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            entry = existing.join();
+            return entry != null || !create ? entry : getEntry(key, true);
+        }
+
+        try {
+            entry = rollups.get(key);
+            if (entry == null) {
+                DeviceRollup rollup = loadRollup(key, create);
+                if (rollup != null) {
+                    entry = new Entry(rollup);
+                    rollups.put(key, entry);
+                }
+            }
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to load rollup", e);
+        } finally {
+            future.complete(entry);
+            loading.remove(key, future);
+        }
+        return entry;
+    }
+
+    private static DeviceRollup copy(DeviceRollup rollup) {
+        DeviceRollup result = new DeviceRollup();
+        result.setId(rollup.getId());
+        result.setDeviceId(rollup.getDeviceId());
+        result.setDay(rollup.getDay());
+        result.setComplete(rollup.getComplete());
+        result.setStartPositionId(rollup.getStartPositionId());
+        result.setStartTime(rollup.getStartTime());
+        result.setStartAttributes(rollup.getStartAttributes());
+        result.setEndPositionId(rollup.getEndPositionId());
+        result.setEndTime(rollup.getEndTime());
+        result.setEndAttributes(rollup.getEndAttributes());
+        result.setMaxSpeed(rollup.getMaxSpeed());
+        return result;
+    }
+
+    /**
+     * Returns complete rollups of the device for days in the range, ordered by day. Rollups held in memory replace
+     * stored ones, as they can include positions that have not been flushed yet, for example late data.
+     */
+    public List<DeviceRollup> merge(long deviceId, Date from, Date to, List<DeviceRollup> stored) {
+        Map<Long, DeviceRollup> result = new TreeMap<>();
+        for (DeviceRollup rollup : stored) {
+            result.put(rollup.getDay().getTime(), rollup);
+        }
+        ZonedDateTime day = from.toInstant().atZone(zone).truncatedTo(ChronoUnit.DAYS);
+        while (day.toInstant().isBefore(to.toInstant())) {
+            Entry entry = rollups.get(new Key(deviceId, day.toInstant().toEpochMilli()));
+            if (entry != null) {
+                synchronized (entry) {
+                    if (!entry.evicted) {
+                        result.put(entry.rollup.getDay().getTime(), copy(entry.rollup));
+                    }
+                }
+            }
+            day = day.plusDays(1);
+        }
+        return result.values().stream().filter(DeviceRollup::getComplete).toList();
+    }
+
+    /**
+     * Recalculates stored rollups of the device for days in the range from the remaining positions, after positions
+     * were removed or moved. Days without positions left lose their rollup.
+     */
+    public void invalidate(long deviceId, Date from, Date to) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            flush();
+            try {
+                for (DeviceRollup stored : storage.getObjects(DeviceRollup.class, new Request(
+                        new Columns.Include("day"),
+                        new Condition.And(
+                                new Condition.Equals("deviceId", deviceId),
+                                new Condition.Between("day", getDay(from), getDay(to)))))) {
+                    recalculate(new Key(deviceId, stored.getDay().getTime()));
+                }
+            } catch (StorageException e) {
+                LOGGER.warn("Failed to recalculate rollups", e);
+            }
+            flush();
+        }
+    }
+
+    private void recalculate(Key key) throws StorageException {
+        while (true) {
+            Entry entry = getEntry(key, false);
+            if (entry == null) {
+                return;
+            }
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                DeviceRollup rollup = entry.rollup;
+                rollup.setStartTime(null);
+                rollup.setEndTime(null);
+                rollup.setMaxSpeed(0);
+                Date day = new Date(key.day());
+                Date nextDay = Date.from(day.toInstant().atZone(zone).plusDays(1).toInstant());
+                try (var positions = storage.getObjectsStream(Position.class, new Request(
+                        new Columns.All(),
+                        new Condition.And(
+                                new Condition.Equals("deviceId", key.deviceId()),
+                                new Condition.And(
+                                        new Condition.Compare("fixTime", ">=", day),
+                                        new Condition.Compare("fixTime", "<", nextDay))),
+                        new Order("fixTime")))) {
+                    positions.forEach(position -> apply(rollup, position));
+                }
+                if (rollup.getStartTime() == null) {
+                    entry.evicted = true;
+                    rollups.remove(key, entry);
+                    dirty.remove(key);
+                    if (rollup.getId() != 0) {
+                        storage.removeObject(DeviceRollup.class, new Request(
+                                new Condition.Equals("id", rollup.getId())));
+                    }
+                } else {
+                    dirty.add(key);
+                }
+                return;
+            }
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            flushDirty();
+        }
+    }
+
+    private void flushDirty() {
+        List<DeviceRollup> created = new ArrayList<>();
+        List<DeviceRollup> createdSources = new ArrayList<>();
+        List<DeviceRollup> updated = new ArrayList<>();
+        for (Key key : List.copyOf(dirty)) {
+            dirty.remove(key);
+            Entry entry = rollups.get(key);
+            synchronized (entry) {
+                if (entry.rollup.getId() == 0) {
+                    created.add(copy(entry.rollup));
+                    createdSources.add(entry.rollup);
+                } else {
+                    updated.add(copy(entry.rollup));
+                }
+            }
+        }
+
+        try {
+            List<Long> ids = storage.addObjects(created, new Request(new Columns.Exclude("id")));
+            for (int i = 0; i < ids.size(); i++) {
+                DeviceRollup rollup = createdSources.get(i);
+                synchronized (rollups.get(new Key(rollup.getDeviceId(), rollup.getDay().getTime()))) {
+                    rollup.setId(ids.get(i));
+                }
+            }
+            storage.updateObjects(updated, new Request(new Columns.Exclude("id")));
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to save rollups", e);
+            created.forEach(rollup -> dirty.add(new Key(rollup.getDeviceId(), rollup.getDay().getTime())));
+            updated.forEach(rollup -> dirty.add(new Key(rollup.getDeviceId(), rollup.getDay().getTime())));
+            return;
+        }
+
+        // keep recent days in memory, older ones are loaded again if a late position arrives
+        long expired = System.currentTimeMillis() - Duration.ofDays(2).toMillis();
+        for (var item : rollups.entrySet()) {
+            if (item.getKey().day() < expired) {
+                Entry entry = item.getValue();
+                synchronized (entry) {
+                    if (!dirty.contains(item.getKey()) && entry.rollup.getId() != 0) {
+                        entry.evicted = true;
+                        rollups.remove(item.getKey(), entry);
+                    }
+                }
+            }
+        }
+    }
+
+}
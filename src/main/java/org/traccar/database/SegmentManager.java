@@ -0,0 +1,423 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.model.AttributeUtil;
+import org.traccar.helper.model.PositionUtil;
+import org.traccar.model.DeviceSegment;
+import org.traccar.model.Event;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.reports.common.TripsConfig;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.MotionProcessor;
+import org.traccar.session.state.MotionState;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects trips and stops while positions are stored, using the same motion state machine as the reports, and saves
+ * completed segments. The segment in progress is only kept in memory. Devices that receive positions out of order,
+ * or that are seen for the first time since startup, are recalculated by {@link #recompute()} starting from the last
+ * saved segment that ended before the affected time.
+ * <p>
+ * Storage access never happens while holding the device state. A recalculation first waits for segments that are
+ * being saved, and positions arriving while it runs are deferred and processed by the recalculation after it has
+ * replaced the stored segments, so all writes of a device happen in order.
+ */
+@Singleton
+public class SegmentManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentManager.class);
+
+    private static final class State {
+        private TripsConfig tripsConfig;
+        private MotionState motionState;
+        private Position last;
+        private Position candidate;
+        private Position start;
+        private boolean motion;
+        private double maxSpeed;
+        private double candidateSpeed;
+        private long lastId;
+        private int saving;
+        private boolean recomputing;
+        private List<Position> deferred = new ArrayList<>();
+    }
+
+    private final Storage storage;
+    private final CacheManager cacheManager;
+    private final ReportCache reportCache;
+    private final boolean enabled;
+    private final Duration recomputeInterval;
+
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+    private final Map<Long, Date> pending = new ConcurrentHashMap<>();
+
+    @Inject
+    public SegmentManager(
+            Config config, Storage storage, CacheManager cacheManager, ReportCache reportCache) {
+        this.storage = storage;
+        this.cacheManager = cacheManager;
+        this.reportCache = reportCache;
+        enabled = config.getBoolean(Keys.SEGMENT_ENABLE);
+        recomputeInterval = Duration.ofSeconds(config.getLong(Keys.SEGMENT_RECOMPUTE_INTERVAL));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getRecomputeInterval() {
+        return recomputeInterval;
+    }
+
+    private static DeviceSegment createSegment(
+            Position start, Position end, boolean motion, double maxSpeed, boolean ignoreOdometer) {
+
+        DeviceSegment segment = new DeviceSegment();
+        segment.setDeviceId(start.getDeviceId());
+        segment.setMotion(motion);
+
+        segment.setStartPositionId(start.getId());
+        segment.setStartTime(start.getFixTime());
+        segment.setStartLatitude(start.getLatitude());
+        segment.setStartLongitude(start.getLongitude());
+        segment.setStartAddress(start.getAddress());
+
+        segment.setEndPositionId(end.getId());
+        segment.setEndTime(end.getFixTime());
+        segment.setEndLatitude(end.getLatitude());
+        segment.setEndLongitude(end.getLongitude());
+        segment.setEndAddress(end.getAddress());
+
+        segment.setDistance(PositionUtil.calculateDistance(start, end, !ignoreOdometer));
+        segment.setMaxSpeed(maxSpeed);
+        segment.setSpentFuel(PositionUtil.calculateFuel(start, end));
+        if (start.hasAttribute(Position.KEY_HOURS) && end.hasAttribute(Position.KEY_HOURS)) {
+            segment.setEngineHours(end.getLong(Position.KEY_HOURS) - start.getLong(Position.KEY_HOURS));
+        }
+
+        if (start.hasAttribute(Position.KEY_DRIVER_UNIQUE_ID)) {
+            segment.setDriverUniqueId(start.getString(Position.KEY_DRIVER_UNIQUE_ID));
+        } else if (end.hasAttribute(Position.KEY_DRIVER_UNIQUE_ID)) {
+            segment.setDriverUniqueId(end.getString(Position.KEY_DRIVER_UNIQUE_ID));
+        }
+
+        if (!ignoreOdometer
+                && start.getDouble(Position.KEY_ODOMETER) != 0
+                && end.getDouble(Position.KEY_ODOMETER) != 0) {
+            segment.setStartOdometer(start.getDouble(Position.KEY_ODOMETER));
+            segment.setEndOdometer(end.getDouble(Position.KEY_ODOMETER));
+        } else {
+            segment.setStartOdometer(start.getDouble(Position.KEY_TOTAL_DISTANCE));
+            segment.setEndOdometer(end.getDouble(Position.KEY_TOTAL_DISTANCE));
+        }
+
+        return segment;
+    }
+
+    private static void copy(State from, State to) {
+        to.motionState = from.motionState;
+        to.last = from.last;
+        to.candidate = from.candidate;
+        to.start = from.start;
+        to.motion = from.motion;
+        to.maxSpeed = from.maxSpeed;
+        to.candidateSpeed = from.candidateSpeed;
+    }
+
+    private static void reset(State state, Position position) {
+        boolean motion = position.getBoolean(Position.KEY_MOTION);
+        state.motionState = new MotionState();
+        state.motionState.setMotionStreak(motion);
+        state.motionState.setMotionState(motion);
+        state.last = position;
+        state.candidate = null;
+        state.start = position;
+        state.motion = motion;
+        state.maxSpeed = position.getSpeed();
+        state.candidateSpeed = 0;
+    }
+
+    /**
+     * Advances the state machine and returns the segment completed by the position, if any.
+     */
+    private static DeviceSegment process(State state, Position position) {
+        if (state.last == null) {
+            reset(state, position);
+            return null;
+        }
+
+        state.maxSpeed = Math.max(state.maxSpeed, position.getSpeed());
+        state.candidateSpeed = Math.max(state.candidateSpeed, position.getSpeed());
+
+        Position last = state.last;
+        state.last = position;
+        MotionState motionState = state.motionState;
+        MotionProcessor.updateState(
+                motionState, last, position, position.getBoolean(Position.KEY_MOTION), state.tripsConfig);
+        if (motionState.getMotionTime() != null && motionState.getMotionPositionId() == position.getId()) {
+            state.candidate = position;
+            state.candidateSpeed = position.getSpeed();
+        }
+
+        Event event = motionState.getEvent();
+        if (event == null) {
+            return null;
+        }
+        boolean motion = event.getType().equals(Event.TYPE_DEVICE_MOVING);
+        if (motion == state.motion) {
+            return null;
+        }
+
+        Position boundary;
+        double nextSpeed;
+        if (event.getPositionId() == last.getId()) {
+            boundary = last;
+            nextSpeed = position.getSpeed();
+        } else if (state.candidate != null && event.getPositionId() == state.candidate.getId()) {
+            boundary = state.candidate;
+            nextSpeed = state.candidateSpeed;
+        } else {
+            return null;
+        }
+
+        DeviceSegment segment = null;
+        if (boundary.getFixTime().after(state.start.getFixTime())) {
+            segment = createSegment(
+                    state.start, boundary, state.motion, state.maxSpeed, state.tripsConfig.getIgnoreOdometer());
+        }
+        state.start = boundary;
+        state.motion = motion;
+        state.maxSpeed = nextSpeed;
+        state.candidate = null;
+        return segment;
+    }
+
+    private void schedule(long deviceId, Date time) {
+        pending.merge(deviceId, time, (a, b) -> a.before(b) ? a : b);
+    }
+
+    /**
+     * Schedules recalculation of segments from the given time, for positions stored outside the live processing.
+     */
+    public void invalidate(long deviceId, Date time) {
+        if (enabled) {
+            schedule(deviceId, time);
+        }
+    }
+
+    /**
+     * Processes position with the state lock held and returns completed segment, if any.
+     */
+    private DeviceSegment process(long deviceId, State state, Position position) {
+        if (state.last == null) {
+            // segment in progress before restart is unknown, rebuild it in the background
+            schedule(deviceId, position.getFixTime());
+        } else if (position.getFixTime().before(state.last.getFixTime())) {
+            schedule(deviceId, position.getFixTime());
+            return null;
+        } else if (position.getId() == state.last.getId()) {
+            return null;
+        }
+        return process(state, position);
+    }
+
+    private void save(List<DeviceSegment> segments) {
+        if (!segments.isEmpty()) {
+            try {
+                storage.addObjects(segments, new Request(new Columns.Exclude("id")));
+            } catch (StorageException e) {
+                LOGGER.warn("Failed to save segment", e);
+                DeviceSegment first = segments.get(0);
+                schedule(first.getDeviceId(), first.getStartTime());
+            }
+        }
+    }
+
+    public void update(Position position) {
+        if (!enabled || position.getId() == 0 || position.getFixTime() == null) {
+            return;
+        }
+
+        long deviceId = position.getDeviceId();
+        TripsConfig tripsConfig = new TripsConfig(new AttributeUtil.CacheProvider(cacheManager, deviceId));
+        DeviceSegment segment;
+        State state = states.computeIfAbsent(deviceId, key -> new State());
+        synchronized (state) {
+            state.tripsConfig = tripsConfig;
+            state.lastId = Math.max(state.lastId, position.getId());
+            if (state.recomputing) {
+                state.deferred.add(position);
+                return;
+            }
+            segment = process(deviceId, state, position);
+            if (segment == null) {
+                return;
+            }
+            state.saving += 1;
+        }
+
+        try {
+            save(List.of(segment));
+        } finally {
+            synchronized (state) {
+                state.saving -= 1;
+                state.notifyAll();
+            }
+        }
+    }
+
+    private void recompute(long deviceId, Date time) throws StorageException {
+        State state = states.get(deviceId);
+        if (state == null) {
+            return;
+        }
+        TripsConfig tripsConfig;
+        long lastId;
+        synchronized (state) {
+            state.recomputing = true;
+            try {
+                while (state.saving > 0) {
+                    state.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tripsConfig = state.tripsConfig;
+            lastId = state.lastId;
+        }
+
+        // positions stored since recalculation started, they can also be among the deferred ones
+        Set<Long> replayed = null;
+        try {
+            DeviceSegment anchor = storage.getObject(DeviceSegment.class, new Request(
+                    new Columns.Include("endTime"),
+                    new Condition.And(
+                            new Condition.Equals("deviceId", deviceId),
+                            new Condition.Compare("endTime", "<=", time)),
+                    new Order("endTime", true, 1)));
+            Date from = time;
+            if (anchor != null) {
+                from = anchor.getEndTime();
+            } else {
+                DeviceSegment first = storage.getObject(DeviceSegment.class, new Request(
+                        new Columns.Include("startTime"),
+                        new Condition.Equals("deviceId", deviceId),
+                        new Order("startTime", false, 1)));
+                if (first != null && first.getStartTime().before(time)) {
+                    from = first.getStartTime();
+                }
+            }
+
+            List<DeviceSegment> segments = new ArrayList<>();
+            Set<Long> recent = new HashSet<>();
+            State replay = new State();
+            replay.tripsConfig = tripsConfig;
+            try (var positions = PositionUtil.getPositionsStream(storage, deviceId, from, new Date())) {
+                positions.forEach(position -> {
+                    if (position.getId() > lastId) {
+                        recent.add(position.getId());
+                    }
+                    DeviceSegment segment = process(replay, position);
+                    if (segment != null) {
+                        segments.add(segment);
+                    }
+                });
+            }
+
+            storage.removeObject(DeviceSegment.class, new Request(
+                    new Condition.And(
+                            new Condition.Equals("deviceId", deviceId),
+                            new Condition.Compare("endTime", ">", from))));
+            storage.addObjects(segments, new Request(new Columns.Exclude("id")));
+            reportCache.invalidate(deviceId, from, new Date());
+
+            synchronized (state) {
+                if (replay.last != null) {
+                    copy(replay, state);
+                }
+            }
+            replayed = recent;
+        } finally {
+            processDeferred(deviceId, state, replayed);
+        }
+    }
+
+    /**
+     * Processes positions that arrived during recalculation, saving their segments before live updates resume. If
+     * the recalculation failed, the positions are left for the next one.
+     */
+    private void processDeferred(long deviceId, State state, Set<Long> replayed) {
+        while (true) {
+            List<DeviceSegment> segments = new ArrayList<>();
+            synchronized (state) {
+                List<Position> deferred = state.deferred;
+                state.deferred = new ArrayList<>();
+                if (deferred.isEmpty()) {
+                    state.recomputing = false;
+                    return;
+                }
+                for (Position position : deferred) {
+                    if (replayed == null) {
+                        schedule(deviceId, position.getFixTime());
+                        continue;
+                    } else if (replayed.contains(position.getId())) {
+                        continue;
+                    }
+                    DeviceSegment segment = process(deviceId, state, position);
+                    if (segment != null) {
+                        segments.add(segment);
+                    }
+                }
+            }
+            save(segments);
+        }
+    }
+
+    public void recompute() {
+        for (long deviceId : List.copyOf(pending.keySet())) {
+            Date time = pending.remove(deviceId);
+            try {
+                recompute(deviceId, time);
+            } catch (StorageException e) {
+                LOGGER.warn("Failed to recompute segments", e);
+                schedule(deviceId, time);
+            }
+        }
+    }
+
+}
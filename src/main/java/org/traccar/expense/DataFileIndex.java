@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.expense;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+
+/**
+ * Immutable data parsed from a JSON file on first use. The bundled resource is used unless a file is configured, in
+ * which case the data is parsed again after the file is modified. If parsing fails, the previous data is kept.
+ */
+public abstract class DataFileIndex<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataFileIndex.class);
+
+    private final ObjectMapper objectMapper;
+    private final String resource;
+    private final Path path;
+
+    private volatile T data;
+    private volatile FileTime modified;
+
+    protected DataFileIndex(ObjectMapper objectMapper, String resource, String file) {
+        this.objectMapper = objectMapper;
+        this.resource = resource;
+        path = file != null ? Paths.get(file) : null;
+    }
+
+    protected static double readDouble(JsonNode node) {
+        if (node != null && node.isNumber()) {
+            return node.asDouble();
+        } else if (node != null && node.isTextual()) {
+            try {
+                return Double.parseDouble(node.asText());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    protected static double readDouble(JsonNode node, String... keys) {
+        for (String key : keys) {
+            double value = readDouble(node.get(key));
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.NaN;
+    }
+
+    protected abstract T parse(JsonNode root);
+
+    protected abstract T empty();
+
+    private T load() throws IOException {
+        try (InputStream inputStream = path != null
+                ? Files.newInputStream(path) : getClass().getClassLoader().getResourceAsStream(resource)) {
+            return inputStream != null ? parse(objectMapper.readTree(inputStream)) : empty();
+        }
+    }
+
+    protected T getData() {
+        T current = data;
+        if (current != null && path == null) {
+            return current;
+        }
+
+        FileTime fileModified = null;
+        if (path != null) {
+            try {
+                fileModified = Files.getLastModifiedTime(path);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to check data file {}", path, e);
+            }
+            if (current != null && (fileModified == null || fileModified.equals(modified))) {
+                return current;
+            }
+        }
+
+        synchronized (this) {
+            if (data == null || !Objects.equals(fileModified, modified)) {
+                try {
+                    data = load();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to load data file {}", path != null ? path : resource, e);
+                    if (data == null) {
+                        data = empty();
+                    }
+                }
+                modified = fileModified;
+            }
+            return data;
+        }
+    }
+
+}
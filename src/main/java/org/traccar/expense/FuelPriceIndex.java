@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.expense;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.DistanceCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * City fuel prices by fuel type, looked up by state and city or by the nearest city to a coordinate.
+ */
+@Singleton
+public class FuelPriceIndex extends DataFileIndex<FuelPriceIndex.Snapshot> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FuelPriceIndex.class);
+
+    private static final String RESOURCE = "data/fuel_prices.json";
+
+    private static final String DEFAULT_STATE = "Delhi";
+
+    public record FuelPrice(String state, String city, double price, double latitude, double longitude) {
+        public boolean hasLocation() {
+            return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        }
+    }
+
+    private record Key(String fuelType, String state, String city) {
+    }
+
+    record Snapshot(Map<Key, FuelPrice> prices, Map<String, List<FuelPrice>> fuelTypes) {
+    }
+
+    @Inject
+    public FuelPriceIndex(Config config, ObjectMapper objectMapper) {
+        super(objectMapper, RESOURCE, config.getString(Keys.EXPENSE_FUEL_PRICES_FILE));
+    }
+
+    private static Key createKey(String fuelType, String state, String city) {
+        return new Key(
+                fuelType.toLowerCase(Locale.ROOT), state.toLowerCase(Locale.ROOT), city.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    protected Snapshot parse(JsonNode root) {
+        Map<Key, FuelPrice> prices = new HashMap<>();
+        Map<String, List<FuelPrice>> fuelTypes = new HashMap<>();
+        int count = 0;
+        for (var states = root.fields(); states.hasNext();) {
+            var state = states.next();
+            for (var cities = state.getValue().fields(); cities.hasNext();) {
+                var city = cities.next();
+                JsonNode location = city.getValue().path("location");
+                double latitude = readDouble(location, "lat", "latitude");
+                double longitude = readDouble(location, "lng", "lon", "longitude");
+                for (var fields = city.getValue().fields(); fields.hasNext();) {
+                    var field = fields.next();
+                    double price = readDouble(field.getValue());
+                    if (field.getKey().equals("location") || Double.isNaN(price)) {
+                        continue;
+                    }
+                    FuelPrice fuelPrice = new FuelPrice(state.getKey(), city.getKey(), price, latitude, longitude);
+                    prices.put(createKey(field.getKey(), state.getKey(), city.getKey()), fuelPrice);
+                    fuelTypes.computeIfAbsent(field.getKey().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                            .add(fuelPrice);
+                    count += 1;
+                }
+            }
+        }
+        fuelTypes.replaceAll((fuelType, list) -> List.copyOf(list));
+        LOGGER.info("Loaded {} fuel prices", count);
+        return new Snapshot(prices, fuelTypes);
+    }
+
+    @Override
+    protected Snapshot empty() {
+        return new Snapshot(Map.of(), Map.of());
+    }
+
+    public FuelPrice getPrice(String fuelType, String state, String city) {
+        return getData().prices().get(createKey(fuelType, state, city));
+    }
+
+    /**
+     * Returns the national reference price, which is the first city listed in the state of Delhi, or the first city
+     * in the data if Delhi is not listed for the fuel type.
+     */
+    public FuelPrice getDefaultPrice(String fuelType) {
+        List<FuelPrice> prices = getData().fuelTypes().getOrDefault(fuelType.toLowerCase(Locale.ROOT), List.of());
+        for (FuelPrice price : prices) {
+            if (price.state().equalsIgnoreCase(DEFAULT_STATE)) {
+                return price;
+            }
+        }
+        return prices.isEmpty() ? null : prices.get(0);
+    }
+
+    public FuelPrice findNearest(String fuelType, double latitude, double longitude) {
+        FuelPrice result = null;
+        double best = Double.MAX_VALUE;
+        for (FuelPrice price : getData().fuelTypes().getOrDefault(fuelType.toLowerCase(Locale.ROOT), List.of())) {
+            if (price.hasLocation()) {
+                double distance = DistanceCalculator.distance(
+                        latitude, longitude, price.latitude(), price.longitude());
+                if (distance < best) {
+                    best = distance;
+                    result = price;
+                }
+            }
+        }
+        return result;
+    }
+
+}
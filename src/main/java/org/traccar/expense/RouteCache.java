@@ -0,0 +1,148 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.expense;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of routing and geocoding results with expiry. Concurrent requests for the same key share a single
+ * load, including its result when that is not cacheable. Empty results, rejected results and failures are not cached.
+ */
+@Singleton
+public class RouteCache {
+
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private record Entry(Object value, long expires) {
+    }
+
+    private final long ttl;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    @Inject
+    public RouteCache(Config config) {
+        int size = config.getInteger(Keys.EXPENSE_ROUTE_CACHE_SIZE);
+        ttl = config.getLong(Keys.EXPENSE_ROUTE_CACHE_TTL) * 1000;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    private static String normalize(String text) {
+        return text != null ? text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String formatCoordinate(List<Double> coordinate) {
+        return String.format(Locale.ROOT, "%.5f,%.5f", coordinate.get(0), coordinate.get(1));
+    }
+
+    public static String geocodeKey(String provider, String text) {
+        return provider + ":geocode:" + normalize(text);
+    }
+
+    public static String routeKey(String provider, String profile, String start, String destination) {
+        return provider + ":" + profile + ":" + normalize(start) + "|" + normalize(destination);
+    }
+
+    /**
+     * Returns key for a route between two longitude and latitude pairs, rounded to about a meter.
+     */
+    public static String routeKey(String provider, String profile, List<Double> start, List<Double> destination) {
+        return provider + ":" + profile + ":" + formatCoordinate(start) + "|" + formatCoordinate(destination);
+    }
+
+    private Object getCached(String key, long now) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expires() > now) {
+                return entry.value();
+            } else if (entry != null) {
+                entries.remove(key);
+            }
+            return null;
+        }
+    }
+
+    public <T> T get(String key, Loader<T> loader) throws Exception {
+        return get(key, loader, value -> true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Loader<T> loader, Predicate<? super T> cacheable) throws Exception {
+        Object value = getCached(key, System.currentTimeMillis());
+        if (value != null) {
+            return (T) value;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = pending.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return (T) existing.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw (Error) e.getCause();
+            }
+        }
+
+        try {
+            value = getCached(key, System.currentTimeMillis());
+            if (value == null) {
+                T loaded = loader.load();
+                value = loaded;
+                if (loaded != null && cacheable.test(loaded)) {
+                    synchronized (entries) {
+                        entries.put(key, new Entry(value, System.currentTimeMillis() + ttl));
+                    }
+                }
+            }
+            future.complete(value);
+            return (T) value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(key, future);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.expense;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.DistanceCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Toll plazas indexed in a fixed degree grid, so a route only checks plazas in the cells around its segments.
+ */
+@Singleton
+public class TollIndex extends DataFileIndex<TollIndex.Snapshot> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TollIndex.class);
+
+    private static final String RESOURCE = "data/nhai_toll_data.json";
+
+    private static final double CELL_SIZE = 0.05;
+
+    private static final List<String> VEHICLE_TYPES = List.of(
+            "car", "lcv", "bus", "multi_axle", "4to6_axle", "7_or_more_axle", "hcm_eme");
+
+    public record TollPlaza(
+            long id, String name, String state, double latitude, double longitude, Map<String, Double> fees) {
+        public double getFee(String vehicleType) {
+            return fees.getOrDefault(vehicleType, 0.0);
+        }
+    }
+
+    public record Match(TollPlaza plaza, double distance) {
+    }
+
+    record Snapshot(List<TollPlaza> plazas, Map<Long, List<Integer>> cells) {
+    }
+
+    @Inject
+    public TollIndex(Config config, ObjectMapper objectMapper) {
+        super(objectMapper, RESOURCE, config.getString(Keys.EXPENSE_TOLLS_FILE));
+    }
+
+    private static long cellKey(int latitudeCell, int longitudeCell) {
+        return (long) latitudeCell << 32 | longitudeCell & 0xffffffffL;
+    }
+
+    private static int cell(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    private static double readFee(JsonNode plaza, String vehicleType) {
+        JsonNode fee = plaza.path("fees").get(vehicleType);
+        double value = Double.NaN;
+        if (fee != null && fee.isObject()) {
+            value = readDouble(fee, "single", "singleFare", "fare", "amount");
+        } else if (fee != null) {
+            value = readDouble(fee);
+        }
+        if (Double.isNaN(value)) {
+            value = readDouble(plaza.get(vehicleType));
+        }
+        return value;
+    }
+
+    private static TollPlaza parsePlaza(JsonNode node) {
+        double latitude;
+        double longitude;
+        JsonNode location = node.get("location");
+        if (location != null && location.isObject()) {
+            latitude = readDouble(location, "lat", "latitude");
+            longitude = readDouble(location, "lon", "longitude", "lng");
+        } else if (location != null && location.isArray() && location.size() >= 2) {
+            double first = readDouble(location.get(0));
+            double second = readDouble(location.get(1));
+            boolean latitudeFirst = Math.abs(first) <= 90 && Math.abs(second) <= 180;
+            latitude = latitudeFirst ? first : second;
+            longitude = latitudeFirst ? second : first;
+        } else {
+            latitude = readDouble(node, "lat", "latitude");
+            longitude = readDouble(node, "lon", "longitude", "lng");
+        }
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || latitude == 0 && longitude == 0) {
+            return null;
+        }
+
+        Map<String, Double> fees = new HashMap<>();
+        for (String vehicleType : VEHICLE_TYPES) {
+            double fee = readFee(node, vehicleType);
+            if (!Double.isNaN(fee)) {
+                fees.put(vehicleType, fee);
+            }
+        }
+
+        return new TollPlaza(
+                node.path("id").asLong(), node.path("name").asText("<unknown>"), node.path("state").asText(""),
+                latitude, longitude, Map.copyOf(fees));
+    }
+
+    @Override
+    protected Snapshot parse(JsonNode root) {
+        JsonNode array = root;
+        if (root.has("toll_plazas")) {
+            array = root.get("toll_plazas");
+        } else if (root.has("plazas")) {
+            array = root.get("plazas");
+        }
+
+        List<TollPlaza> plazas = new ArrayList<>();
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        if (array.isArray()) {
+            for (JsonNode node : array) {
+                TollPlaza plaza = parsePlaza(node);
+                if (plaza == null) {
+                    continue;
+                }
+                cells.computeIfAbsent(cellKey(cell(plaza.latitude()), cell(plaza.longitude())), k -> new ArrayList<>())
+                        .add(plazas.size());
+                plazas.add(plaza);
+            }
+        }
+        LOGGER.info("Loaded {} toll plazas", plazas.size());
+        return new Snapshot(List.copyOf(plazas), cells);
+    }
+
+    @Override
+    protected Snapshot empty() {
+        return new Snapshot(List.of(), Map.of());
+    }
+
+    private static double distanceToSegment(
+            double latitude, double longitude, double lat1, double lon1, double lat2, double lon2) {
+        if (lat1 == lat2 && lon1 == lon2) {
+            return DistanceCalculator.distance(latitude, longitude, lat1, lon1);
+        }
+        return DistanceCalculator.distanceToLine(latitude, longitude, lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Returns plazas within the given distance in meters from the route, in data file order. Route points are
+     * longitude and latitude pairs. Plazas sharing an id, or a name if they have no id, are only returned once, the
+     * first one near the route.
+     */
+    public List<Match> findTolls(List<List<Double>> route, double distance) {
+        Snapshot current = getData();
+        Map<Integer, Double> matches = new TreeMap<>();
+        double latitudeDelta = DistanceCalculator.getLatitudeDelta(distance);
+        for (int i = 0; i < route.size() - 1 || i == 0 && route.size() == 1; i++) {
+            List<Double> start = route.get(i);
+            List<Double> end = route.get(Math.min(i + 1, route.size() - 1));
+            double lat1 = start.get(1);
+            double lon1 = start.get(0);
+            double lat2 = end.get(1);
+            double lon2 = end.get(0);
+
+            double maxLatitude = Math.min(Math.max(Math.abs(lat1), Math.abs(lat2)) + latitudeDelta, 89);
+            double longitudeDelta = DistanceCalculator.getLongitudeDelta(distance, maxLatitude);
+            int fromLatitude = cell(Math.min(lat1, lat2) - latitudeDelta);
+            int toLatitude = cell(Math.max(lat1, lat2) + latitudeDelta);
+            int fromLongitude = cell(Math.min(lon1, lon2) - longitudeDelta);
+            int toLongitude = cell(Math.max(lon1, lon2) + longitudeDelta);
+
+            for (int latitudeCell = fromLatitude; latitudeCell <= toLatitude; latitudeCell++) {
+                for (int longitudeCell = fromLongitude; longitudeCell <= toLongitude; longitudeCell++) {
+                    List<Integer> indexes = current.cells().get(cellKey(latitudeCell, longitudeCell));
+                    if (indexes == null) {
+                        continue;
+                    }
+                    for (int index : indexes) {
+                        TollPlaza plaza = current.plazas().get(index);
+                        double result = distanceToSegment(
+                                plaza.latitude(), plaza.longitude(), lat1, lon1, lat2, lon2);
+                        if (result <= distance) {
+                            matches.merge(index, result, Math::min);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Match> result = new ArrayList<>(matches.size());
+        Set<Object> seen = new HashSet<>();
+        matches.forEach((index, value) -> {
+            TollPlaza plaza = current.plazas().get(index);
+            if (seen.add(plaza.id() != 0 ? plaza.id() : plaza.name())) {
+                result.add(new Match(plaza, value));
+            }
+        });
+        return result;
+    }
+
+}
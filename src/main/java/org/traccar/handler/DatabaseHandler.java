@@ -15,36 +15,87 @@
  */
 package org.traccar.handler;
 
+import io.netty.util.Timer;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.database.IngestJournal;
+import org.traccar.database.RollupManager;
+import org.traccar.database.SegmentManager;
 import org.traccar.database.StatisticsManager;
 import org.traccar.model.Position;
+import org.traccar.reports.common.ReportCache;
 import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Request;
 
+import java.util.concurrent.TimeUnit;
+
 public class DatabaseHandler extends BasePositionHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseHandler.class);
 
+    private static final long RETRY_DELAY_MIN = 1000;
+    private static final long RETRY_DELAY_MAX = 60000;
+
     private final Storage storage;
     private final StatisticsManager statisticsManager;
+    private final ReportCache reportCache;
+    private final IngestJournal journal;
+    private final RollupManager rollupManager;
+    private final SegmentManager segmentManager;
+    private final Timer timer;
 
     @Inject
-    public DatabaseHandler(Storage storage, StatisticsManager statisticsManager) {
+    public DatabaseHandler(
+            Storage storage, StatisticsManager statisticsManager, ReportCache reportCache,
+            IngestJournal journal, RollupManager rollupManager, SegmentManager segmentManager, Timer timer) {
         this.storage = storage;
         this.statisticsManager = statisticsManager;
+        this.reportCache = reportCache;
+        this.journal = journal;
+        this.rollupManager = rollupManager;
+        this.segmentManager = segmentManager;
+        this.timer = timer;
+    }
+
+    private void store(Position position) throws StorageException {
+        position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
+        statisticsManager.registerMessageStored(position.getDeviceId(), position.getProtocol());
+        reportCache.invalidate(position.getDeviceId(), position.getFixTime());
+    }
+
+    /**
+     * Journaled positions that failed to store were already acknowledged to the device, so they stay pending in the
+     * journal and the insert is retried until it succeeds or the server restarts and replays them. Rollup and segment
+     * handlers skip positions without an id, so a stored retry is added to the rollup and its segments are recomputed.
+     */
+    private void scheduleRetry(Position position, long delay) {
+        timer.newTimeout(timeout -> {
+            try {
+                store(position);
+            } catch (Exception error) {
+                LOGGER.warn("Failed to store journaled position", error);
+                scheduleRetry(position, Math.min(delay * 2, RETRY_DELAY_MAX));
+                return;
+            }
+            journal.release(position);
+            rollupManager.update(position);
+            segmentManager.invalidate(position.getDeviceId(), position.getFixTime());
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void onPosition(Position position, Callback callback) {
 
         try {
-            position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
-            statisticsManager.registerMessageStored(position.getDeviceId(), position.getProtocol());
+            store(position);
         } catch (Exception error) {
             LOGGER.warn("Failed to store position", error);
+            if (journal.hold(position)) {
+                scheduleRetry(position, RETRY_DELAY_MIN);
+            }
         }
 
         callback.processed(false);
@@ -27,13 +27,18 @@ import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Order;
 import org.traccar.storage.query.Request;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class PositionUtil {
 
+    private static final int BATCH_SIZE = 500;
+
     private PositionUtil() {
     }
 
@@ -55,6 +60,15 @@ public final class PositionUtil {
         return distance;
     }
 
+    public static double calculateFuel(Position first, Position last) {
+        if (first.hasAttribute(Position.KEY_FUEL_USED) && last.hasAttribute(Position.KEY_FUEL_USED)) {
+            return last.getDouble(Position.KEY_FUEL_USED) - first.getDouble(Position.KEY_FUEL_USED);
+        } else if (first.hasAttribute(Position.KEY_FUEL_LEVEL) && last.hasAttribute(Position.KEY_FUEL_LEVEL)) {
+            return first.getDouble(Position.KEY_FUEL_LEVEL) - last.getDouble(Position.KEY_FUEL_LEVEL);
+        }
+        return 0;
+    }
+
     public static List<Position> getPositions(
             Storage storage, long deviceId, Date from, Date to) throws StorageException {
         try (var positions = getPositionsStream(storage, deviceId, from, to)) {
@@ -82,6 +96,20 @@ public final class PositionUtil {
                 new Order("fixTime", end, 1)));
     }
 
+    public static Map<Long, Position> getPositions(
+            Storage storage, Collection<Long> positionIds) throws StorageException {
+        List<Long> ids = positionIds.stream().filter(id -> id > 0).distinct().toList();
+        Map<Long, Position> result = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            try (var positions = storage.getObjectsStream(Position.class, new Request(
+                    new Columns.All(),
+                    new Condition.In("id", ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())))))) {
+                positions.forEach(position -> result.put(position.getId(), position));
+            }
+        }
+        return result;
+    }
+
     public static List<Position> getLatestPositions(Storage storage, long userId) throws StorageException {
         var devices = storage.getObjects(Device.class, new Request(
                 new Columns.Include("id"),
@@ -15,70 +15,163 @@
  */
 package org.traccar.reports;
 
-import org.traccar.helper.DateUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Geofence;
 import org.traccar.model.Position;
+import org.traccar.reports.common.ExportWriter;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.Objects;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class CsvExportProvider {
 
+    private static final int DECIMALS = 9;
+
+    private static final List<String> COLUMNS = List.of(
+            "id", "deviceId", "protocol", "serverTime", "deviceTime", "fixTime", "valid",
+            "latitude", "longitude", "altitude", "speed", "course", "address", "accuracy");
+
     private final Storage storage;
 
     @Inject
-    public CsvExportProvider(Storage storage) {
+    public CsvExportProvider(@Named("replica") Storage storage) {
         this.storage = storage;
     }
 
-    public void generate(
-            OutputStream outputStream, long deviceId, long geofenceId, Date from, Date to) throws StorageException {
+    private static void appendValue(ExportWriter writer, Object value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            writer.append(((Number) value).doubleValue(), DECIMALS);
+        } else if (value instanceof Number number) {
+            writer.append(number.longValue());
+        } else if (value instanceof Boolean bool) {
+            writer.append(bool);
+        } else if (value != null) {
+            writer.appendCsv(value.toString());
+        }
+    }
 
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
+    private static void appendRow(ExportWriter writer, Position position, List<String> attributes) throws IOException {
+        writer.append(position.getId()).append(',');
+        writer.append(position.getDeviceId()).append(',');
+        writer.appendCsv(position.getProtocol()).append(',');
+        writer.append(position.getServerTime()).append(',');
+        writer.append(position.getDeviceTime()).append(',');
+        writer.append(position.getFixTime()).append(',');
+        writer.append(position.getValid()).append(',');
+        writer.append(position.getLatitude(), DECIMALS).append(',');
+        writer.append(position.getLongitude(), DECIMALS).append(',');
+        writer.append(position.getAltitude(), DECIMALS).append(',');
+        writer.append(position.getSpeed(), DECIMALS).append(',');
+        writer.append(position.getCourse(), DECIMALS).append(',');
+        writer.appendCsv(position.getAddress()).append(',');
+        writer.append(position.getAccuracy(), DECIMALS);
+        for (String key : attributes) {
+            writer.append(',');
+            appendValue(writer, position.getAttributes().get(key));
+        }
+        writer.append('\n');
+        writer.endRow();
+    }
+
+    /**
+     * Copies spooled rows, padding rows written before later attribute columns were discovered. Rows end at line
+     * breaks outside of quoted values.
+     */
+    private static void copyRows(
+            Reader reader, ExportWriter writer, List<Long> widthRows, List<Integer> widths, int width)
+            throws IOException {
+        long row = 0;
+        int change = 0;
+        int rowWidth = 0;
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n' && !quoted) {
+                while (change < widthRows.size() && widthRows.get(change) <= row) {
+                    rowWidth = widths.get(change++);
+                }
+                for (int i = rowWidth; i < width; i++) {
+                    writer.append(',');
+                }
+                writer.append('\n');
+                writer.endRow();
+                row += 1;
+            } else {
+                if (c == '"') {
+                    quoted = !quoted;
+                }
+                writer.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Writes positions with a column per attribute key. The header needs every key in the period, so rows are spooled
+     * to a temporary file while positions are read and copied to the client afterwards. This trades disk space and
+     * time to first byte for a single query pass over positions; heap use stays bounded either way.
+     */
+    public void generate(
+            OutputStream outputStream, long deviceId, long geofenceId, Date from, Date to)
+            throws StorageException, IOException {
 
         Geofence geofence = geofenceId == 0 ? null : storage.getObject(Geofence.class, new Request(
                 new Columns.All(), new Condition.Equals("id", geofenceId)));
 
-        var attributes = positions.stream()
-                .filter(position -> geofence == null || geofence.containsPosition(position))
-                .flatMap(position -> position.getAttributes().keySet().stream())
-                .collect(Collectors.toUnmodifiableSet());
-
-        var properties = new LinkedHashMap<String, Function<Position, Object>>();
-        properties.put("id", Position::getId);
-        properties.put("deviceId", Position::getDeviceId);
-        properties.put("protocol", Position::getProtocol);
-        properties.put("serverTime", position -> DateUtil.formatDate(position.getServerTime()));
-        properties.put("deviceTime", position -> DateUtil.formatDate(position.getDeviceTime()));
-        properties.put("fixTime", position -> DateUtil.formatDate(position.getFixTime()));
-        properties.put("valid", Position::getValid);
-        properties.put("latitude", Position::getLatitude);
-        properties.put("longitude", Position::getLongitude);
-        properties.put("altitude", Position::getAltitude);
-        properties.put("speed", Position::getSpeed);
-        properties.put("course", Position::getCourse);
-        properties.put("address", Position::getAddress);
-        properties.put("accuracy", Position::getAccuracy);
-        attributes.forEach(key -> properties.put(key, position -> position.getAttributes().get(key)));
-
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            writer.println(String.join(",", properties.keySet()));
-            positions.forEach(position -> writer.println(properties.values().stream()
-                    .map(f -> Objects.toString(f.apply(position), ""))
-                    .collect(Collectors.joining(","))));
+        // attribute columns are only known after the last position, so rows are spooled while positions are read
+        Path spool = Files.createTempFile("export", ".csv");
+        try {
+            Set<String> keys = new HashSet<>();
+            List<String> attributes = new ArrayList<>();
+            List<Long> widthRows = new ArrayList<>();
+            List<Integer> widths = new ArrayList<>();
+            long rows = 0;
+            try (var writer = new ExportWriter(Files.newOutputStream(spool));
+                 var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
+                for (Position position : (Iterable<Position>) positions::iterator) {
+                    if (geofence == null || geofence.containsPosition(position)) {
+                        for (String key : position.getAttributes().keySet()) {
+                            if (keys.add(key)) {
+                                attributes.add(key);
+                            }
+                        }
+                        if (widths.isEmpty() || widths.get(widths.size() - 1) != attributes.size()) {
+                            widthRows.add(rows);
+                            widths.add(attributes.size());
+                        }
+                        appendRow(writer, position, attributes);
+                        rows += 1;
+                    }
+                }
+            }
+
+            try (var writer = new ExportWriter(outputStream);
+                 Reader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+                writer.append(String.join(",", COLUMNS));
+                for (String key : attributes) {
+                    writer.append(',').appendCsv(key);
+                }
+                writer.append('\n');
+                copyRows(reader, writer, widthRows, widths, attributes.size());
+            }
+        } finally {
+            Files.deleteIfExists(spool);
         }
     }
 
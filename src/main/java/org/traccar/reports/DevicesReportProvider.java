@@ -16,6 +16,7 @@
 package org.traccar.reports;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.jxls.util.JxlsHelper;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
@@ -47,7 +48,7 @@ public class DevicesReportProvider {
     private final Storage storage;
 
     @Inject
-    public DevicesReportProvider(Config config, ReportUtils reportUtils, Storage storage) {
+    public DevicesReportProvider(Config config, ReportUtils reportUtils, @Named("replica") Storage storage) {
         this.config = config;
         this.reportUtils = reportUtils;
         this.storage = storage;
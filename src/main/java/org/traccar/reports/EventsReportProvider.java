@@ -23,10 +23,11 @@ import org.traccar.helper.model.DeviceUtil;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Geofence;
-import org.traccar.model.Group;
 import org.traccar.model.Maintenance;
 import org.traccar.model.Position;
+import org.traccar.reports.common.ReportResolver;
 import org.traccar.reports.common.ReportUtils;
+import org.traccar.reports.common.StorageCollection;
 import org.traccar.reports.model.DeviceReportSection;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
@@ -36,27 +37,38 @@ import org.traccar.storage.query.Order;
 import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class EventsReportProvider {
 
+    private static final int POSITIONS_BATCH_SIZE = 1000;
+
     private final Config config;
     private final ReportUtils reportUtils;
     private final Storage storage;
 
     @Inject
-    public EventsReportProvider(Config config, ReportUtils reportUtils, Storage storage) {
+    public EventsReportProvider(Config config, ReportUtils reportUtils, @Named("replica") Storage storage) {
         this.config = config;
         this.reportUtils = reportUtils;
         this.storage = storage;
@@ -84,6 +96,7 @@ public class EventsReportProvider {
             Collection<String> types, Collection<String> alarms, Date from, Date to) throws StorageException {
         reportUtils.checkPeriodLimit(from, to);
         boolean all = types.isEmpty() || types.contains(Event.ALL_EVENTS);
+        ReportResolver resolver = new ReportResolver(storage, userId);
 
         return DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds).stream()
                 .flatMap(device -> {
@@ -96,17 +109,86 @@ public class EventsReportProvider {
                 .filter(event -> all || filterType(types, alarms, event))
                 .filter(event -> {
                     long geofenceId = event.getGeofenceId();
-                    if (geofenceId > 0 && reportUtils.getObject(userId, Geofence.class, geofenceId) == null) {
+                    if (geofenceId > 0 && resolver.getObject(Geofence.class, geofenceId) == null) {
                         return false;
                     }
                     long maintenanceId = event.getMaintenanceId();
-                    if (maintenanceId > 0 && reportUtils.getObject(userId, Maintenance.class, maintenanceId) == null) {
+                    if (maintenanceId > 0 && resolver.getObject(Maintenance.class, maintenanceId) == null) {
                         return false;
                     }
                     return true;
                 });
     }
 
+    /**
+     * Filters events of the device for the spreadsheet and records names of the referenced geofences and maintenances.
+     */
+    private Stream<Event> getExcelEvents(
+            Device device, Collection<String> types, Collection<String> alarms, Date from, Date to,
+            ReportResolver resolver, Map<Long, String> geofenceNames, Map<Long, String> maintenanceNames)
+            throws StorageException {
+        boolean all = types.isEmpty() || types.contains(Event.ALL_EVENTS);
+        return getEvents(device.getId(), from, to)
+                .filter(event -> all || filterType(types, alarms, event))
+                .filter(event -> {
+                    long geofenceId = event.getGeofenceId();
+                    long maintenanceId = event.getMaintenanceId();
+                    if (geofenceId != 0) {
+                        Geofence geofence = resolver.getObject(Geofence.class, geofenceId);
+                        if (geofence != null) {
+                            geofenceNames.put(geofenceId, geofence.getName());
+                            return true;
+                        }
+                        return false;
+                    } else if (maintenanceId != 0) {
+                        Maintenance maintenance = resolver.getObject(Maintenance.class, maintenanceId);
+                        if (maintenance != null) {
+                            maintenanceNames.put(maintenanceId, maintenance.getName());
+                            return true;
+                        }
+                        return false;
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * Loads positions of the events in batches while they are consumed. Positions of the previous batch are dropped,
+     * because its rows are already written by then.
+     */
+    private static Stream<Event> loadPositions(Stream<Event> events, ReportResolver resolver) {
+        Iterator<Event> iterator = events.iterator();
+        Iterator<Event> batched = new Iterator<>() {
+            private final Deque<Event> batch = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                if (batch.isEmpty() && iterator.hasNext()) {
+                    while (iterator.hasNext() && batch.size() < POSITIONS_BATCH_SIZE) {
+                        batch.add(iterator.next());
+                    }
+                    resolver.clearPositions();
+                    try {
+                        resolver.loadPositions(batch.stream().map(Event::getPositionId).toList());
+                    } catch (StorageException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return !batch.isEmpty();
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.poll();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batched, Spliterator.ORDERED), false)
+                .onClose(events::close);
+    }
+
     public void getExcel(
             OutputStream outputStream, long userId, Collection<Long> deviceIds, Collection<Long> groupIds,
             Collection<String> types, Collection<String> alarms,
@@ -117,53 +199,27 @@ public class EventsReportProvider {
         List<String> sheetNames = new ArrayList<>();
         HashMap<Long, String> geofenceNames = new HashMap<>();
         HashMap<Long, String> maintenanceNames = new HashMap<>();
-        HashMap<Long, Position> positions = new HashMap<>();
+        ReportResolver resolver = new ReportResolver(storage, userId);
+        List<StorageCollection<Event>> streams = new ArrayList<>();
         for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            List<Event> events = new ArrayList<>();
-            boolean all = types.isEmpty() || types.contains(Event.ALL_EVENTS);
-            try (var unfilteredEvents = getEvents(device.getId(), from, to)) {
-                var iterator = unfilteredEvents.iterator();
-                while (iterator.hasNext()) {
-                    Event event = iterator.next();
-                    if (all || filterType(types, alarms, event)) {
-                        long geofenceId = event.getGeofenceId();
-                        long maintenanceId = event.getMaintenanceId();
-                        if (geofenceId != 0) {
-                            Geofence geofence = reportUtils.getObject(userId, Geofence.class, geofenceId);
-                            if (geofence != null) {
-                                geofenceNames.put(geofenceId, geofence.getName());
-                                events.add(event);
-                            }
-                        } else if (maintenanceId != 0) {
-                            Maintenance maintenance = reportUtils.getObject(userId, Maintenance.class, maintenanceId);
-                            if (maintenance != null) {
-                                maintenanceNames.put(maintenanceId, maintenance.getName());
-                                events.add(event);
-                            }
-                        } else {
-                            events.add(event);
-                        }
-                    }
-                }
-            }
-            for (Event event : events) {
-                long positionId = event.getPositionId();
-                if (positionId > 0) {
-                    Position position = storage.getObject(Position.class, new Request(
-                            new Columns.All(), new Condition.Equals("id", positionId)));
-                    positions.put(positionId, position);
+            Collection<Event> events;
+            if (reportUtils.isExcelStreaming()) {
+                // events are read while the sheet is written instead of being loaded upfront
+                StorageCollection<Event> stream = new StorageCollection<>(() -> loadPositions(getExcelEvents(
+                        device, types, alarms, from, to, resolver, geofenceNames, maintenanceNames), resolver));
+                streams.add(stream);
+                events = stream;
+            } else {
+                try (var deviceEvents = getExcelEvents(
+                        device, types, alarms, from, to, resolver, geofenceNames, maintenanceNames)) {
+                    events = deviceEvents.toList();
                 }
+                resolver.loadPositions(events.stream().map(Event::getPositionId).toList());
             }
             DeviceReportSection deviceEvents = new DeviceReportSection();
             deviceEvents.setDeviceName(device.getName());
             sheetNames.add(WorkbookUtil.createSafeSheetName(deviceEvents.getDeviceName()));
-            if (device.getGroupId() > 0) {
-                Group group = storage.getObject(Group.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getGroupId())));
-                if (group != null) {
-                    deviceEvents.setGroupName(group.getName());
-                }
-            }
+            deviceEvents.setGroupName(resolver.getGroupName(device.getGroupId()));
             deviceEvents.setObjects(events);
             devicesEvents.add(deviceEvents);
         }
@@ -175,10 +231,12 @@ public class EventsReportProvider {
             context.putVar("sheetNames", sheetNames);
             context.putVar("geofenceNames", geofenceNames);
             context.putVar("maintenanceNames", maintenanceNames);
-            context.putVar("positions", positions);
+            context.putVar("positions", resolver.getPositions());
             context.putVar("from", from);
             context.putVar("to", to);
             reportUtils.processTemplateWithSheets(inputStream, outputStream, context);
+        } finally {
+            streams.forEach(StorageCollection::close);
         }
     }
 }
@@ -15,9 +15,10 @@
  */
 package org.traccar.reports;
 
-import org.traccar.helper.DateUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ExportWriter;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -25,51 +26,56 @@ import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.util.Date;
 
 public class GpxExportProvider {
 
+    private static final int COORDINATE_DECIMALS = 7;
+    private static final int ALTITUDE_DECIMALS = 2;
+
     private final Storage storage;
 
     @Inject
-    public GpxExportProvider(Storage storage) {
+    public GpxExportProvider(@Named("replica") Storage storage) {
         this.storage = storage;
     }
 
     public void generate(
-            OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException {
+            OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException, IOException {
 
         var device = storage.getObject(Device.class, new Request(
                 new Columns.All(), new Condition.Equals("id", deviceId)));
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
 
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            writer.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-            writer.print("<gpx version=\"1.0\">");
-            writer.print("<trk>");
-            writer.print("<name>");
-            writer.print(device.getName());
-            writer.print("</name>");
-            writer.print("<trkseg>");
-            positions.forEach(position -> {
-                writer.print("<trkpt lat=\"");
-                writer.print(position.getLatitude());
-                writer.print("\" lon=\"");
-                writer.print(position.getLongitude());
-                writer.print("\">");
-                writer.print("<ele>");
-                writer.print(position.getAltitude());
-                writer.print("</ele>");
-                writer.print("<time>");
-                writer.print(DateUtil.formatDate(position.getFixTime()));
-                writer.print("</time>");
-                writer.print("</trkpt>");
-            });
-            writer.print("</trkseg>");
-            writer.print("</trk>");
-            writer.print("</gpx>");
+        try (var writer = new ExportWriter(outputStream);
+             var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
+            writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.append("<gpx version=\"1.0\">");
+            writer.append("<trk>");
+            writer.append("<name>");
+            writer.appendXml(device.getName());
+            writer.append("</name>");
+            writer.append("<trkseg>");
+            for (Position position : (Iterable<Position>) positions::iterator) {
+                writer.append("<trkpt lat=\"");
+                writer.append(position.getLatitude(), COORDINATE_DECIMALS);
+                writer.append("\" lon=\"");
+                writer.append(position.getLongitude(), COORDINATE_DECIMALS);
+                writer.append("\">");
+                writer.append("<ele>");
+                writer.append(position.getAltitude(), ALTITUDE_DECIMALS);
+                writer.append("</ele>");
+                writer.append("<time>");
+                writer.append(position.getFixTime());
+                writer.append("</time>");
+                writer.append("</trkpt>");
+                writer.endRow();
+            }
+            writer.append("</trkseg>");
+            writer.append("</trk>");
+            writer.append("</gpx>");
         }
     }
 
@@ -17,6 +17,8 @@ package org.traccar.reports;
 
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ExportWriter;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -24,56 +26,67 @@ import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.stream.Collectors;
 
 public class KmlExportProvider {
 
+    private static final int COORDINATE_DECIMALS = 7;
+    private static final int ALTITUDE_DECIMALS = 2;
+
     private final Storage storage;
 
     @Inject
-    public KmlExportProvider(Storage storage) {
+    public KmlExportProvider(@Named("replica") Storage storage) {
         this.storage = storage;
     }
 
     public void generate(
-            OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException {
+            OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException, IOException {
 
         var device = storage.getObject(Device.class, new Request(
                 new Columns.All(), new Condition.Equals("id", deviceId)));
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
 
         var dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
 
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            writer.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-            writer.print("<kml xmlns=\"http://www.opengis.net/kml/2.2\">");
-            writer.print("<Document>");
-            writer.print("<name>");
-            writer.print(device.getName());
-            writer.print("</name>");
-            writer.print("<Placemark>");
-            writer.print("<name>");
-            writer.print(dateFormat.format(from));
-            writer.print(" - ");
-            writer.print(dateFormat.format(to));
-            writer.print("</name>");
-            writer.print("<LineString>");
-            writer.print("<extrude>1</extrude>");
-            writer.print("<tessellate>1</tessellate>");
-            writer.print("<altitudeMode>absolute</altitudeMode>");
-            writer.print("<coordinates>");
-            writer.print(positions.stream()
-                    .map((p -> String.format("%f,%f,%f", p.getLongitude(), p.getLatitude(), p.getAltitude())))
-                    .collect(Collectors.joining(" ")));
-            writer.print("</coordinates>");
-            writer.print("</LineString>");
-            writer.print("</Placemark>");
-            writer.print("</Document>");
-            writer.print("</kml>");
+        try (var writer = new ExportWriter(outputStream);
+             var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
+            writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.append("<kml xmlns=\"http://www.opengis.net/kml/2.2\">");
+            writer.append("<Document>");
+            writer.append("<name>");
+            writer.appendXml(device.getName());
+            writer.append("</name>");
+            writer.append("<Placemark>");
+            writer.append("<name>");
+            writer.append(dateFormat.format(from));
+            writer.append(" - ");
+            writer.append(dateFormat.format(to));
+            writer.append("</name>");
+            writer.append("<LineString>");
+            writer.append("<extrude>1</extrude>");
+            writer.append("<tessellate>1</tessellate>");
+            writer.append("<altitudeMode>absolute</altitudeMode>");
+            writer.append("<coordinates>");
+            boolean first = true;
+            for (Position position : (Iterable<Position>) positions::iterator) {
+                if (!first) {
+                    writer.append(' ');
+                }
+                first = false;
+                writer.append(position.getLongitude(), COORDINATE_DECIMALS).append(',');
+                writer.append(position.getLatitude(), COORDINATE_DECIMALS).append(',');
+                writer.append(position.getAltitude(), ALTITUDE_DECIMALS);
+                writer.endRow();
+            }
+            writer.append("</coordinates>");
+            writer.append("</LineString>");
+            writer.append("</Placemark>");
+            writer.append("</Document>");
+            writer.append("</kml>");
         }
     }
 
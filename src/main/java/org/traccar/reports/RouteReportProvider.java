@@ -22,17 +22,17 @@ import org.traccar.config.Keys;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
-import org.traccar.model.Group;
 import org.traccar.model.Position;
+import org.traccar.reports.common.ReportResolver;
+import org.traccar.reports.common.DeviceReportExecutor;
 import org.traccar.reports.common.ReportUtils;
+import org.traccar.reports.common.StorageCollection;
 import org.traccar.reports.model.DeviceReportSection;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Condition;
-import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -42,6 +42,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -50,23 +51,29 @@ public class RouteReportProvider {
     private final Config config;
     private final ReportUtils reportUtils;
     private final Storage storage;
+    private final DeviceReportExecutor deviceExecutor;
 
     private final Map<String, Integer> namesCount = new HashMap<>();
 
     @Inject
-    public RouteReportProvider(Config config, ReportUtils reportUtils, Storage storage) {
+    public RouteReportProvider(
+            Config config, ReportUtils reportUtils, @Named("replica") Storage storage,
+            DeviceReportExecutor deviceExecutor) {
         this.config = config;
         this.reportUtils = reportUtils;
         this.storage = storage;
+        this.deviceExecutor = deviceExecutor;
     }
 
     public Collection<Position> getObjects(long userId, Collection<Long> deviceIds, Collection<Long> groupIds,
             Date from, Date to) throws StorageException {
         reportUtils.checkPeriodLimit(from, to);
 
+        var devices = DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds);
         ArrayList<Position> result = new ArrayList<>();
-        for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            result.addAll(PositionUtil.getPositions(storage, device.getId(), from, to));
+        for (var positions : deviceExecutor.execute(userId, devices,
+                device -> PositionUtil.getPositions(storage, device.getId(), from, to))) {
+            result.addAll(positions);
         }
         return result;
     }
@@ -84,18 +91,28 @@ public class RouteReportProvider {
 
         ArrayList<DeviceReportSection> devicesRoutes = new ArrayList<>();
         ArrayList<String> sheetNames = new ArrayList<>();
-        for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            var positions = PositionUtil.getPositions(storage, device.getId(), from, to);
+        ReportResolver resolver = new ReportResolver(storage, userId);
+        var devices = DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds);
+        List<StorageCollection<Position>> streams = new ArrayList<>();
+        List<Collection<Position>> results;
+        if (reportUtils.isExcelStreaming()) {
+            // positions are read while the sheet is written instead of being loaded upfront
+            for (Device device : devices) {
+                streams.add(new StorageCollection<>(
+                        () -> PositionUtil.getPositionsStream(storage, device.getId(), from, to)));
+            }
+            results = new ArrayList<>(streams);
+        } else {
+            results = new ArrayList<>(deviceExecutor.execute(userId, devices,
+                    device -> PositionUtil.getPositions(storage, device.getId(), from, to)));
+        }
+        var iterator = results.iterator();
+        for (Device device : devices) {
+            var positions = iterator.next();
             DeviceReportSection deviceRoutes = new DeviceReportSection();
             deviceRoutes.setDeviceName(device.getName());
             sheetNames.add(WorkbookUtil.createSafeSheetName(getUniqueSheetName(deviceRoutes.getDeviceName())));
-            if (device.getGroupId() > 0) {
-                Group group = storage.getObject(Group.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getGroupId())));
-                if (group != null) {
-                    deviceRoutes.setGroupName(group.getName());
-                }
-            }
+            deviceRoutes.setGroupName(resolver.getGroupName(device.getGroupId()));
             deviceRoutes.setObjects(positions);
             devicesRoutes.add(deviceRoutes);
         }
@@ -108,6 +125,8 @@ public class RouteReportProvider {
             context.putVar("from", from);
             context.putVar("to", to);
             reportUtils.processTemplateWithSheets(inputStream, outputStream, context);
+        } finally {
+            streams.forEach(StorageCollection::close);
         }
     }
 }
@@ -20,20 +20,28 @@ import org.jxls.util.JxlsHelper;
 import org.traccar.api.security.PermissionsService;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.RollupManager;
 import org.traccar.helper.UnitsConverter;
-import org.traccar.helper.model.AttributeUtil;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.helper.model.UserUtil;
 import org.traccar.model.Device;
+import org.traccar.model.DeviceRollup;
 import org.traccar.model.Position;
+import org.traccar.reports.common.DeviceReportExecutor;
+import org.traccar.reports.common.ReportCache;
 import org.traccar.reports.common.ReportUtils;
 import org.traccar.reports.common.TripsConfig;
 import org.traccar.reports.model.SummaryReportItem;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -41,12 +49,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public class SummaryReportProvider {
 
@@ -54,90 +64,241 @@ public class SummaryReportProvider {
     private final ReportUtils reportUtils;
     private final PermissionsService permissionsService;
     private final Storage storage;
+    private final DeviceReportExecutor deviceExecutor;
+    private final RollupManager rollupManager;
+    private final ReportCache reportCache;
 
     @Inject
     public SummaryReportProvider(
-            Config config, ReportUtils reportUtils, PermissionsService permissionsService, Storage storage) {
+            Config config, ReportUtils reportUtils, PermissionsService permissionsService,
+            @Named("replica") Storage storage, DeviceReportExecutor deviceExecutor, RollupManager rollupManager,
+            ReportCache reportCache) {
         this.config = config;
         this.reportUtils = reportUtils;
         this.permissionsService = permissionsService;
         this.storage = storage;
+        this.deviceExecutor = deviceExecutor;
+        this.rollupManager = rollupManager;
+        this.reportCache = reportCache;
     }
 
-    private Collection<SummaryReportItem> calculateDeviceResult(
-            Device device, Date from, Date to, boolean fast) throws StorageException {
+    private SummaryReportItem createResult(
+            Device device, Position first, Position last, double maxSpeed, boolean ignoreOdometer) {
 
         SummaryReportItem result = new SummaryReportItem();
         result.setDeviceId(device.getId());
         result.setDeviceName(device.getName());
+        result.setMaxSpeed(maxSpeed);
 
+        result.setDistance(PositionUtil.calculateDistance(first, last, !ignoreOdometer));
+        result.setSpentFuel(reportUtils.calculateFuel(first, last));
+
+        if (first.hasAttribute(Position.KEY_HOURS) && last.hasAttribute(Position.KEY_HOURS)) {
+            result.setStartHours(first.getLong(Position.KEY_HOURS));
+            result.setEndHours(last.getLong(Position.KEY_HOURS));
+            long engineHours = result.getEngineHours();
+            if (engineHours > 0) {
+                result.setAverageSpeed(UnitsConverter.knotsFromMps(result.getDistance() * 1000 / engineHours));
+            }
+        }
+
+        if (!ignoreOdometer
+                && first.getDouble(Position.KEY_ODOMETER) != 0 && last.getDouble(Position.KEY_ODOMETER) != 0) {
+            result.setStartOdometer(first.getDouble(Position.KEY_ODOMETER));
+            result.setEndOdometer(last.getDouble(Position.KEY_ODOMETER));
+        } else {
+            result.setStartOdometer(first.getDouble(Position.KEY_TOTAL_DISTANCE));
+            result.setEndOdometer(last.getDouble(Position.KEY_TOTAL_DISTANCE));
+        }
+
+        result.setStartTime(first.getFixTime());
+        result.setEndTime(last.getFixTime());
+        return result;
+    }
+
+    private record Span(Position first, Position last, double maxSpeed) {
+        Span merge(Span other) {
+            if (other == null) {
+                return this;
+            }
+            return new Span(
+                    first.getFixTime().after(other.first.getFixTime()) ? other.first : first,
+                    last.getFixTime().before(other.last.getFixTime()) ? other.last : last,
+                    Math.max(maxSpeed, other.maxSpeed));
+        }
+    }
+
+    private Span calculateSpan(long deviceId, Date from, Date to) throws StorageException {
         Position first = null;
         Position last = null;
-        if (fast) {
-            first = PositionUtil.getEdgePosition(storage, device.getId(), from, to, false);
-            last = PositionUtil.getEdgePosition(storage, device.getId(), from, to, true);
+        double maxSpeed = 0;
+        long fastThreshold = config.getLong(Keys.REPORT_FAST_THRESHOLD);
+        if (Duration.between(from.toInstant(), to.toInstant()).toSeconds() > fastThreshold) {
+            first = PositionUtil.getEdgePosition(storage, deviceId, from, to, false);
+            last = PositionUtil.getEdgePosition(storage, deviceId, from, to, true);
         } else {
-            var positions = PositionUtil.getPositions(storage, device.getId(), from, to);
+            var positions = PositionUtil.getPositions(storage, deviceId, from, to);
             for (Position position : positions) {
                 if (first == null) {
                     first = position;
                 }
-                if (position.getSpeed() > result.getMaxSpeed()) {
-                    result.setMaxSpeed(position.getSpeed());
-                }
+                maxSpeed = Math.max(maxSpeed, position.getSpeed());
                 last = position;
             }
         }
+        return first != null && last != null ? new Span(first, last, maxSpeed) : null;
+    }
+
+    private static Position createPosition(long deviceId, long id, Date time, Map<String, Object> attributes) {
+        Position position = new Position();
+        position.setId(id);
+        position.setDeviceId(deviceId);
+        position.setTime(time);
+        if (attributes != null) {
+            position.getAttributes().putAll(attributes);
+        }
+        return position;
+    }
+
+    private static Span createSpan(DeviceRollup rollup) {
+        return new Span(
+                createPosition(rollup.getDeviceId(), rollup.getStartPositionId(),
+                        rollup.getStartTime(), rollup.getStartAttributes()),
+                createPosition(rollup.getDeviceId(), rollup.getEndPositionId(),
+                        rollup.getEndTime(), rollup.getEndAttributes()),
+                rollup.getMaxSpeed());
+    }
 
-        if (first != null && last != null) {
-            TripsConfig tripsConfig = new TripsConfig(
-                    new AttributeUtil.StorageProvider(config, storage, permissionsService, device));
-            boolean ignoreOdometer = tripsConfig.getIgnoreOdometer();
-            result.setDistance(PositionUtil.calculateDistance(first, last, !ignoreOdometer));
-            result.setSpentFuel(reportUtils.calculateFuel(first, last));
+    private Collection<SummaryReportItem> calculateDailyResults(
+            Device device, ZonedDateTime from, ZonedDateTime to, boolean ignoreOdometer) throws StorageException {
 
-            if (first.hasAttribute(Position.KEY_HOURS) && last.hasAttribute(Position.KEY_HOURS)) {
-                result.setStartHours(first.getLong(Position.KEY_HOURS));
-                result.setEndHours(last.getLong(Position.KEY_HOURS));
-                long engineHours = result.getEngineHours();
-                if (engineHours > 0) {
-                    result.setAverageSpeed(UnitsConverter.knotsFromMps(result.getDistance() * 1000 / engineHours));
+        var results = new ArrayList<SummaryReportItem>();
+        Instant dayEnd = from.truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant();
+        Position first = null;
+        Position last = null;
+        double maxSpeed = 0;
+        try (var positions = PositionUtil.getPositionsStream(
+                storage, device.getId(), Date.from(from.toInstant()), Date.from(to.toInstant()))) {
+            var iterator = positions.iterator();
+            while (iterator.hasNext()) {
+                Position position = iterator.next();
+                Instant time = position.getFixTime().toInstant();
+                if (!time.isBefore(dayEnd)) {
+                    if (first != null) {
+                        results.add(createResult(device, first, last, maxSpeed, ignoreOdometer));
+                        first = null;
+                        maxSpeed = 0;
+                    }
+                    ZonedDateTime day = time.atZone(from.getZone()).truncatedTo(ChronoUnit.DAYS);
+                    dayEnd = day.plusDays(1).toInstant();
+                }
+                if (first == null) {
+                    first = position;
                 }
+                maxSpeed = Math.max(maxSpeed, position.getSpeed());
+                last = position;
             }
+        }
+        if (first != null) {
+            results.add(createResult(device, first, last, maxSpeed, ignoreOdometer));
+        }
+        return results;
+    }
+
+    private Collection<SummaryReportItem> calculateRollupResults(
+            Device device, ZonedDateTime from, ZonedDateTime rollupFrom, ZonedDateTime rollupTo, ZonedDateTime to,
+            boolean daily, boolean ignoreOdometer) throws StorageException {
+
+        Date rollupFromDate = Date.from(rollupFrom.toInstant());
+        Date rollupToDate = Date.from(rollupTo.toInstant());
+        var rollups = rollupManager.merge(device.getId(), rollupFromDate, rollupToDate, storage.getObjects(
+                DeviceRollup.class, new Request(
+                        new Columns.All(),
+                        Condition.merge(List.of(
+                                new Condition.Equals("deviceId", device.getId()),
+                                new Condition.Compare("day", ">=", rollupFromDate),
+                                new Condition.Compare("day", "<", rollupToDate))),
+                        new Order("day"))));
+        Date headTo = Date.from(rollupFrom.toInstant().minusMillis(1));
 
-            if (!ignoreOdometer
-                    && first.getDouble(Position.KEY_ODOMETER) != 0 && last.getDouble(Position.KEY_ODOMETER) != 0) {
-                result.setStartOdometer(first.getDouble(Position.KEY_ODOMETER));
-                result.setEndOdometer(last.getDouble(Position.KEY_ODOMETER));
-            } else {
-                result.setStartOdometer(first.getDouble(Position.KEY_TOTAL_DISTANCE));
-                result.setEndOdometer(last.getDouble(Position.KEY_TOTAL_DISTANCE));
+        if (daily) {
+            var results = new ArrayList<SummaryReportItem>();
+            if (from.isBefore(rollupFrom)) {
+                results.addAll(calculateDailyResults(device, from, headTo.toInstant().atZone(from.getZone()),
+                        ignoreOdometer));
+            }
+            for (DeviceRollup rollup : rollups) {
+                Span span = createSpan(rollup);
+                results.add(createResult(device, span.first(), span.last(), span.maxSpeed(), ignoreOdometer));
             }
+            results.addAll(calculateDailyResults(device, rollupTo, to, ignoreOdometer));
+            return results;
+        }
 
-            result.setStartTime(first.getFixTime());
-            result.setEndTime(last.getFixTime());
-            return List.of(result);
+        Span span = null;
+        if (from.isBefore(rollupFrom)) {
+            span = calculateSpan(device.getId(), Date.from(from.toInstant()), headTo);
+        }
+        for (DeviceRollup rollup : rollups) {
+            span = span != null ? span.merge(createSpan(rollup)) : createSpan(rollup);
         }
+        Span tail = calculateSpan(device.getId(), Date.from(rollupTo.toInstant()), Date.from(to.toInstant()));
+        span = span != null ? span.merge(tail) : tail;
 
+        if (span != null) {
+            return List.of(createResult(device, span.first(), span.last(), span.maxSpeed(), ignoreOdometer));
+        }
         return List.of();
     }
 
+    private List<SummaryReportItem> calculateDeviceResults(
+            Device device, TripsConfig tripsConfig, ZonedDateTime from, ZonedDateTime to, boolean daily)
+            throws StorageException {
+
+        boolean ignoreOdometer = tripsConfig.getIgnoreOdometer();
+        return reportCache.get(
+                daily ? "summaryDaily" : "summary", device.getId(),
+                Date.from(from.toInstant()), Date.from(to.toInstant()),
+                List.of(ignoreOdometer, from.getZone().getRules()), SummaryReportItem.class,
+                () -> calculateDeviceResults(device, from, to, daily, ignoreOdometer));
+    }
+
     private Collection<SummaryReportItem> calculateDeviceResults(
-            Device device, ZonedDateTime from, ZonedDateTime to, boolean daily) throws StorageException {
+            Device device, ZonedDateTime from, ZonedDateTime to, boolean daily, boolean ignoreOdometer)
+            throws StorageException {
 
-        boolean fast = Duration.between(from, to).toSeconds() > config.getLong(Keys.REPORT_FAST_THRESHOLD);
-        var results = new ArrayList<SummaryReportItem>();
-        if (daily) {
-            while (from.truncatedTo(ChronoUnit.DAYS).isBefore(to.truncatedTo(ChronoUnit.DAYS))) {
-                ZonedDateTime fromDay = from.truncatedTo(ChronoUnit.DAYS);
-                ZonedDateTime nextDay = fromDay.plusDays(1);
-                results.addAll(calculateDeviceResult(
-                        device, Date.from(from.toInstant()), Date.from(nextDay.toInstant()), fast));
-                from = nextDay;
+        if (rollupManager.isEnabled() && from.getZone().getRules().equals(rollupManager.getZone().getRules())) {
+            Date coverage = rollupManager.getCoverage(device.getId());
+            if (coverage != null) {
+                ZonedDateTime rollupFrom = from.truncatedTo(ChronoUnit.DAYS);
+                if (rollupFrom.isBefore(from)) {
+                    rollupFrom = rollupFrom.plusDays(1);
+                }
+                ZonedDateTime covered = coverage.toInstant().atZone(from.getZone()).plusDays(1);
+                if (rollupFrom.isBefore(covered)) {
+                    rollupFrom = covered;
+                }
+                ZonedDateTime flushed = ZonedDateTime.now(from.getZone()).minus(rollupManager.getFlushInterval());
+                ZonedDateTime rollupTo = (to.isBefore(flushed) ? to : flushed).truncatedTo(ChronoUnit.DAYS);
+                if (rollupFrom.isBefore(rollupTo)) {
+                    return calculateRollupResults(
+                            device, from, rollupFrom, rollupTo, to, daily, ignoreOdometer);
+                }
             }
         }
-        results.addAll(calculateDeviceResult(device, Date.from(from.toInstant()), Date.from(to.toInstant()), fast));
-        return results;
+
+        if (daily && from.truncatedTo(ChronoUnit.DAYS).isBefore(to.truncatedTo(ChronoUnit.DAYS))) {
+            return calculateDailyResults(device, from, to, ignoreOdometer);
+        }
+        Span span = calculateSpan(device.getId(), Date.from(from.toInstant()), Date.from(to.toInstant()));
+        if (span != null) {
+            return List.of(createResult(device, span.first(), span.last(), span.maxSpeed(), ignoreOdometer));
+        }
+        return List.of();
+    }
+
+    private static boolean isComplete(SummaryReportItem summaryReport) {
+        return summaryReport.getStartTime() != null && summaryReport.getEndTime() != null;
     }
 
     public Collection<SummaryReportItem> getObjects(
@@ -147,12 +308,14 @@ public class SummaryReportProvider {
 
         var tz = UserUtil.getTimezone(permissionsService.getServer(), permissionsService.getUser(userId)).toZoneId();
 
+        var devices = DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds);
+        var tripsConfigs = reportUtils.getTripsConfigs(devices);
         ArrayList<SummaryReportItem> result = new ArrayList<>();
-        for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            var deviceResults = calculateDeviceResults(
-                    device, from.toInstant().atZone(tz), to.toInstant().atZone(tz), daily);
+        for (var deviceResults : deviceExecutor.execute(userId, devices, device -> calculateDeviceResults(
+                device, tripsConfigs.get(device.getId()), from.toInstant().atZone(tz), to.toInstant().atZone(tz),
+                daily))) {
             for (SummaryReportItem summaryReport : deviceResults) {
-                if (summaryReport.getStartTime() != null && summaryReport.getEndTime() != null) {
+                if (isComplete(summaryReport)) {
                     result.add(summaryReport);
                 }
             }
@@ -21,17 +21,19 @@ import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.model.Device;
-import org.traccar.model.Group;
+import org.traccar.reports.common.ReportResolver;
+import org.traccar.reports.common.DeviceReportExecutor;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.reports.common.ReportGeocoder;
 import org.traccar.reports.common.ReportUtils;
+import org.traccar.reports.common.TripsConfig;
 import org.traccar.reports.model.DeviceReportSection;
 import org.traccar.reports.model.TripReportItem;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Condition;
-import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -41,18 +43,34 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 public class TripsReportProvider {
 
     private final Config config;
     private final ReportUtils reportUtils;
     private final Storage storage;
+    private final DeviceReportExecutor deviceExecutor;
+    private final ReportCache reportCache;
+    private final ReportGeocoder reportGeocoder;
 
     @Inject
-    public TripsReportProvider(Config config, ReportUtils reportUtils, Storage storage) {
+    public TripsReportProvider(
+            Config config, ReportUtils reportUtils, @Named("replica") Storage storage,
+            DeviceReportExecutor deviceExecutor, ReportCache reportCache, ReportGeocoder reportGeocoder) {
         this.config = config;
         this.reportUtils = reportUtils;
         this.storage = storage;
+        this.deviceExecutor = deviceExecutor;
+        this.reportCache = reportCache;
+        this.reportGeocoder = reportGeocoder;
+    }
+
+    private List<TripReportItem> calculateDeviceResult(
+            Device device, TripsConfig tripsConfig, Date from, Date to) throws StorageException {
+        return reportCache.get(
+                "trips", device.getId(), from, to, tripsConfig, TripReportItem.class,
+                () -> reportUtils.detectTripsAndStops(device, tripsConfig, from, to, TripReportItem.class));
     }
 
     public Collection<TripReportItem> getObjects(
@@ -60,11 +78,15 @@ public class TripsReportProvider {
             Date from, Date to) throws StorageException {
         reportUtils.checkPeriodLimit(from, to);
 
+        var devices = DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds);
+        var tripsConfigs = reportUtils.getTripsConfigs(devices);
         ArrayList<TripReportItem> result = new ArrayList<>();
-        for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            result.addAll(reportUtils.detectTripsAndStops(device, from, to, TripReportItem.class));
+        for (var deviceResult : deviceExecutor.execute(userId, devices,
+                device -> calculateDeviceResult(device, tripsConfigs.get(device.getId()), from, to))) {
+            result.addAll(deviceResult);
         }
-        return result;
+        // addresses are resolved after the cache lookup, once for the whole report
+        return reportGeocoder.resolve(result);
     }
 
     public void getExcel(OutputStream outputStream,
@@ -74,18 +96,18 @@ public class TripsReportProvider {
 
         ArrayList<DeviceReportSection> devicesTrips = new ArrayList<>();
         ArrayList<String> sheetNames = new ArrayList<>();
-        for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
-            Collection<TripReportItem> trips = reportUtils.detectTripsAndStops(device, from, to, TripReportItem.class);
+        ReportResolver resolver = new ReportResolver(storage, userId);
+        var devices = DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds);
+        var tripsConfigs = reportUtils.getTripsConfigs(devices);
+        var results = reportGeocoder.resolveAll(deviceExecutor.execute(userId, devices,
+                device -> calculateDeviceResult(device, tripsConfigs.get(device.getId()), from, to)));
+        var iterator = results.iterator();
+        for (Device device : devices) {
+            Collection<TripReportItem> trips = iterator.next();
             DeviceReportSection deviceTrips = new DeviceReportSection();
             deviceTrips.setDeviceName(device.getName());
             sheetNames.add(WorkbookUtil.createSafeSheetName(deviceTrips.getDeviceName()));
-            if (device.getGroupId() > 0) {
-                Group group = storage.getObject(Group.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getGroupId())));
-                if (group != null) {
-                    deviceTrips.setGroupName(group.getName());
-                }
-            }
+            deviceTrips.setGroupName(resolver.getGroupName(device.getGroupId()));
             deviceTrips.setObjects(trips);
             devicesTrips.add(deviceTrips);
         }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Calculates per-device parts of a report, on a shared bounded pool if enabled. Results are returned in device order.
+ * Each user is limited to a fixed number of devices in flight, and pending work is cancelled if the cancellation
+ * check registered by the calling thread fires, for example when the HTTP client goes away.
+ */
+@Singleton
+public class DeviceReportExecutor {
+
+    private static final long POLL_INTERVAL = 500;
+
+    public interface DeviceTask<T> {
+        T execute(Device device) throws StorageException;
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class UserPermits {
+        private final Semaphore semaphore;
+        private int references;
+
+        private UserPermits(int permits) {
+            semaphore = new Semaphore(permits);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int userThreads;
+    private final Map<Long, UserPermits> userPermits = new ConcurrentHashMap<>();
+    private final ThreadLocal<BooleanSupplier> cancellation = new ThreadLocal<>();
+
+    @Inject
+    public DeviceReportExecutor(Config config) {
+        int threads = config.getInteger(Keys.REPORT_THREADS);
+        if (threads > 1) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "report-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            executor = null;
+        }
+        userThreads = Math.max(1, config.getInteger(Keys.REPORT_USER_THREADS));
+    }
+
+    /**
+     * Registers cancellation check for reports executed by the current thread until the scope is closed.
+     */
+    public Scope watch(BooleanSupplier cancelled) {
+        cancellation.set(cancelled);
+        return cancellation::remove;
+    }
+
+    private void checkCancelled() {
+        BooleanSupplier cancelled = cancellation.get();
+        if (Thread.currentThread().isInterrupted() || cancelled != null && cancelled.getAsBoolean()) {
+            throw new CancellationException("Report cancelled");
+        }
+    }
+
+    private void acquire(Semaphore permits) {
+        try {
+            while (!permits.tryAcquire(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                checkCancelled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Report interrupted");
+        }
+    }
+
+    private <T> T await(Future<T> future) throws StorageException {
+        try {
+            while (true) {
+                try {
+                    return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    checkCancelled();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Report interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageException storageException) {
+                throw storageException;
+            } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Semaphore retainPermits(long userId) {
+        return userPermits.compute(userId, (key, value) -> {
+            UserPermits result = value != null ? value : new UserPermits(userThreads);
+            result.references += 1;
+            return result;
+        }).semaphore;
+    }
+
+    /**
+     * Drops the user entry once no report or device task of the user holds it, so the map does not grow with every
+     * user and a new report can't get a fresh quota while cancelled tasks are still running.
+     */
+    private void releasePermits(long userId) {
+        userPermits.computeIfPresent(userId, (key, value) -> --value.references > 0 ? value : null);
+    }
+
+    private void releasePermit(long userId, Semaphore permits) {
+        permits.release();
+        releasePermits(userId);
+    }
+
+    public <T> List<T> execute(
+            long userId, Collection<Device> devices, DeviceTask<T> task) throws StorageException {
+
+        List<T> results = new ArrayList<>(devices.size());
+        Semaphore permits = retainPermits(userId);
+        List<Future<T>> futures = new ArrayList<>(devices.size());
+        try {
+            if (executor == null || devices.size() <= 1) {
+                for (Device device : devices) {
+                    checkCancelled();
+                    acquire(permits);
+                    try {
+                        results.add(task.execute(device));
+                    } finally {
+                        permits.release();
+                    }
+                }
+                return results;
+            }
+
+            for (Device device : devices) {
+                acquire(permits);
+                retainPermits(userId);
+                // the permit is released by whoever claims the task, the task body or the cancellation before start
+                AtomicBoolean claimed = new AtomicBoolean();
+                FutureTask<T> future = new FutureTask<>(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        return task.execute(device);
+                    } finally {
+                        releasePermit(userId, permits);
+                    }
+                }) {
+                    @Override
+                    protected void done() {
+                        if (claimed.compareAndSet(false, true)) {
+                            releasePermit(userId, permits);
+                        }
+                    }
+                };
+                try {
+                    executor.execute(future);
+                    futures.add(future);
+                } catch (RuntimeException e) {
+                    future.cancel(false);
+                    throw e;
+                }
+            }
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            releasePermits(userId);
+        }
+    }
+
+}
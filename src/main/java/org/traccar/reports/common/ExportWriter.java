@@ -0,0 +1,297 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+
+/**
+ * Buffered text writer for exports. Numbers and dates are formatted into a reused buffer, so writing a row does not
+ * allocate, and the output is flushed every {@link #FLUSH_ROWS} rows so the client receives data while the export is
+ * still running.
+ */
+public class ExportWriter implements AutoCloseable {
+
+    public static final int FLUSH_ROWS = 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long[] POWERS = {
+            1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000};
+
+    private final Writer writer;
+    private final ZoneRules zoneRules;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+    private int rows;
+
+    private long offsetFrom = Long.MAX_VALUE;
+    private long offsetTo = Long.MIN_VALUE;
+    private int offsetSeconds;
+
+    public ExportWriter(OutputStream outputStream) {
+        this(outputStream, ZoneId.systemDefault());
+    }
+
+    public ExportWriter(OutputStream outputStream, ZoneId zone) {
+        writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        zoneRules = zone.getRules();
+    }
+
+    private void ensure(int size) throws IOException {
+        if (length + size > buffer.length) {
+            writer.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    public ExportWriter append(char value) throws IOException {
+        ensure(1);
+        buffer[length++] = value;
+        return this;
+    }
+
+    public ExportWriter append(String value) throws IOException {
+        if (value != null) {
+            if (value.length() > buffer.length / 2) {
+                writer.write(buffer, 0, length);
+                length = 0;
+                writer.write(value);
+            } else {
+                ensure(value.length());
+                value.getChars(0, value.length(), buffer, length);
+                length += value.length();
+            }
+        }
+        return this;
+    }
+
+    public ExportWriter append(boolean value) throws IOException {
+        return append(value ? "true" : "false");
+    }
+
+    public ExportWriter append(long value) throws IOException {
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return this;
+    }
+
+    private void appendPadded(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Writes the value rounded to the given number of decimals with trailing zeros removed.
+     */
+    public ExportWriter append(double value, int decimals) throws IOException {
+        long scale = POWERS[decimals];
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) * scale >= 1e18) {
+            return append(Double.toString(value));
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (scaled == 0) {
+            return append('0');
+        }
+        if (value < 0) {
+            append('-');
+        }
+        append(scaled / scale);
+        long fraction = scaled % scale;
+        if (fraction > 0) {
+            int digits = decimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits -= 1;
+            }
+            ensure(digits + 1);
+            buffer[length++] = '.';
+            appendPadded(fraction, digits);
+        }
+        return this;
+    }
+
+    private int getOffset(long time) {
+        if (time < offsetFrom || time >= offsetTo) {
+            Instant instant = Instant.ofEpochMilli(time);
+            offsetSeconds = zoneRules.getOffset(instant).getTotalSeconds();
+            ZoneOffsetTransition previous = zoneRules.previousTransition(instant.plusMillis(1));
+            ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+            offsetFrom = previous != null ? previous.toEpochSecond() * 1000 : Long.MIN_VALUE;
+            offsetTo = next != null ? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+        }
+        return offsetSeconds;
+    }
+
+    /**
+     * Writes the date in the same ISO 8601 format with offset as {@code DateUtil.formatDate}.
+     */
+    public ExportWriter append(Date date) throws IOException {
+        if (date == null) {
+            return this;
+        }
+        long time = date.getTime();
+        int offset = getOffset(time);
+        long local = Math.floorDiv(time, 1000) + offset;
+        int millis = (int) Math.floorMod(time, 1000);
+        long days = Math.floorDiv(local, 86400);
+        int seconds = (int) Math.floorMod(local, 86400);
+
+        // civil date from days since epoch
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        ensure(32);
+        if (year < 0 || year > 9999) {
+            return append(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(
+                    date.toInstant().atOffset(ZoneOffset.ofTotalSeconds(offset))));
+        }
+        appendPadded(year, 4);
+        buffer[length++] = '-';
+        appendPadded(month, 2);
+        buffer[length++] = '-';
+        appendPadded(day, 2);
+        buffer[length++] = 'T';
+        appendPadded(seconds / 3600, 2);
+        buffer[length++] = ':';
+        appendPadded(seconds / 60 % 60, 2);
+        buffer[length++] = ':';
+        appendPadded(seconds % 60, 2);
+        if (millis > 0) {
+            int digits = 3;
+            while (millis % 10 == 0) {
+                millis /= 10;
+                digits -= 1;
+            }
+            buffer[length++] = '.';
+            appendPadded(millis, digits);
+        }
+        if (offset == 0) {
+            buffer[length++] = 'Z';
+        } else {
+            buffer[length++] = offset < 0 ? '-' : '+';
+            int absolute = Math.abs(offset);
+            appendPadded(absolute / 3600, 2);
+            buffer[length++] = ':';
+            appendPadded(absolute / 60 % 60, 2);
+            if (absolute % 60 != 0) {
+                buffer[length++] = ':';
+                appendPadded(absolute % 60, 2);
+            }
+        }
+        return this;
+    }
+
+    public ExportWriter appendXml(String value) throws IOException {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '<' -> append("&lt;");
+                    case '>' -> append("&gt;");
+                    case '&' -> append("&amp;");
+                    case '"' -> append("&quot;");
+                    case '\'' -> append("&apos;");
+                    default -> append(c);
+                }
+            }
+        }
+        return this;
+    }
+
+    public ExportWriter appendCsv(String value) throws IOException {
+        if (value != null) {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        append('"');
+                    }
+                    append(c);
+                }
+                append('"');
+            } else {
+                append(value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Marks the end of a row and periodically pushes buffered output to the client.
+     */
+    public void endRow() throws IOException {
+        rows += 1;
+        if (rows % FLUSH_ROWS == 0) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.write(buffer, 0, length);
+        length = 0;
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        writer.close();
+    }
+
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.storage.StorageException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-device report results keyed by report type, period and the configuration the result depends on. Entries are
+ * dropped when positions inside the period are added or removed. The least recently used entries are evicted when
+ * the cache is full, and optionally moved to disk. Returned results are shared and must not be modified.
+ */
+@Singleton
+public class ReportCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportCache.class);
+
+    private static final String CACHE_DIRECTORY = "reports";
+
+    public interface Loader<T> {
+        Collection<T> load() throws StorageException;
+    }
+
+    public record Statistics(long hits, long diskHits, long misses, int size, int diskSize) {
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+    }
+
+    private record Key(String type, long deviceId, long from, long to, Object config) {
+    }
+
+    private record Entry(Key key, Class<?> itemClass, List<?> items) {
+    }
+
+    private record Change(long time, long from, long to) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int size;
+    private final int diskSize;
+    private final Path path;
+    private final long replicaLag;
+
+    private final LinkedHashMap<Key, Entry> memory;
+    private final LinkedHashMap<Key, Path> disk;
+    private final Map<Long, Set<Key>> deviceKeys = new HashMap<>();
+    private final Map<Key, Integer> loading = new HashMap<>();
+    private final Set<Key> stale = new HashSet<>();
+    private final List<Entry> spilled = new ArrayList<>();
+    private final List<Path> removed = new ArrayList<>();
+    private long fileIndex;
+
+    private final Map<Long, Long> latestTimes = new ConcurrentHashMap<>();
+    private final Map<Long, Deque<Change>> changes = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Inject
+    public ReportCache(Config config, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        size = config.getInteger(Keys.REPORT_CACHE_SIZE);
+        diskSize = config.getInteger(Keys.REPORT_CACHE_DISK_SIZE);
+        if (size > 0 && config.hasKey(Keys.REPORT_CACHE_PATH)) {
+            path = Paths.get(config.getString(Keys.REPORT_CACHE_PATH)).resolve(CACHE_DIRECTORY);
+            Files.createDirectories(path);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*.json")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } else {
+            path = null;
+        }
+        replicaLag = config.hasKey(Keys.DATABASE_REPLICA_URL) ? config.getLong(Keys.REPORT_CACHE_REPLICA_LAG) : 0;
+
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > size) {
+                    if (path != null) {
+                        spilled.add(eldest.getValue());
+                    } else {
+                        unindex(eldest.getKey());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+        disk = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Path> eldest) {
+                if (size() > diskSize) {
+                    removed.add(eldest.getValue());
+                    unindex(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = deviceKeys.get(key.deviceId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                deviceKeys.remove(key.deviceId());
+            }
+        }
+        updateLatestTime(key.deviceId());
+    }
+
+    /**
+     * Tracks the end of the latest cached or loading period per device, so changes after it skip the global lock.
+     */
+    private void updateLatestTime(long deviceId) {
+        long latest = Long.MIN_VALUE;
+        for (Key key : deviceKeys.getOrDefault(deviceId, Set.of())) {
+            latest = Math.max(latest, key.to());
+        }
+        for (Key key : loading.keySet()) {
+            if (key.deviceId() == deviceId) {
+                latest = Math.max(latest, key.to());
+            }
+        }
+        if (latest != Long.MIN_VALUE) {
+            latestTimes.put(deviceId, latest);
+        } else {
+            latestTimes.remove(deviceId);
+        }
+    }
+
+    private void recordChange(long deviceId, Date from, Date to) {
+        long now = System.currentTimeMillis();
+        Deque<Change> deviceChanges = changes.computeIfAbsent(deviceId, key -> new ArrayDeque<>());
+        synchronized (deviceChanges) {
+            while (!deviceChanges.isEmpty() && deviceChanges.peekFirst().time() < now - replicaLag) {
+                deviceChanges.pollFirst();
+            }
+            deviceChanges.addLast(new Change(now, from.getTime(), to.getTime()));
+        }
+    }
+
+    /**
+     * Checks for changes of the period since the given time, which the replica used for reports may not have yet.
+     */
+    private boolean isChanged(Key key, long since) {
+        for (long deviceId : List.of(key.deviceId(), 0L)) {
+            Deque<Change> deviceChanges = changes.get(deviceId);
+            if (deviceChanges != null) {
+                synchronized (deviceChanges) {
+                    for (Change change : deviceChanges) {
+                        if (change.time() >= since && key.from() <= change.to() && key.to() >= change.from()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(
+            String type, long deviceId, Date from, Date to, Object config, Class<T> itemClass, Loader<T> loader)
+            throws StorageException {
+
+        if (!isEnabled()) {
+            return List.copyOf(loader.load());
+        }
+
+        Key key = new Key(type, deviceId, from.getTime(), to.getTime(), config);
+        long started = System.currentTimeMillis();
+        Path file;
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return (List<T>) entry.items();
+            }
+            file = disk.remove(key);
+            loading.merge(key, 1, Integer::sum);
+            latestTimes.merge(deviceId, key.to(), Math::max);
+        }
+
+        try {
+            if (file != null) {
+                try {
+                    List<T> items = List.copyOf(objectMapper.<List<T>>readValue(file.toFile(),
+                            objectMapper.getTypeFactory().constructCollectionType(List.class, itemClass)));
+                    hits.incrementAndGet();
+                    diskHits.incrementAndGet();
+                    put(key, itemClass, items, started);
+                    return items;
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to read cached report", e);
+                } finally {
+                    delete(file);
+                }
+            }
+
+            misses.incrementAndGet();
+            List<T> items = List.copyOf(loader.load());
+            put(key, itemClass, items, started);
+            return items;
+        } finally {
+            synchronized (this) {
+                if (loading.merge(key, -1, Integer::sum) == 0) {
+                    loading.remove(key);
+                    stale.remove(key);
+                    updateLatestTime(deviceId);
+                }
+            }
+        }
+    }
+
+    private void put(Key key, Class<?> itemClass, List<?> items, long started) {
+        List<Entry> spill;
+        List<Path> delete;
+        synchronized (this) {
+            if (stale.contains(key) || replicaLag > 0 && isChanged(key, started - replicaLag)) {
+                // positions changed while the result was calculated or were not replicated yet
+                return;
+            }
+            memory.put(key, new Entry(key, itemClass, items));
+            deviceKeys.computeIfAbsent(key.deviceId(), k -> new HashSet<>()).add(key);
+            spill = List.copyOf(spilled);
+            spilled.clear();
+            delete = List.copyOf(removed);
+            removed.clear();
+        }
+        for (Entry entry : spill) {
+            spill(entry);
+        }
+        delete.forEach(this::delete);
+    }
+
+    private void spill(Entry entry) {
+        Path file;
+        synchronized (this) {
+            file = path.resolve(++fileIndex + ".json");
+        }
+        try {
+            objectMapper.writeValue(file.toFile(), entry.items());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write cached report", e);
+            delete(file);
+            synchronized (this) {
+                unindex(entry.key());
+            }
+            return;
+        }
+        List<Path> delete;
+        synchronized (this) {
+            Set<Key> keys = deviceKeys.get(entry.key().deviceId());
+            if (keys != null && keys.contains(entry.key()) && !memory.containsKey(entry.key())) {
+                disk.put(entry.key(), file);
+            } else {
+                // invalidated while it was being written
+                removed.add(file);
+            }
+            delete = List.copyOf(removed);
+            removed.clear();
+        }
+        delete.forEach(this::delete);
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete cached report", e);
+        }
+    }
+
+    private static boolean overlaps(Key key, Date from, Date to) {
+        return key.from() <= to.getTime() && key.to() >= from.getTime();
+    }
+
+    /**
+     * Drops results for periods overlapping the given time range. Device id 0 matches all devices.
+     */
+    public void invalidate(long deviceId, Date from, Date to) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (replicaLag > 0) {
+            recordChange(deviceId, from, to);
+        }
+        if (deviceId != 0) {
+            Long latest = latestTimes.get(deviceId);
+            if (latest == null || latest < from.getTime()) {
+                return;
+            }
+        }
+        List<Path> delete = new ArrayList<>();
+        synchronized (this) {
+            for (Key key : loading.keySet()) {
+                if ((deviceId == 0 || key.deviceId() == deviceId) && overlaps(key, from, to)) {
+                    stale.add(key);
+                }
+            }
+            List<Long> devices = deviceId != 0 ? List.of(deviceId) : List.copyOf(deviceKeys.keySet());
+            for (long device : devices) {
+                Set<Key> keys = deviceKeys.get(device);
+                if (keys == null) {
+                    continue;
+                }
+                var iterator = keys.iterator();
+                while (iterator.hasNext()) {
+                    Key key = iterator.next();
+                    if (overlaps(key, from, to)) {
+                        iterator.remove();
+                        memory.remove(key);
+                        Path file = disk.remove(key);
+                        if (file != null) {
+                            delete.add(file);
+                        }
+                    }
+                }
+                if (keys.isEmpty()) {
+                    deviceKeys.remove(device);
+                }
+                updateLatestTime(device);
+            }
+        }
+        delete.forEach(this::delete);
+    }
+
+    public void invalidate(long deviceId, Date time) {
+        invalidate(deviceId, time, time);
+    }
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(hits.get(), diskHits.get(), misses.get(), memory.size(), disk.size());
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.geocoder.Geocoder;
+import org.traccar.reports.model.StopReportItem;
+import org.traccar.reports.model.TripReportItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Fills missing addresses of report items in one batch. Coordinates are rounded, so nearby locations share a single
+ * geocoder request, and requests are sent concurrently up to a limit shared by all reports. Requests not answered
+ * within the timeout are abandoned and their items keep no address. Items are shared through the report cache, so
+ * addresses are set on copies.
+ */
+@Singleton
+public class ReportGeocoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportGeocoder.class);
+
+    private record Point(long latitude, long longitude) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Geocoder geocoder;
+    private final boolean enabled;
+    private final double scale;
+    private final Semaphore permits;
+    private final long timeout;
+
+    @Inject
+    public ReportGeocoder(Config config, ObjectMapper objectMapper, @Nullable Geocoder geocoder) {
+        this.objectMapper = objectMapper;
+        this.geocoder = geocoder;
+        enabled = geocoder != null && config.getBoolean(Keys.GEOCODER_ON_REQUEST);
+        scale = Math.pow(10, config.getInteger(Keys.REPORT_GEOCODER_PRECISION));
+        permits = new Semaphore(Math.max(1, config.getInteger(Keys.REPORT_GEOCODER_THREADS)));
+        timeout = TimeUnit.MILLISECONDS.toNanos(config.getLong(Keys.REPORT_GEOCODER_TIMEOUT));
+    }
+
+    private void add(Map<Point, List<Consumer<String>>> targets, double latitude, double longitude,
+            Consumer<String> setter) {
+        Point point = new Point(Math.round(latitude * scale), Math.round(longitude * scale));
+        targets.computeIfAbsent(point, key -> new ArrayList<>()).add(setter);
+    }
+
+    /**
+     * Returns the item at the index for update, copied first if it is still the original one.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, I> I getCopy(List<T> items, List<T> result, int index) {
+        T item = result.get(index);
+        if (item == items.get(index)) {
+            item = (T) objectMapper.convertValue(item, item.getClass());
+            result.set(index, item);
+        }
+        return (I) item;
+    }
+
+    /**
+     * Returns the items in the same order, with copies carrying the resolved addresses in place of the originals.
+     */
+    public <T> List<T> resolve(List<T> items) {
+        if (!enabled) {
+            return items;
+        }
+
+        List<T> result = new ArrayList<>(items);
+        Map<Point, List<Consumer<String>>> targets = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            Object item = items.get(i);
+            if (item instanceof TripReportItem trip) {
+                if (trip.getStartAddress() == null) {
+                    add(targets, trip.getStartLat(), trip.getStartLon(),
+                            address -> this.<T, TripReportItem>getCopy(items, result, index).setStartAddress(address));
+                }
+                if (trip.getEndAddress() == null) {
+                    add(targets, trip.getEndLat(), trip.getEndLon(),
+                            address -> this.<T, TripReportItem>getCopy(items, result, index).setEndAddress(address));
+                }
+            } else if (item instanceof StopReportItem stop && stop.getAddress() == null) {
+                add(targets, stop.getLatitude(), stop.getLongitude(),
+                        address -> this.<T, StopReportItem>getCopy(items, result, index).setAddress(address));
+            }
+        }
+        if (targets.isEmpty()) {
+            return items;
+        }
+
+        Map<Point, String> addresses = new ConcurrentHashMap<>();
+        List<AtomicBoolean> requests = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(targets.size());
+        long deadline = System.nanoTime() + timeout;
+        try {
+            for (Point point : targets.keySet()) {
+                if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                AtomicBoolean done = new AtomicBoolean();
+                requests.add(done);
+                try {
+                    geocoder.getAddress(point.latitude() / scale, point.longitude() / scale,
+                            new Geocoder.ReverseGeocoderCallback() {
+                                @Override
+                                public void onSuccess(String address) {
+                                    if (done.compareAndSet(false, true)) {
+                                        if (address != null) {
+                                            addresses.put(point, address);
+                                        }
+                                        permits.release();
+                                        latch.countDown();
+                                    }
+                                }
+
+                                @Override
+                                public void onFailure(Throwable e) {
+                                    LOGGER.warn("Report geocoding failed", e);
+                                    if (done.compareAndSet(false, true)) {
+                                        permits.release();
+                                        latch.countDown();
+                                    }
+                                }
+                            });
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Report geocoding failed", e);
+                    if (done.compareAndSet(false, true)) {
+                        permits.release();
+                        latch.countDown();
+                    }
+                }
+            }
+            if (!latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                LOGGER.warn("Report geocoding timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Report interrupted");
+        } finally {
+            // abandoned requests give their permits back, late answers are ignored
+            for (AtomicBoolean done : requests) {
+                if (done.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+
+        targets.forEach((point, setters) -> {
+            String address = addresses.get(point);
+            if (address != null) {
+                setters.forEach(setter -> setter.accept(address));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Resolves addresses of several lists in one batch, returning the lists in the same order.
+     */
+    public <T> List<List<T>> resolveAll(List<? extends List<T>> lists) {
+        List<T> items = new ArrayList<>();
+        lists.forEach(items::addAll);
+        List<T> resolved = resolve(items);
+        List<List<T>> result = new ArrayList<>(lists.size());
+        int offset = 0;
+        for (List<T> list : lists) {
+            result.add(resolved.subList(offset, offset + list.size()));
+            offset += list.size();
+        }
+        return result;
+    }
+
+}
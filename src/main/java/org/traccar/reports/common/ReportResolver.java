@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.helper.model.PositionUtil;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Group;
+import org.traccar.model.Position;
+import org.traccar.model.User;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups shared by a single report run. Positions are fetched in batches and related objects are memoized, including
+ * misses, so each id hits the storage at most once. Failed lookups are logged and retried on the next call rather than
+ * remembered as missing. Instances are not thread safe and should not outlive the report.
+ */
+public class ReportResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportResolver.class);
+
+    private final Storage storage;
+    private final long userId;
+
+    private final Map<Long, Position> positions = new HashMap<>();
+    private final Map<Class<?>, Map<Long, BaseModel>> objects = new HashMap<>();
+
+    public ReportResolver(Storage storage, long userId) {
+        this.storage = storage;
+        this.userId = userId;
+    }
+
+    public void loadPositions(Collection<Long> positionIds) throws StorageException {
+        List<Long> missing = positionIds.stream()
+                .filter(id -> id > 0 && !positions.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            Map<Long, Position> loaded = PositionUtil.getPositions(storage, missing);
+            for (long id : missing) {
+                positions.put(id, loaded.get(id));
+            }
+        }
+    }
+
+    public Position getPosition(long positionId) throws StorageException {
+        if (positionId <= 0) {
+            return null;
+        }
+        loadPositions(List.of(positionId));
+        return positions.get(positionId);
+    }
+
+    /**
+     * Drops loaded positions, so reports written in batches only keep the positions of the current batch.
+     */
+    public void clearPositions() {
+        positions.clear();
+    }
+
+    public Map<Long, Position> getPositions() {
+        return Collections.unmodifiableMap(positions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends BaseModel> T getObject(Class<T> clazz, long id, boolean checkPermission) {
+        if (id <= 0) {
+            return null;
+        }
+        Map<Long, BaseModel> cache = objects.computeIfAbsent(clazz, key -> new HashMap<>());
+        if (cache.containsKey(id)) {
+            return (T) cache.get(id);
+        }
+        Condition condition = new Condition.Equals("id", id);
+        if (checkPermission) {
+            condition = new Condition.And(condition, new Condition.Permission(User.class, userId, clazz));
+        }
+        T object;
+        try {
+            object = storage.getObject(clazz, new Request(new Columns.All(), condition));
+        } catch (StorageException e) {
+            LOGGER.warn("Report object lookup error", e);
+            return null;
+        }
+        cache.put(id, object);
+        return object;
+    }
+
+    /**
+     * Returns object only if the report user has access to it.
+     */
+    public <T extends BaseModel> T getObject(Class<T> clazz, long id) {
+        return getObject(clazz, id, true);
+    }
+
+    public String getGroupName(long groupId) {
+        Group group = getObject(Group.class, groupId, false);
+        return group != null ? group.getName() : null;
+    }
+
+}
@@ -16,11 +16,13 @@
  */
 package org.traccar.reports.common;
 
-import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.tools.generic.DateTool;
 import org.apache.velocity.tools.generic.NumberTool;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.jxls.area.Area;
 import org.jxls.builder.xls.XlsCommentAreaBuilder;
 import org.jxls.common.CellRef;
@@ -31,13 +33,14 @@ import org.jxls.util.TransformerFactory;
 import org.traccar.api.security.PermissionsService;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
-import org.traccar.geocoder.Geocoder;
+import org.traccar.database.SegmentManager;
 import org.traccar.helper.UnitsConverter;
 import org.traccar.helper.model.AttributeUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.helper.model.UserUtil;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
+import org.traccar.model.DeviceSegment;
 import org.traccar.model.Driver;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
@@ -59,11 +62,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class ReportUtils {
 
@@ -71,17 +77,17 @@ public class ReportUtils {
     private final Storage storage;
     private final PermissionsService permissionsService;
     private final VelocityEngine velocityEngine;
-    private final Geocoder geocoder;
+    private final SegmentManager segmentManager;
 
     @Inject
     public ReportUtils(
-            Config config, Storage storage, PermissionsService permissionsService,
-            VelocityEngine velocityEngine, @Nullable Geocoder geocoder) {
+            Config config, @Named("replica") Storage storage, PermissionsService permissionsService,
+            VelocityEngine velocityEngine, SegmentManager segmentManager) {
         this.config = config;
         this.storage = storage;
         this.permissionsService = permissionsService;
         this.velocityEngine = velocityEngine;
-        this.geocoder = geocoder;
+        this.segmentManager = segmentManager;
     }
 
     public <T extends BaseModel> T getObject(long userId, Class<T> clazz, long objectId) {
@@ -96,6 +102,22 @@ public class ReportUtils {
         }
     }
 
+    public TripsConfig getTripsConfig(Device device) {
+        return new TripsConfig(new AttributeUtil.StorageProvider(config, storage, permissionsService, device));
+    }
+
+    /**
+     * Resolves trip settings on the calling thread. Permissions service is request scoped and not thread safe, so
+     * per-device work running on the report pool receives the resolved settings instead.
+     */
+    public Map<Long, TripsConfig> getTripsConfigs(Collection<Device> devices) {
+        Map<Long, TripsConfig> result = new HashMap<>();
+        for (Device device : devices) {
+            result.put(device.getId(), getTripsConfig(device));
+        }
+        return result;
+    }
+
     public void checkPeriodLimit(Date from, Date to) {
         long limit = config.getLong(Keys.REPORT_PERIOD_LIMIT) * 1000;
         if (limit > 0 && to.getTime() - from.getTime() > limit) {
@@ -104,12 +126,7 @@ public class ReportUtils {
     }
 
     public double calculateFuel(Position first, Position last) {
-        if (first.hasAttribute(Position.KEY_FUEL_USED) && last.hasAttribute(Position.KEY_FUEL_USED)) {
-            return last.getDouble(Position.KEY_FUEL_USED) - first.getDouble(Position.KEY_FUEL_USED);
-        } else if (first.hasAttribute(Position.KEY_FUEL_LEVEL) && last.hasAttribute(Position.KEY_FUEL_LEVEL)) {
-            return first.getDouble(Position.KEY_FUEL_LEVEL) - last.getDouble(Position.KEY_FUEL_LEVEL);
-        }
-        return 0;
+        return PositionUtil.calculateFuel(first, last);
     }
 
     public String findDriver(Position firstPosition, Position lastPosition) {
@@ -121,16 +138,26 @@ public class ReportUtils {
         return null;
     }
 
-    public String findDriverName(String driverUniqueId) throws StorageException {
-        if (driverUniqueId != null) {
-            Driver driver = storage.getObject(Driver.class, new Request(
-                    new Columns.All(),
-                    new Condition.Equals("uniqueId", driverUniqueId)));
-            if (driver != null) {
-                return driver.getName();
+    private void fillDriverNames(List<? extends BaseReportItem> items) throws StorageException {
+        Set<String> driverUniqueIds = new HashSet<>();
+        for (BaseReportItem item : items) {
+            if (item instanceof TripReportItem trip && trip.getDriverUniqueId() != null) {
+                driverUniqueIds.add(trip.getDriverUniqueId());
+            }
+        }
+        if (driverUniqueIds.isEmpty()) {
+            return;
+        }
+        Map<String, String> driverNames = new HashMap<>();
+        for (Driver driver : storage.getObjects(Driver.class, new Request(
+                new Columns.All(), new Condition.In("uniqueId", driverUniqueIds)))) {
+            driverNames.putIfAbsent(driver.getUniqueId(), driver.getName());
+        }
+        for (BaseReportItem item : items) {
+            if (item instanceof TripReportItem trip && trip.getDriverUniqueId() != null) {
+                trip.setDriverName(driverNames.get(trip.getDriverUniqueId()));
             }
         }
-        return null;
     }
 
     public org.jxls.common.Context initializeContext(long userId) throws StorageException {
@@ -149,9 +176,22 @@ public class ReportUtils {
         return context;
     }
 
+    /**
+     * Whether spreadsheets are written in streaming mode, in which case report rows should be produced lazily.
+     */
+    public boolean isExcelStreaming() {
+        return config.getInteger(Keys.REPORT_EXCEL_WINDOW) > 0;
+    }
+
     public void processTemplateWithSheets(
             InputStream templateStream, OutputStream targetStream, org.jxls.common.Context context) throws IOException {
 
+        if (isExcelStreaming()) {
+            processTemplateStreaming(
+                    templateStream, targetStream, context, config.getInteger(Keys.REPORT_EXCEL_WINDOW));
+            return;
+        }
+
         Transformer transformer = TransformerFactory.createTransformer(templateStream, targetStream);
         List<Area> xlsAreas = new XlsCommentAreaBuilder(transformer).build();
         for (Area xlsArea : xlsAreas) {
@@ -163,9 +203,30 @@ public class ReportUtils {
         transformer.write();
     }
 
+    private void processTemplateStreaming(
+            InputStream templateStream, OutputStream targetStream, org.jxls.common.Context context, int window)
+            throws IOException {
+
+        // template cells are read upfront, generated sheets keep only the last rows in memory
+        PoiTransformer transformer = PoiTransformer.createSxssfTransformer(
+                WorkbookFactory.create(templateStream), window, true);
+        try {
+            transformer.setOutputStream(targetStream);
+            List<Area> xlsAreas = new XlsCommentAreaBuilder(transformer).build();
+            for (Area xlsArea : xlsAreas) {
+                xlsArea.applyAt(new CellRef(xlsArea.getStartCellRef().getCellName()), context);
+            }
+            transformer.deleteSheet(xlsAreas.get(0).getStartCellRef().getSheetName());
+            transformer.write();
+        } finally {
+            if (transformer.getWorkbook() instanceof SXSSFWorkbook workbook) {
+                workbook.dispose();
+            }
+        }
+    }
+
     private TripReportItem calculateTrip(
-            Device device, Position startTrip, Position endTrip, double maxSpeed,
-            boolean ignoreOdometer) throws StorageException {
+            Device device, Position startTrip, Position endTrip, double maxSpeed, boolean ignoreOdometer) {
 
         TripReportItem trip = new TripReportItem();
 
@@ -178,21 +239,13 @@ public class ReportUtils {
         trip.setStartLat(startTrip.getLatitude());
         trip.setStartLon(startTrip.getLongitude());
         trip.setStartTime(startTrip.getFixTime());
-        String startAddress = startTrip.getAddress();
-        if (startAddress == null && geocoder != null && config.getBoolean(Keys.GEOCODER_ON_REQUEST)) {
-            startAddress = geocoder.getAddress(startTrip.getLatitude(), startTrip.getLongitude(), null);
-        }
-        trip.setStartAddress(startAddress);
+        trip.setStartAddress(startTrip.getAddress());
 
         trip.setEndPositionId(endTrip.getId());
         trip.setEndLat(endTrip.getLatitude());
         trip.setEndLon(endTrip.getLongitude());
         trip.setEndTime(endTrip.getFixTime());
-        String endAddress = endTrip.getAddress();
-        if (endAddress == null && geocoder != null && config.getBoolean(Keys.GEOCODER_ON_REQUEST)) {
-            endAddress = geocoder.getAddress(endTrip.getLatitude(), endTrip.getLongitude(), null);
-        }
-        trip.setEndAddress(endAddress);
+        trip.setEndAddress(endTrip.getAddress());
 
         trip.setDistance(PositionUtil.calculateDistance(startTrip, endTrip, !ignoreOdometer));
         trip.setDuration(tripDuration);
@@ -203,7 +256,6 @@ public class ReportUtils {
         trip.setSpentFuel(calculateFuel(startTrip, endTrip));
 
         trip.setDriverUniqueId(findDriver(startTrip, endTrip));
-        trip.setDriverName(findDriverName(trip.getDriverUniqueId()));
 
         if (!ignoreOdometer
                 && startTrip.getDouble(Position.KEY_ODOMETER) != 0
@@ -231,11 +283,7 @@ public class ReportUtils {
         stop.setLatitude(startStop.getLatitude());
         stop.setLongitude(startStop.getLongitude());
         stop.setStartTime(startStop.getFixTime());
-        String address = startStop.getAddress();
-        if (address == null && geocoder != null && config.getBoolean(Keys.GEOCODER_ON_REQUEST)) {
-            address = geocoder.getAddress(stop.getLatitude(), stop.getLongitude(), null);
-        }
-        stop.setAddress(address);
+        stop.setAddress(startStop.getAddress());
 
         stop.setEndTime(endStop.getFixTime());
 
@@ -264,7 +312,7 @@ public class ReportUtils {
     @SuppressWarnings("unchecked")
     private <T extends BaseReportItem> T calculateTripOrStop(
             Device device, Position startPosition, Position endPosition, double maxSpeed,
-            boolean ignoreOdometer, Class<T> reportClass) throws StorageException {
+            boolean ignoreOdometer, Class<T> reportClass) {
 
         if (reportClass.equals(TripReportItem.class)) {
             return (T) calculateTrip(device, startPosition, endPosition, maxSpeed, ignoreOdometer);
@@ -273,6 +321,61 @@ public class ReportUtils {
         }
     }
 
+    private TripReportItem createTrip(Device device, DeviceSegment segment) {
+
+        TripReportItem trip = new TripReportItem();
+        trip.setDeviceId(device.getId());
+        trip.setDeviceName(device.getName());
+
+        trip.setStartPositionId(segment.getStartPositionId());
+        trip.setStartLat(segment.getStartLatitude());
+        trip.setStartLon(segment.getStartLongitude());
+        trip.setStartTime(segment.getStartTime());
+        trip.setStartAddress(segment.getStartAddress());
+
+        trip.setEndPositionId(segment.getEndPositionId());
+        trip.setEndLat(segment.getEndLatitude());
+        trip.setEndLon(segment.getEndLongitude());
+        trip.setEndTime(segment.getEndTime());
+        trip.setEndAddress(segment.getEndAddress());
+
+        long tripDuration = segment.getEndTime().getTime() - segment.getStartTime().getTime();
+        trip.setDistance(segment.getDistance());
+        trip.setDuration(tripDuration);
+        if (tripDuration > 0) {
+            trip.setAverageSpeed(UnitsConverter.knotsFromMps(trip.getDistance() * 1000 / tripDuration));
+        }
+        trip.setMaxSpeed(segment.getMaxSpeed());
+        trip.setSpentFuel(segment.getSpentFuel());
+        trip.setDriverUniqueId(segment.getDriverUniqueId());
+        trip.setStartOdometer(segment.getStartOdometer());
+        trip.setEndOdometer(segment.getEndOdometer());
+
+        return trip;
+    }
+
+    private StopReportItem createStop(Device device, DeviceSegment segment) {
+
+        StopReportItem stop = new StopReportItem();
+        stop.setDeviceId(device.getId());
+        stop.setDeviceName(device.getName());
+
+        stop.setPositionId(segment.getStartPositionId());
+        stop.setLatitude(segment.getStartLatitude());
+        stop.setLongitude(segment.getStartLongitude());
+        stop.setStartTime(segment.getStartTime());
+        stop.setAddress(segment.getStartAddress());
+        stop.setEndTime(segment.getEndTime());
+
+        stop.setDuration(segment.getEndTime().getTime() - segment.getStartTime().getTime());
+        stop.setSpentFuel(segment.getSpentFuel());
+        stop.setEngineHours(segment.getEngineHours());
+        stop.setStartOdometer(segment.getStartOdometer());
+        stop.setEndOdometer(segment.getEndOdometer());
+
+        return stop;
+    }
+
     private boolean isMoving(List<Position> positions, int index, TripsConfig tripsConfig) {
         if (tripsConfig.getMinimalNoDataDuration() > 0) {
             boolean beforeGap = index < positions.size() - 1
@@ -290,21 +393,88 @@ public class ReportUtils {
 
     public <T extends BaseReportItem> List<T> detectTripsAndStops(
             Device device, Date from, Date to, Class<T> reportClass) throws StorageException {
+        return detectTripsAndStops(device, getTripsConfig(device), from, to, reportClass);
+    }
+
+    public <T extends BaseReportItem> List<T> detectTripsAndStops(
+            Device device, TripsConfig tripsConfig, Date from, Date to, Class<T> reportClass) throws StorageException {
+
+        if (segmentManager.isEnabled()) {
+            return segmentTripsAndStops(device, tripsConfig, from, to, reportClass);
+        }
+        return calculateTripsAndStops(device, tripsConfig, from, to, reportClass);
+    }
+
+    private <T extends BaseReportItem> List<T> calculateTripsAndStops(
+            Device device, TripsConfig tripsConfig, Date from, Date to, Class<T> reportClass) throws StorageException {
 
         long threshold = config.getLong(Keys.REPORT_FAST_THRESHOLD);
         if (Duration.between(from.toInstant(), to.toInstant()).toSeconds() > threshold) {
-            return fastTripsAndStops(device, from, to, reportClass);
+            return fastTripsAndStops(device, tripsConfig, from, to, reportClass);
         } else {
-            return slowTripsAndStops(device, from, to, reportClass);
+            return slowTripsAndStops(device, tripsConfig, from, to, reportClass);
         }
     }
 
+    /**
+     * Reads trips or stops from segments saved during processing. Segments crossing the period boundaries, the
+     * segment still in progress and gaps between stored segments are calculated from positions.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends BaseReportItem> List<T> segmentTripsAndStops(
+            Device device, TripsConfig tripsConfig, Date from, Date to, Class<T> reportClass)
+            throws StorageException {
+
+        var segments = storage.getObjects(DeviceSegment.class, new Request(
+                new Columns.All(),
+                Condition.merge(List.of(
+                        new Condition.Equals("deviceId", device.getId()),
+                        new Condition.Compare("startTime", ">=", from),
+                        new Condition.Compare("endTime", "<=", to))),
+                new Order("startTime")));
+        if (segments.isEmpty()) {
+            return calculateTripsAndStops(device, tripsConfig, from, to, reportClass);
+        }
+
+        List<T> result = new ArrayList<>();
+        Date first = segments.get(0).getStartTime();
+        if (from.before(first)) {
+            result.addAll(calculateTripsAndStops(device, tripsConfig, from, first, reportClass));
+        }
+
+        boolean trips = reportClass.equals(TripReportItem.class);
+        List<T> created = new ArrayList<>();
+        Date end = null;
+        for (DeviceSegment segment : segments) {
+            if (end != null && segment.getStartTime().after(end)) {
+                // segments are contiguous, a gap is left by a segment that failed to save
+                result.addAll(calculateTripsAndStops(device, tripsConfig, end, segment.getStartTime(), reportClass));
+            }
+            if (segment.getMotion() == trips) {
+                T item = (T) (trips ? createTrip(device, segment) : createStop(device, segment));
+                created.add(item);
+                result.add(item);
+            }
+            end = segment.getEndTime();
+        }
+        fillDriverNames(created);
+
+        Date last = segments.get(segments.size() - 1).getEndTime();
+        if (last.before(to)) {
+            result.addAll(calculateTripsAndStops(device, tripsConfig, last, to, reportClass));
+        }
+        return result;
+    }
+
     public <T extends BaseReportItem> List<T> slowTripsAndStops(
             Device device, Date from, Date to, Class<T> reportClass) throws StorageException {
+        return slowTripsAndStops(device, getTripsConfig(device), from, to, reportClass);
+    }
+
+    public <T extends BaseReportItem> List<T> slowTripsAndStops(
+            Device device, TripsConfig tripsConfig, Date from, Date to, Class<T> reportClass) throws StorageException {
 
         List<T> result = new ArrayList<>();
-        TripsConfig tripsConfig = new TripsConfig(
-                new AttributeUtil.StorageProvider(config, storage, permissionsService, device));
         boolean ignoreOdometer = tripsConfig.getIgnoreOdometer();
         boolean trips = reportClass.equals(TripReportItem.class);
 
@@ -359,15 +529,19 @@ public class ReportUtils {
                     device, startPosition, endPosition, maxSpeed, ignoreOdometer, reportClass));
         }
 
+        fillDriverNames(result);
         return result;
     }
 
     public <T extends BaseReportItem> List<T> fastTripsAndStops(
             Device device, Date from, Date to, Class<T> reportClass) throws StorageException {
+        return fastTripsAndStops(device, getTripsConfig(device), from, to, reportClass);
+    }
+
+    public <T extends BaseReportItem> List<T> fastTripsAndStops(
+            Device device, TripsConfig tripsConfig, Date from, Date to, Class<T> reportClass) throws StorageException {
 
         List<T> result = new ArrayList<>();
-        TripsConfig tripsConfig = new TripsConfig(
-                new AttributeUtil.StorageProvider(config, storage, permissionsService, device));
         boolean ignoreOdometer = tripsConfig.getIgnoreOdometer();
         boolean trips = reportClass.equals(TripReportItem.class);
 
@@ -386,14 +560,15 @@ public class ReportUtils {
             startPosition = null;
         }
 
+        Map<Long, Position> positions = PositionUtil.getPositions(
+                storage, events.stream().map(Event::getPositionId).toList());
+
         for (Event event : events) {
             boolean motion = event.getType().equals(Event.TYPE_DEVICE_MOVING);
             if (motion == trips) {
-                startPosition = storage.getObject(Position.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", event.getPositionId())));
+                startPosition = positions.get(event.getPositionId());
             } else if (startPosition != null) {
-                Position endPosition = storage.getObject(Position.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", event.getPositionId())));
+                Position endPosition = positions.get(event.getPositionId());
                 if (endPosition != null) {
                     result.add(calculateTripOrStop(
                             device, startPosition, endPosition, 0, ignoreOdometer, reportClass));
@@ -408,6 +583,7 @@ public class ReportUtils {
                     device, startPosition, endPosition, 0, ignoreOdometer, reportClass));
         }
 
+        fillDriverNames(result);
         return result;
     }
 
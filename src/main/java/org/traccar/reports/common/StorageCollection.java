@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.reports.common;
+
+import org.traccar.storage.StorageException;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Read-only collection that runs the storage query every time it is iterated instead of holding the items, so large
+ * reports can be written row by row. Streams of abandoned iterations are closed together with the collection.
+ * Emptiness checks open the stream for the next iteration, and the size is remembered after the first complete pass.
+ */
+public class StorageCollection<T> extends AbstractCollection<T> implements AutoCloseable {
+
+    public interface Source<T> {
+        Stream<T> open() throws StorageException;
+    }
+
+    private final Source<T> source;
+    private final List<Stream<T>> streams = new ArrayList<>();
+    private Stream<T> pendingStream;
+    private Iterator<T> pendingIterator;
+    private int size = -1;
+
+    public StorageCollection(Source<T> source) {
+        this.source = source;
+    }
+
+    private Stream<T> open() {
+        try {
+            Stream<T> stream = source.open();
+            streams.add(stream);
+            return stream;
+        } catch (StorageException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void finish(Stream<T> stream) {
+        if (streams.remove(stream)) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Stream<T> stream;
+        Iterator<T> iterator;
+        if (pendingStream != null) {
+            stream = pendingStream;
+            iterator = pendingIterator;
+            pendingStream = null;
+            pendingIterator = null;
+        } else {
+            stream = open();
+            iterator = stream.iterator();
+        }
+        return new Iterator<>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                boolean result = iterator.hasNext();
+                if (!result) {
+                    finish(stream);
+                    size = count;
+                }
+                return result;
+            }
+
+            @Override
+            public T next() {
+                T item = iterator.next();
+                count += 1;
+                return item;
+            }
+        };
+    }
+
+    /**
+     * Returns the size from a complete pass. If nothing has been iterated yet, this costs one extra pass.
+     */
+    @Override
+    public int size() {
+        if (size < 0) {
+            Iterator<T> iterator = iterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (size >= 0) {
+            return size == 0;
+        }
+        if (pendingStream == null) {
+            pendingStream = open();
+            pendingIterator = pendingStream.iterator();
+        }
+        if (!pendingIterator.hasNext()) {
+            finish(pendingStream);
+            pendingStream = null;
+            pendingIterator = null;
+            size = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        streams.forEach(Stream::close);
+        streams.clear();
+        pendingStream = null;
+        pendingIterator = null;
+    }
+
+}
@@ -19,6 +19,8 @@ package org.traccar.reports.common;
 import org.traccar.config.Keys;
 import org.traccar.helper.model.AttributeUtil;
 
+import java.util.Objects;
+
 public class TripsConfig {
 
     public TripsConfig(AttributeUtil.Provider attributeProvider) {
@@ -78,4 +80,27 @@ public class TripsConfig {
         return ignoreOdometer;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TripsConfig other)) {
+            return false;
+        }
+        return Double.compare(minimalTripDistance, other.minimalTripDistance) == 0
+                && minimalTripDuration == other.minimalTripDuration
+                && minimalParkingDuration == other.minimalParkingDuration
+                && minimalNoDataDuration == other.minimalNoDataDuration
+                && useIgnition == other.useIgnition
+                && ignoreOdometer == other.ignoreOdometer;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                minimalTripDistance, minimalTripDuration, minimalParkingDuration, minimalNoDataDuration,
+                useIgnition, ignoreOdometer);
+    }
+
 }
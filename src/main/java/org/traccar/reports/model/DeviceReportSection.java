@@ -16,9 +16,7 @@
  */
 package org.traccar.reports.model;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 public class DeviceReportSection {
 
@@ -42,14 +40,14 @@ public class DeviceReportSection {
         this.groupName = groupName;
     }
 
-    private List<?> objects;
+    private Collection<?> objects;
 
     public Collection<?> getObjects() {
         return objects;
     }
 
     public void setObjects(Collection<?> objects) {
-        this.objects = new ArrayList<>(objects);
+        this.objects = objects;
     }
 
 }
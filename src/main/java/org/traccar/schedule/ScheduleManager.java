@@ -48,6 +48,10 @@ public class ScheduleManager implements LifecycleObject {
                 TaskClearStatus.class,
                 TaskExpirations.class,
                 TaskDeleteTemporary.class,
+                TaskPositionRetention.class,
+                TaskPositionArchive.class,
+                TaskRollupFlush.class,
+                TaskSegmentRecompute.class,
                 TaskReports.class,
                 TaskDeviceInactivityCheck.class,
                 TaskWebSocketKeepalive.class)
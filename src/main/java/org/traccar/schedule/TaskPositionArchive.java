@@ -0,0 +1,151 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.schedule;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.RollupManager;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.storage.PositionArchive;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskPositionArchive extends SingleScheduleTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskPositionArchive.class);
+
+    private static final long CHECK_PERIOD_HOURS = 24;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final Storage storage;
+    private final PositionArchive archive;
+    private final RollupManager rollupManager;
+    private final int age;
+
+    @Inject
+    public TaskPositionArchive(
+            Config config, @Named("database") Storage storage, PositionArchive archive, RollupManager rollupManager) {
+        this.storage = storage;
+        this.archive = archive;
+        this.rollupManager = rollupManager;
+        age = config.getInteger(Keys.ARCHIVE_AGE);
+    }
+
+    @Override
+    public void schedule(ScheduledExecutorService executor) {
+        if (archive.isEnabled()) {
+            executor.scheduleAtFixedRate(this, 1, CHECK_PERIOD_HOURS, TimeUnit.HOURS);
+        }
+    }
+
+    private static YearMonth getMonth(Date time) {
+        return YearMonth.from(time.toInstant().atZone(ZoneOffset.UTC));
+    }
+
+    private static Date getStart(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    /**
+     * Moves positions of completed months to the archive. Months that are already archived are rewritten with
+     * positions stored since, for example late data. Only the positions that were written are deleted.
+     */
+    private void archiveDevice(Device device, YearMonth limit) throws StorageException, IOException {
+        // latest position stays in the database because the device still references it
+        Condition kept = device.getPositionId() > 0 ? new Condition.Compare("id", "<>", device.getPositionId()) : null;
+
+        Position first = storage.getObject(Position.class, new Request(
+                new Columns.Include("fixTime"),
+                kept != null
+                        ? new Condition.And(new Condition.Equals("deviceId", device.getId()), kept)
+                        : new Condition.Equals("deviceId", device.getId()),
+                new Order("fixTime", false, 1)));
+        if (first == null) {
+            return;
+        }
+
+        for (YearMonth month = getMonth(first.getFixTime()); month.isBefore(limit); month = month.plusMonths(1)) {
+            Date start = getStart(month);
+            Date end = getStart(month.plusMonths(1));
+            Condition range = new Condition.And(
+                    new Condition.Equals("deviceId", device.getId()),
+                    new Condition.And(
+                            new Condition.Compare("fixTime", ">=", start),
+                            new Condition.Compare("fixTime", "<", end)));
+            Condition removable = kept != null ? new Condition.And(range, kept) : range;
+            if (storage.countObjects(Position.class, new Request(removable)) == 0) {
+                continue;
+            }
+
+            List<Long> written = new ArrayList<>();
+            if (archive.contains(device.getId(), month)) {
+                List<Position> stored = storage.getObjects(Position.class, new Request(
+                        new Columns.All(), range, new Order("fixTime")));
+                stored.forEach(position -> written.add(position.getId()));
+                try (var positions = PositionArchive.merge(archive.getPositions(
+                        device.getId(), start, new Date(end.getTime() - 1)), stored)) {
+                    archive.write(device.getId(), month, positions);
+                }
+            } else {
+                try (var positions = storage.getObjectsStream(Position.class, new Request(
+                        new Columns.All(), range, new Order("fixTime")))) {
+                    archive.write(device.getId(), month, positions.peek(position -> written.add(position.getId())));
+                }
+            }
+
+            written.remove(Long.valueOf(device.getPositionId()));
+            for (int i = 0; i < written.size(); i += DELETE_BATCH_SIZE) {
+                storage.removeObjects(
+                        Position.class, written.subList(i, Math.min(i + DELETE_BATCH_SIZE, written.size())));
+            }
+            // rollups of the month are recalculated from what reports read now, the rewritten archive
+            rollupManager.invalidate(device.getId(), start, new Date(end.getTime() - 1));
+        }
+    }
+
+    @Override
+    public void run() {
+        YearMonth limit = getMonth(Date.from(ZonedDateTime.now(ZoneOffset.UTC).minusDays(age).toInstant()));
+        try {
+            for (Device device : storage.getObjects(Device.class, new Request(
+                    new Columns.Include("id", "positionId")))) {
+                archiveDevice(device, limit);
+            }
+        } catch (StorageException | IOException e) {
+            LOGGER.warn("Failed to archive positions", e);
+        }
+    }
+
+}
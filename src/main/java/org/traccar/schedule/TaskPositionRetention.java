@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.schedule;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.RollupManager;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.storage.PositionArchive;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.time.DayOfWeek;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskPositionRetention extends SingleScheduleTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskPositionRetention.class);
+
+    private static final long CHECK_PERIOD_HOURS = 6;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private static final int PARTITIONS_AHEAD = 2;
+
+    private final Storage storage;
+    private final PositionArchive archive;
+    private final ReportCache reportCache;
+    private final RollupManager rollupManager;
+    private final boolean weekly;
+    private final int retentionDays;
+
+    @Inject
+    public TaskPositionRetention(
+            Config config, @Named("database") Storage storage, PositionArchive archive, ReportCache reportCache,
+            RollupManager rollupManager) {
+        this.storage = storage;
+        this.archive = archive;
+        this.reportCache = reportCache;
+        this.rollupManager = rollupManager;
+        weekly = config.getString(Keys.DATABASE_PARTITION_INTERVAL).equals("week");
+        retentionDays = config.getInteger(Keys.DATABASE_POSITIONS_RETENTION);
+    }
+
+    @Override
+    public void schedule(ScheduledExecutorService executor) {
+        executor.scheduleAtFixedRate(this, 0, CHECK_PERIOD_HOURS, TimeUnit.HOURS);
+    }
+
+    private ZonedDateTime getPartitionStart(ZonedDateTime time) {
+        ZonedDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        if (weekly) {
+            return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        } else {
+            return day.withDayOfMonth(1);
+        }
+    }
+
+    private ZonedDateTime getPartitionEnd(ZonedDateTime start) {
+        return weekly ? start.plusWeeks(1) : start.plusMonths(1);
+    }
+
+    private static Date min(Date first, Date second) {
+        return first.before(second) ? first : second;
+    }
+
+    /**
+     * Returns the time before which positions of the device can be removed. With the archive enabled, positions are
+     * only removed below the archive horizon, so history that has not been archived yet is never lost.
+     */
+    private Date getLimit(long deviceId, Date before) {
+        if (!archive.isEnabled()) {
+            return before;
+        }
+        Date horizon = archive.getHorizon(deviceId);
+        return horizon != null ? min(before, horizon) : null;
+    }
+
+    /**
+     * Partitions are shared by all devices, so they are only dropped below the lowest limit. Devices without archived
+     * history hold it at their oldest stored position, and every device holds it at its latest position.
+     */
+    private Date getPartitionLimit(List<Device> devices, Date before) throws StorageException {
+        Date result = before;
+        // latest positions stay in the database because devices still reference them
+        Position latest = storage.getObject(Position.class, new Request(
+                new Columns.Include("fixTime"), new Condition.LatestPositions(), new Order("fixTime", false, 1)));
+        if (latest != null) {
+            result = min(result, latest.getFixTime());
+        }
+        for (Device device : devices) {
+            Date limit = getLimit(device.getId(), before);
+            if (limit == null) {
+                Position first = storage.getObject(Position.class, new Request(
+                        new Columns.Include("fixTime"),
+                        new Condition.Equals("deviceId", device.getId()),
+                        new Order("fixTime", false, 1)));
+                limit = first != null ? first.getFixTime() : before;
+            }
+            result = min(result, limit);
+        }
+        return result;
+    }
+
+    private void removePositions(Device device, Date before) throws StorageException {
+        Date limit = getLimit(device.getId(), before);
+        if (limit == null) {
+            return;
+        }
+        Condition condition = new Condition.And(
+                new Condition.Equals("deviceId", device.getId()),
+                new Condition.Compare("fixTime", "<", limit));
+        if (device.getPositionId() > 0) {
+            // latest position stays in the database because the device still references it
+            condition = new Condition.And(condition, new Condition.Compare("id", "<>", device.getPositionId()));
+        }
+        List<Position> positions;
+        do {
+            positions = storage.getObjects(Position.class, new Request(
+                    new Columns.Include("id"), condition, new Order("id", false, DELETE_BATCH_SIZE)));
+            if (!positions.isEmpty()) {
+                storage.removeObjects(Position.class, positions.stream().map(Position::getId).toList());
+            }
+        } while (positions.size() == DELETE_BATCH_SIZE);
+    }
+
+    @Override
+    public void run() {
+        try {
+            boolean partitioned = storage.isPartitioned(Position.class);
+            if (partitioned) {
+                ZonedDateTime start = getPartitionStart(ZonedDateTime.now(ZoneOffset.UTC));
+                for (int i = 0; i <= PARTITIONS_AHEAD; i++) {
+                    ZonedDateTime end = getPartitionEnd(start);
+                    storage.addPartition(Position.class, Date.from(start.toInstant()), Date.from(end.toInstant()));
+                    start = end;
+                }
+            }
+            if (retentionDays > 0) {
+                Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+                List<Device> devices = storage.getObjects(Device.class, new Request(
+                        new Columns.Include("id", "positionId")));
+                Date limit = before;
+                if (partitioned) {
+                    limit = getPartitionLimit(devices, before);
+                    storage.removePartitions(Position.class, limit);
+                } else {
+                    for (Device device : devices) {
+                        removePositions(device, before);
+                    }
+                }
+                if (!archive.isEnabled()) {
+                    // with the archive only archived positions are removed and reports still read them from there
+                    for (Device device : devices) {
+                        rollupManager.invalidate(device.getId(), new Date(0), limit);
+                    }
+                }
+                reportCache.invalidate(0, new Date(0), before);
+            }
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to maintain position history", e);
+        }
+    }
+
+}
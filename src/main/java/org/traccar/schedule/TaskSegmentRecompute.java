@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.schedule;
+
+import jakarta.inject.Inject;
+import org.traccar.database.SegmentManager;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskSegmentRecompute implements ScheduleTask {
+
+    private final SegmentManager segmentManager;
+
+    @Inject
+    public TaskSegmentRecompute(SegmentManager segmentManager) {
+        this.segmentManager = segmentManager;
+    }
+
+    @Override
+    public void schedule(ScheduledExecutorService executor) {
+        if (segmentManager.isEnabled()) {
+            long period = segmentManager.getRecomputeInterval().toSeconds();
+            executor.scheduleAtFixedRate(this, period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        segmentManager.recompute();
+    }
+
+}
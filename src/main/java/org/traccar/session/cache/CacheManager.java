@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import org.traccar.broadcast.BroadcastInterface;
 import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
+import org.traccar.database.DeviceIndex;
 import org.traccar.model.Attribute;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Calendar;
@@ -62,6 +63,8 @@ public class CacheManager implements BroadcastInterface {
     private final Config config;
     private final Storage storage;
     private final BroadcastService broadcastService;
+    private final PermissionCache permissionCache;
+    private final DeviceIndex deviceIndex;
 
     private final CacheGraph graph = new CacheGraph();
 
@@ -70,10 +73,14 @@ public class CacheManager implements BroadcastInterface {
     private final Map<Long, HashSet<Object>> deviceReferences = new ConcurrentHashMap<>();
 
     @Inject
-    public CacheManager(Config config, Storage storage, BroadcastService broadcastService) throws StorageException {
+    public CacheManager(
+            Config config, Storage storage, BroadcastService broadcastService,
+            PermissionCache permissionCache, DeviceIndex deviceIndex) throws StorageException {
         this.config = config;
         this.storage = storage;
         this.broadcastService = broadcastService;
+        this.permissionCache = permissionCache;
+        this.deviceIndex = deviceIndex;
         server = storage.getObject(Server.class, new Request(new Columns.All()));
         broadcastService.registerListener(this);
     }
@@ -164,6 +171,11 @@ public class CacheManager implements BroadcastInterface {
             broadcastService.invalidateObject(true, clazz, id, operation);
         }
 
+        permissionCache.invalidateObject(clazz, id, operation);
+        if (clazz.equals(Device.class)) {
+            deviceIndex.invalidate();
+        }
+
         synchronized (this) {
             if (operation == ObjectOperation.DELETE) {
                 graph.removeObject(clazz, id);
@@ -223,6 +235,8 @@ public class CacheManager implements BroadcastInterface {
             broadcastService.invalidatePermission(true, clazz1, id1, clazz2, id2, link);
         }
 
+        permissionCache.invalidatePermission(clazz1, id1, clazz2, id2);
+
         synchronized (this) {
             if (clazz1.equals(User.class) && GroupedModel.class.isAssignableFrom(clazz2)) {
                 invalidatePermission(clazz2, id2, clazz1, id1, link);
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.BaseModel;
+import org.traccar.model.GroupedModel;
+import org.traccar.model.ObjectOperation;
+import org.traccar.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Users and permission decisions shared between requests. Both maps are bounded and evict the least recently used
+ * entry. Users are copied in and out, so request code modifying its user does not affect other requests.
+ */
+@Singleton
+public class PermissionCache {
+
+    private static final int MAX_ENTRIES = 100000;
+
+    private record Key(long userId, Class<?> clazz, long objectId) {
+    }
+
+    private record Entry<T>(T value, long expiration) {
+        boolean expired(long time) {
+            return time > expiration;
+        }
+    }
+
+    private static <K, V> Map<K, V> createMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    private final ObjectMapper objectMapper;
+    private final long timeout;
+
+    private final Map<Key, Entry<Boolean>> permissions = createMap();
+    private final Map<Long, Entry<User>> users = createMap();
+
+    @Inject
+    public PermissionCache(Config config, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        timeout = config.getLong(Keys.WEB_PERMISSION_CACHE_TIMEOUT) * 1000;
+    }
+
+    private static <K, V> V getValue(Map<K, Entry<V>> map, K key) {
+        synchronized (map) {
+            var entry = map.get(key);
+            if (entry == null) {
+                return null;
+            } else if (entry.expired(System.currentTimeMillis())) {
+                map.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private <K, V> void putValue(Map<K, Entry<V>> map, K key, V value) {
+        synchronized (map) {
+            map.put(key, new Entry<>(value, System.currentTimeMillis() + timeout));
+        }
+    }
+
+    private User copyUser(User user) {
+        User copy = objectMapper.convertValue(user, User.class);
+        copy.setHashedPassword(user.getHashedPassword());
+        copy.setSalt(user.getSalt());
+        return copy;
+    }
+
+    public Boolean getPermission(long userId, Class<?> clazz, long objectId) {
+        if (timeout > 0) {
+            return getValue(permissions, new Key(userId, clazz, objectId));
+        }
+        return null;
+    }
+
+    public void putPermission(long userId, Class<?> clazz, long objectId, boolean allowed) {
+        if (timeout > 0) {
+            putValue(permissions, new Key(userId, clazz, objectId), allowed);
+        }
+    }
+
+    public User getUser(long userId) {
+        if (timeout > 0) {
+            User user = getValue(users, userId);
+            if (user != null) {
+                return copyUser(user);
+            }
+        }
+        return null;
+    }
+
+    public void putUser(User user) {
+        if (timeout > 0) {
+            putValue(users, user.getId(), copyUser(user));
+        }
+    }
+
+    private void removePermissions(Predicate<Key> predicate) {
+        synchronized (permissions) {
+            permissions.keySet().removeIf(predicate);
+        }
+    }
+
+    private void invalidateUser(long userId) {
+        synchronized (users) {
+            users.remove(userId);
+        }
+        removePermissions(key -> key.userId() == userId);
+    }
+
+    public <T extends BaseModel> void invalidateObject(Class<T> clazz, long id, ObjectOperation operation) {
+        if (timeout > 0) {
+            if (clazz.equals(User.class)) {
+                invalidateUser(id);
+                removePermissions(key -> key.clazz().equals(User.class) && key.objectId() == id);
+            } else if (operation == ObjectOperation.DELETE) {
+                removePermissions(key -> key.clazz().equals(clazz) && key.objectId() == id);
+            } else if (operation == ObjectOperation.UPDATE && GroupedModel.class.isAssignableFrom(clazz)) {
+                removePermissions(key -> true);
+            }
+        }
+    }
+
+    public <T1 extends BaseModel, T2 extends BaseModel> void invalidatePermission(
+            Class<T1> clazz1, long id1, Class<T2> clazz2, long id2) {
+        if (timeout > 0) {
+            if (clazz1.equals(User.class)) {
+                invalidateUser(id1);
+            } else if (clazz2.equals(User.class)) {
+                invalidateUser(id2);
+            } else {
+                removePermissions(key -> true);
+            }
+        }
+    }
+
+}
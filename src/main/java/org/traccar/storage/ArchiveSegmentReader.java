@@ -0,0 +1,161 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.traccar.model.Network;
+import org.traccar.model.Position;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+public class ArchiveSegmentReader implements Closeable {
+
+    private final DataInputStream input;
+    private final ObjectMapper objectMapper;
+    private final long deviceId;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private long previousId;
+    private long previousTime;
+    private long previousLatitude;
+    private long previousLongitude;
+
+    public ArchiveSegmentReader(InputStream input, ObjectMapper objectMapper, long deviceId) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(input)));
+        this.objectMapper = objectMapper;
+        this.deviceId = deviceId;
+        if (this.input.readInt() != ArchiveSegmentWriter.MAGIC
+                || this.input.readUnsignedByte() != ArchiveSegmentWriter.VERSION) {
+            throw new IOException("Unsupported archive segment");
+        }
+    }
+
+    public Position read() throws IOException {
+        if (input.readUnsignedByte() != ArchiveSegmentWriter.RECORD_POSITION) {
+            return null;
+        }
+
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+
+        previousId += readVarLong();
+        position.setId(previousId);
+
+        previousTime += readVarLong();
+        position.setFixTime(new Date(previousTime));
+        position.setServerTime(new Date(previousTime + readVarLong()));
+
+        int flags = input.readUnsignedByte();
+        position.setValid((flags & ArchiveSegmentWriter.FLAG_VALID) != 0);
+        if ((flags & ArchiveSegmentWriter.FLAG_DEVICE_TIME) != 0) {
+            position.setDeviceTime(new Date(previousTime + readVarLong()));
+        }
+
+        previousLatitude += readVarLong();
+        previousLongitude += readVarLong();
+        position.setLatitude(previousLatitude / ArchiveSegmentWriter.COORDINATE_SCALE);
+        position.setLongitude(previousLongitude / ArchiveSegmentWriter.COORDINATE_SCALE);
+
+        position.setAltitude(input.readDouble());
+        position.setSpeed(input.readDouble());
+        position.setCourse(input.readDouble());
+        position.setAccuracy(input.readDouble());
+
+        position.setProtocol(readDictionary());
+        if ((flags & ArchiveSegmentWriter.FLAG_ADDRESS) != 0) {
+            position.setAddress(readString());
+        }
+        if ((flags & ArchiveSegmentWriter.FLAG_NETWORK) != 0) {
+            position.setNetwork(objectMapper.readValue(readString(), Network.class));
+        }
+        if ((flags & ArchiveSegmentWriter.FLAG_GEOFENCES) != 0) {
+            int count = (int) readVarLong();
+            List<Long> geofenceIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                geofenceIds.add(readVarLong());
+            }
+            position.setGeofenceIds(geofenceIds);
+        }
+
+        int count = (int) readVarLong();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = readDictionary();
+            attributes.put(key, readValue());
+        }
+        position.setAttributes(attributes);
+
+        return position;
+    }
+
+    private Object readValue() throws IOException {
+        int type = input.readUnsignedByte();
+        return switch (type) {
+            case ArchiveSegmentWriter.TYPE_BOOLEAN -> input.readBoolean();
+            case ArchiveSegmentWriter.TYPE_INTEGER -> (int) readVarLong();
+            case ArchiveSegmentWriter.TYPE_LONG -> readVarLong();
+            case ArchiveSegmentWriter.TYPE_DOUBLE -> input.readDouble();
+            case ArchiveSegmentWriter.TYPE_STRING -> readString();
+            case ArchiveSegmentWriter.TYPE_JSON -> objectMapper.readValue(readString(), Object.class);
+            default -> throw new IOException("Unknown attribute type " + type);
+        };
+    }
+
+    private String readDictionary() throws IOException {
+        int index = (int) readVarLong();
+        if (index == 0) {
+            return null;
+        } else if (index > dictionary.size()) {
+            dictionary.add(readString());
+        }
+        return dictionary.get(index - 1);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readVarLong()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        int value;
+        do {
+            value = input.readUnsignedByte();
+            zigzag |= (long) (value & 0x7F) << shift;
+            shift += 7;
+        } while ((value & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.traccar.model.Position;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes positions of a single device as a compressed segment. Timestamps, ids and coordinates are stored as
+ * deltas from the previous record and repeating strings (protocol and attribute keys) are stored once in an inline
+ * dictionary. Positions must be written in fix time order.
+ */
+public class ArchiveSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x54435041;
+    static final int VERSION = 1;
+
+    static final int RECORD_END = 0;
+    static final int RECORD_POSITION = 1;
+
+    static final double COORDINATE_SCALE = 1e7;
+
+    static final int FLAG_VALID = 1;
+    static final int FLAG_DEVICE_TIME = 1 << 1;
+    static final int FLAG_ADDRESS = 1 << 2;
+    static final int FLAG_NETWORK = 1 << 3;
+    static final int FLAG_GEOFENCES = 1 << 4;
+
+    static final int TYPE_BOOLEAN = 0;
+    static final int TYPE_INTEGER = 1;
+    static final int TYPE_LONG = 2;
+    static final int TYPE_DOUBLE = 3;
+    static final int TYPE_STRING = 4;
+    static final int TYPE_JSON = 5;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final DataOutputStream output;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private long previousId;
+    private long previousTime;
+    private long previousLatitude;
+    private long previousLongitude;
+    private boolean closed;
+
+    public ArchiveSegmentWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(
+                new DeflaterOutputStream(output, deflater)));
+        this.objectMapper = objectMapper;
+        this.output.writeInt(MAGIC);
+        this.output.writeByte(VERSION);
+    }
+
+    public void write(Position position) throws IOException {
+        output.writeByte(RECORD_POSITION);
+
+        writeVarLong(position.getId() - previousId);
+        previousId = position.getId();
+
+        long fixTime = position.getFixTime().getTime();
+        writeVarLong(fixTime - previousTime);
+        previousTime = fixTime;
+        writeVarLong(position.getServerTime().getTime() - fixTime);
+
+        int flags = 0;
+        if (position.getValid()) {
+            flags |= FLAG_VALID;
+        }
+        if (position.getDeviceTime() != null) {
+            flags |= FLAG_DEVICE_TIME;
+        }
+        if (position.getAddress() != null) {
+            flags |= FLAG_ADDRESS;
+        }
+        if (position.getNetwork() != null) {
+            flags |= FLAG_NETWORK;
+        }
+        if (position.getGeofenceIds() != null) {
+            flags |= FLAG_GEOFENCES;
+        }
+        output.writeByte(flags);
+
+        if (position.getDeviceTime() != null) {
+            writeVarLong(position.getDeviceTime().getTime() - fixTime);
+        }
+
+        long latitude = Math.round(position.getLatitude() * COORDINATE_SCALE);
+        long longitude = Math.round(position.getLongitude() * COORDINATE_SCALE);
+        writeVarLong(latitude - previousLatitude);
+        writeVarLong(longitude - previousLongitude);
+        previousLatitude = latitude;
+        previousLongitude = longitude;
+
+        output.writeDouble(position.getAltitude());
+        output.writeDouble(position.getSpeed());
+        output.writeDouble(position.getCourse());
+        output.writeDouble(position.getAccuracy());
+
+        writeDictionary(position.getProtocol());
+        if (position.getAddress() != null) {
+            writeString(position.getAddress());
+        }
+        if (position.getNetwork() != null) {
+            writeString(objectMapper.writeValueAsString(position.getNetwork()));
+        }
+        if (position.getGeofenceIds() != null) {
+            List<Long> geofenceIds = position.getGeofenceIds();
+            writeVarLong(geofenceIds.size());
+            for (long geofenceId : geofenceIds) {
+                writeVarLong(geofenceId);
+            }
+        }
+
+        writeVarLong(position.getAttributes().size());
+        for (var entry : position.getAttributes().entrySet()) {
+            writeDictionary(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof Boolean booleanValue) {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeBoolean(booleanValue);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.writeByte(TYPE_INTEGER);
+            writeVarLong(((Number) value).intValue());
+        } else if (value instanceof Long longValue) {
+            output.writeByte(TYPE_LONG);
+            writeVarLong(longValue);
+        } else if (value instanceof Double || value instanceof Float) {
+            output.writeByte(TYPE_DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof String stringValue) {
+            output.writeByte(TYPE_STRING);
+            writeString(stringValue);
+        } else {
+            output.writeByte(TYPE_JSON);
+            writeString(objectMapper.writeValueAsString(value));
+        }
+    }
+
+    private void writeDictionary(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(index);
+        } else {
+            index = dictionary.size() + 1;
+            dictionary.put(value, index);
+            writeVarLong(index);
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        output.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                output.writeByte(RECORD_END);
+                output.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.Permission;
+import org.traccar.model.Position;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class ArchiveStorage extends Storage {
+
+    private final Storage storage;
+    private final PositionArchive archive;
+
+    public ArchiveStorage(Storage storage, PositionArchive archive) {
+        this.storage = storage;
+        this.archive = archive;
+    }
+
+    @Override
+    public <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException {
+        try (var objects = getObjectsStream(clazz, request)) {
+            return objects.toList();
+        }
+    }
+
+    @Override
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
+        if (clazz.equals(Position.class) && request.getCondition() != null) {
+            Stream<Position> positions = getPositionsStream(request);
+            if (positions != null) {
+                return positions.map(clazz::cast);
+            }
+        }
+        return storage.getObjectsStream(clazz, request);
+    }
+
+    private static final class Query {
+        private Long deviceId;
+        private Collection<?> ids;
+        private Date from;
+        private Date to;
+        private boolean other;
+
+        private void addFrom(Date value) {
+            from = from == null || value.after(from) ? value : from;
+        }
+
+        private void addTo(Date value) {
+            to = to == null || value.before(to) ? value : to;
+        }
+    }
+
+    private static Query parse(Condition root) {
+        Query query = new Query();
+        LinkedList<Condition> conditions = new LinkedList<>(List.of(root));
+        while (!conditions.isEmpty()) {
+            Condition condition = conditions.poll();
+            if (condition instanceof Condition.And and) {
+                conditions.add(and.getFirst());
+                conditions.add(and.getSecond());
+            } else if (condition instanceof Condition.Equals equals && equals.getColumn().equals("deviceId")) {
+                query.deviceId = ((Number) equals.getValue()).longValue();
+            } else if (condition instanceof Condition.Equals equals && equals.getColumn().equals("id")) {
+                query.ids = List.of(((Number) equals.getValue()).longValue());
+            } else if (condition instanceof Condition.In in && in.getColumn().equals("id")) {
+                query.ids = in.getValues();
+            } else if (condition instanceof Condition.Between between && between.getColumn().equals("fixTime")) {
+                query.addFrom((Date) between.getFromValue());
+                query.addTo((Date) between.getToValue());
+            } else if (condition instanceof Condition.Compare compare && compare.getColumn().equals("fixTime")) {
+                Date value = (Date) compare.getValue();
+                switch (compare.getOperator()) {
+                    case ">=" -> query.addFrom(value);
+                    case ">" -> query.addFrom(new Date(value.getTime() + 1));
+                    case "<=" -> query.addTo(value);
+                    case "<" -> query.addTo(new Date(value.getTime() - 1));
+                    default -> query.other = true;
+                }
+            } else {
+                query.other = true;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Serves position reads that can reach archived data. Supported are lookups by id and queries by device and fix
+     * time ordered by fix time. Other queries only see the database and are rejected when they filter on fix time
+     * before the archive horizon of the device.
+     */
+    private Stream<Position> getPositionsStream(Request request) throws StorageException {
+        Query query = parse(request.getCondition());
+        if (query.ids != null && !query.other && query.deviceId == null && query.from == null && query.to == null) {
+            return getPositionsById(request, query.ids);
+        }
+        if (query.deviceId == null || query.from == null && query.to == null) {
+            return null;
+        }
+
+        long deviceId = query.deviceId;
+        Date horizon = archive.getHorizon(deviceId);
+        Date from = query.from != null ? query.from : new Date(0);
+        Date to = query.to != null ? query.to : new Date(Long.MAX_VALUE);
+        if (horizon == null || !from.before(horizon)) {
+            return null;
+        }
+
+        Order order = request.getOrder();
+        if (query.other || query.ids != null || order != null && !order.getColumn().equals("fixTime")
+                || order != null && order.getKeyset()) {
+            throw new StorageException("Unsupported query for archived positions");
+        }
+
+        // positions stored after archiving, for example late data, are merged with the archive
+        List<Position> stored = storage.getObjects(Position.class, new Request(
+                new Columns.All(),
+                new Condition.And(
+                        new Condition.Equals("deviceId", deviceId),
+                        new Condition.Between("fixTime", from, to.before(horizon) ? to : horizon)),
+                new Order("fixTime")));
+        Stream<Position> archived = PositionArchive.merge(archive.getPositions(deviceId, from, to), stored
+                .stream().filter(position -> position.getFixTime().before(horizon)).toList());
+        Stream<Position> recent = Stream.empty();
+        if (!to.before(horizon)) {
+            recent = storage.getObjectsStream(Position.class, new Request(
+                    request.getColumns(),
+                    new Condition.And(
+                            new Condition.Equals("deviceId", deviceId),
+                            new Condition.Between("fixTime", horizon, to)),
+                    order));
+        }
+
+        Stream<Position> result;
+        if (order != null && order.getDescending()) {
+            Stream<Position> reversed = Stream.of(archived).flatMap(stream -> {
+                try (stream) {
+                    List<Position> list = new ArrayList<>(stream.toList());
+                    Collections.reverse(list);
+                    return list.stream();
+                }
+            });
+            result = Stream.concat(recent, reversed);
+        } else {
+            result = Stream.concat(archived, recent);
+        }
+        if (order != null && order.getOffset() > 0) {
+            result = result.skip(order.getOffset());
+        }
+        if (order != null && order.getLimit() > 0) {
+            result = result.limit(order.getLimit());
+        }
+        return result;
+    }
+
+    private Stream<Position> getPositionsById(Request request, Collection<?> values) throws StorageException {
+        List<Position> result = new ArrayList<>(storage.getObjects(Position.class, request));
+        Set<Long> missing = new HashSet<>();
+        values.forEach(value -> missing.add(((Number) value).longValue()));
+        result.forEach(position -> missing.remove(position.getId()));
+        if (!missing.isEmpty()) {
+            result.addAll(archive.getPositions(missing));
+        }
+        return result.stream();
+    }
+
+    @Override
+    public long countObjects(Class<?> clazz, Request request) throws StorageException {
+        return storage.countObjects(clazz, request);
+    }
+
+    @Override
+    public <T> long addObject(T entity, Request request) throws StorageException {
+        return storage.addObject(entity, request);
+    }
+
+    @Override
+    public <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException {
+        return storage.addObjects(entities, request);
+    }
+
+    @Override
+    public <T> void updateObject(T entity, Request request) throws StorageException {
+        storage.updateObject(entity, request);
+    }
+
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException {
+        storage.updateObjects(entities, request);
+    }
+
+    @Override
+    public void removeObject(Class<?> clazz, Request request) throws StorageException {
+        storage.removeObject(clazz, request);
+    }
+
+    @Override
+    public void removeObjects(Class<?> clazz, Collection<Long> ids) throws StorageException {
+        storage.removeObjects(clazz, ids);
+    }
+
+    @Override
+    public List<Permission> getPermissions(
+            Class<? extends BaseModel> ownerClass, long ownerId,
+            Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
+        return storage.getPermissions(ownerClass, ownerId, propertyClass, propertyId);
+    }
+
+    @Override
+    public void addPermission(Permission permission) throws StorageException {
+        storage.addPermission(permission);
+    }
+
+    @Override
+    public void removePermission(Permission permission) throws StorageException {
+        storage.removePermission(permission);
+    }
+
+    @Override
+    public boolean isPartitioned(Class<?> clazz) throws StorageException {
+        return storage.isPartitioned(clazz);
+    }
+
+    @Override
+    public void addPartition(Class<?> clazz, Date from, Date to) throws StorageException {
+        storage.addPartition(clazz, from, to);
+    }
+
+    @Override
+    public void removePartitions(Class<?> clazz, Date before) throws StorageException {
+        storage.removePartitions(clazz, before);
+    }
+
+}
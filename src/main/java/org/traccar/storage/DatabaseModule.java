@@ -64,20 +64,9 @@ public class DatabaseModule extends AbstractModule {
             Class.forName(driver);
         }
 
-        HikariConfig hikariConfig = new HikariConfig();
-        hikariConfig.setDriverClassName(driver);
-        hikariConfig.setJdbcUrl(config.getString(Keys.DATABASE_URL));
-        hikariConfig.setUsername(config.getString(Keys.DATABASE_USER));
-        hikariConfig.setPassword(config.getString(Keys.DATABASE_PASSWORD));
-        hikariConfig.setConnectionInitSql(config.getString(Keys.DATABASE_CHECK_CONNECTION));
-        hikariConfig.setIdleTimeout(600000);
-
-        int maxPoolSize = config.getInteger(Keys.DATABASE_MAX_POOL_SIZE);
-        if (maxPoolSize != 0) {
-            hikariConfig.setMaximumPoolSize(maxPoolSize);
-        }
-
-        DataSource dataSource = new HikariDataSource(hikariConfig);
+        DataSource dataSource = createDataSource(
+                config, "primary", config.getString(Keys.DATABASE_URL), config.getString(Keys.DATABASE_USER),
+                config.getString(Keys.DATABASE_PASSWORD), config.getInteger(Keys.DATABASE_MAX_POOL_SIZE));
 
         String changelog = config.getString(Keys.DATABASE_CHANGELOG);
         if (changelog != null && !changelog.isEmpty()) {
@@ -106,6 +95,45 @@ public class DatabaseModule extends AbstractModule {
         return dataSource;
     }
 
+    public static DataSource createReplicaDataSource(Config config) {
+        String url = config.getString(Keys.DATABASE_REPLICA_URL);
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        return createDataSource(
+                config, "replica", url,
+                config.getString(Keys.DATABASE_REPLICA_USER, config.getString(Keys.DATABASE_USER)),
+                config.getString(Keys.DATABASE_REPLICA_PASSWORD, config.getString(Keys.DATABASE_PASSWORD)),
+                config.getInteger(Keys.DATABASE_REPLICA_MAX_POOL_SIZE));
+    }
+
+    private static DataSource createDataSource(
+            Config config, String poolName, String url, String user, String password, int maxPoolSize) {
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setRegisterMbeans(true);
+        hikariConfig.setDriverClassName(config.getString(Keys.DATABASE_DRIVER));
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername(user);
+        hikariConfig.setPassword(password);
+        hikariConfig.setConnectionInitSql(config.getString(Keys.DATABASE_CHECK_CONNECTION));
+        hikariConfig.setIdleTimeout(600000);
+
+        if (maxPoolSize != 0) {
+            hikariConfig.setMaximumPoolSize(maxPoolSize);
+        }
+
+        int statementCacheSize = config.getInteger(Keys.DATABASE_STATEMENT_CACHE_SIZE);
+        if (statementCacheSize > 0 && url != null && url.startsWith("jdbc:mysql:")) {
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "8192");
+        }
+
+        return new HikariDataSource(hikariConfig);
+    }
+
 }
 
 class DatabaseLockException extends RuntimeException {
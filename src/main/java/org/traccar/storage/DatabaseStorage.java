@@ -29,10 +29,27 @@ import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -44,8 +61,34 @@ public class DatabaseStorage extends Storage {
     private final ObjectMapper objectMapper;
     private final String databaseType;
 
+    private static final int QUERY_CACHE_LIMIT = 1000;
+
+    // access ordered, so shapes that are no longer used are evicted first
+    private final Map<Object, String> queryCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+            return size() > QUERY_CACHE_LIMIT;
+        }
+    };
+
+    private static final String GROUP_CLOSURE_STORAGE_NAME = "tc_group_closure";
+
+    private final Object groupClosureLock = new Object();
+
+    private static final String PARTITION_PREFIX = "p";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter PARTITION_BOUND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
     @Inject
     public DatabaseStorage(Config config, DataSource dataSource, ObjectMapper objectMapper) {
+        this(config, dataSource, objectMapper, false);
+    }
+
+    public DatabaseStorage(Config config, DataSource dataSource, ObjectMapper objectMapper, boolean readOnly) {
         this.config = config;
         this.dataSource = dataSource;
         this.objectMapper = objectMapper;
@@ -55,6 +98,14 @@ public class DatabaseStorage extends Storage {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+
+        if (!readOnly) {
+            try {
+                rebuildGroupClosure();
+            } catch (StorageException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @Override
@@ -66,22 +117,54 @@ public class DatabaseStorage extends Storage {
 
     @Override
     public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("SELECT ");
-        if (request.getColumns() instanceof Columns.All) {
-            query.append('*');
-        } else {
-            query.append(formatColumns(request.getColumns().getColumns(clazz, "set"), c -> c));
+        List<String> columns = request.getColumns() instanceof Columns.All
+                ? null : request.getColumns().getColumns(clazz, "set");
+        Condition condition = request.getFullCondition();
+        var shape = new QueryShape("SELECT", clazz, columns,
+                getConditionShape(condition), getOrderShape(request.getOrder()));
+        String query = getQuery(shape, () -> {
+            StringBuilder result = new StringBuilder("SELECT ");
+            if (columns == null) {
+                result.append('*');
+            } else {
+                result.append(formatColumns(columns, c -> c));
+            }
+            result.append(" FROM ").append(getStorageName(clazz));
+            result.append(formatCondition(condition));
+            result.append(formatOrder(request.getOrder()));
+            return result.toString();
+        });
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+            List<Object> values = getConditionVariables(condition);
+            if (request.getOrder() != null && request.getOrder().getOffset() > 0) {
+                values.add(request.getOrder().getOffset());
+            }
+            for (int index = 0; index < values.size(); index++) {
+                builder.setValue(index, values.get(index));
+            }
+            return builder.executeQueryStreamed(clazz);
+        } catch (SQLException e) {
+            throw new StorageException(e);
         }
-        query.append(" FROM ").append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
-        query.append(formatOrder(request.getOrder()));
+    }
+
+    @Override
+    public long countObjects(Class<?> clazz, Request request) throws StorageException {
+        var shape = new QueryShape("COUNT", clazz, null, getConditionShape(request.getCondition()), null);
+        String query = getQuery(shape, () -> {
+            StringBuilder result = new StringBuilder("SELECT COUNT(*) FROM ");
+            result.append(getStorageName(clazz));
+            result.append(formatCondition(request.getCondition()));
+            return result.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
             List<Object> values = getConditionVariables(request.getCondition());
             for (int index = 0; index < values.size(); index++) {
                 builder.setValue(index, values.get(index));
             }
-            return builder.executeQueryStreamed(clazz);
+            return builder.executeCount();
         } catch (SQLException e) {
             throw new StorageException(e);
         }
@@ -90,17 +173,53 @@ public class DatabaseStorage extends Storage {
     @Override
     public <T> long addObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("INSERT INTO ");
-        query.append(getStorageName(entity.getClass()));
-        query.append("(");
-        query.append(formatColumns(columns, c -> c));
-        query.append(") VALUES (");
-        query.append(formatColumns(columns, c -> "?"));
-        query.append(")");
+        String query = getInsertQuery(entity.getClass(), columns);
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString(), true);
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, true);
             builder.setObject(entity, columns);
-            return builder.executeUpdate();
+            long id = builder.executeUpdate();
+            if (entity instanceof Group group) {
+                updateGroupClosure(connection -> {
+                    addGroupClosure(connection, id, group.getGroupId());
+                    return true;
+                });
+            }
+            return id;
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty()) {
+            return List.of();
+        }
+        if (databaseType.equals("Microsoft SQL Server")) {
+            List<Long> result = new ArrayList<>();
+            for (T entity : entities) {
+                result.add(addObject(entity, request));
+            }
+            return result;
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        String query = getInsertQuery(clazz, columns);
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, true);
+            for (T entity : entities) {
+                builder.setObject(entity, columns).addBatch();
+            }
+            List<Long> result = builder.executeBatch();
+            if (Group.class.equals(clazz)) {
+                updateGroupClosure(connection -> {
+                    for (int index = 0; index < result.size(); index++) {
+                        addGroupClosure(connection, result.get(index), ((Group) entities.get(index)).getGroupId());
+                    }
+                    return true;
+                });
+            }
+            return result;
         } catch (SQLException e) {
             throw new StorageException(e);
         }
@@ -109,19 +228,51 @@ public class DatabaseStorage extends Storage {
     @Override
     public <T> void updateObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("UPDATE ");
-        query.append(getStorageName(entity.getClass()));
-        query.append(" SET ");
-        query.append(formatColumns(columns, c -> c + " = ?"));
-        query.append(formatCondition(request.getCondition()));
+        String query = getUpdateQuery(entity.getClass(), columns, request.getCondition());
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
             builder.setObject(entity, columns);
             List<Object> values = getConditionVariables(request.getCondition());
             for (int index = 0; index < values.size(); index++) {
                 builder.setValue(columns.size() + index, values.get(index));
             }
             builder.executeUpdate();
+            if (entity instanceof Group group && columns.contains("groupId")) {
+                if (group.getId() > 0) {
+                    updateGroupClosure(connection -> moveGroupClosure(connection, group.getId(), group.getGroupId()));
+                } else {
+                    rebuildGroupClosure();
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        String query = getUpdateQuery(clazz, columns, new Condition.Equals("id", 0L));
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+            for (T entity : entities) {
+                builder.setObject(entity, columns).setLong(columns.size(), entity.getId()).addBatch();
+            }
+            builder.executeBatch();
+            if (Group.class.equals(clazz) && columns.contains("groupId")) {
+                updateGroupClosure(connection -> {
+                    for (T entity : entities) {
+                        if (!moveGroupClosure(connection, entity.getId(), ((Group) entity).getGroupId())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
         } catch (SQLException e) {
             throw new StorageException(e);
         }
@@ -129,19 +280,441 @@ public class DatabaseStorage extends Storage {
 
     @Override
     public void removeObject(Class<?> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("DELETE FROM ");
-        query.append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
+        String query = getDeleteQuery(clazz, request.getCondition());
+        List<long[]> closure = List.of();
+        if (Group.class.equals(clazz)) {
+            closure = getGroupClosure(getObjects(Group.class, new Request(
+                    new Columns.Include("id"), request.getCondition())).stream().map(Group::getId).toList());
+        }
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
             List<Object> values = getConditionVariables(request.getCondition());
             for (int index = 0; index < values.size(); index++) {
                 builder.setValue(index, values.get(index));
             }
             builder.executeUpdate();
+            if (Group.class.equals(clazz)) {
+                removeGroupClosure(closure);
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public void removeObjects(Class<?> clazz, Collection<Long> ids) throws StorageException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String query = getDeleteQuery(clazz, new Condition.Equals("id", 0L));
+        List<long[]> closure = Group.class.equals(clazz) ? getGroupClosure(ids) : List.of();
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+            for (long id : ids) {
+                builder.setLong(0, id).addBatch();
+            }
+            builder.executeBatch();
+            if (Group.class.equals(clazz)) {
+                removeGroupClosure(closure);
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public boolean isPartitioned(Class<?> clazz) throws StorageException {
+        return switch (databaseType) {
+            case "PostgreSQL" -> !getTimescaleDimensions(clazz).isEmpty();
+            case "MySQL", "MariaDB" -> !getMySqlPartitions(clazz).isEmpty();
+            default -> false;
+        };
+    }
+
+    @Override
+    public void addPartition(Class<?> clazz, Date from, Date to) throws StorageException {
+        try {
+            switch (databaseType) {
+                case "PostgreSQL" -> addTimescaleChunk(clazz, from, to);
+                case "MySQL", "MariaDB" -> addMySqlPartition(clazz, from, to);
+                default -> throw new StorageException("Partitions are not supported by " + databaseType);
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    /**
+     * Creates the chunk for the range unless an existing chunk already overlaps it. The chunk interval is updated
+     * as well, so chunks created on insert beyond the prepared range follow the same bucket size.
+     */
+    private void addTimescaleChunk(Class<?> clazz, Date from, Date to) throws SQLException, StorageException {
+        String table = getStorageName(clazz);
+        List<String> dimensions = getTimescaleDimensions(clazz);
+        if (dimensions.isEmpty()) {
+            throw new StorageException("Table " + table + " is not a hypertable");
+        }
+
+        long seconds = (to.getTime() - from.getTime()) / 1000;
+        if (queryStrings(
+                "SELECT column_name FROM timescaledb_information.dimensions "
+                + "WHERE hypertable_name = ? AND time_interval = make_interval(secs => ?)",
+                false, table, seconds).isEmpty()) {
+            QueryBuilder.create(config, dataSource, objectMapper,
+                    "SELECT set_chunk_time_interval('" + table + "', INTERVAL '" + seconds + " seconds')")
+                    .executeUpdate();
+        }
+
+        if (!queryStrings(
+                "SELECT chunk_name FROM timescaledb_information.chunks "
+                + "WHERE hypertable_name = ? AND range_end > ? AND range_start < ?",
+                false, table, from, to).isEmpty()) {
+            return;
+        }
+
+        // internal time of timestamp dimensions is in microseconds
+        String slices = "{\"" + dimensions.get(0) + "\": ["
+                + from.getTime() * 1000 + ", " + to.getTime() * 1000 + "]}";
+        try {
+            createTimescaleChunk("_timescaledb_functions", table, slices);
+        } catch (SQLException e) {
+            // TimescaleDB before 2.12
+            createTimescaleChunk("_timescaledb_internal", table, slices);
+        }
+    }
+
+    private void createTimescaleChunk(String schema, String table, String slices) throws SQLException {
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "SELECT " + schema + ".create_chunk(?::regclass, ?::jsonb)")
+                .setString(0, table)
+                .setString(1, slices)
+                .executeUpdate();
+    }
+
+    private List<String> getTimescaleDimensions(Class<?> clazz) throws StorageException {
+        return queryStrings(
+                "SELECT column_name FROM timescaledb_information.dimensions WHERE hypertable_name = ?",
+                true, getStorageName(clazz));
+    }
+
+    /**
+     * Adds the bucket for the range unless it is already covered. When the table ends with a catch-all MAXVALUE
+     * partition, new buckets can only be split off from it, so it is reorganized instead.
+     */
+    private void addMySqlPartition(Class<?> clazz, Date from, Date to) throws SQLException, StorageException {
+        String table = getStorageName(clazz);
+        Map<String, Date> partitions = getMySqlPartitions(clazz);
+        if (partitions.values().stream().anyMatch(start -> !start.before(from))) {
+            return;
+        }
+
+        String definition = "PARTITION " + PARTITION_PREFIX + PARTITION_NAME_FORMAT.format(from.toInstant())
+                + " VALUES LESS THAN ('" + PARTITION_BOUND_FORMAT.format(to.toInstant()) + "')";
+        List<String> catchAll = queryStrings(
+                "SELECT partition_name FROM information_schema.partitions "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_description = 'MAXVALUE'",
+                false, table);
+        String query;
+        if (catchAll.isEmpty()) {
+            query = "ALTER TABLE " + table + " ADD PARTITION (" + definition + ")";
+        } else {
+            String name = catchAll.get(0);
+            query = "ALTER TABLE " + table + " REORGANIZE PARTITION " + name + " INTO ("
+                    + definition + ", PARTITION " + name + " VALUES LESS THAN (MAXVALUE))";
+        }
+        QueryBuilder.create(config, dataSource, objectMapper, query).executeUpdate();
+    }
+
+    @Override
+    public void removePartitions(Class<?> clazz, Date before) throws StorageException {
+        try {
+            switch (databaseType) {
+                case "PostgreSQL" -> QueryBuilder.create(config, dataSource, objectMapper,
+                        "SELECT drop_chunks('" + getStorageName(clazz) + "', older_than => ?)")
+                        .setDate(0, before)
+                        .executeUpdate();
+                case "MySQL", "MariaDB" -> {
+                    List<Date> starts = new ArrayList<>(getMySqlPartitions(clazz).values());
+                    for (int i = 0; i < starts.size() - 1; i++) {
+                        if (!starts.get(i + 1).after(before)) {
+                            QueryBuilder.create(config, dataSource, objectMapper,
+                                    "ALTER TABLE " + getStorageName(clazz) + " DROP PARTITION " + PARTITION_PREFIX
+                                    + PARTITION_NAME_FORMAT.format(starts.get(i).toInstant())).executeUpdate();
+                        }
+                    }
+                }
+                default -> throw new StorageException("Partitions are not supported by " + databaseType);
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    private Map<String, Date> getMySqlPartitions(Class<?> clazz) throws StorageException {
+        Map<String, Date> result = new TreeMap<>();
+        for (String name : queryStrings(
+                "SELECT partition_name FROM information_schema.partitions "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL",
+                false, getStorageName(clazz))) {
+            if (name.length() == PARTITION_PREFIX.length() + 8 && name.startsWith(PARTITION_PREFIX)) {
+                try {
+                    LocalDate start = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_NAME_FORMAT);
+                    result.put(name, Date.from(start.atStartOfDay(ZoneOffset.UTC).toInstant()));
+                } catch (DateTimeParseException ignored) {
+                    // partition not managed by the server
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<String> queryStrings(String query, boolean optional, Object... parameters) throws StorageException {
+        List<String> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i] instanceof Date date) {
+                    statement.setTimestamp(i + 1, new Timestamp(date.getTime()));
+                } else {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            if (!optional) {
+                throw new StorageException(e);
+            }
+        }
+        return result;
+    }
+
+    private interface GroupClosureUpdate {
+        /**
+         * Returns false when the change can not be applied incrementally and the closure has to be rebuilt.
+         */
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    private void updateGroupClosure(GroupClosureUpdate update) throws StorageException {
+        boolean applied;
+        synchronized (groupClosureLock) {
+            // closure rows are changed in one transaction so permission checks never see a partial closure
+            try (Connection connection = dataSource.getConnection()) {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    applied = update.apply(connection);
+                    if (applied) {
+                        connection.commit();
+                    } else {
+                        connection.rollback();
+                    }
+                } catch (SQLException error) {
+                    connection.rollback();
+                    throw error;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                throw new StorageException(e);
+            }
+        }
+        if (!applied) {
+            rebuildGroupClosure();
+        }
+    }
+
+    /**
+     * Recalculates closure rows for all groups. Used on startup to repair the table and as a fallback for changes
+     * that can not be applied incrementally.
+     */
+    private void rebuildGroupClosure() throws StorageException {
+        synchronized (groupClosureLock) {
+            Map<Long, Long> parents = new HashMap<>();
+            for (Group group : getObjects(Group.class, new Request(new Columns.Include("id", "groupId")))) {
+                parents.put(group.getId(), group.getGroupId());
+            }
+            updateGroupClosure(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "DELETE FROM " + GROUP_CLOSURE_STORAGE_NAME)) {
+                    statement.executeUpdate();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO " + GROUP_CLOSURE_STORAGE_NAME + " (parentId, groupId) VALUES (?, ?)")) {
+                    for (long id : parents.keySet()) {
+                        Set<Long> ancestors = new HashSet<>();
+                        long current = id;
+                        while (current > 0 && parents.containsKey(current) && ancestors.add(current)) {
+                            statement.setLong(1, current);
+                            statement.setLong(2, id);
+                            statement.addBatch();
+                            current = parents.get(current);
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                return true;
+            });
+        }
+    }
+
+    private static List<Long> selectGroupClosure(
+            Connection connection, String column, String keyColumn, long id) throws SQLException {
+        List<Long> result = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + column + " FROM " + GROUP_CLOSURE_STORAGE_NAME + " WHERE " + keyColumn + " = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> getAncestors(Connection connection, long groupId) throws SQLException {
+        return selectGroupClosure(connection, "parentId", "groupId", groupId);
+    }
+
+    private static List<Long> getDescendants(Connection connection, long groupId) throws SQLException {
+        return selectGroupClosure(connection, "groupId", "parentId", groupId);
+    }
+
+    private static void executeGroupClosure(
+            Connection connection, String query, Collection<Long> parentIds, Collection<Long> groupIds)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (long parentId : parentIds) {
+                for (long groupId : groupIds) {
+                    statement.setLong(1, parentId);
+                    statement.setLong(2, groupId);
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void insertGroupClosure(
+            Connection connection, Collection<Long> parentIds, Collection<Long> groupIds) throws SQLException {
+        executeGroupClosure(connection,
+                "INSERT INTO " + GROUP_CLOSURE_STORAGE_NAME + " (parentId, groupId) VALUES (?, ?)",
+                parentIds, groupIds);
+    }
+
+    private static void deleteGroupClosure(
+            Connection connection, Collection<Long> parentIds, Collection<Long> groupIds) throws SQLException {
+        executeGroupClosure(connection,
+                "DELETE FROM " + GROUP_CLOSURE_STORAGE_NAME + " WHERE parentId = ? AND groupId = ?",
+                parentIds, groupIds);
+    }
+
+    private static void addGroupClosure(Connection connection, long groupId, long parentId) throws SQLException {
+        List<Long> ancestors = new ArrayList<>(List.of(groupId));
+        if (parentId > 0) {
+            ancestors.addAll(getAncestors(connection, parentId));
+        }
+        insertGroupClosure(connection, ancestors, List.of(groupId));
+    }
+
+    /**
+     * Detaches the subtree from its old ancestors and links it to the ancestors of the new parent, so only rows
+     * between those two sets change.
+     */
+    private static boolean moveGroupClosure(Connection connection, long groupId, long parentId) throws SQLException {
+        List<Long> descendants = getDescendants(connection, groupId);
+        if (!descendants.contains(groupId)) {
+            return false;
+        }
+        List<Long> oldAncestors = new ArrayList<>(getAncestors(connection, groupId));
+        oldAncestors.remove(Long.valueOf(groupId));
+        deleteGroupClosure(connection, oldAncestors, descendants);
+        if (parentId > 0) {
+            List<Long> newAncestors = getAncestors(connection, parentId);
+            if (newAncestors.contains(groupId)) {
+                return false;
+            }
+            insertGroupClosure(connection, newAncestors, descendants);
+        }
+        return true;
+    }
+
+    /**
+     * Returns rows linking each group and its subtree to the group and its ancestors. Children of a removed group are
+     * detached rather than removed, so these rows have to be collected before the group is deleted.
+     */
+    private List<long[]> getGroupClosure(Collection<Long> groupIds) throws StorageException {
+        List<long[]> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (long groupId : groupIds) {
+                List<Long> descendants = getDescendants(connection, groupId);
+                for (long parentId : getAncestors(connection, groupId)) {
+                    for (long descendantId : descendants) {
+                        result.add(new long[] {parentId, descendantId});
+                    }
+                }
+            }
         } catch (SQLException e) {
             throw new StorageException(e);
         }
+        return result;
+    }
+
+    private void removeGroupClosure(List<long[]> closure) throws StorageException {
+        if (closure.isEmpty()) {
+            return;
+        }
+        updateGroupClosure(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + GROUP_CLOSURE_STORAGE_NAME + " WHERE parentId = ? AND groupId = ?")) {
+                for (long[] row : closure) {
+                    statement.setLong(1, row[0]);
+                    statement.setLong(2, row[1]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return true;
+        });
+    }
+
+    private String getInsertQuery(Class<?> clazz, List<String> columns) throws StorageException {
+        return getQuery(new QueryShape("INSERT", clazz, columns, null, null), () -> {
+            StringBuilder result = new StringBuilder("INSERT INTO ");
+            result.append(getStorageName(clazz));
+            result.append("(");
+            result.append(formatColumns(columns, c -> c));
+            result.append(") VALUES (");
+            result.append(formatColumns(columns, c -> "?"));
+            result.append(")");
+            return result.toString();
+        });
+    }
+
+    private String getUpdateQuery(
+            Class<?> clazz, List<String> columns, Condition condition) throws StorageException {
+        return getQuery(new QueryShape("UPDATE", clazz, columns, getConditionShape(condition), null), () -> {
+            StringBuilder result = new StringBuilder("UPDATE ");
+            result.append(getStorageName(clazz));
+            result.append(" SET ");
+            result.append(formatColumns(columns, c -> c + " = ?"));
+            result.append(formatCondition(condition));
+            return result.toString();
+        });
+    }
+
+    private String getDeleteQuery(Class<?> clazz, Condition condition) throws StorageException {
+        return getQuery(new QueryShape("DELETE", clazz, null, getConditionShape(condition), null), () -> {
+            StringBuilder result = new StringBuilder("DELETE FROM ");
+            result.append(getStorageName(clazz));
+            result.append(formatCondition(condition));
+            return result.toString();
+        });
     }
 
     @Override
@@ -208,6 +781,80 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    private record QueryShape(String type, Class<?> clazz, List<String> columns, Object condition, Object order) {
+    }
+
+    private record CompareShape(String column, String operator) {
+    }
+
+    private record BetweenShape(String column) {
+    }
+
+    private record InShape(String column, int size) {
+    }
+
+    private record BinaryShape(String operator, Object first, Object second) {
+    }
+
+    private record PermissionShape(
+            Class<?> ownerClass, Class<?> propertyClass, boolean ownerCondition, boolean includeGroups) {
+    }
+
+    private record LatestPositionsShape(boolean deviceCondition) {
+    }
+
+    private record OrderShape(String column, boolean descending, int limit, boolean offset, boolean keyset) {
+    }
+
+    private interface QueryFormatter {
+        String format() throws StorageException;
+    }
+
+    private String getQuery(QueryShape shape, QueryFormatter formatter) throws StorageException {
+        String query;
+        synchronized (queryCache) {
+            query = queryCache.get(shape);
+        }
+        if (query == null) {
+            query = formatter.format();
+            synchronized (queryCache) {
+                queryCache.put(shape, query);
+            }
+        }
+        return query;
+    }
+
+    private Object getConditionShape(Condition genericCondition) {
+        if (genericCondition instanceof Condition.Compare condition) {
+            return new CompareShape(condition.getColumn(), condition.getOperator());
+        } else if (genericCondition instanceof Condition.Between condition) {
+            return new BetweenShape(condition.getColumn());
+        } else if (genericCondition instanceof Condition.In condition) {
+            return new InShape(condition.getColumn(), condition.getValues().size());
+        } else if (genericCondition instanceof Condition.Binary condition) {
+            return new BinaryShape(
+                    condition.getOperator(),
+                    getConditionShape(condition.getFirst()),
+                    getConditionShape(condition.getSecond()));
+        } else if (genericCondition instanceof Condition.Permission condition) {
+            return new PermissionShape(
+                    condition.getOwnerClass(), condition.getPropertyClass(),
+                    condition.getOwnerId() > 0, condition.getIncludeGroups());
+        } else if (genericCondition instanceof Condition.LatestPositions condition) {
+            return new LatestPositionsShape(condition.getDeviceId() > 0);
+        }
+        return null;
+    }
+
+    private Object getOrderShape(Order order) {
+        if (order != null) {
+            return new OrderShape(
+                    order.getColumn(), order.getDescending(), order.getLimit(), order.getOffset() > 0,
+                    order.getKeyset());
+        }
+        return null;
+    }
+
     private String getStorageName(Class<?> clazz) throws StorageException {
         StorageName storageName = clazz.getAnnotation(StorageName.class);
         if (storageName == null) {
@@ -223,6 +870,8 @@ public class DatabaseStorage extends Storage {
         } else if (genericCondition instanceof Condition.Between condition) {
             results.add(condition.getFromValue());
             results.add(condition.getToValue());
+        } else if (genericCondition instanceof Condition.In condition) {
+            results.addAll(condition.getValues());
         } else if (genericCondition instanceof Condition.Binary condition) {
             results.addAll(getConditionVariables(condition.getFirst()));
             results.addAll(getConditionVariables(condition.getSecond()));
@@ -266,6 +915,17 @@ public class DatabaseStorage extends Storage {
                 result.append(condition.getColumn());
                 result.append(" BETWEEN ? AND ?");
 
+            } else if (genericCondition instanceof Condition.In condition) {
+
+                if (condition.getValues().isEmpty()) {
+                    result.append("1 = 0");
+                } else {
+                    result.append(condition.getColumn());
+                    result.append(" IN (");
+                    result.append(String.join(", ", Collections.nCopies(condition.getValues().size(), "?")));
+                    result.append(")");
+                }
+
             } else if (genericCondition instanceof Condition.Binary condition) {
 
                 if (genericCondition instanceof Condition.Or) {
@@ -309,14 +969,28 @@ public class DatabaseStorage extends Storage {
             if (order.getDescending()) {
                 result.append(" DESC");
             }
-            if (order.getLimit() > 0) {
-                if (databaseType.equals("Microsoft SQL Server")) {
-                    result.append(" OFFSET 0 ROWS FETCH FIRST ");
+            if (order.getKeyset()) {
+                result.append(", id");
+                if (order.getDescending()) {
+                    result.append(" DESC");
+                }
+            }
+            if (databaseType.equals("Microsoft SQL Server")) {
+                if (order.getLimit() > 0 || order.getOffset() > 0) {
+                    result.append(order.getOffset() > 0 ? " OFFSET ? ROWS" : " OFFSET 0 ROWS");
+                }
+                if (order.getLimit() > 0) {
+                    result.append(" FETCH NEXT ");
                     result.append(order.getLimit());
                     result.append(" ROWS ONLY");
-                } else {
+                }
+            } else {
+                if (order.getLimit() > 0 || order.getOffset() > 0) {
                     result.append(" LIMIT ");
-                    result.append(order.getLimit());
+                    result.append(order.getLimit() > 0 ? order.getLimit() : Integer.MAX_VALUE);
+                }
+                if (order.getOffset() > 0) {
+                    result.append(" OFFSET ?");
                 }
             }
         }
@@ -371,22 +1045,9 @@ public class DatabaseStorage extends Storage {
             result.append(" FROM ");
             result.append(groupStorageName);
 
-            result.append(" INNER JOIN (");
-            result.append("SELECT id as parentId, id as groupId FROM ");
-            result.append(getStorageName(Group.class));
-            result.append(" UNION ");
-            result.append("SELECT groupId as parentId, id as groupId FROM ");
-            result.append(getStorageName(Group.class));
-            result.append(" WHERE groupId IS NOT NULL");
-            result.append(" UNION ");
-            result.append("SELECT g2.groupId as parentId, g1.id as groupId FROM ");
-            result.append(getStorageName(Group.class));
-            result.append(" AS g2");
             result.append(" INNER JOIN ");
-            result.append(getStorageName(Group.class));
-            result.append(" AS g1 ON g2.id = g1.groupId");
-            result.append(" WHERE g2.groupId IS NOT NULL");
-            result.append(") AS all_groups ON ");
+            result.append(GROUP_CLOSURE_STORAGE_NAME);
+            result.append(" AS all_groups ON ");
             result.append(groupStorageName);
             result.append(".groupId = all_groups.parentId");
 
@@ -21,10 +21,13 @@ import org.traccar.model.Pair;
 import org.traccar.model.Permission;
 import org.traccar.model.Server;
 import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
 import org.traccar.storage.query.Request;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -56,9 +59,33 @@ public class MemoryStorage extends Storage {
 
     @Override
     public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) {
+        Condition condition = request.getFullCondition();
+        Stream<Object> stream = objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
+                .filter(object -> checkCondition(condition, object));
+        Order order = request.getOrder();
+        if (order != null) {
+            Comparator<Object> comparator = Comparator.comparing(
+                    object -> (Comparable) retrieveValue(object, order.getColumn()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.getKeyset()) {
+                comparator = comparator.thenComparing(object -> (Long) retrieveValue(object, "id"));
+            }
+            stream = stream.sorted(order.getDescending() ? comparator.reversed() : comparator);
+            if (order.getOffset() > 0) {
+                stream = stream.skip(order.getOffset());
+            }
+            if (order.getLimit() > 0) {
+                stream = stream.limit(order.getLimit());
+            }
+        }
+        return stream.map(object -> (T) object);
+    }
+
+    @Override
+    public long countObjects(Class<?> clazz, Request request) {
         return objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
                 .filter(object -> checkCondition(request.getCondition(), object))
-                .map(object -> (T) object);
+                .count();
     }
 
     private boolean checkCondition(Condition genericCondition, Object object) {
@@ -76,6 +103,7 @@ public class MemoryStorage extends Storage {
                 case ">" -> result > 0;
                 case ">=" -> result >= 0;
                 case "=" -> result == 0;
+                case "<>" -> result != 0;
                 default -> throw new RuntimeException("Unsupported comparison condition");
             };
 
@@ -87,6 +115,10 @@ public class MemoryStorage extends Storage {
             int toResult = ((Comparable) toValue).compareTo(condition.getToValue());
             return fromResult >= 0 && toResult <= 0;
 
+        } else if (genericCondition instanceof Condition.In condition) {
+
+            return condition.getValues().contains(retrieveValue(object, condition.getColumn()));
+
         } else if (genericCondition instanceof Condition.Binary condition) {
 
             if (condition.getOperator().equals("AND")) {
@@ -128,10 +160,23 @@ public class MemoryStorage extends Storage {
     @Override
     public <T> long addObject(T entity, Request request) {
         long id = increment.incrementAndGet();
+        if (entity instanceof BaseModel model) {
+            // stored rows carry their generated id, same as in the database
+            model.setId(id);
+        }
         objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).put(id, entity);
         return id;
     }
 
+    @Override
+    public <T> List<Long> addObjects(List<T> entities, Request request) {
+        List<Long> result = new ArrayList<>();
+        for (T entity : entities) {
+            result.add(addObject(entity, request));
+        }
+        return result;
+    }
+
     @Override
     public <T> void updateObject(T entity, Request request) {
         Collection<Object> items;
@@ -156,10 +201,22 @@ public class MemoryStorage extends Storage {
         }
     }
 
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) {
+        for (T entity : entities) {
+            updateObject(entity, new Request(request.getColumns(), new Condition.Equals("id", entity.getId())));
+        }
+    }
+
     @Override
     public void removeObject(Class<?> clazz, Request request) {
-        long id = (Long) ((Condition.Equals) request.getCondition()).getValue();
-        objects.computeIfAbsent(clazz, key -> new HashMap<>()).remove(id);
+        objects.computeIfAbsent(clazz, key -> new HashMap<>()).values()
+                .removeIf(object -> checkCondition(request.getCondition(), object));
+    }
+
+    @Override
+    public void removeObjects(Class<?> clazz, Collection<Long> ids) {
+        objects.computeIfAbsent(clazz, key -> new HashMap<>()).keySet().removeAll(ids);
     }
 
     private Set<Pair<Long, Long>> getPermissionsSet(Class<?> ownerClass, Class<?> propertyClass) {
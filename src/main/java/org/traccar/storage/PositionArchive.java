@@ -0,0 +1,314 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Singleton
+public class PositionArchive {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionArchive.class);
+
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String RANGE_EXTENSION = ".ids";
+
+    private static final DateTimeFormatter SEGMENT_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final ObjectMapper objectMapper;
+    private final Path root;
+
+    private record Segment(Path file, long minId, long maxId) {
+        boolean containsAny(Collection<Long> ids) {
+            return ids.stream().anyMatch(id -> id >= minId && id <= maxId);
+        }
+    }
+
+    private final Map<Long, NavigableMap<YearMonth, Segment>> segments = new ConcurrentHashMap<>();
+
+    @Inject
+    public PositionArchive(Config config, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        String path = config.getString(Keys.ARCHIVE_PATH);
+        root = path != null ? Paths.get(path) : null;
+        if (root != null) {
+            Files.createDirectories(root);
+            try (DirectoryStream<Path> devices = Files.newDirectoryStream(root)) {
+                for (Path device : devices) {
+                    loadSegments(device);
+                }
+            }
+        }
+    }
+
+    private void loadSegments(Path device) throws IOException {
+        long deviceId;
+        try {
+            deviceId = Long.parseLong(device.getFileName().toString());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(device, "*" + SEGMENT_EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    String base = name.substring(0, name.length() - SEGMENT_EXTENSION.length());
+                    YearMonth month = YearMonth.parse(base, SEGMENT_NAME_FORMAT);
+                    getSegments(deviceId).put(month, loadSegment(file, device.resolve(base + RANGE_EXTENSION)));
+                } catch (DateTimeParseException e) {
+                    LOGGER.warn("Unexpected archive file {}", file);
+                }
+            }
+        }
+    }
+
+    private static Segment loadSegment(Path file, Path range) throws IOException {
+        if (Files.exists(range)) {
+            try (DataInputStream input = new DataInputStream(Files.newInputStream(range))) {
+                return new Segment(file, input.readLong(), input.readLong());
+            }
+        }
+        return new Segment(file, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private NavigableMap<YearMonth, Segment> getSegments(long deviceId) {
+        return segments.computeIfAbsent(deviceId, key -> new ConcurrentSkipListMap<>());
+    }
+
+    private static Date getStart(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    public boolean isEnabled() {
+        return root != null;
+    }
+
+    /**
+     * Returns the time before which positions of the device are served from the archive, or null if nothing is
+     * archived for the device.
+     */
+    public Date getHorizon(long deviceId) {
+        NavigableMap<YearMonth, Segment> deviceSegments = segments.get(deviceId);
+        if (deviceSegments == null || deviceSegments.isEmpty()) {
+            return null;
+        }
+        return getStart(deviceSegments.lastKey().plusMonths(1));
+    }
+
+    public boolean contains(long deviceId, YearMonth month) {
+        NavigableMap<YearMonth, Segment> deviceSegments = segments.get(deviceId);
+        return deviceSegments != null && deviceSegments.containsKey(month);
+    }
+
+    /**
+     * Writes the segment for the month, replacing an existing one. The id range of the segment is stored next to it
+     * for lookups by id.
+     */
+    public void write(long deviceId, YearMonth month, Stream<Position> positions) throws IOException {
+        Path directory = root.resolve(String.valueOf(deviceId));
+        Files.createDirectories(directory);
+        String base = month.format(SEGMENT_NAME_FORMAT);
+        Path file = directory.resolve(base + SEGMENT_EXTENSION);
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        try (OutputStream output = Files.newOutputStream(temporary);
+             ArchiveSegmentWriter writer = new ArchiveSegmentWriter(output, objectMapper)) {
+            Iterator<Position> iterator = positions.iterator();
+            while (iterator.hasNext()) {
+                Position position = iterator.next();
+                writer.write(position);
+                minId = Math.min(minId, position.getId());
+                maxId = Math.max(maxId, position.getId());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Path range = directory.resolve(base + RANGE_EXTENSION);
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(range))) {
+            output.writeLong(minId);
+            output.writeLong(maxId);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        getSegments(deviceId).put(month, new Segment(file, minId, maxId));
+    }
+
+    public Stream<Position> getPositions(long deviceId, Date from, Date to) {
+        NavigableMap<YearMonth, Segment> deviceSegments = segments.get(deviceId);
+        if (deviceSegments == null) {
+            return Stream.empty();
+        }
+        YearMonth first = YearMonth.from(from.toInstant().atZone(ZoneOffset.UTC));
+        YearMonth last = YearMonth.from(to.toInstant().atZone(ZoneOffset.UTC));
+        return deviceSegments.subMap(first, true, last, true).values().stream()
+                .flatMap(segment -> readSegment(deviceId, segment.file()))
+                .filter(position -> !position.getFixTime().before(from) && !position.getFixTime().after(to));
+    }
+
+    /**
+     * Looks up archived positions by id. Only segments with a matching id range are read.
+     */
+    public List<Position> getPositions(Collection<Long> ids) {
+        Set<Long> remaining = new HashSet<>(ids);
+        List<Position> result = new ArrayList<>();
+        for (var deviceEntry : segments.entrySet()) {
+            for (Segment segment : deviceEntry.getValue().values()) {
+                if (remaining.isEmpty()) {
+                    return result;
+                }
+                if (segment.containsAny(remaining)) {
+                    try (var positions = readSegment(deviceEntry.getKey(), segment.file())) {
+                        positions.filter(position -> remaining.remove(position.getId())).forEach(result::add);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges archived positions with positions from the database, both ordered by fix time. Archived copies of the
+     * database positions are skipped.
+     */
+    public static Stream<Position> merge(Stream<Position> archived, List<Position> stored) {
+        if (stored.isEmpty()) {
+            return archived;
+        }
+        Set<Long> storedIds = new HashSet<>();
+        stored.forEach(position -> storedIds.add(position.getId()));
+        Comparator<Position> comparator = Comparator.comparing(Position::getFixTime);
+        Iterator<Position> first = archived.filter(position -> !storedIds.contains(position.getId())).iterator();
+        Iterator<Position> second = stored.iterator();
+        Iterator<Position> iterator = new Iterator<>() {
+            private Position nextFirst = first.hasNext() ? first.next() : null;
+            private Position nextSecond = second.hasNext() ? second.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextFirst != null || nextSecond != null;
+            }
+
+            @Override
+            public Position next() {
+                Position result;
+                if (nextFirst != null && (nextSecond == null || comparator.compare(nextFirst, nextSecond) <= 0)) {
+                    result = nextFirst;
+                    nextFirst = first.hasNext() ? first.next() : null;
+                } else if (nextSecond != null) {
+                    result = nextSecond;
+                    nextSecond = second.hasNext() ? second.next() : null;
+                } else {
+                    throw new NoSuchElementException();
+                }
+                return result;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(archived::close);
+    }
+
+    private Stream<Position> readSegment(long deviceId, Path file) {
+        ArchiveSegmentReader reader;
+        try {
+            InputStream input = Files.newInputStream(file);
+            try {
+                reader = new ArchiveSegmentReader(input, objectMapper, deviceId);
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Iterator<Position> iterator = new Iterator<>() {
+            private Position next = readNext();
+
+            private Position readNext() {
+                try {
+                    return reader.read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Position next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Position result = next;
+                next = readNext();
+                return result;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        LOGGER.warn("Failed to close archive segment", e);
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+final class PropertyAccessors {
+
+    private PropertyAccessors() {
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    interface BooleanGetter {
+        boolean get(Object object);
+    }
+
+    interface IntGetter {
+        int get(Object object);
+    }
+
+    interface LongGetter {
+        long get(Object object);
+    }
+
+    interface DoubleGetter {
+        double get(Object object);
+    }
+
+    interface ObjectGetter {
+        Object get(Object object);
+    }
+
+    interface BooleanSetter {
+        void set(Object object, boolean value);
+    }
+
+    interface IntSetter {
+        void set(Object object, int value);
+    }
+
+    interface LongSetter {
+        void set(Object object, long value);
+    }
+
+    interface DoubleSetter {
+        void set(Object object, double value);
+    }
+
+    interface ObjectSetter {
+        void set(Object object, Object value);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> constructor(Class<?> clazz) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(clazz, MethodType.methodType(void.class));
+            return generate(Supplier.class, "get", MethodType.methodType(Object.class), handle);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Missing default constructor for " + clazz.getName(), e);
+        }
+    }
+
+    static <T> T getter(Class<T> type, Method method) {
+        Class<?> valueType = method.getReturnType().isPrimitive() ? method.getReturnType() : Object.class;
+        return generate(type, "get", MethodType.methodType(valueType, Object.class), unreflect(method));
+    }
+
+    static <T> T setter(Class<T> type, Method method) {
+        Class<?> parameterType = method.getParameterTypes()[0];
+        Class<?> valueType = parameterType.isPrimitive() ? parameterType : Object.class;
+        return generate(type, "set", MethodType.methodType(void.class, Object.class, valueType), unreflect(method));
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Inaccessible property method " + method, e);
+        }
+    }
+
+    private static <T> T generate(Class<T> type, String name, MethodType erasedType, MethodHandle handle) {
+        MethodType instantiatedType = handle.type();
+        if (erasedType.returnType() == void.class) {
+            instantiatedType = instantiatedType.changeReturnType(void.class);
+        }
+        try {
+            CallSite callSite = LambdaMetafactory.metafactory(
+                    LOOKUP, name, MethodType.methodType(type), erasedType, handle, instantiatedType);
+            return type.cast(callSite.getTarget().invoke());
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Accessor generation failed for " + handle, e);
+        }
+    }
+
+}
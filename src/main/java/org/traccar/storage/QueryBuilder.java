@@ -37,12 +37,16 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -51,6 +55,8 @@ public final class QueryBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryBuilder.class);
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final Config config;
     private final ObjectMapper objectMapper;
 
@@ -58,6 +64,7 @@ public final class QueryBuilder {
     private PreparedStatement statement;
     private final String query;
     private final boolean returnGeneratedKeys;
+    private boolean restoreAutoCommit;
 
     private QueryBuilder(
             Config config, DataSource dataSource, ObjectMapper objectMapper,
@@ -72,7 +79,8 @@ public final class QueryBuilder {
                 if (returnGeneratedKeys) {
                     statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
                 } else {
-                    statement = connection.prepareStatement(query);
+                    statement = connection.prepareStatement(
+                            query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
                 }
             } catch (SQLException error) {
                 connection.close();
@@ -181,68 +189,151 @@ public final class QueryBuilder {
     }
 
     public QueryBuilder setObject(Object object, List<String> columns) throws SQLException {
+        Map<String, ParameterBinder> binders = getBinders(object.getClass());
         try {
             for (int index = 0; index < columns.size(); index++) {
-                String column = columns.get(index);
-                Method method = ReflectionCache.getProperties(object.getClass(), "get").get(column).method();
-                if (method.getReturnType().equals(boolean.class)) {
-                    setBoolean(index, (Boolean) method.invoke(object));
-                } else if (method.getReturnType().equals(int.class)) {
-                    setInteger(index, (Integer) method.invoke(object));
-                } else if (method.getReturnType().equals(long.class)) {
-                    setLong(index, (Long) method.invoke(object), column.endsWith("Id"));
-                } else if (method.getReturnType().equals(double.class)) {
-                    setDouble(index, (Double) method.invoke(object));
-                } else if (method.getReturnType().equals(String.class)) {
-                    setString(index, (String) method.invoke(object));
-                } else if (method.getReturnType().equals(Date.class)) {
-                    setDate(index, (Date) method.invoke(object));
-                } else if (method.getReturnType().equals(byte[].class)) {
-                    setBlob(index, (byte[]) method.invoke(object));
-                } else {
-                    setString(index, objectMapper.writeValueAsString(method.invoke(object)));
-                }
+                binders.get(columns.get(index)).bind(statement, index + 1, object, objectMapper);
             }
-        } catch (ReflectiveOperationException | JsonProcessingException e) {
+        } catch (JsonProcessingException e) {
             LOGGER.warn("Set object error", e);
+        } catch (SQLException error) {
+            statement.close();
+            connection.close();
+            throw error;
         }
 
         return this;
     }
 
-    private interface ResultSetProcessor<T> {
-        void process(T object, ResultSet resultSet) throws ReflectiveOperationException, IOException, SQLException;
+    private interface ParameterBinder {
+        void bind(
+                PreparedStatement statement, int index, Object object,
+                ObjectMapper objectMapper) throws SQLException, JsonProcessingException;
+    }
+
+    private interface ColumnReader {
+        void read(
+                Object object, ResultSet resultSet, int index,
+                ObjectMapper objectMapper) throws SQLException, IOException;
+    }
+
+    private static final Map<Class<?>, Map<String, ParameterBinder>> BINDERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, ColumnReader>> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Supplier<Object>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private static Map<String, ParameterBinder> getBinders(Class<?> clazz) {
+        return BINDERS.computeIfAbsent(clazz, key -> {
+            Map<String, ParameterBinder> binders = new HashMap<>();
+            for (var entry : ReflectionCache.getProperties(key, "get").entrySet()) {
+                binders.put(entry.getKey(), createBinder(entry.getKey(), entry.getValue().method()));
+            }
+            return binders;
+        });
+    }
+
+    private static Map<String, ColumnReader> getReaders(Class<?> clazz) {
+        return READERS.computeIfAbsent(clazz, key -> {
+            Map<String, ColumnReader> readers = new HashMap<>();
+            for (var entry : ReflectionCache.getProperties(key, "set").entrySet()) {
+                readers.put(entry.getKey(), createReader(entry.getValue().method()));
+            }
+            return readers;
+        });
+    }
+
+    private static ParameterBinder createBinder(String name, Method method) {
+        Class<?> type = method.getReturnType();
+        if (type.equals(boolean.class)) {
+            var getter = PropertyAccessors.getter(PropertyAccessors.BooleanGetter.class, method);
+            return (statement, index, object, objectMapper) -> statement.setBoolean(index, getter.get(object));
+        } else if (type.equals(int.class)) {
+            var getter = PropertyAccessors.getter(PropertyAccessors.IntGetter.class, method);
+            return (statement, index, object, objectMapper) -> statement.setInt(index, getter.get(object));
+        } else if (type.equals(long.class)) {
+            var getter = PropertyAccessors.getter(PropertyAccessors.LongGetter.class, method);
+            if (name.endsWith("Id")) {
+                return (statement, index, object, objectMapper) -> {
+                    long value = getter.get(object);
+                    if (value == 0) {
+                        statement.setNull(index, Types.BIGINT);
+                    } else {
+                        statement.setLong(index, value);
+                    }
+                };
+            }
+            return (statement, index, object, objectMapper) -> statement.setLong(index, getter.get(object));
+        } else if (type.equals(double.class)) {
+            var getter = PropertyAccessors.getter(PropertyAccessors.DoubleGetter.class, method);
+            return (statement, index, object, objectMapper) -> statement.setDouble(index, getter.get(object));
+        }
+        var getter = PropertyAccessors.getter(PropertyAccessors.ObjectGetter.class, method);
+        if (type.equals(String.class)) {
+            return (statement, index, object, objectMapper) -> {
+                String value = (String) getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.VARCHAR);
+                } else {
+                    statement.setString(index, value);
+                }
+            };
+        } else if (type.equals(Date.class)) {
+            return (statement, index, object, objectMapper) -> {
+                Date value = (Date) getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.TIMESTAMP);
+                } else {
+                    statement.setTimestamp(index, new Timestamp(value.getTime()));
+                }
+            };
+        } else if (type.equals(byte[].class)) {
+            return (statement, index, object, objectMapper) -> {
+                byte[] value = (byte[]) getter.get(object);
+                if (value == null) {
+                    statement.setNull(index, Types.BLOB);
+                } else {
+                    statement.setBytes(index, value);
+                }
+            };
+        } else {
+            return (statement, index, object, objectMapper) ->
+                    statement.setString(index, objectMapper.writeValueAsString(getter.get(object)));
+        }
     }
 
-    private <T> void addProcessors(
-            List<ResultSetProcessor<T>> processors,
-            final Class<?> parameterType, final Method method, final String name) {
-        if (parameterType.equals(boolean.class)) {
-            processors.add((object, resultSet) -> method.invoke(object, resultSet.getBoolean(name)));
-        } else if (parameterType.equals(int.class)) {
-            processors.add((object, resultSet) -> method.invoke(object, resultSet.getInt(name)));
-        } else if (parameterType.equals(long.class)) {
-            processors.add((object, resultSet) -> method.invoke(object, resultSet.getLong(name)));
-        } else if (parameterType.equals(double.class)) {
-            processors.add((object, resultSet) -> method.invoke(object, resultSet.getDouble(name)));
-        } else if (parameterType.equals(String.class)) {
-            processors.add((object, resultSet) -> method.invoke(object, resultSet.getString(name)));
-        } else if (parameterType.equals(Date.class)) {
-            processors.add((object, resultSet) -> {
-                Timestamp timestamp = resultSet.getTimestamp(name);
+    private static ColumnReader createReader(Method method) {
+        Class<?> type = method.getParameterTypes()[0];
+        if (type.equals(boolean.class)) {
+            var setter = PropertyAccessors.setter(PropertyAccessors.BooleanSetter.class, method);
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getBoolean(index));
+        } else if (type.equals(int.class)) {
+            var setter = PropertyAccessors.setter(PropertyAccessors.IntSetter.class, method);
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getInt(index));
+        } else if (type.equals(long.class)) {
+            var setter = PropertyAccessors.setter(PropertyAccessors.LongSetter.class, method);
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getLong(index));
+        } else if (type.equals(double.class)) {
+            var setter = PropertyAccessors.setter(PropertyAccessors.DoubleSetter.class, method);
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getDouble(index));
+        }
+        var setter = PropertyAccessors.setter(PropertyAccessors.ObjectSetter.class, method);
+        if (type.equals(String.class)) {
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getString(index));
+        } else if (type.equals(Date.class)) {
+            return (object, resultSet, index, objectMapper) -> {
+                Timestamp timestamp = resultSet.getTimestamp(index);
                 if (timestamp != null) {
-                    method.invoke(object, new Date(timestamp.getTime()));
+                    setter.set(object, new Date(timestamp.getTime()));
                 }
-            });
-        } else if (parameterType.equals(byte[].class)) {
-            processors.add((object, resultSet) -> method.invoke(object, (Object) resultSet.getBytes(name)));
+            };
+        } else if (type.equals(byte[].class)) {
+            return (object, resultSet, index, objectMapper) -> setter.set(object, resultSet.getBytes(index));
         } else {
-            processors.add((object, resultSet) -> {
-                String value = resultSet.getString(name);
+            return (object, resultSet, index, objectMapper) -> {
+                String value = resultSet.getString(index);
                 if (value != null && !value.isEmpty()) {
-                    method.invoke(object, objectMapper.readValue(value, parameterType));
+                    setter.set(object, objectMapper.readValue(value, type));
                 }
-            });
+            };
         }
     }
 
@@ -253,12 +344,35 @@ public final class QueryBuilder {
     }
 
     public <T> List<T> executeQuery(Class<T> clazz) throws SQLException {
-        try (var stream = executeQueryStreamed(clazz)) {
+        try (var stream = readObjects(clazz)) {
             return stream.toList();
         }
     }
 
+    /**
+     * Reads rows as they are consumed. Drivers buffer the whole result by default, so the statement is switched to
+     * incremental fetching first.
+     */
     public <T> Stream<T> executeQueryStreamed(Class<T> clazz) throws SQLException {
+        if (query != null) {
+            setValue(() -> {
+                if (connection.getMetaData().getDatabaseProductName().equals("MySQL")) {
+                    // MySQL driver only streams forward-only read-only results with this fetch size
+                    statement.setFetchSize(Integer.MIN_VALUE);
+                } else {
+                    // PostgreSQL driver only uses a cursor outside of auto-commit mode
+                    if (connection.getAutoCommit()) {
+                        connection.setAutoCommit(false);
+                        restoreAutoCommit = true;
+                    }
+                    statement.setFetchSize(STREAM_FETCH_SIZE);
+                }
+            });
+        }
+        return readObjects(clazz);
+    }
+
+    private <T> Stream<T> readObjects(Class<T> clazz) throws SQLException {
         if (query == null) {
             return Stream.empty();
         }
@@ -269,21 +383,20 @@ public final class QueryBuilder {
             resultSet = statement.executeQuery();
             ResultSetMetaData resultMetaData = resultSet.getMetaData();
 
-            List<ResultSetProcessor<T>> processors = new ArrayList<>();
-            for (var entry : ReflectionCache.getProperties(clazz, "set").entrySet()) {
-                final String name = entry.getKey();
-                boolean column = false;
+            Supplier<Object> constructor = CONSTRUCTORS.computeIfAbsent(clazz, PropertyAccessors::constructor);
+            List<ColumnReader> readers = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            for (var entry : getReaders(clazz).entrySet()) {
                 for (int i = 1; i <= resultMetaData.getColumnCount(); i++) {
-                    if (name.equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
-                        column = true;
+                    if (entry.getKey().equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
+                        readers.add(entry.getValue());
+                        indexes.add(i);
                         break;
                     }
                 }
-                if (column) {
-                    Method method = entry.getValue().method();
-                    addProcessors(processors, method.getParameterTypes()[0], method, name);
-                }
             }
+            final ColumnReader[] columnReaders = readers.toArray(new ColumnReader[0]);
+            final int[] columnIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
 
             final ResultSet retainedResultSet = resultSet;
             return StreamSupport.stream(
@@ -292,11 +405,12 @@ public final class QueryBuilder {
                         public boolean tryAdvance(Consumer<? super T> action) {
                             try {
                                 if (retainedResultSet.next()) {
-                                    T object = clazz.getDeclaredConstructor().newInstance();
-                                    for (ResultSetProcessor<T> processor : processors) {
+                                    T object = clazz.cast(constructor.get());
+                                    for (int i = 0; i < columnReaders.length; i++) {
                                         try {
-                                            processor.process(object, retainedResultSet);
-                                        } catch (ReflectiveOperationException | IOException error) {
+                                            columnReaders[i].read(
+                                                    object, retainedResultSet, columnIndexes[i], objectMapper);
+                                        } catch (IOException error) {
                                             LOGGER.warn("Set property error", error);
                                         }
                                     }
@@ -305,7 +419,7 @@ public final class QueryBuilder {
                                 } else {
                                     return false;
                                 }
-                            } catch (SQLException | ReflectiveOperationException e) {
+                            } catch (SQLException e) {
                                 throw new RuntimeException(e);
                             }
                         }
@@ -323,12 +437,37 @@ public final class QueryBuilder {
                 resultSet.close();
             }
             statement.close();
-            connection.close();
+            try {
+                if (restoreAutoCommit) {
+                    // nothing is written by the query, the read transaction is discarded
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                connection.close();
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public long executeCount() throws SQLException {
+        if (query != null) {
+            try {
+                logQuery();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getLong(1);
+                    }
+                }
+            } finally {
+                statement.close();
+                connection.close();
+            }
+        }
+        return 0;
+    }
+
     public long executeUpdate() throws SQLException {
         if (query != null) {
             try {
@@ -349,6 +488,41 @@ public final class QueryBuilder {
         return 0;
     }
 
+    public QueryBuilder addBatch() throws SQLException {
+        return setValue(() -> statement.addBatch());
+    }
+
+    public List<Long> executeBatch() throws SQLException {
+        List<Long> result = new ArrayList<>();
+        if (query != null) {
+            try {
+                logQuery();
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    statement.executeBatch();
+                    if (returnGeneratedKeys) {
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            while (resultSet.next()) {
+                                result.add(resultSet.getLong(1));
+                            }
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException error) {
+                    connection.rollback();
+                    throw error;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } finally {
+                statement.close();
+                connection.close();
+            }
+        }
+        return result;
+    }
+
     public List<Permission> executePermissionsQuery() throws SQLException {
         List<Permission> result = new LinkedList<>();
         if (query != null) {
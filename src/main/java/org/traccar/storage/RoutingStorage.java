@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.Permission;
+import org.traccar.storage.query.Request;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class RoutingStorage extends Storage {
+
+    private final Storage primary;
+    private final Storage replica;
+
+    public RoutingStorage(Storage primary, Storage replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    @Override
+    public <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException {
+        return replica.getObjects(clazz, request);
+    }
+
+    @Override
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
+        return replica.getObjectsStream(clazz, request);
+    }
+
+    @Override
+    public long countObjects(Class<?> clazz, Request request) throws StorageException {
+        return replica.countObjects(clazz, request);
+    }
+
+    @Override
+    public <T> long addObject(T entity, Request request) throws StorageException {
+        return primary.addObject(entity, request);
+    }
+
+    @Override
+    public <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException {
+        return primary.addObjects(entities, request);
+    }
+
+    @Override
+    public <T> void updateObject(T entity, Request request) throws StorageException {
+        primary.updateObject(entity, request);
+    }
+
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException {
+        primary.updateObjects(entities, request);
+    }
+
+    @Override
+    public void removeObject(Class<?> clazz, Request request) throws StorageException {
+        primary.removeObject(clazz, request);
+    }
+
+    @Override
+    public void removeObjects(Class<?> clazz, Collection<Long> ids) throws StorageException {
+        primary.removeObjects(clazz, ids);
+    }
+
+    @Override
+    public List<Permission> getPermissions(
+            Class<? extends BaseModel> ownerClass, long ownerId,
+            Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
+        // permission changes must be visible immediately, so they are never read from a lagging replica
+        return primary.getPermissions(ownerClass, ownerId, propertyClass, propertyId);
+    }
+
+    @Override
+    public void addPermission(Permission permission) throws StorageException {
+        primary.addPermission(permission);
+    }
+
+    @Override
+    public void removePermission(Permission permission) throws StorageException {
+        primary.removePermission(permission);
+    }
+
+    @Override
+    public boolean isPartitioned(Class<?> clazz) throws StorageException {
+        return primary.isPartitioned(clazz);
+    }
+
+    @Override
+    public void addPartition(Class<?> clazz, Date from, Date to) throws StorageException {
+        primary.addPartition(clazz, from, to);
+    }
+
+    @Override
+    public void removePartitions(Class<?> clazz, Date before) throws StorageException {
+        primary.removePartitions(clazz, before);
+    }
+
+}
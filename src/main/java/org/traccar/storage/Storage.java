@@ -19,6 +19,8 @@ import org.traccar.model.BaseModel;
 import org.traccar.model.Permission;
 import org.traccar.storage.query.Request;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -28,12 +30,20 @@ public abstract class Storage {
 
     public abstract <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException;
 
+    public abstract long countObjects(Class<?> clazz, Request request) throws StorageException;
+
     public abstract <T> long addObject(T entity, Request request) throws StorageException;
 
+    public abstract <T> List<Long> addObjects(List<T> entities, Request request) throws StorageException;
+
     public abstract <T> void updateObject(T entity, Request request) throws StorageException;
 
+    public abstract <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException;
+
     public abstract void removeObject(Class<?> clazz, Request request) throws StorageException;
 
+    public abstract void removeObjects(Class<?> clazz, Collection<Long> ids) throws StorageException;
+
     public abstract List<Permission> getPermissions(
             Class<? extends BaseModel> ownerClass, long ownerId,
             Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException;
@@ -48,6 +58,18 @@ public abstract class Storage {
         return getPermissions(ownerClass, 0, propertyClass, 0);
     }
 
+    public boolean isPartitioned(Class<?> clazz) throws StorageException {
+        return false;
+    }
+
+    public void addPartition(Class<?> clazz, Date from, Date to) throws StorageException {
+        throw new StorageException("Partitions are not supported");
+    }
+
+    public void removePartitions(Class<?> clazz, Date before) throws StorageException {
+        throw new StorageException("Partitions are not supported");
+    }
+
     public <T> T getObject(Class<T> clazz, Request request) throws StorageException {
         try (var objects = getObjectsStream(clazz, request)) {
             return objects.findFirst().orElse(null);
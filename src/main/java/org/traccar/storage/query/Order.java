@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2025 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,15 +20,41 @@ public class Order {
     private final String column;
     private final boolean descending;
     private final int limit;
+    private final int offset;
+    private final boolean keyset;
+    private final Object afterValue;
+    private final long afterId;
 
     public Order(String column) {
         this(column, false, 0);
     }
 
     public Order(String column, boolean descending, int limit) {
+        this(column, descending, limit, 0);
+    }
+
+    public Order(String column, boolean descending, int limit, int offset) {
+        this(column, descending, limit, offset, false, null, 0);
+    }
+
+    private Order(
+            String column, boolean descending, int limit, int offset,
+            boolean keyset, Object afterValue, long afterId) {
         this.column = column;
         this.descending = descending;
         this.limit = limit;
+        this.offset = offset;
+        this.keyset = keyset;
+        this.afterValue = afterValue;
+        this.afterId = afterId;
+    }
+
+    /**
+     * Keyset pagination, rows are ordered by the column and then by id, and only rows after the given column value
+     * and id are returned. Use zero id for the first page.
+     */
+    public Order after(Object value, long id) {
+        return new Order(column, descending, limit, offset, true, id > 0 ? value : null, id);
     }
 
     public String getColumn() {
@@ -43,4 +69,32 @@ public class Order {
         return limit;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean getKeyset() {
+        return keyset;
+    }
+
+    public Object getAfterValue() {
+        return afterValue;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public Condition getSeekCondition() {
+        if (afterId > 0) {
+            String operator = descending ? "<" : ">";
+            return new Condition.Or(
+                    new Condition.Compare(column, operator, afterValue),
+                    new Condition.And(
+                            new Condition.Equals(column, afterValue),
+                            new Condition.Compare("id", operator, afterId)));
+        }
+        return null;
+    }
+
 }
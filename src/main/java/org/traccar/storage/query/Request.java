@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2025 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,4 +55,14 @@ public class Request {
         return order;
     }
 
+    public Condition getFullCondition() {
+        Condition seekCondition = order != null ? order.getSeekCondition() : null;
+        if (seekCondition == null) {
+            return condition;
+        } else if (condition == null) {
+            return seekCondition;
+        }
+        return new Condition.And(condition, seekCondition);
+    }
+
 }
@@ -0,0 +1,208 @@
+package org.traccar.api.resource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.expense.FuelPriceIndex;
+import org.traccar.expense.RouteCache;
+import org.traccar.expense.TollIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TripExpenseResourceTest {
+
+    private static final String ROUTE = "{\"routes\":[{\"summary\":{\"distance\":100000,\"duration\":7200},"
+            + "\"geometry\":[[77.1,28.6],[77.5,28.9]]}]}";
+    private static final String EMPTY_ROUTE = "{\"routes\":[{\"summary\":{\"distance\":0,\"duration\":0}}]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private volatile int responseStatus = 200;
+    private volatile String responseBody = ROUTE;
+    private HttpServer server;
+    private Config config;
+    private TripExpenseResource resource;
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        var field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @BeforeEach
+    public void init() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/routing/v1/directions", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseStatus, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        config = mock(Config.class);
+        when(config.getString(Keys.OLA_MAPS_URL)).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        when(config.getString(Keys.OLA_MAPS_API_KEY)).thenReturn("key");
+        when(config.getInteger(Keys.EXPENSE_BATCH_LIMIT)).thenReturn(10);
+        when(config.getInteger(Keys.EXPENSE_BATCH_CONCURRENCY)).thenReturn(4);
+        when(config.getInteger(Keys.EXPENSE_ROUTE_CACHE_SIZE)).thenReturn(10);
+        when(config.getLong(Keys.EXPENSE_ROUTE_CACHE_TTL)).thenReturn(60L);
+
+        resource = new TripExpenseResource();
+        inject(resource, "config", config);
+        inject(resource, "httpClient", HttpClient.newHttpClient());
+        inject(resource, "tollIndex", mock(TollIndex.class));
+        inject(resource, "fuelPriceIndex", mock(FuelPriceIndex.class));
+        inject(resource, "routeCache", new RouteCache(config));
+        inject(resource, "executor", executor);
+        inject(resource, "objectMapper", objectMapper);
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static String trip(int id) {
+        return "{\"id\":\"trip" + id + "\",\"start_coord\":\"28.6,77.1\",\"dest_coord\":\"28.9,77.5\","
+                + "\"vehicle_type\":\"truck\",\"mileage\":5,\"kilometers_per_day\":400}";
+    }
+
+    private static String batch(int count) {
+        List<String> trips = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            trips.add(trip(i));
+        }
+        return "[" + String.join(",", trips) + "]";
+    }
+
+    private List<Map<String, Object>> calculate(String body) throws Exception {
+        Response response = resource.calculateBatch(body);
+        assertEquals(200, response.getStatus());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, new TypeReference<>() { }));
+        }
+        return results;
+    }
+
+    @Test
+    public void testRouteCached() throws Exception {
+
+        for (var result : calculate(batch(4))) {
+            assertEquals(200, result.get("status"));
+        }
+        assertEquals(1, requests.get());
+
+        calculate(batch(1));
+        assertEquals(1, requests.get());
+
+    }
+
+    @Test
+    public void testEmptyRouteNotCached() throws Exception {
+
+        responseBody = EMPTY_ROUTE;
+        for (int i = 1; i <= 2; i++) {
+            var results = calculate(batch(1));
+            assertEquals(400, results.get(0).get("status"));
+            assertEquals("Route returned no points", results.get(0).get("error"));
+            assertEquals(i, requests.get());
+        }
+
+        responseBody = ROUTE;
+        assertEquals(200, calculate(batch(1)).get(0).get("status"));
+
+    }
+
+    @Test
+    public void testSharedRouteError() throws Exception {
+
+        responseStatus = 500;
+        var results = calculate(batch(4));
+        assertEquals(4, results.size());
+        for (var result : results) {
+            assertEquals(400, result.get("status"));
+            assertEquals("Failed to compute route: directions_http_500", result.get("error"));
+        }
+        assertEquals(1, requests.get());
+
+    }
+
+    @Test
+    public void testBatchErrors() throws Exception {
+
+        String invalid = "{\"id\":\"invalid\",\"start_coord\":\"28.6,77.1\",\"dest_coord\":\"28.9,77.5\","
+                + "\"vehicle_type\":\"truck\"}";
+        var results = new ArrayList<>(calculate(
+                "{\"trips\":[" + trip(0) + "," + invalid + "," + trip(2) + ",\"text\"]}"));
+        results.sort(Comparator.comparingInt(result -> (Integer) result.get("index")));
+
+        assertEquals(4, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get("index"));
+        }
+
+        assertEquals("trip0", results.get(0).get("id"));
+        assertEquals(200, results.get(0).get("status"));
+        assertNotNull(results.get(0).get("result"));
+
+        assertEquals("invalid", results.get(1).get("id"));
+        assertEquals(400, results.get(1).get("status"));
+        assertEquals("Missing required fields: vehicle_type and mileage", results.get(1).get("error"));
+
+        assertEquals("trip2", results.get(2).get("id"));
+        assertEquals(200, results.get(2).get("status"));
+
+        assertEquals(400, results.get(3).get("status"));
+
+    }
+
+    @Test
+    public void testBatchLimit() throws Exception {
+
+        when(config.getInteger(Keys.EXPENSE_BATCH_LIMIT)).thenReturn(2);
+
+        assertEquals(2, calculate(batch(2)).size());
+
+        Response response = resource.calculateBatch(batch(3));
+        assertEquals(400, response.getStatus());
+        assertEquals("Too many trips in batch, limit is 2", ((Map<?, ?>) response.getEntity()).get("error"));
+        assertEquals(1, requests.get());
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.traccar.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.model.Device;
+import org.traccar.model.ObjectOperation;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.session.cache.PermissionCache;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class DeviceIndexTest {
+
+    private Storage storage;
+    private DeviceIndex index;
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void init() throws Exception {
+        storage = new MemoryStorage();
+        index = new DeviceIndex(storage);
+        cacheManager = new CacheManager(
+                mock(Config.class), storage, mock(BroadcastService.class), mock(PermissionCache.class), index);
+    }
+
+    private long addDevice(String vehicleNumber, String company) throws Exception {
+        Device device = new Device();
+        device.set(DeviceIndex.KEY_VEHICLE_NUMBER, vehicleNumber);
+        device.set(DeviceIndex.KEY_COMPANY, company);
+        long id = storage.addObject(device, new Request(new Columns.Exclude("id")));
+        cacheManager.invalidateObject(true, Device.class, id, ObjectOperation.ADD);
+        return id;
+    }
+
+    private void updateCompany(long id, String company) throws Exception {
+        Device device = new Device();
+        device.setId(id);
+        device.setAttributes(Map.of(DeviceIndex.KEY_COMPANY, company));
+        storage.updateObject(device, new Request(
+                new Columns.Include("attributes"), new Condition.Equals("id", id)));
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+
+        long first = addDevice("MH01AB1234", "Acme");
+        long second = addDevice("MH02CD5678", "acme");
+
+        assertEquals(Set.of(first), index.findByVehicleNumbers(List.of("MH01AB1234", "unknown")));
+        assertEquals(Set.of(first, second), index.findByCompany("ACME"));
+
+        long third = addDevice("MH03EF9012", "Other");
+        assertEquals(Set.of(third), index.findByVehicleNumbers(List.of("MH03EF9012")));
+
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+
+        long first = addDevice("MH01AB1234", "Acme");
+        long second = addDevice("MH02CD5678", "Acme");
+        assertEquals(Set.of(first, second), index.findByCompany("acme"));
+
+        // lookups keep the loaded index until the change is announced
+        updateCompany(second, "Other");
+        assertEquals(Set.of(first, second), index.findByCompany("acme"));
+        cacheManager.invalidateObject(true, Device.class, second, ObjectOperation.UPDATE);
+        assertEquals(Set.of(first), index.findByCompany("acme"));
+        assertEquals(Set.of(second), index.findByCompany("other"));
+
+        storage.removeObject(Device.class, new Request(new Condition.Equals("id", first)));
+        cacheManager.invalidateObject(true, Device.class, first, ObjectOperation.DELETE);
+        assertEquals(Set.of(), index.findByVehicleNumbers(List.of("MH01AB1234")));
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package org.traccar.database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IngestJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    private IngestJournal createJournal() throws Exception {
+        Config config = mock(Config.class);
+        when(config.getString(Keys.SERVER_JOURNAL_PATH)).thenReturn(directory.toString());
+        when(config.getInteger(Keys.SERVER_JOURNAL_SEGMENT_SIZE)).thenReturn(1024);
+        return new IngestJournal(config, new ObjectMapper());
+    }
+
+    private Position position(long deviceId, long time) {
+        Position position = new Position("test");
+        position.setDeviceId(deviceId);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testReplayUncommitted() throws Exception {
+
+        IngestJournal journal = createJournal();
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Position position = position(i, i * 1000L);
+            journal.append(position, () -> { });
+            positions.add(position);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(journal.commit(positions.get(i)));
+        }
+        assertTrue(journal.commit(positions.get(15)));
+        assertFalse(journal.commit(position(1, 0)));
+
+        List<Position> replayed = new ArrayList<>();
+        IngestJournal recovered = createJournal();
+        recovered.replay(replayed::add);
+
+        assertEquals(10, replayed.size());
+        assertEquals(10, replayed.get(0).getDeviceId());
+        assertEquals(15, replayed.get(5).getDeviceId());
+        assertEquals(19, replayed.get(9).getDeviceId());
+
+        for (Position position : replayed) {
+            assertTrue(recovered.commit(position));
+        }
+        replayed.clear();
+        createJournal().replay(replayed::add);
+        assertTrue(replayed.isEmpty());
+
+    }
+
+    @Test
+    public void testDurableCallback() throws Exception {
+
+        IngestJournal journal = createJournal();
+        CountDownLatch latch = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            journal.append(position(i, i * 1000L), latch::countDown);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    public void testHold() throws Exception {
+
+        IngestJournal journal = createJournal();
+        Position position = position(1, 0);
+        journal.append(position, () -> { });
+        assertTrue(journal.hold(position));
+        assertTrue(journal.commit(position));
+        assertEquals(1, journal.getPendingCount());
+
+        List<Position> replayed = new ArrayList<>();
+        createJournal().replay(replayed::add);
+        assertEquals(1, replayed.size());
+
+        journal.release(position);
+        assertEquals(0, journal.getPendingCount());
+        assertFalse(journal.hold(position));
+
+    }
+
+    @Test
+    public void testStuckPositionCarriedForward() throws Exception {
+
+        IngestJournal journal = createJournal();
+        Position stuck = position(1, 0);
+        journal.append(stuck, () -> { });
+        for (int i = 0; i < 100; i++) {
+            Position position = position(2, i * 1000L);
+            journal.append(position, () -> { });
+            journal.commit(position);
+        }
+
+        try (var files = Files.list(directory)) {
+            assertTrue(files.filter(file -> file.toString().endsWith(".journal")).count() <= 3);
+        }
+
+        List<Position> replayed = new ArrayList<>();
+        createJournal().replay(replayed::add);
+        assertTrue(replayed.size() < 10);
+        assertEquals(1, replayed.get(0).getDeviceId());
+
+    }
+
+}
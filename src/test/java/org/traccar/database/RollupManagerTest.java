@@ -0,0 +1,113 @@
+package org.traccar.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.DeviceRollup;
+import org.traccar.model.Position;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RollupManagerTest {
+
+    private final ZonedDateTime today = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS);
+
+    private Storage storage;
+    private RollupManager rollupManager;
+
+    @BeforeEach
+    public void init() {
+        Config config = mock(Config.class);
+        when(config.getBoolean(Keys.ROLLUP_ENABLE)).thenReturn(true);
+        when(config.getString(Keys.ROLLUP_TIMEZONE)).thenReturn("UTC");
+        when(config.getLong(Keys.ROLLUP_FLUSH_INTERVAL)).thenReturn(60L);
+
+        storage = new MemoryStorage();
+        rollupManager = new RollupManager(config, storage);
+    }
+
+    private Date date(long minutes) {
+        return Date.from(today.plus(Duration.ofMinutes(minutes)).toInstant());
+    }
+
+    private Position position(long minutes, double speed) throws Exception {
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setTime(date(minutes));
+        position.setSpeed(speed);
+        position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
+        rollupManager.update(position);
+        return position;
+    }
+
+    private List<DeviceRollup> getRollups() throws Exception {
+        Date from = date(0);
+        Date to = date(24 * 60);
+        return rollupManager.merge(1, from, to, storage.getObjects(DeviceRollup.class, new Request(
+                new Columns.All(), new Condition.Between("day", from, to))));
+    }
+
+    @Test
+    public void testLateData() throws Exception {
+
+        // first day is incomplete, positions might have been stored before rollups were enabled
+        position(-12 * 60, 0);
+        position(60, 10);
+        position(120, 20);
+        rollupManager.flush();
+
+        position(30, 30);
+
+        DeviceRollup stored = storage.getObject(DeviceRollup.class, new Request(
+                new Columns.All(), new Condition.Equals("day", date(0))));
+        assertEquals(date(60), stored.getStartTime());
+
+        List<DeviceRollup> rollups = getRollups();
+        assertEquals(1, rollups.size());
+        assertEquals(date(30), rollups.get(0).getStartTime());
+        assertEquals(date(120), rollups.get(0).getEndTime());
+        assertEquals(30, rollups.get(0).getMaxSpeed(), 0.01);
+
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        position(-12 * 60, 0);
+        position(60, 10);
+        Position last = position(120, 20);
+        rollupManager.flush();
+
+        storage.removeObjects(Position.class, List.of(last.getId()));
+        rollupManager.invalidate(1, last.getFixTime(), last.getFixTime());
+
+        List<DeviceRollup> rollups = getRollups();
+        assertEquals(1, rollups.size());
+        assertEquals(date(60), rollups.get(0).getEndTime());
+        assertEquals(10, rollups.get(0).getMaxSpeed(), 0.01);
+
+        storage.removeObject(Position.class, new Request(new Condition.Compare("fixTime", "<", last.getFixTime())));
+        rollupManager.invalidate(1, date(-24 * 60), last.getFixTime());
+
+        assertTrue(getRollups().isEmpty());
+        assertTrue(storage.getObjects(DeviceRollup.class, new Request(new Columns.All())).isEmpty());
+
+    }
+
+}
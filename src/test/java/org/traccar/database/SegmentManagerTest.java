@@ -0,0 +1,145 @@
+package org.traccar.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.model.DeviceSegment;
+import org.traccar.model.Position;
+import org.traccar.model.Server;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SegmentManagerTest {
+
+    private Storage storage;
+    private SegmentManager segmentManager;
+
+    @BeforeEach
+    public void init() {
+        Config config = mock(Config.class);
+        when(config.getBoolean(Keys.SEGMENT_ENABLE)).thenReturn(true);
+
+        Device device = new Device();
+        device.setId(1);
+        device.setAttributes(Map.of(
+                Keys.REPORT_TRIP_MINIMAL_TRIP_DISTANCE.getKey(), 500.0,
+                Keys.REPORT_TRIP_MINIMAL_TRIP_DURATION.getKey(), 300L,
+                Keys.REPORT_TRIP_MINIMAL_PARKING_DURATION.getKey(), 180L,
+                Keys.REPORT_TRIP_MINIMAL_NO_DATA_DURATION.getKey(), 900L,
+                Keys.REPORT_TRIP_USE_IGNITION.getKey(), false));
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getObject(Device.class, 1L)).thenReturn(device);
+        when(cacheManager.getServer()).thenReturn(new Server());
+        when(cacheManager.getConfig()).thenReturn(config);
+
+        storage = new MemoryStorage();
+        segmentManager = new SegmentManager(config, storage, cacheManager, mock(ReportCache.class));
+    }
+
+    private Date date(String time) throws ParseException {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.parse(time);
+    }
+
+    private Position position(String time, double speed, double totalDistance) throws Exception {
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setTime(date(time));
+        position.setValid(true);
+        position.setSpeed(speed);
+        position.set(Position.KEY_MOTION, speed > 0);
+        position.set(Position.KEY_TOTAL_DISTANCE, totalDistance);
+        position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
+        return position;
+    }
+
+    private List<Position> trip() throws Exception {
+        List<Position> positions = new ArrayList<>();
+        positions.add(position("2016-01-01 00:00:00", 0, 0));
+        positions.add(position("2016-01-01 00:01:00", 0, 0));
+        positions.add(position("2016-01-01 00:02:00", 10, 0));
+        positions.add(position("2016-01-01 00:03:00", 10, 1000));
+        positions.add(position("2016-01-01 00:04:00", 10, 2000));
+        positions.add(position("2016-01-01 00:05:00", 0, 3000));
+        positions.add(position("2016-01-01 00:15:00", 0, 3000));
+        positions.add(position("2016-01-01 00:25:00", 0, 3000));
+        return positions;
+    }
+
+    private List<DeviceSegment> getSegments() throws Exception {
+        return storage.getObjects(DeviceSegment.class, new Request(new Columns.All(), new Order("startTime")));
+    }
+
+    private void checkSegments() throws Exception {
+        List<DeviceSegment> segments = getSegments();
+        assertEquals(2, segments.size());
+
+        assertFalse(segments.get(0).getMotion());
+        assertEquals(date("2016-01-01 00:00:00"), segments.get(0).getStartTime());
+        assertEquals(date("2016-01-01 00:02:00"), segments.get(0).getEndTime());
+
+        assertTrue(segments.get(1).getMotion());
+        assertEquals(date("2016-01-01 00:02:00"), segments.get(1).getStartTime());
+        assertEquals(date("2016-01-01 00:05:00"), segments.get(1).getEndTime());
+        assertEquals(3000, segments.get(1).getDistance(), 0.01);
+        assertEquals(10, segments.get(1).getMaxSpeed(), 0.01);
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+
+        for (Position position : trip()) {
+            segmentManager.update(position);
+        }
+        checkSegments();
+
+    }
+
+    @Test
+    public void testRecompute() throws Exception {
+
+        List<Position> positions = trip();
+        for (Position position : positions) {
+            segmentManager.update(position);
+        }
+
+        // late position inside the first stop replaces segments after it without duplicates
+        segmentManager.update(position("2016-01-01 00:00:30", 0, 0));
+        segmentManager.recompute();
+        checkSegments();
+
+        // state continues from the replayed positions
+        segmentManager.update(position("2016-01-01 00:26:00", 10, 3000));
+        segmentManager.update(position("2016-01-01 00:27:00", 10, 4000));
+        List<DeviceSegment> segments = getSegments();
+        assertEquals(3, segments.size());
+        assertFalse(segments.get(2).getMotion());
+        assertEquals(date("2016-01-01 00:05:00"), segments.get(2).getStartTime());
+        assertEquals(date("2016-01-01 00:26:00"), segments.get(2).getEndTime());
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.traccar.expense;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FuelPriceIndexTest {
+
+    private static final String DATA = """
+            {
+                "Haryana": {
+                    "Gurgaon": {"petrol": 95.24, "diesel": 88.09, "location": {"lat": 28.46, "lng": 77.03}}
+                },
+                "Delhi": {
+                    "New Delhi": {"petrol": "94.77", "cng": null, "location": {"lat": 28.61, "lng": 77.21}},
+                    "Shahdara": {"petrol": 94.81, "location": {"latitude": 28.67, "longitude": 77.29}}
+                }
+            }
+            """;
+
+    @TempDir
+    private Path directory;
+
+    private FuelPriceIndex createIndex(String file) {
+        Config config = mock(Config.class);
+        when(config.getString(Keys.EXPENSE_FUEL_PRICES_FILE)).thenReturn(file);
+        return new FuelPriceIndex(config, new ObjectMapper());
+    }
+
+    private Path write(String content, long modified) throws Exception {
+        Path file = directory.resolve("fuel_prices.json");
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+        return file;
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+
+        FuelPriceIndex index = createIndex(write(DATA, 1000).toString());
+
+        assertEquals(94.77, index.getPrice("PETROL", "delhi", "new delhi").price(), 0.001);
+        assertNull(index.getPrice("cng", "Delhi", "New Delhi"));
+
+        // any city in the state of Delhi is the reference, not only a city named Delhi
+        assertEquals("New Delhi", index.getDefaultPrice("petrol").city());
+        assertEquals("Gurgaon", index.getDefaultPrice("diesel").city());
+        assertNull(index.getDefaultPrice("lpg"));
+
+        assertEquals("Gurgaon", index.findNearest("petrol", 28.45, 77.0).city());
+        assertEquals("Shahdara", index.findNearest("petrol", 28.7, 77.3).city());
+
+    }
+
+    @Test
+    public void testBundled() {
+
+        FuelPriceIndex index = createIndex(null);
+
+        FuelPriceIndex.FuelPrice price = index.getDefaultPrice("petrol");
+        assertEquals("Delhi", price.state());
+        assertEquals(price, index.getDefaultPrice("petrol"));
+
+    }
+
+    @Test
+    public void testReload() throws Exception {
+
+        Path file = write(DATA, 1000);
+        FuelPriceIndex index = createIndex(file.toString());
+        assertEquals(95.24, index.getPrice("petrol", "Haryana", "Gurgaon").price(), 0.001);
+
+        write(DATA.replace("95.24", "96.5"), 2000);
+        assertEquals(96.5, index.getPrice("petrol", "Haryana", "Gurgaon").price(), 0.001);
+
+        // broken file keeps the previous data
+        write("{", 3000);
+        assertEquals(96.5, index.getPrice("petrol", "Haryana", "Gurgaon").price(), 0.001);
+
+    }
+
+}
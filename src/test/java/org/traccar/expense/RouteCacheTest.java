@@ -0,0 +1,129 @@
+package org.traccar.expense;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RouteCacheTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpServer server;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/route", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = ("{\"distance\":" + requests.get() + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private RouteCache createCache(int size, long ttl) {
+        Config config = mock(Config.class);
+        when(config.getInteger(Keys.EXPENSE_ROUTE_CACHE_SIZE)).thenReturn(size);
+        when(config.getLong(Keys.EXPENSE_ROUTE_CACHE_TTL)).thenReturn(ttl);
+        return new RouteCache(config);
+    }
+
+    private String fetchRoute() throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/route");
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        RouteCache cache = createCache(10, 60);
+        String key = RouteCache.routeKey("test", "driving", " New  Delhi", "mumbai ");
+        assertEquals(key, RouteCache.routeKey("test", "driving", "new delhi", "Mumbai"));
+        assertNotEquals(key, RouteCache.routeKey("test", "cycling", "new delhi", "Mumbai"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    ready.await();
+                    return cache.get(key, this::fetchRoute);
+                }));
+            }
+            ready.countDown();
+            for (Future<String> result : results) {
+                assertEquals("{\"distance\":1}", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, requests.get());
+
+        assertEquals("{\"distance\":1}", cache.get(key, this::fetchRoute));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testExpiryAndSize() throws Exception {
+        RouteCache cache = createCache(2, 0);
+        cache.get("first", this::fetchRoute);
+        cache.get("first", this::fetchRoute);
+        assertEquals(2, requests.get());
+
+        cache = createCache(2, 60);
+        cache.get("first", this::fetchRoute);
+        cache.get("second", this::fetchRoute);
+        cache.get("third", this::fetchRoute);
+        assertEquals(2, cache.size());
+        cache.get("first", this::fetchRoute);
+        assertEquals(6, requests.get());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        RouteCache cache = createCache(10, 60);
+        assertThrows(IllegalStateException.class, () -> cache.get("failure", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(null, cache.get("empty", () -> null));
+        assertEquals("", cache.get("rejected", () -> "", value -> !value.isEmpty()));
+        assertEquals(0, cache.size());
+    }
+
+}
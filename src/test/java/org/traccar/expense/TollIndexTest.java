@@ -0,0 +1,133 @@
+package org.traccar.expense;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TollIndexTest {
+
+    private static final double DISTANCE = 2000;
+
+    @TempDir
+    private Path directory;
+
+    private Path write(String content, long modified) throws Exception {
+        Path file = directory.resolve("tolls.json");
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+        return file;
+    }
+
+    private TollIndex createIndex(Path file) {
+        Config config = mock(Config.class);
+        when(config.getString(Keys.EXPENSE_TOLLS_FILE)).thenReturn(file.toString());
+        return new TollIndex(config, new ObjectMapper());
+    }
+
+    private static List<String> names(List<TollIndex.Match> matches) {
+        return matches.stream().map(match -> match.plaza().name()).toList();
+    }
+
+    @Test
+    public void testParse() throws Exception {
+
+        TollIndex index = createIndex(write("""
+                {"toll_plazas": [
+                    {"id": 1, "name": "object", "state": "Haryana", "location": {"lat": 28.5, "lng": 77.1},
+                     "fees": {"car": {"single": 70, "return": null}, "lcv": "110"}},
+                    {"id": 2, "name": "array", "location": [28.5, 77.2], "fees": {"car": 80}},
+                    {"id": 3, "name": "flat", "latitude": 28.5, "longitude": 77.3, "car": 90},
+                    {"id": 4, "name": "missing", "location": {"lat": 0, "lng": 0}, "fees": {"car": 100}}
+                ]}
+                """, 1000));
+
+        List<List<Double>> route = List.of(List.of(77.0, 28.51), List.of(77.4, 28.51));
+        List<TollIndex.Match> matches = index.findTolls(route, DISTANCE);
+        assertEquals(List.of("object", "array", "flat"), names(matches));
+
+        TollIndex.TollPlaza plaza = matches.get(0).plaza();
+        assertEquals("Haryana", plaza.state());
+        assertEquals(70, plaza.getFee("car"), 0.01);
+        assertEquals(110, plaza.getFee("lcv"), 0.01);
+        assertEquals(0, plaza.getFee("bus"), 0.01);
+        assertEquals(28.5, matches.get(1).plaza().latitude(), 0.0001);
+        assertEquals(77.2, matches.get(1).plaza().longitude(), 0.0001);
+        assertEquals(90, matches.get(2).plaza().getFee("car"), 0.01);
+
+    }
+
+    @Test
+    public void testCellEdges() throws Exception {
+
+        TollIndex index = createIndex(write("""
+                [
+                    {"id": 1, "name": "below", "location": {"lat": 28.0499, "lng": 77.05}},
+                    {"id": 2, "name": "far", "location": {"lat": 28.08, "lng": 77.05}},
+                    {"id": 3, "name": "between", "location": {"lat": 28.01, "lng": 77.5}},
+                    {"id": 4, "name": "negative", "location": {"lat": -0.001, "lng": -0.001}}
+                ]
+                """, 1000));
+
+        // plaza in the cell below the route segment
+        List<List<Double>> route = List.of(List.of(77.0, 28.051), List.of(77.1, 28.051));
+        List<TollIndex.Match> matches = index.findTolls(route, DISTANCE);
+        assertEquals(List.of("below"), names(matches));
+        assertTrue(matches.get(0).distance() < 200);
+
+        // plaza far from both points but close to the segment between them
+        matches = index.findTolls(List.of(List.of(77.0, 28.0), List.of(78.0, 28.0)), DISTANCE);
+        assertEquals(List.of("between"), names(matches));
+
+        // cells on both sides of zero
+        matches = index.findTolls(List.of(List.of(0.001, 0.001)), DISTANCE);
+        assertEquals(List.of("negative"), names(matches));
+
+    }
+
+    @Test
+    public void testDuplicates() throws Exception {
+
+        TollIndex index = createIndex(write("""
+                [
+                    {"id": 1, "name": "first", "location": {"lat": 30.0, "lng": 77.0}},
+                    {"id": 1, "name": "second", "location": {"lat": 28.0, "lng": 77.0}},
+                    {"id": 1, "name": "third", "location": {"lat": 28.0, "lng": 77.01}}
+                ]
+                """, 1000));
+
+        // the first plaza with the id is far away, the first one near the route is used
+        List<List<Double>> route = List.of(List.of(76.9, 28.005), List.of(77.1, 28.005));
+        List<TollIndex.Match> matches = index.findTolls(route, DISTANCE);
+        assertEquals(List.of("second"), names(matches));
+
+    }
+
+    @Test
+    public void testReload() throws Exception {
+
+        Path file = write("[{\"id\": 1, \"name\": \"old\", \"location\": {\"lat\": 28.0, \"lng\": 77.0}}]", 1000);
+        TollIndex index = createIndex(file);
+        List<List<Double>> route = List.of(List.of(77.0, 28.0));
+        assertEquals(List.of("old"), names(index.findTolls(route, DISTANCE)));
+
+        write("[{\"id\": 1, \"name\": \"new\", \"location\": {\"lat\": 28.0, \"lng\": 77.0}}]", 2000);
+        assertEquals(List.of("new"), names(index.findTolls(route, DISTANCE)));
+
+        write("[", 3000);
+        assertEquals(List.of("new"), names(index.findTolls(route, DISTANCE)));
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.traccar.reports;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.reports.common.DeviceReportExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeviceReportExecutorTest {
+
+    private DeviceReportExecutor createExecutor() {
+        Config config = mock(Config.class);
+        when(config.getInteger(Keys.REPORT_THREADS)).thenReturn(4);
+        when(config.getInteger(Keys.REPORT_USER_THREADS)).thenReturn(2);
+        return new DeviceReportExecutor(config);
+    }
+
+    private List<Device> createDevices(int count) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Device device = new Device();
+            device.setId(i);
+            devices.add(device);
+        }
+        return devices;
+    }
+
+    @Test
+    public void testOrderAndUserLimit() throws Exception {
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        var results = createExecutor().execute(1, createDevices(10), device -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep((11 - device.getId()) * 5);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+            return device.getId();
+        });
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), results);
+        assertTrue(maxRunning.get() <= 2);
+
+    }
+
+    @Test
+    public void testCancellation() {
+
+        DeviceReportExecutor executor = createExecutor();
+        try (var scope = executor.watch(() -> true)) {
+            assertThrows(CancellationException.class, () -> executor.execute(1, createDevices(3), device -> {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return device.getId();
+            }));
+        }
+
+    }
+
+    @Test
+    public void testCancelledTasksKeepPermits() throws Exception {
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        DeviceReportExecutor.DeviceTask<Long> task = device -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                // ignores interruption, like a task blocked in a database call
+                long end = System.currentTimeMillis() + 1000;
+                while (System.currentTimeMillis() < end) {
+                    Thread.onSpinWait();
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+            return device.getId();
+        };
+
+        DeviceReportExecutor executor = createExecutor();
+        try (var scope = executor.watch(() -> true)) {
+            assertThrows(CancellationException.class, () -> executor.execute(1, createDevices(2), task));
+        }
+        assertEquals(List.of(1L, 2L), executor.execute(1, createDevices(2), task));
+        assertTrue(maxRunning.get() <= 2);
+
+    }
+
+}
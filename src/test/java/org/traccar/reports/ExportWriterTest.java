@@ -0,0 +1,139 @@
+package org.traccar.reports;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ExportWriter;
+import org.traccar.storage.Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExportWriterTest {
+
+    private String write(ZoneId zone, ExportWriterConsumer consumer) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ExportWriter writer = new ExportWriter(output, zone)) {
+            consumer.accept(writer);
+        }
+        return output.toString();
+    }
+
+    private interface ExportWriterConsumer {
+        void accept(ExportWriter writer) throws Exception;
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+
+        assertEquals("0", write(ZoneId.of("UTC"), writer -> writer.append(0.0, 7)));
+        assertEquals("12.5", write(ZoneId.of("UTC"), writer -> writer.append(12.5, 7)));
+        assertEquals("-45.1234568", write(ZoneId.of("UTC"), writer -> writer.append(-45.123456789, 7)));
+        assertEquals("-1234567", write(ZoneId.of("UTC"), writer -> writer.append(-1234567L)));
+        assertEquals("\"a,\"\"b\"\"\"", write(ZoneId.of("UTC"), writer -> writer.appendCsv("a,\"b\"")));
+        assertEquals("&lt;a&amp;b&gt;", write(ZoneId.of("UTC"), writer -> writer.appendXml("<a&b>")));
+
+    }
+
+    @Test
+    public void testDates() throws Exception {
+
+        for (String zoneId : new String[] {"UTC", "Europe/Berlin", "America/St_Johns", "Asia/Kolkata"}) {
+            ZoneId zone = ZoneId.of(zoneId);
+            for (long time : new long[] {0, 1711846799999L, 1711846800000L, 1700000000120L, 1700000000100L}) {
+                assertEquals(
+                        DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(zone).format(Instant.ofEpochMilli(time)),
+                        write(zone, writer -> writer.append(new Date(time))));
+            }
+        }
+
+    }
+
+    private Position position(long id, long time, Map<String, Object> attributes) {
+        Position position = new Position("test");
+        position.setId(id);
+        position.setDeviceId(1);
+        position.setServerTime(new Date(time));
+        position.setTime(new Date(time));
+        position.setLatitude(45.5);
+        position.setLongitude(-73.25);
+        position.getAttributes().putAll(attributes);
+        return position;
+    }
+
+    @Test
+    public void testCsvExport() throws Exception {
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObjectsStream(eq(Position.class), any())).thenAnswer(invocation -> Stream.of(
+                position(1, 0, Map.of(Position.KEY_IGNITION, true)),
+                position(2, 1000, Map.of(Position.KEY_IGNITION, false, Position.KEY_TOTAL_DISTANCE, 10.5)),
+                position(3, 2000, Map.of("note", "a,\nb"))));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new CsvExportProvider(storage).generate(output, 1, 0, new Date(), new Date());
+        verify(storage, times(1)).getObjectsStream(eq(Position.class), any());
+
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault());
+        String[] times = LongStream.of(0, 1000, 2000)
+                .mapToObj(time -> formatter.format(Instant.ofEpochMilli(time)))
+                .toArray(String[]::new);
+        String fixed = ",1,test,%1$s,%1$s,%1$s,false,45.5,-73.25,0,0,0,,0";
+        assertEquals(
+                "id,deviceId,protocol,serverTime,deviceTime,fixTime,valid,latitude,longitude,altitude,speed,course,"
+                + "address,accuracy,ignition,totalDistance,note\n"
+                + "1" + String.format(fixed, times[0]) + ",true,,\n"
+                + "2" + String.format(fixed, times[1]) + ",false,10.5,\n"
+                + "3" + String.format(fixed, times[2]) + ",,,\"a,\nb\"\n",
+                output.toString());
+
+    }
+
+    @Disabled
+    @Test
+    public void benchmarkCsvExport() throws Exception {
+
+        long count = 10_000_000;
+        Storage storage = mock(Storage.class);
+        when(storage.getObjectsStream(eq(Position.class), any())).thenAnswer(invocation -> LongStream
+                .range(0, count)
+                .mapToObj(i -> {
+                    Position position = new Position("test");
+                    position.setId(i + 1);
+                    position.setDeviceId(1);
+                    position.setTime(new Date(1700000000000L + i * 1000));
+                    position.setLatitude(45.1234567 + i * 1e-7);
+                    position.setLongitude(-73.1234567 + i * 1e-7);
+                    position.set(Position.KEY_IGNITION, i % 2 == 0);
+                    position.set(Position.KEY_TOTAL_DISTANCE, i * 10.5);
+                    return position;
+                }));
+
+        Runtime runtime = Runtime.getRuntime();
+        long start = System.nanoTime();
+        new CsvExportProvider(storage).generate(OutputStream.nullOutputStream(), 1, 0, new Date(), new Date());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%d rows in %.1f s, %.0f rows/s, heap %d MB%n", count, seconds, count / seconds, used >> 20);
+        assertTrue(used < 256L << 20);
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.traccar.reports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.reports.common.ReportCache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ReportCache createCache(int size, boolean disk) throws Exception {
+        Config config = mock(Config.class);
+        when(config.getInteger(Keys.REPORT_CACHE_SIZE)).thenReturn(size);
+        when(config.getInteger(Keys.REPORT_CACHE_DISK_SIZE)).thenReturn(10);
+        if (disk) {
+            when(config.hasKey(Keys.REPORT_CACHE_PATH)).thenReturn(true);
+            when(config.getString(Keys.REPORT_CACHE_PATH)).thenReturn(directory.toString());
+        }
+        return new ReportCache(config, new ObjectMapper());
+    }
+
+    private List<String> get(ReportCache cache, long deviceId, ReportCache.Loader<String> loader) throws Exception {
+        return cache.get("test", deviceId, new Date(1000), new Date(2000), null, String.class, loader);
+    }
+
+    private List<String> load() {
+        return List.of("result" + loads.incrementAndGet());
+    }
+
+    @Test
+    public void testHit() throws Exception {
+
+        ReportCache cache = createCache(10, false);
+
+        assertEquals(List.of("result1"), get(cache, 1, this::load));
+        assertEquals(List.of("result1"), get(cache, 1, this::load));
+        assertEquals(1, loads.get());
+
+        cache.invalidate(1, new Date(3000));
+        assertEquals(List.of("result1"), get(cache, 1, this::load));
+
+        cache.invalidate(1, new Date(1500));
+        assertEquals(List.of("result2"), get(cache, 1, this::load));
+
+        assertEquals(2, cache.getStatistics().hits());
+        assertEquals(2, cache.getStatistics().misses());
+
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() throws Exception {
+
+        ReportCache cache = createCache(10, false);
+
+        assertEquals(List.of("result1"), get(cache, 1, () -> {
+            cache.invalidate(1, new Date(1500));
+            return load();
+        }));
+        assertEquals(List.of("result2"), get(cache, 1, this::load));
+        assertEquals(List.of("result2"), get(cache, 1, this::load));
+
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+
+        ReportCache cache = createCache(1, false);
+
+        get(cache, 1, this::load);
+        get(cache, 2, this::load);
+        assertEquals(List.of("result3"), get(cache, 1, this::load));
+        assertEquals(1, cache.getStatistics().size());
+
+    }
+
+    @Test
+    public void testDiskEviction() throws Exception {
+
+        Path unrelated = Files.createFile(directory.resolve("unrelated.json"));
+
+        ReportCache cache = createCache(1, true);
+        assertTrue(Files.exists(unrelated));
+
+        get(cache, 1, this::load);
+        get(cache, 2, this::load);
+        assertEquals(1, cache.getStatistics().diskSize());
+
+        assertEquals(List.of("result1"), get(cache, 1, this::load));
+        assertEquals(1, cache.getStatistics().diskHits());
+
+        cache.invalidate(0, new Date(0), new Date(5000));
+        assertEquals(List.of("result3"), get(cache, 2, this::load));
+
+    }
+
+}
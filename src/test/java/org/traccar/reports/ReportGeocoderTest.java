@@ -0,0 +1,104 @@
+package org.traccar.reports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.geocoder.Geocoder;
+import org.traccar.reports.common.ReportGeocoder;
+import org.traccar.reports.model.StopReportItem;
+import org.traccar.reports.model.TripReportItem;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportGeocoderTest {
+
+    private StopReportItem createStop(double latitude, double longitude, String address) {
+        StopReportItem stop = new StopReportItem();
+        stop.setLatitude(latitude);
+        stop.setLongitude(longitude);
+        stop.setAddress(address);
+        return stop;
+    }
+
+    private Config createConfig(int threads, long timeout) {
+        Config config = mock(Config.class);
+        when(config.getBoolean(Keys.GEOCODER_ON_REQUEST)).thenReturn(true);
+        when(config.getInteger(Keys.REPORT_GEOCODER_PRECISION)).thenReturn(4);
+        when(config.getInteger(Keys.REPORT_GEOCODER_THREADS)).thenReturn(threads);
+        when(config.getLong(Keys.REPORT_GEOCODER_TIMEOUT)).thenReturn(timeout);
+        return config;
+    }
+
+    private void answer(Geocoder geocoder) {
+        doAnswer(invocation -> {
+            double latitude = invocation.getArgument(0);
+            double longitude = invocation.getArgument(1);
+            Geocoder.ReverseGeocoderCallback callback = invocation.getArgument(2);
+            callback.onSuccess(latitude + "," + longitude);
+            return null;
+        }).when(geocoder).getAddress(anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    public void testResolve() {
+
+        Config config = createConfig(2, 10000);
+        Geocoder geocoder = mock(Geocoder.class);
+        answer(geocoder);
+
+        TripReportItem trip = new TripReportItem();
+        trip.setStartLat(10.00001);
+        trip.setStartLon(20.00001);
+        trip.setEndLat(11);
+        trip.setEndLon(21);
+        StopReportItem first = createStop(10.00002, 20.00002, null);
+        StopReportItem second = createStop(12, 22, "known");
+
+        List<Object> items = List.of(trip, first, second);
+        List<Object> result = new ReportGeocoder(config, new ObjectMapper(), geocoder).resolve(items);
+
+        verify(geocoder, times(2)).getAddress(anyDouble(), anyDouble(), any());
+        assertEquals("10.0,20.0", ((TripReportItem) result.get(0)).getStartAddress());
+        assertEquals("11.0,21.0", ((TripReportItem) result.get(0)).getEndAddress());
+        assertEquals("10.0,20.0", ((StopReportItem) result.get(1)).getAddress());
+        assertSame(second, result.get(2));
+
+        // cached originals are left untouched
+        assertNull(trip.getStartAddress());
+        assertNull(first.getAddress());
+        assertEquals(11, ((TripReportItem) result.get(0)).getEndLat(), 0.0001);
+
+    }
+
+    @Test
+    public void testTimeout() {
+
+        Geocoder geocoder = mock(Geocoder.class);
+        ReportGeocoder reportGeocoder = new ReportGeocoder(createConfig(1, 100), new ObjectMapper(), geocoder);
+
+        // geocoder never answers, items keep coordinates only
+        StopReportItem first = createStop(10, 20, null);
+        StopReportItem second = createStop(11, 21, null);
+        var result = reportGeocoder.resolve(List.of(first, second));
+        assertNull(result.get(0).getAddress());
+        assertNull(result.get(1).getAddress());
+
+        // abandoned request returned its permit
+        answer(geocoder);
+        assertEquals("10.0,20.0", reportGeocoder.resolve(List.of(first)).get(0).getAddress());
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.traccar.reports;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Group;
+import org.traccar.reports.common.ReportResolver;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportResolverTest {
+
+    @Test
+    public void testFailedLookupNotCached() throws Exception {
+
+        Group group = new Group();
+        group.setId(1);
+        group.setName("fleet");
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Group.class), any()))
+                .thenThrow(new StorageException("error"))
+                .thenReturn(group)
+                .thenReturn(null);
+
+        ReportResolver resolver = new ReportResolver(storage, 1);
+        assertNull(resolver.getGroupName(1));
+        assertEquals("fleet", resolver.getGroupName(1));
+        assertEquals("fleet", resolver.getGroupName(1));
+        verify(storage, times(2)).getObject(eq(Group.class), any());
+
+    }
+
+}
@@ -7,8 +7,12 @@ import org.traccar.BaseTest;
 import org.traccar.api.security.PermissionsService;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.SegmentManager;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
+import org.traccar.model.DeviceSegment;
+import org.traccar.model.Driver;
+import org.traccar.model.Event;
 import org.traccar.model.Position;
 import org.traccar.reports.common.ReportUtils;
 import org.traccar.reports.model.StopReportItem;
@@ -33,7 +37,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 public class ReportUtilsTest extends BaseTest {
@@ -94,7 +100,8 @@ public class ReportUtilsTest extends BaseTest {
     @Test
     public void testCalculateSpentFuel() {
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
         Position startPosition = new Position();
         Position endPosition = new Position();
         assertEquals(reportUtils.calculateFuel(startPosition, endPosition), 0.0, 0.01);
@@ -119,7 +126,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 180, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var trips = reportUtils.slowTripsAndStops(device, new Date(), new Date(), TripReportItem.class);
 
@@ -151,7 +159,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 180, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
         var stops = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
         assertNotNull(stops);
@@ -191,7 +200,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 180, 900, true);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var trips = reportUtils.slowTripsAndStops(device, new Date(), new Date(), TripReportItem.class);
 
@@ -224,7 +234,8 @@ public class ReportUtilsTest extends BaseTest {
         data.get(5).set(Position.KEY_IGNITION, false);
         Device device = mockDevice(500, 300, 180, 900, true);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var stops = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -267,7 +278,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 180, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var trips = reportUtils.slowTripsAndStops(device, new Date(), new Date(), TripReportItem.class);
 
@@ -302,7 +314,8 @@ public class ReportUtilsTest extends BaseTest {
         when(storage.getObjectsStream(eq(Position.class), any())).thenReturn(data);
         Device device = mockDevice(500, 300, 180, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var stops = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -339,7 +352,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 200, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var result = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -368,7 +382,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 200, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var result = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -397,7 +412,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 200, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var result = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -426,7 +442,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 300, 200, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var result = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -451,7 +468,8 @@ public class ReportUtilsTest extends BaseTest {
 
         Device device = mockDevice(500, 200, 200, 900, false);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
 
         var trips = reportUtils.slowTripsAndStops(device, new Date(), new Date(), TripReportItem.class);
 
@@ -481,7 +499,8 @@ public class ReportUtilsTest extends BaseTest {
                 position(8, "2016-01-01 00:25:00.000", 5, 900));
         when(storage.getObjectsStream(eq(Position.class), any())).thenReturn(data);
         ReportUtils reportUtils = new ReportUtils(
-                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class), null);
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
         Device device = mockDevice(500, 200, 200, 900, false);
         var stops = reportUtils.slowTripsAndStops(device, new Date(), new Date(), StopReportItem.class);
 
@@ -495,4 +514,105 @@ public class ReportUtilsTest extends BaseTest {
         assertEquals(1260000, itemStop.getDuration());
     }
 
+    @Test
+    public void testFastTripsBulkLookup() throws Exception {
+
+        Position start = position(2, "2016-01-01 00:01:00.000", 5, 100);
+        start.set(Position.KEY_DRIVER_UNIQUE_ID, "123");
+        Position end = position(5, "2016-01-01 00:20:00.000", 0, 900);
+
+        when(storage.getObjects(eq(Event.class), any())).thenReturn(List.of(
+                new Event(Event.TYPE_DEVICE_MOVING, start), new Event(Event.TYPE_DEVICE_STOPPED, end)));
+        when(storage.getObjectsStream(eq(Position.class), any())).thenReturn(Stream.of(start, end));
+        Driver driver = new Driver();
+        driver.setUniqueId("123");
+        driver.setName("John");
+        when(storage.getObjects(eq(Driver.class), any())).thenReturn(List.of(driver));
+
+        Device device = mockDevice(500, 300, 180, 900, false);
+        ReportUtils reportUtils = new ReportUtils(
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                mock(SegmentManager.class));
+
+        var trips = reportUtils.fastTripsAndStops(device, new Date(), new Date(), TripReportItem.class);
+
+        assertEquals(1, trips.size());
+        TripReportItem trip = trips.get(0);
+        assertEquals(2, trip.getStartPositionId());
+        assertEquals(5, trip.getEndPositionId());
+        assertEquals(800, trip.getDistance());
+        assertEquals("123", trip.getDriverUniqueId());
+        assertEquals("John", trip.getDriverName());
+
+    }
+
+    private DeviceSegment segment(boolean motion, String start, String end, double distance) throws ParseException {
+        DeviceSegment segment = new DeviceSegment();
+        segment.setMotion(motion);
+        segment.setStartTime(date(start));
+        segment.setEndTime(date(end));
+        segment.setDistance(distance);
+        return segment;
+    }
+
+    @Test
+    public void testSegmentTrips() throws Exception {
+
+        DeviceSegment trip = segment(true, "2016-01-01 00:00:00.000", "2016-01-01 00:20:00.000", 800);
+        trip.setDriverUniqueId("123");
+        when(storage.getObjects(eq(DeviceSegment.class), any())).thenReturn(List.of(
+                trip, segment(false, "2016-01-01 00:20:00.000", "2016-01-01 01:00:00.000", 0)));
+        Driver driver = new Driver();
+        driver.setUniqueId("123");
+        driver.setName("John");
+        when(storage.getObjects(eq(Driver.class), any())).thenReturn(List.of(driver));
+
+        SegmentManager segmentManager = mock(SegmentManager.class);
+        when(segmentManager.isEnabled()).thenReturn(true);
+        Device device = mockDevice(500, 300, 180, 900, false);
+        ReportUtils reportUtils = new ReportUtils(
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                segmentManager);
+
+        var trips = reportUtils.detectTripsAndStops(
+                device, date("2016-01-01 00:00:00.000"), date("2016-01-01 01:00:00.000"), TripReportItem.class);
+
+        assertEquals(1, trips.size());
+        assertEquals(800, trips.get(0).getDistance());
+        assertEquals(1200000, trips.get(0).getDuration());
+        assertEquals("John", trips.get(0).getDriverName());
+
+    }
+
+    @Test
+    public void testSegmentGap() throws Exception {
+
+        // the stop between the trips failed to save
+        when(storage.getObjects(eq(DeviceSegment.class), any())).thenReturn(List.of(
+                segment(true, "2016-01-01 00:00:00.000", "2016-01-01 00:20:00.000", 800),
+                segment(true, "2016-01-01 00:40:00.000", "2016-01-01 01:00:00.000", 500)));
+
+        SegmentManager segmentManager = mock(SegmentManager.class);
+        when(segmentManager.isEnabled()).thenReturn(true);
+        Device device = mockDevice(500, 300, 180, 900, false);
+        ReportUtils reportUtils = spy(new ReportUtils(
+                mock(Config.class), storage, mock(PermissionsService.class), mock(VelocityEngine.class),
+                segmentManager));
+
+        TripReportItem gap = new TripReportItem();
+        gap.setDistance(300);
+        doReturn(List.of(gap)).when(reportUtils).fastTripsAndStops(
+                any(), any(), eq(date("2016-01-01 00:20:00.000")), eq(date("2016-01-01 00:40:00.000")),
+                eq(TripReportItem.class));
+
+        var trips = reportUtils.detectTripsAndStops(
+                device, date("2016-01-01 00:00:00.000"), date("2016-01-01 01:00:00.000"), TripReportItem.class);
+
+        assertEquals(3, trips.size());
+        assertEquals(800, trips.get(0).getDistance());
+        assertEquals(300, trips.get(1).getDistance());
+        assertEquals(500, trips.get(2).getDistance());
+
+    }
+
 }
@@ -0,0 +1,92 @@
+package org.traccar.reports;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.reports.common.StorageCollection;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageCollectionTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private StorageCollection<Integer> createCollection(List<Integer> items) {
+        return new StorageCollection<>(() -> {
+            opened.incrementAndGet();
+            return items.stream().onClose(closed::incrementAndGet);
+        });
+    }
+
+    private static List<Integer> read(StorageCollection<Integer> collection) {
+        List<Integer> result = new ArrayList<>();
+        collection.forEach(result::add);
+        return result;
+    }
+
+    @Test
+    public void testEmptinessCheckReusesStream() {
+
+        try (var collection = createCollection(List.of(1, 2, 3))) {
+            assertFalse(collection.isEmpty());
+            assertEquals(List.of(1, 2, 3), read(collection));
+            assertEquals(1, opened.get());
+            assertEquals(1, closed.get());
+        }
+
+    }
+
+    @Test
+    public void testSizeFromCompletePass() {
+
+        try (var collection = createCollection(List.of(1, 2, 3))) {
+            assertEquals(List.of(1, 2, 3), read(collection));
+            assertEquals(3, collection.size());
+            assertFalse(collection.isEmpty());
+            assertEquals(1, opened.get());
+        }
+
+        try (var collection = createCollection(List.of())) {
+            assertTrue(collection.isEmpty());
+            assertEquals(0, collection.size());
+            assertEquals(2, opened.get());
+        }
+
+    }
+
+    @Test
+    public void testCloseAbandoned() {
+
+        var collection = createCollection(List.of(1, 2, 3));
+        Iterator<Integer> iterator = collection.iterator();
+        assertEquals(1, iterator.next());
+        assertEquals(0, closed.get());
+        collection.close();
+        assertEquals(1, closed.get());
+
+    }
+
+    @Test
+    public void testSingleStreamPerPass() {
+
+        List<Stream<Integer>> streams = new ArrayList<>();
+        try (StorageCollection<Integer> collection = new StorageCollection<>(() -> {
+            Stream<Integer> stream = Stream.of(1, 2);
+            streams.add(stream);
+            return stream;
+        })) {
+            assertEquals(List.of(1, 2), read(collection));
+            assertEquals(List.of(1, 2), read(collection));
+        }
+        assertEquals(2, streams.size());
+
+    }
+
+}
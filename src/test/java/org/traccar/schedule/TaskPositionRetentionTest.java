@@ -0,0 +1,60 @@
+package org.traccar.schedule;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.RollupManager;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.reports.common.ReportCache;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.PositionArchive;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskPositionRetentionTest {
+
+    private long addPosition(Storage storage, long deviceId, long age) throws Exception {
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+        position.setFixTime(new Date(System.currentTimeMillis() - age));
+        return storage.addObject(position, new Request(new Columns.Exclude("id")));
+    }
+
+    @Test
+    public void testLatestPositionKept() throws Exception {
+
+        Config config = mock(Config.class);
+        when(config.getString(Keys.DATABASE_PARTITION_INTERVAL)).thenReturn("month");
+        when(config.getInteger(Keys.DATABASE_POSITIONS_RETENTION)).thenReturn(1);
+
+        Storage storage = new MemoryStorage();
+        long deviceId = storage.addObject(new Device(), new Request(new Columns.Exclude("id")));
+
+        addPosition(storage, deviceId, TimeUnit.DAYS.toMillis(3));
+        long latest = addPosition(storage, deviceId, TimeUnit.DAYS.toMillis(2));
+        Device device = new Device();
+        device.setId(deviceId);
+        device.setPositionId(latest);
+        storage.updateObject(device, new Request(
+                new Columns.Include("positionId"), new Condition.Equals("id", deviceId)));
+
+        new TaskPositionRetention(
+                config, storage, mock(PositionArchive.class), mock(ReportCache.class), mock(RollupManager.class)).run();
+
+        var positions = storage.getObjects(Position.class, new Request(new Columns.All()));
+        assertEquals(1, positions.size());
+        assertEquals(latest, positions.get(0).getId());
+
+    }
+
+}
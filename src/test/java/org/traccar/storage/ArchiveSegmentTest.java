@@ -0,0 +1,86 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Position;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveSegmentTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Position position(long id, long time, double latitude, double longitude) {
+        Position position = new Position("test");
+        position.setId(id);
+        position.setDeviceId(7);
+        position.setTime(new Date(time));
+        position.setServerTime(new Date(time + 500));
+        position.setValid(true);
+        position.setLatitude(latitude);
+        position.setLongitude(longitude);
+        position.setSpeed(12.5);
+        return position;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+
+        Position first = position(100, 1000000, 51.5074, -0.1278);
+        first.set(Position.KEY_IGNITION, true);
+        first.set(Position.KEY_ODOMETER, 123456789012L);
+        first.set(Position.KEY_FUEL_LEVEL, 42.5);
+        first.setAddress("London");
+        Position second = position(105, 1030000, 51.5080, -0.1290);
+        second.set(Position.KEY_IGNITION, false);
+        second.set(Position.KEY_SATELLITES, 9);
+        second.set(Position.KEY_DRIVER_UNIQUE_ID, "driver");
+        second.setGeofenceIds(List.of(3L, 4L));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(output, objectMapper)) {
+            writer.write(first);
+            writer.write(second);
+        }
+
+        try (ArchiveSegmentReader reader = new ArchiveSegmentReader(
+                new ByteArrayInputStream(output.toByteArray()), objectMapper, 7)) {
+
+            Position decoded = reader.read();
+            assertEquals(100, decoded.getId());
+            assertEquals(7, decoded.getDeviceId());
+            assertEquals(1000000, decoded.getFixTime().getTime());
+            assertEquals(1000000, decoded.getDeviceTime().getTime());
+            assertEquals(1000500, decoded.getServerTime().getTime());
+            assertEquals("test", decoded.getProtocol());
+            assertEquals(51.5074, decoded.getLatitude(), 1e-7);
+            assertEquals(-0.1278, decoded.getLongitude(), 1e-7);
+            assertEquals(12.5, decoded.getSpeed());
+            assertEquals("London", decoded.getAddress());
+            assertTrue(decoded.getBoolean(Position.KEY_IGNITION));
+            assertEquals(123456789012L, decoded.getLong(Position.KEY_ODOMETER));
+            assertEquals(42.5, decoded.getDouble(Position.KEY_FUEL_LEVEL));
+
+            decoded = reader.read();
+            assertEquals(105, decoded.getId());
+            assertEquals(1030000, decoded.getFixTime().getTime());
+            assertEquals("test", decoded.getProtocol());
+            assertEquals(51.5080, decoded.getLatitude(), 1e-7);
+            assertEquals(9, decoded.getInteger(Position.KEY_SATELLITES));
+            assertEquals("driver", decoded.getString(Position.KEY_DRIVER_UNIQUE_ID));
+            assertEquals(List.of(3L, 4L), decoded.getGeofenceIds());
+            assertNull(decoded.getAddress());
+
+            assertNull(reader.read());
+        }
+
+    }
+
+}
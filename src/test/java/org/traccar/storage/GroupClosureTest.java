@@ -0,0 +1,105 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Group;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class GroupClosureTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JdbcDataSource dataSource;
+    private Storage storage;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE tc_groups (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(128), groupId INT, "
+                + "attributes VARCHAR(4000), FOREIGN KEY (groupId) REFERENCES tc_groups (id) ON DELETE SET NULL)");
+        execute("CREATE TABLE tc_group_closure (parentId INT NOT NULL, groupId INT NOT NULL, "
+                + "PRIMARY KEY (parentId, groupId), "
+                + "FOREIGN KEY (parentId) REFERENCES tc_groups (id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (groupId) REFERENCES tc_groups (id) ON DELETE CASCADE)");
+        storage = new DatabaseStorage(config, dataSource, objectMapper);
+    }
+
+    private void execute(String query) throws SQLException {
+        QueryBuilder.create(config, dataSource, objectMapper, query).executeUpdate();
+    }
+
+    private long addGroup(long parentId) throws StorageException {
+        Group group = new Group();
+        group.setGroupId(parentId);
+        return storage.addObject(group, new Request(new Columns.Include("name", "groupId")));
+    }
+
+    private void moveGroup(long groupId, long parentId) throws StorageException {
+        Group group = new Group();
+        group.setId(groupId);
+        group.setGroupId(parentId);
+        storage.updateObject(group, new Request(
+                new Columns.Include("groupId"), new Condition.Equals("id", groupId)));
+    }
+
+    private Set<List<Long>> getClosure() throws SQLException {
+        Set<List<Long>> result = new HashSet<>();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement("SELECT parentId, groupId FROM tc_group_closure");
+             var resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(List.of(resultSet.getLong(1), resultSet.getLong(2)));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testHierarchy() throws Exception {
+
+        long a = addGroup(0);
+        long b = addGroup(a);
+        long c = addGroup(b);
+        long d = addGroup(0);
+        assertEquals(Set.of(
+                List.of(a, a), List.of(b, b), List.of(c, c), List.of(d, d),
+                List.of(a, b), List.of(a, c), List.of(b, c)), getClosure());
+
+        moveGroup(b, d);
+        assertEquals(Set.of(
+                List.of(a, a), List.of(b, b), List.of(c, c), List.of(d, d),
+                List.of(d, b), List.of(d, c), List.of(b, c)), getClosure());
+
+        storage.removeObject(Group.class, new Request(new Condition.Equals("id", b)));
+        assertEquals(Set.of(List.of(a, a), List.of(c, c), List.of(d, d)), getClosure());
+
+    }
+
+    @Test
+    public void testRepair() throws Exception {
+
+        long a = addGroup(0);
+        long b = addGroup(a);
+        execute("DELETE FROM tc_group_closure");
+
+        new DatabaseStorage(config, dataSource, objectMapper);
+        assertEquals(Set.of(List.of(a, a), List.of(b, b), List.of(a, b)), getClosure());
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Position;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class KeysetPaginationTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Storage createDatabaseStorage() throws StorageException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "CREATE TABLE tc_positions (id INT AUTO_INCREMENT PRIMARY KEY, deviceId INT, fixTime TIMESTAMP)")
+                .executeUpdate();
+        return new DatabaseStorage(config, dataSource, objectMapper, true);
+    }
+
+    private static List<Long> addPositions(Storage storage) throws StorageException {
+        List<Long> ids = new ArrayList<>();
+        // three positions share the same time, pages must not skip or repeat them
+        for (long time : new long[] {1000, 2000, 2000, 2000, 3000}) {
+            Position position = new Position();
+            position.setDeviceId(1);
+            position.setFixTime(new Date(time));
+            ids.add(storage.addObject(position, new Request(new Columns.Include("deviceId", "fixTime"))));
+        }
+        return ids;
+    }
+
+    private static List<Long> readPages(Storage storage) throws StorageException {
+        List<Long> result = new ArrayList<>();
+        Date afterTime = null;
+        long afterId = 0;
+        while (true) {
+            List<Position> page = storage.getObjects(Position.class, new Request(
+                    new Columns.Include("id", "fixTime"),
+                    new Condition.Equals("deviceId", 1L),
+                    new Order("fixTime", true, 2).after(afterTime, afterId)));
+            page.forEach(position -> result.add(position.getId()));
+            if (page.size() < 2) {
+                return result;
+            }
+            afterTime = page.get(page.size() - 1).getFixTime();
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    private static void verify(Storage storage) throws StorageException {
+        List<Long> ids = addPositions(storage);
+        assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)), readPages(storage));
+    }
+
+    @Test
+    public void testDatabase() throws Exception {
+        verify(createDatabaseStorage());
+    }
+
+    @Test
+    public void testMemory() throws Exception {
+        verify(new MemoryStorage());
+    }
+
+}
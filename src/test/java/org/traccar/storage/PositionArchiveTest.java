@@ -0,0 +1,68 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PositionArchiveTest {
+
+    @TempDir
+    private Path directory;
+
+    private PositionArchive createArchive() throws Exception {
+        Config config = mock(Config.class);
+        when(config.getString(Keys.ARCHIVE_PATH)).thenReturn(directory.toString());
+        return new PositionArchive(config, new ObjectMapper());
+    }
+
+    private Position position(long id, long time) {
+        Position position = new Position("test");
+        position.setId(id);
+        position.setDeviceId(1);
+        position.setTime(new Date(time));
+        position.setServerTime(new Date(time));
+        return position;
+    }
+
+    private List<Long> ids(Stream<Position> positions) {
+        try (positions) {
+            return positions.map(Position::getId).toList();
+        }
+    }
+
+    @Test
+    public void testLookupById() throws Exception {
+
+        PositionArchive archive = createArchive();
+        archive.write(1, YearMonth.of(2024, 1), Stream.of(position(10, 1000), position(20, 2000)));
+        archive.write(1, YearMonth.of(2024, 2), Stream.of(position(30, 3000)));
+
+        assertEquals(List.of(20L), ids(archive.getPositions(List.of(20L, 25L)).stream()));
+        assertEquals(List.of(30L), ids(createArchive().getPositions(List.of(30L)).stream()));
+
+    }
+
+    @Test
+    public void testMerge() {
+
+        Stream<Position> archived = Stream.of(position(10, 1000), position(20, 2000), position(30, 3000));
+        List<Position> stored = List.of(position(15, 1500), position(30, 3000), position(40, 4000));
+
+        assertEquals(List.of(10L, 15L, 20L, 30L, 40L), ids(PositionArchive.merge(archived, stored)));
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.helper.ReflectionCache;
+import org.traccar.model.Event;
+import org.traccar.model.Position;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class PropertyAccessorsTest {
+
+    private static final int ROWS = 100_000;
+
+    @Test
+    public void testAccessors() throws Exception {
+
+        Position position = (Position) PropertyAccessors.constructor(Position.class).get();
+
+        PropertyAccessors.DoubleSetter latitudeSetter = PropertyAccessors.setter(
+                PropertyAccessors.DoubleSetter.class, Position.class.getMethod("setLatitude", double.class));
+        PropertyAccessors.DoubleGetter latitudeGetter = PropertyAccessors.getter(
+                PropertyAccessors.DoubleGetter.class, Position.class.getMethod("getLatitude"));
+        latitudeSetter.set(position, 12.5);
+        assertEquals(12.5, position.getLatitude());
+        assertEquals(12.5, latitudeGetter.get(position));
+
+        PropertyAccessors.ObjectSetter timeSetter = PropertyAccessors.setter(
+                PropertyAccessors.ObjectSetter.class, Position.class.getMethod("setFixTime", Date.class));
+        PropertyAccessors.ObjectGetter timeGetter = PropertyAccessors.getter(
+                PropertyAccessors.ObjectGetter.class, Position.class.getMethod("getFixTime"));
+        timeSetter.set(position, new Date(1000));
+        assertEquals(new Date(1000), timeGetter.get(position));
+
+    }
+
+    private static Object readValue(ResultSet resultSet, int index, Class<?> type) throws SQLException {
+        if (type.equals(boolean.class)) {
+            return resultSet.getBoolean(index);
+        } else if (type.equals(int.class)) {
+            return resultSet.getInt(index);
+        } else if (type.equals(long.class)) {
+            return resultSet.getLong(index);
+        } else if (type.equals(double.class)) {
+            return resultSet.getDouble(index);
+        } else if (type.equals(Date.class)) {
+            Timestamp timestamp = resultSet.getTimestamp(index);
+            return timestamp != null ? new Date(timestamp.getTime()) : null;
+        }
+        return resultSet.getString(index);
+    }
+
+    private static <T> List<T> readReflection(
+            DataSource dataSource, String query, Class<T> clazz) throws Exception {
+        List<T> result = new ArrayList<>();
+        try (var connection = dataSource.getConnection();
+             var statement = connection.prepareStatement(query);
+             var resultSet = statement.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            List<Method> methods = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            for (var entry : ReflectionCache.getProperties(clazz, "set").entrySet()) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (entry.getKey().equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                        methods.add(entry.getValue().method());
+                        indexes.add(i);
+                        break;
+                    }
+                }
+            }
+            Constructor<T> constructor = clazz.getConstructor();
+            while (resultSet.next()) {
+                T object = constructor.newInstance();
+                for (int i = 0; i < methods.size(); i++) {
+                    Method method = methods.get(i);
+                    method.invoke(object, readValue(resultSet, indexes.get(i), method.getParameterTypes()[0]));
+                }
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> readGenerated(
+            DataSource dataSource, String query, Class<T> clazz) throws Exception {
+        return QueryBuilder.create(mock(Config.class), dataSource, new ObjectMapper(), query).executeQuery(clazz);
+    }
+
+    private static void benchmark(DataSource dataSource, String query, Class<?> clazz) throws Exception {
+        long reflectionTime = Long.MAX_VALUE;
+        long generatedTime = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            assertEquals(ROWS, readReflection(dataSource, query, clazz).size());
+            reflectionTime = Math.min(reflectionTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            assertEquals(ROWS, readGenerated(dataSource, query, clazz).size());
+            generatedTime = Math.min(generatedTime, System.nanoTime() - start);
+        }
+        System.out.printf("%s rows: reflection %d ns, generated %d ns%n",
+                clazz.getSimpleName(), reflectionTime / ROWS, generatedTime / ROWS);
+    }
+
+    @Disabled
+    @Test
+    public void benchmarkRowMapping() throws Exception {
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE tc_positions (id INT AUTO_INCREMENT PRIMARY KEY, protocol VARCHAR(128), "
+                    + "deviceId INT, serverTime TIMESTAMP, deviceTime TIMESTAMP, fixTime TIMESTAMP, valid BOOLEAN, "
+                    + "latitude DOUBLE, longitude DOUBLE, altitude DOUBLE, speed DOUBLE, course DOUBLE, "
+                    + "address VARCHAR(512), accuracy DOUBLE)");
+            statement.execute("INSERT INTO tc_positions (protocol, deviceId, serverTime, deviceTime, fixTime, valid, "
+                    + "latitude, longitude, altitude, speed, course, address, accuracy) "
+                    + "SELECT 'test', 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, TRUE, "
+                    + "X * 0.0001, X * 0.0002, 10, 20, 30, 'address', 5 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+            statement.execute("CREATE TABLE tc_events (id INT AUTO_INCREMENT PRIMARY KEY, type VARCHAR(128), "
+                    + "eventTime TIMESTAMP, deviceId INT, positionId INT, geofenceId INT, maintenanceId INT)");
+            statement.execute("INSERT INTO tc_events (type, eventTime, deviceId, positionId, geofenceId, "
+                    + "maintenanceId) SELECT 'deviceOnline', CURRENT_TIMESTAMP, 1, X, 0, 0 "
+                    + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+
+        benchmark(dataSource, "SELECT * FROM tc_positions", Position.class);
+        benchmark(dataSource, "SELECT * FROM tc_events", Event.class);
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Position;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class QueryBuilderTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    public void createTable() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "CREATE TABLE tc_positions (id INT AUTO_INCREMENT PRIMARY KEY, deviceId INT, "
+                + "protocol VARCHAR(128), fixTime TIMESTAMP, valid BOOLEAN, latitude DOUBLE, "
+                + "address VARCHAR(512), attributes VARCHAR(4000))").executeUpdate();
+    }
+
+    @Test
+    public void testObjectRoundTrip() throws Exception {
+
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setProtocol("test");
+        position.setFixTime(new Date(1000000));
+        position.setValid(true);
+        position.setLatitude(12.5);
+        position.set(Position.KEY_IGNITION, true);
+
+        List<String> columns = List.of("deviceId", "protocol", "fixTime", "valid", "latitude", "address", "attributes");
+        long id = QueryBuilder.create(config, dataSource, objectMapper,
+                "INSERT INTO tc_positions (deviceId, protocol, fixTime, valid, latitude, address, attributes) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", true)
+                .setObject(position, columns)
+                .executeUpdate();
+        assertTrue(id > 0);
+
+        List<Position> result = QueryBuilder.create(config, dataSource, objectMapper,
+                "SELECT * FROM tc_positions").executeQuery(Position.class);
+        assertEquals(1, result.size());
+
+        Position loaded = result.get(0);
+        assertEquals(id, loaded.getId());
+        assertEquals(1, loaded.getDeviceId());
+        assertEquals("test", loaded.getProtocol());
+        assertEquals(1000000, loaded.getFixTime().getTime());
+        assertTrue(loaded.getValid());
+        assertEquals(12.5, loaded.getLatitude());
+        assertNull(loaded.getAddress());
+        assertTrue(loaded.getBoolean(Position.KEY_IGNITION));
+        assertFalse(loaded.getOutdated());
+
+    }
+
+    @Test
+    public void testBatchGeneratedKeys() throws Exception {
+
+        QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper,
+                "INSERT INTO tc_positions (deviceId, latitude) VALUES (?, ?)", true);
+        for (int i = 1; i <= 3; i++) {
+            Position position = new Position();
+            position.setDeviceId(i);
+            position.setLatitude(i);
+            builder.setObject(position, List.of("deviceId", "latitude")).addBatch();
+        }
+        List<Long> ids = builder.executeBatch();
+        assertEquals(3, ids.size());
+
+        List<Position> result = QueryBuilder.create(config, dataSource, objectMapper,
+                "SELECT * FROM tc_positions ORDER BY id").executeQuery(Position.class);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ids.get(i), result.get(i).getId());
+            assertEquals(i + 1, result.get(i).getDeviceId());
+        }
+
+    }
+
+}
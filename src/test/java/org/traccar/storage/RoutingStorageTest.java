@@ -0,0 +1,54 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Position;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RoutingStorageTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DataSource createDataSource() throws StorageException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "CREATE TABLE tc_positions (id INT AUTO_INCREMENT PRIMARY KEY, deviceId INT, latitude DOUBLE)")
+                .executeUpdate();
+        return dataSource;
+    }
+
+    @Test
+    public void testReadsFromReplica() throws Exception {
+
+        Storage primary = new DatabaseStorage(config, createDataSource(), objectMapper, true);
+        Storage replica = new DatabaseStorage(config, createDataSource(), objectMapper, true);
+        Storage storage = new RoutingStorage(primary, replica);
+
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setLatitude(10);
+        long id = storage.addObject(position, new Request(new Columns.Include("deviceId", "latitude")));
+        assertTrue(id > 0);
+
+        Request request = new Request(new Columns.Include("id", "deviceId", "latitude"));
+        assertEquals(1, primary.getObjects(Position.class, request).size());
+        assertTrue(storage.getObjects(Position.class, request).isEmpty());
+
+        replica.addObject(position, new Request(new Columns.Include("deviceId", "latitude")));
+        assertEquals(1, storage.getObjects(Position.class, request).size());
+        assertEquals(1, storage.countObjects(Position.class, new Request(new Columns.All())));
+
+    }
+
+}